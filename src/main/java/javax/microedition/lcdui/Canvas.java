@@ -6,6 +6,7 @@ import ru.threedisevenzeror.retrophone.InputDevice;
 import ru.threedisevenzeror.retrophone.RetroDevice;
 import ru.threedisevenzeror.retrophone.utils.ComponentDelegate;
 import ru.threedisevenzeror.retrophone.utils.DelegateHolder;
+import ru.threedisevenzeror.retrophone.utils.KeyStateTracker;
 
 public abstract class Canvas extends Displayable {
 
@@ -24,7 +25,9 @@ public abstract class Canvas extends Displayable {
 
         public void notifyHide() {
             checkForAttach();
-            getAttachedObject().hideNotify();
+            Canvas canvas = getAttachedObject();
+            canvas.keyStateTracker.reset();
+            canvas.hideNotify();
         }
 
         public void notifyPointerPressed(int x, int y) {
@@ -34,17 +37,33 @@ public abstract class Canvas extends Displayable {
 
         public void notifyKeyPressed(int keyCode) {
             checkForAttach();
-            getAttachedObject().keyPressed(keyCode);
+            Canvas canvas = getAttachedObject();
+            int gameAction = canvas.getGameAction(keyCode);
+
+            canvas.keyStateTracker.press(gameAction);
+            if(canvas.keyStateTracker.shouldDispatch(gameAction)) {
+                canvas.keyPressed(keyCode);
+            }
         }
 
         public void notifyKeyRepeated(int keyCode) {
             checkForAttach();
-            getAttachedObject().keyRepeated(keyCode);
+            Canvas canvas = getAttachedObject();
+
+            if(canvas.keyStateTracker.shouldDispatch(canvas.getGameAction(keyCode))) {
+                canvas.keyRepeated(keyCode);
+            }
         }
 
         public void notifyKeyReleased(int keyCode) {
             checkForAttach();
-            getAttachedObject().keyReleased(keyCode);
+            Canvas canvas = getAttachedObject();
+            int gameAction = canvas.getGameAction(keyCode);
+
+            canvas.keyStateTracker.release(gameAction);
+            if(canvas.keyStateTracker.shouldDispatch(gameAction)) {
+                canvas.keyReleased(keyCode);
+            }
         }
 
         public void notifyPointerDragged(int x, int y) {
@@ -57,6 +76,16 @@ public abstract class Canvas extends Displayable {
             getAttachedObject().pointerReleased(x, y);
         }
 
+        /**
+         * Pushes region of offscreen buffer to the screen, and returns when it is done.
+         * Default implementation repaints region and waits for it, so only clipped part of buffer gets painted.
+         * Delegates that have direct access to the screen may override it to copy region without paint cycle
+         */
+        public void flushGraphics(Image buffer, int x, int y, int width, int height) {
+            repaint(x, y, width, height);
+            serviceRepaints();
+        }
+
         public abstract void repaint(int x, int y, int width, int height);
         public abstract void serviceRepaints();
     }
@@ -170,6 +199,7 @@ public abstract class Canvas extends Displayable {
     private DisplayDevice displayDevice;
     private InputDevice inputDevice;
     private final DelegateHolder<CanvasDelegate, Canvas> delegateHolder;
+    private final KeyStateTracker keyStateTracker;
 
     private int width;
     private int height;
@@ -177,6 +207,7 @@ public abstract class Canvas extends Displayable {
     protected Canvas() {
 
         delegateHolder = new DelegateHolder<CanvasDelegate, Canvas>(this);
+        keyStateTracker = new KeyStateTracker();
         graphicsDevice = RetroDevice.getInstance().getGraphics();
         displayDevice = RetroDevice.getInstance().getDisplay();
         inputDevice = RetroDevice.getInstance().getInput();
@@ -197,6 +228,10 @@ public abstract class Canvas extends Displayable {
         return displayDevice;
     }
 
+    public KeyStateTracker getKeyStateTracker() {
+        return keyStateTracker;
+    }
+
     /**
      * Gets width of the displayable area in pixels.
      * The value is unchanged during the execution of the application and all Canvases will have the same value.
@@ -497,5 +532,9 @@ public abstract class Canvas extends Displayable {
     public void attachDelegate(CanvasDelegate delegate) {
         delegateHolder.setDelegate(delegate);
     }
+
+    public CanvasDelegate getDelegate() {
+        return delegateHolder.getDelegate();
+    }
 }
 
@@ -1,5 +1,8 @@
 package javax.microedition.lcdui;
 
+import ru.threedisevenzeror.retrophone.utils.ImageTransform;
+import ru.threedisevenzeror.retrophone.utils.TransformedImageCache;
+
 public class Graphics {
 
     public abstract static class Impl {
@@ -78,6 +81,8 @@ public class Graphics {
 
         public abstract void clipRect(int x, int y, int width, int height);
 
+        public abstract void copyArea(int xSrc, int ySrc, int width, int height, int xDest, int yDest, int anchor);
+
         public abstract void drawArc(int x, int y, int width, int height, int startAngle, int arcAngle);
 
         public void drawChar(char character, int x, int y, int anchor) {
@@ -90,6 +95,39 @@ public class Graphics {
 
         public abstract void drawLine(int x1, int y1, int x2, int y2);
 
+        public abstract void drawRGB(int[] rgbData, int offset, int scanlength, int x, int y,
+                                     int width, int height, boolean processAlpha);
+
+        /**
+         * Generic region blit, transformed pixels are obtained from image and passed to drawRGB.
+         * Regions of small immutable images are taken from TransformedImageCache
+         */
+        public void drawRegion(Image src, int xSrc, int ySrc, int width, int height,
+                               int transform, int xDest, int yDest, int anchor) {
+
+            int dstWidth = ImageTransform.getTransformedWidth(transform, width, height);
+            int dstHeight = ImageTransform.getTransformedHeight(transform, width, height);
+            int x = alignX(xDest, dstWidth, anchor);
+            int y = alignY(yDest, dstHeight, anchor);
+
+            int[] pixels = TransformedImageCache.instance.getTransformedRegion(
+                    src.getImplementation(), xSrc, ySrc, width, height, transform);
+
+            if(pixels == null) {
+                int[] region = new int[width * height];
+                src.getImplementation().getRGB(region, 0, width, xSrc, ySrc, width, height);
+
+                if(transform == ImageTransform.TRANS_NONE) {
+                    pixels = region;
+                } else {
+                    pixels = new int[region.length];
+                    ImageTransform.transform(region, 0, width, width, height, transform, pixels, 0, dstWidth);
+                }
+            }
+
+            drawRGB(pixels, 0, dstWidth, x, y, dstWidth, dstHeight, true);
+        }
+
         public abstract void drawRect(int x, int y, int width, int height);
 
         public abstract void drawRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight);
@@ -128,6 +166,32 @@ public class Graphics {
             xTranslation += x;
             yTranslation += y;
         }
+
+        /**
+         * Returns left coordinate of object with specified width, positioned by anchor
+         */
+        protected static int alignX(int x, int width, int anchor) {
+            if((anchor & Graphics.HCENTER) != 0) {
+                return x - width / 2;
+            } else if((anchor & Graphics.RIGHT) != 0) {
+                return x - width;
+            } else {
+                return x;
+            }
+        }
+
+        /**
+         * Returns top coordinate of object with specified height, positioned by anchor
+         */
+        protected static int alignY(int y, int height, int anchor) {
+            if((anchor & Graphics.VCENTER) != 0) {
+                return y - height / 2;
+            } else if((anchor & Graphics.BOTTOM) != 0) {
+                return y - height;
+            } else {
+                return y;
+            }
+        }
     }
 
     /**
@@ -176,9 +240,16 @@ public class Graphics {
     public static final int RIGHT = 8;
 
     private Impl impl;
+    // image this graphics draws to, or null if it draws to screen
+    private Image destination;
 
     public Graphics(Impl impl) {
+        this(impl, null);
+    }
+
+    Graphics(Impl impl, Image destination) {
         this.impl = impl;
+        this.destination = destination;
 
         setClip(0, 0, impl.getWidth(), impl.getHeight());
         setColor(0, 0, 0);
@@ -366,6 +437,55 @@ public class Graphics {
         impl.clipRect(x, y, width, height);
     }
 
+    /**
+     * Copies the contents of a rectangular area (x_src, y_src, width, height) to a destination area,
+     * whose anchor point identified by anchor is located at (x_dest, y_dest).
+     * The effect must be that the destination area contains an exact copy of the contents of the source area
+     * immediately prior to the invocation of this method. This result must occur even if the source and
+     * destination areas overlap.<br/>
+     * <br/>
+     * The points (x_src, y_src) and (x_dest, y_dest) are both specified relative to the coordinate system
+     * of the Graphics object. It is illegal for the source region to extend beyond the bounds of the graphic object.
+     * Only the destination area is affected by the current clip. Copy is reported to presenter apart
+     * from changed area, so scrolling screens move pixels already on screen and repaint just the strip
+     * that was exposed by the copy.
+     *
+     * @param xSrc the x coordinate of upper left corner of source area
+     * @param ySrc the y coordinate of upper left corner of source area
+     * @param width the width of the source area
+     * @param height the height of the source area
+     * @param xDest the x coordinate of the destination anchor point
+     * @param yDest the y coordinate of the destination anchor point
+     * @param anchor the anchor point for positioning the region within the destination image
+     *
+     * @throws IllegalArgumentException if the region to be copied exceeds the bounds of the source image
+     * @throws IllegalArgumentException if either width or height is negative
+     * @throws IllegalArgumentException if anchor is not a legal value
+     */
+    public void copyArea(int xSrc, int ySrc, int width, int height, int xDest, int yDest, int anchor) {
+
+        if(width < 0 || height < 0) {
+            throw new IllegalArgumentException("Negative area size " + width + "x" + height);
+        }
+
+        if(!isValidImageAnchor(anchor)) {
+            throw new IllegalArgumentException("Invalid anchor " + anchor);
+        }
+
+        int left = xSrc + getTranslateX();
+        int top = ySrc + getTranslateY();
+        if(left < 0 || top < 0 || left + width > impl.getWidth() || top + height > impl.getHeight()) {
+            throw new IllegalArgumentException("Area " + xSrc + "," + ySrc + " " + width + "x" + height +
+                    " exceeds graphics bounds");
+        }
+
+        if(width == 0 || height == 0) {
+            return;
+        }
+
+        impl.copyArea(xSrc, ySrc, width, height, xDest, yDest, anchor);
+    }
+
     /**
      * Draws the outline of a circular or elliptical arc covering the specified rectangle, using the current color and stroke style.
      * The resulting arc begins at startAngle and extends for arcAngle degrees, using the current color.
@@ -455,6 +575,105 @@ public class Graphics {
         impl.drawLine(x1, y1, x2, y2);
     }
 
+    /**
+     * Renders a series of device-independent RGB+transparency values in a specified region.
+     * The values are stored in rgbData in a format with 24 bits of RGB and an eight-bit alpha value (0xAARRGGBB),
+     * with the first value stored at the specified offset. The scanlength specifies the relative offset within
+     * the array between the corresponding pixels of consecutive rows. Any value for scanlength is acceptable
+     * (even negative values) provided that all resulting references are within the bounds of the rgbData array.<br/>
+     * <br/>
+     * If processAlpha is true, the high-order byte of the ARGB format specifies opacity; that is,
+     * 0x00RRGGBB specifies a fully transparent pixel and 0xFFRRGGBB specifies a fully opaque pixel.
+     * If processAlpha is false, the alpha values are ignored and all pixels must be treated as completely opaque.
+     *
+     * @param rgbData an array of ARGB values in the format 0xAARRGGBB
+     * @param offset the array index of the first ARGB value
+     * @param scanlength the relative array offset between the corresponding pixels in consecutive rows in the rgbData array
+     * @param x the horizontal location of the region to be rendered
+     * @param y the vertical location of the region to be rendered
+     * @param width the width of the region to be rendered
+     * @param height the height of the region to be rendered
+     * @param processAlpha true if rgbData has an alpha channel, false if all pixels are fully opaque
+     *
+     * @throws ArrayIndexOutOfBoundsException if the requested operation will attempt to access an element of rgbData
+     * whose index is either negative or beyond its length
+     * @throws NullPointerException if rgbData is null
+     */
+    public void drawRGB(int[] rgbData, int offset, int scanlength, int x, int y, int width, int height, boolean processAlpha) {
+
+        if(width <= 0 || height <= 0) {
+            return;
+        }
+
+        int first = offset + Math.min(0, (height - 1) * scanlength);
+        int last = offset + Math.max(0, (height - 1) * scanlength) + width - 1;
+        if(first < 0 || last >= rgbData.length) {
+            throw new ArrayIndexOutOfBoundsException("Region does not fit into rgbData array");
+        }
+
+        impl.drawRGB(rgbData, offset, scanlength, x, y, width, height, processAlpha);
+    }
+
+    /**
+     * Copies a region of the specified source image to a location within the destination, possibly transforming
+     * (rotating and reflecting) the image data using the chosen transform function.
+     * The destination, if it is an image, must not be the same image as the source image.<br/>
+     * <br/>
+     * The transform function used must be one of the following, as defined in the Sprite class:
+     * TRANS_NONE, TRANS_ROT90, TRANS_ROT180, TRANS_ROT270, TRANS_MIRROR, TRANS_MIRROR_ROT90,
+     * TRANS_MIRROR_ROT180, TRANS_MIRROR_ROT270.<br/>
+     * <br/>
+     * The location of the transformed region in the destination is specified by the anchor point
+     * and the (x_dest, y_dest) coordinates. The anchor applies to the region after transformation.
+     *
+     * @param src the source image to copy from
+     * @param xSrc the x coordinate of the upper left corner of the region within the source image to copy
+     * @param ySrc the y coordinate of the upper left corner of the region within the source image to copy
+     * @param width the width of the region to copy
+     * @param height the height of the region to copy
+     * @param transform the desired transformation for the selected region being copied
+     * @param xDest the x coordinate of the anchor point in the destination drawing area
+     * @param yDest the y coordinate of the anchor point in the destination drawing area
+     * @param anchor the anchor point for positioning the region within the destination image
+     *
+     * @throws IllegalArgumentException if src is the same image as the destination of this Graphics object
+     * @throws NullPointerException if src is null
+     * @throws IllegalArgumentException if transform is invalid
+     * @throws IllegalArgumentException if anchor is invalid
+     * @throws IllegalArgumentException if the region to be copied exceeds the bounds of the source image
+     */
+    public void drawRegion(Image src, int xSrc, int ySrc, int width, int height,
+                           int transform, int xDest, int yDest, int anchor) {
+
+        if(src == null) {
+            throw new NullPointerException("Source image should not be null");
+        }
+
+        if(src == destination) {
+            throw new IllegalArgumentException("Cannot draw image region to the same image");
+        }
+
+        if(!ImageTransform.isValid(transform)) {
+            throw new IllegalArgumentException("Unknown transform " + transform);
+        }
+
+        if(!isValidImageAnchor(anchor)) {
+            throw new IllegalArgumentException("Invalid anchor " + anchor);
+        }
+
+        if(xSrc < 0 || ySrc < 0 || width < 0 || height < 0 ||
+                xSrc + width > src.getWidth() || ySrc + height > src.getHeight()) {
+            throw new IllegalArgumentException("Region " + xSrc + "," + ySrc + " " + width + "x" + height +
+                    " exceeds image bounds " + src.getWidth() + "x" + src.getHeight());
+        }
+
+        if(width == 0 || height == 0) {
+            return;
+        }
+
+        impl.drawRegion(src, xSrc, ySrc, width, height, transform, xDest, yDest, anchor);
+    }
+
     /**
      * Draws the outline of the specified rectangle using the current color and stroke style.
      * The resulting rectangle will cover an area (width + 1)
@@ -624,5 +843,17 @@ public class Graphics {
     public void translate(int x, int y) {
         impl.translate(x, y);
     }
+
+    private static boolean isValidImageAnchor(int anchor) {
+        if(anchor == 0) {
+            return true;
+        }
+
+        int horizontal = anchor & (LEFT | HCENTER | RIGHT);
+        int vertical = anchor & (TOP | VCENTER | BOTTOM);
+
+        return (anchor & ~(LEFT | HCENTER | RIGHT | TOP | VCENTER | BOTTOM)) == 0 &&
+                Integer.bitCount(horizontal) <= 1 && Integer.bitCount(vertical) <= 1;
+    }
 }
 
@@ -42,6 +42,8 @@ public class Image {
         public abstract int getHeight();
 
         public abstract int getWidth();
+
+        public abstract void getRGB(int[] rgbData, int offset, int scanlength, int x, int y, int width, int height);
     }
 
     private Impl impl;
@@ -83,6 +85,54 @@ public class Image {
         return impl.getWidth();
     }
 
+    /**
+     * Obtains ARGB pixel data from the specified region of this image and stores it in the provided array of integers.
+     * Each pixel value is stored in 0xAARRGGBB format, where the high-order byte contains the alpha channel
+     * and the remaining bytes contain color components for red, green and blue, respectively.
+     * The alpha channel specifies the opacity of the pixel, where a value of 0x00 represents a pixel that is
+     * fully transparent and a value of 0xFF represents a fully opaque pixel.<br/>
+     * <br/>
+     * The returned values are not guaranteed to be identical to values from the original source,
+     * such as from createRGBImage or from a PNG image.
+     *
+     * @param rgbData an array of integers in which the ARGB pixel data is stored
+     * @param offset the index into the array where the first ARGB value is stored
+     * @param scanlength the relative offset in the array between corresponding pixels in consecutive rows of the region
+     * @param x the x-coordinate of the upper left corner of the region
+     * @param y the y-coordinate of the upper left corner of the region
+     * @param width the width of the region
+     * @param height the height of the region
+     *
+     * @throws ArrayIndexOutOfBoundsException if the requested operation would attempt to access an element
+     * in the rgbData array whose index is either negative or beyond its length
+     * @throws IllegalArgumentException if the area being retrieved exceeds the bounds of the source image
+     * @throws IllegalArgumentException if the absolute value of scanlength is less than width
+     * @throws NullPointerException if rgbData is null
+     */
+    public void getRGB(int[] rgbData, int offset, int scanlength, int x, int y, int width, int height) {
+
+        if(x < 0 || y < 0 || width < 0 || height < 0 || x + width > getWidth() || y + height > getHeight()) {
+            throw new IllegalArgumentException("Region " + x + "," + y + " " + width + "x" + height +
+                    " exceeds image bounds " + getWidth() + "x" + getHeight());
+        }
+
+        if(Math.abs(scanlength) < width) {
+            throw new IllegalArgumentException("Scanlength " + scanlength + " is less than width " + width);
+        }
+
+        if(width == 0 || height == 0) {
+            return;
+        }
+
+        int first = offset + Math.min(0, (height - 1) * scanlength);
+        int last = offset + Math.max(0, (height - 1) * scanlength) + width - 1;
+        if(first < 0 || last >= rgbData.length) {
+            throw new ArrayIndexOutOfBoundsException("Region does not fit into rgbData array");
+        }
+
+        impl.getRGB(rgbData, offset, scanlength, x, y, width, height);
+    }
+
     /**
      * Creates a new Graphics object that renders to this image.
      * This image must be mutable; it is illegal to call this method on an immutable image.
@@ -105,7 +155,7 @@ public class Image {
         if (isMutable()) {
             return new Graphics(RetroDevice.getInstance()
                     .getGraphics()
-                    .getOffScreenGraphicsImpl(this));
+                    .getOffScreenGraphicsImpl(this), this);
         } else {
             throw new IllegalStateException("Cannot get graphics, Image is immutable");
         }
@@ -0,0 +1,139 @@
+package javax.microedition.lcdui.game;
+
+import ru.threedisevenzeror.retrophone.utils.ImageTransform;
+
+import javax.microedition.lcdui.Image;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * 1-bit opacity masks of image frames, built lazily for every frame and transform.<br/>
+ * <br/>
+ * Mask of a transformed frame is stored row by row, every row takes (width + 63) / 64 longs,
+ * pixel x of a row is bit (x % 64) of long (x / 64). Opaque pixel is 1, transparent is 0.
+ * Pixels of mutable images are always considered opaque, so they have no masks at all.
+ */
+final class CollisionMasks {
+
+    private final Image image;
+    private final int frameWidth;
+    private final int frameHeight;
+    private final int framesPerRow;
+    private final long[][] masks;
+
+    CollisionMasks(Image image, int frameWidth, int frameHeight) {
+        this.image = image;
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+        this.framesPerRow = image.getWidth() / frameWidth;
+        this.masks = new long[framesPerRow * (image.getHeight() / frameHeight) * 8][];
+    }
+
+    boolean isFor(Image image, int frameWidth, int frameHeight) {
+        return this.image == image && this.frameWidth == frameWidth && this.frameHeight == frameHeight;
+    }
+
+    /**
+     * Returns mask of raw frame with applied transform, or null if all pixels are opaque
+     */
+    long[] getMask(int frame, int transform) {
+        if(image.isMutable()) {
+            return null;
+        }
+
+        int index = frame * 8 + transform;
+        long[] mask = masks[index];
+
+        if(mask == null) {
+            mask = createMask(frame, transform);
+            masks[index] = mask;
+        }
+
+        return mask;
+    }
+
+    private long[] createMask(int frame, int transform) {
+        int[] pixels = new int[frameWidth * frameHeight];
+        image.getRGB(pixels, 0, frameWidth,
+                (frame % framesPerRow) * frameWidth, (frame / framesPerRow) * frameHeight,
+                frameWidth, frameHeight);
+
+        int width = ImageTransform.getTransformedWidth(transform, frameWidth, frameHeight);
+        int height = ImageTransform.getTransformedHeight(transform, frameWidth, frameHeight);
+        int words = getWordsPerRow(width);
+        int columnStep = ImageTransform.getColumnStep(transform, frameWidth);
+        int rowStep = ImageTransform.getRowStep(transform, frameWidth);
+        int rowStart = ImageTransform.getStartIndex(transform, 0, frameWidth, frameWidth, frameHeight);
+        long[] mask = new long[words * height];
+
+        for(int y = 0; y < height; y++) {
+            int s = rowStart;
+            int row = y * words;
+
+            for(int x = 0; x < width; x++) {
+                if((pixels[s] >>> 24) != 0) {
+                    mask[row + (x >>> 6)] |= 1L << x;
+                }
+
+                s += columnStep;
+            }
+
+            rowStart += rowStep;
+        }
+
+        return mask;
+    }
+
+    static int getWordsPerRow(int width) {
+        return (width + 63) >>> 6;
+    }
+
+    /**
+     * Checks two masks for overlapping opaque pixels in width x height area.
+     * Area starts at (ax, ay) in the first mask and at (bx, by) in the second one.
+     * Rows are compared 64 pixels at once, null mask is treated as fully opaque
+     */
+    static boolean intersects(long[] a, int aWords, int ax, int ay,
+                              long[] b, int bWords, int bx, int by,
+                              int width, int height) {
+
+        if(a == null && b == null) {
+            return width > 0 && height > 0;
+        }
+
+        for(int y = 0; y < height; y++) {
+            int aRow = (ay + y) * aWords;
+            int bRow = (by + y) * bWords;
+
+            for(int x = 0; x < width; x += 64) {
+                long bits = (a == null ? -1L : getBits(a, aRow, aWords, ax + x)) &
+                            (b == null ? -1L : getBits(b, bRow, bWords, bx + x));
+
+                int count = width - x;
+                if(count < 64) {
+                    bits &= (1L << count) - 1;
+                }
+
+                if(bits != 0) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns 64 bits of mask row starting from specified bit
+     */
+    private static long getBits(long[] mask, int rowStart, int words, int bit) {
+        int word = bit >>> 6;
+        int shift = bit & 63;
+        long bits = mask[rowStart + word] >>> shift;
+
+        if(shift != 0 && word + 1 < words) {
+            bits |= mask[rowStart + word + 1] << (64 - shift);
+        }
+
+        return bits;
+    }
+}
@@ -0,0 +1,186 @@
+package javax.microedition.lcdui.game;
+
+import javax.microedition.lcdui.Canvas;
+import javax.microedition.lcdui.Graphics;
+import javax.microedition.lcdui.Image;
+
+/**
+ * The GameCanvas class provides the basis for a game user interface. In addition to the features inherited
+ * from Canvas (commands, input events, etc.) it also provides game-specific capabilities such as an
+ * off-screen graphics buffer and the ability to query key status.<br/>
+ * <br/>
+ * A dedicated buffer is created for each GameCanvas instance. Since a unique buffer is provided for each
+ * GameCanvas instance, it is preferable to re-use a single GameCanvas instance in the interests of
+ * minimizing heap usage. The developer can assume that the contents of this buffer are modified only
+ * by calls to the Graphics object(s) obtained from the GameCanvas instance; the contents are not modified
+ * by external sources such as other MIDlets or system-level notifications. The buffer is initially
+ * filled with white pixels.<br/>
+ * <br/>
+ * The size of this buffer is set to the maximum dimensions of the GameCanvas. However, the area that may
+ * be flushed is limited by the current dimensions of the GameCanvas, which may be altered by the presence
+ * of a Ticker, Commands, etc.
+ */
+public abstract class GameCanvas extends Canvas {
+
+    /**
+     * The bit representing the UP key.
+     */
+    public static final int UP_PRESSED = 1 << Canvas.UP;
+
+    /**
+     * The bit representing the DOWN key.
+     */
+    public static final int DOWN_PRESSED = 1 << Canvas.DOWN;
+
+    /**
+     * The bit representing the LEFT key.
+     */
+    public static final int LEFT_PRESSED = 1 << Canvas.LEFT;
+
+    /**
+     * The bit representing the RIGHT key.
+     */
+    public static final int RIGHT_PRESSED = 1 << Canvas.RIGHT;
+
+    /**
+     * The bit representing the FIRE key.
+     */
+    public static final int FIRE_PRESSED = 1 << Canvas.FIRE;
+
+    /**
+     * The bit representing the GAME_A key (may not be supported on all devices).
+     */
+    public static final int GAME_A_PRESSED = 1 << Canvas.GAME_A;
+
+    /**
+     * The bit representing the GAME_B key (may not be supported on all devices).
+     */
+    public static final int GAME_B_PRESSED = 1 << Canvas.GAME_B;
+
+    /**
+     * The bit representing the GAME_C key (may not be supported on all devices).
+     */
+    public static final int GAME_C_PRESSED = 1 << Canvas.GAME_C;
+
+    /**
+     * The bit representing the GAME_D key (may not be supported on all devices).
+     */
+    public static final int GAME_D_PRESSED = 1 << Canvas.GAME_D;
+
+    private final Image buffer;
+
+    /**
+     * Creates a new instance of a GameCanvas. A new buffer is also created for the GameCanvas and is initially filled with white pixels.<br/>
+     * <br/>
+     * If the developer only needs to query key status using the getKeyStates method, the regular key event
+     * mechanism can be suppressed for game keys while this GameCanvas is shown. If not needed by the
+     * application, the suppression of key events may improve performance by eliminating unnecessary
+     * system calls to keyPressed, keyRepeated and keyReleased methods.<br/>
+     * <br/>
+     * If requested, key event suppression for a given GameCanvas is started when it is shown (i.e. when
+     * showNotify is called) and stopped when it is hidden (i.e. when hideNotify is called).
+     * Since the showing and hiding of screens is serialized with the event queue, this arrangement
+     * ensures that the suppression effects only those key events intended for the corresponding GameCanvas.
+     * Thus, if key events are being generated while another screen is still shown, those key events will
+     * continue to be queued and dispatched until that screen is hidden and the GameCanvas has replaced it.<br/>
+     * <br/>
+     * Note that key events can be suppressed only for the defined game keys (UP, DOWN, FIRE, etc.);
+     * key events are always generated for all other keys.
+     *
+     * @param suppressKeyEvents true to suppress the regular key event mechanism for game keys, otherwise false.
+     */
+    protected GameCanvas(boolean suppressKeyEvents) {
+        getKeyStateTracker().setSuppressEvents(suppressKeyEvents);
+        buffer = Image.createImage(getWidth(), getHeight());
+    }
+
+    /**
+     * Obtains the Graphics object for rendering a GameCanvas. The returned Graphics object renders
+     * to the off-screen buffer belonging to this GameCanvas.<br/>
+     * <br/>
+     * Rendering operations do not appear on the display until flushGraphics() is called; flushing the buffer
+     * does not change its contents (the pixels are not cleared as a result of the flushing operation).<br/>
+     * <br/>
+     * A new Graphics object is created and returned each time this method is called; therefore,
+     * the needed Graphics object(s) should be obtained before the game starts then re-used while the game is running.
+     * For each GameCanvas instance, all of the provided graphics objects will render to the same off-screen buffer.
+     *
+     * @return the Graphics object that renders to this GameCanvas' off-screen buffer
+     */
+    protected Graphics getGraphics() {
+        return buffer.getGraphics();
+    }
+
+    /**
+     * Gets the states of the physical game keys. Each bit in the returned integer represents a specific key on the device.
+     * A key's bit will be 1 if the key is currently down or has been pressed at least once since the last time
+     * this method was called. The bit will be 0 if the key is currently up and has not been pressed at all since
+     * the last time this method was called. This latching behavior ensures that a rapid key press and release
+     * will always be caught by the game loop, regardless of how slowly the loop runs.<br/>
+     * <br/>
+     * Calling this method has the side effect of clearing any latched state. Another call to getKeyStates
+     * immediately after a prior call will therefore report the system's best idea of the current state of the keys,
+     * the latched bits having been cleared by the first call.
+     *
+     * @return An integer containing the key state information (one bit per key), or 0 if the GameCanvas is not currently shown.
+     */
+    public int getKeyStates() {
+        return getKeyStateTracker().poll();
+    }
+
+    /**
+     * Paints this GameCanvas. By default, this method renders the off-screen buffer at (0,0).
+     * Rendering of the buffer is subject to the clip region and origin translation of the Graphics object.
+     *
+     * @param g the Graphics object with which to render the screen.
+     */
+    public void paint(Graphics g) {
+        g.drawImage(buffer, 0, 0, Graphics.TOP | Graphics.LEFT);
+    }
+
+    /**
+     * Flushes the specified region of the off-screen buffer to the display. The contents of the off-screen
+     * buffer are not changed as a result of the flush operation. This method does not return until the flush
+     * has been completed, so the app may immediately begin to render the next frame to the same buffer
+     * once this method returns.<br/>
+     * <br/>
+     * If the specified region extends beyond the current bounds of the GameCanvas, only the intersecting region is flushed.
+     * No pixels are flushed if the specified width or height is less than 1.<br/>
+     * <br/>
+     * This method does nothing and returns immediately if the GameCanvas is not currently shown or the
+     * flush request cannot be honored because the system is busy.
+     *
+     * @param x the left edge of the region to be flushed
+     * @param y the top edge of the region to be flushed
+     * @param width the width of the region to be flushed
+     * @param height the height of the region to be flushed
+     */
+    public void flushGraphics(int x, int y, int width, int height) {
+        int left = Math.max(0, x);
+        int top = Math.max(0, y);
+        int right = Math.min(getWidth(), x + width);
+        int bottom = Math.min(getHeight(), y + height);
+
+        if(left >= right || top >= bottom) {
+            return;
+        }
+
+        CanvasDelegate delegate = getDelegate();
+        if(delegate != null) {
+            delegate.flushGraphics(buffer, left, top, right - left, bottom - top);
+        }
+    }
+
+    /**
+     * Flushes the off-screen buffer to the display. The size of the flushed area is equal to the size of the GameCanvas.
+     * The contents of the off-screen buffer are not changed as a result of the flush operation.
+     * This method does not return until the flush has been completed, so the app may immediately
+     * begin to render the next frame to the same buffer once this method returns.<br/>
+     * <br/>
+     * This method does nothing and returns immediately if the GameCanvas is not currently shown or the
+     * flush request cannot be honored because the system is busy.
+     */
+    public void flushGraphics() {
+        flushGraphics(0, 0, getWidth(), getHeight());
+    }
+}
@@ -0,0 +1,127 @@
+package javax.microedition.lcdui.game;
+
+import javax.microedition.lcdui.Graphics;
+
+/**
+ * A Layer is an abstract class representing a visual element of a game.
+ * Each Layer has position (in terms of the upper-left corner of its visual bounds), width, height,
+ * and can be made visible or invisible. Layer subclasses must implement a paint(Graphics) method
+ * so that they can be rendered.<br/>
+ * <br/>
+ * The Layer's (x,y) position is always interpreted relative to the coordinate system of the Graphics object
+ * that is passed to the Layer's paint() method. This coordinate system is referred to as the painter's coordinate system.
+ * The initial location of a Layer is (0,0).
+ */
+public abstract class Layer {
+
+    private int x;
+    private int y;
+    private int width;
+    private int height;
+    private boolean isVisible;
+
+    Layer(int width, int height) {
+        setSize(width, height);
+        this.isVisible = true;
+    }
+
+    /**
+     * Sets this Layer's position such that its upper-left corner is located at (x,y) in the painter's coordinate system.
+     * A Layer is located at (0,0) by default.
+     *
+     * @param x the horizontal position
+     * @param y the vertical position
+     */
+    public void setPosition(int x, int y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Moves this Layer by the specified horizontal and vertical distances.
+     * The Layer's coordinates are subject to wrapping if the passed parameters will cause them to
+     * exceed beyond Integer.MAX_VALUE or Integer.MIN_VALUE.
+     *
+     * @param dx the distance to move along horizontal axis (positive to the right, negative to the left)
+     * @param dy the distance to move along vertical axis (positive down, negative up)
+     */
+    public void move(int dx, int dy) {
+        x += dx;
+        y += dy;
+    }
+
+    /**
+     * Gets the horizontal position of this Layer's upper-left corner in the painter's coordinate system.
+     * @return the Layer's horizontal position.
+     */
+    public final int getX() {
+        return x;
+    }
+
+    /**
+     * Gets the vertical position of this Layer's upper-left corner in the painter's coordinate system.
+     * @return the Layer's vertical position.
+     */
+    public final int getY() {
+        return y;
+    }
+
+    /**
+     * Gets the current width of this layer, in pixels.
+     * @return the width in pixels
+     */
+    public final int getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets the current height of this layer, in pixels.
+     * @return the height in pixels
+     */
+    public final int getHeight() {
+        return height;
+    }
+
+    /**
+     * Sets the visibility of this Layer. A visible Layer is rendered when its paint(Graphics) method is called;
+     * an invisible Layer is not rendered.
+     *
+     * @param visible true to make the Layer visible, false to make it invisible
+     */
+    public void setVisible(boolean visible) {
+        this.isVisible = visible;
+    }
+
+    /**
+     * Gets the visibility of this Layer.
+     * @return true if the Layer is visible, false if it is invisible.
+     */
+    public final boolean isVisible() {
+        return isVisible;
+    }
+
+    /**
+     * Paints this Layer if it is visible. The upper-left corner of the Layer is rendered at its current (x,y) position
+     * relative to the origin of the provided Graphics object. Applications may make use of Graphics clipping and
+     * translation to control where the Layer is rendered and to limit the region that is rendered.<br/>
+     * <br/>
+     * Implementations of this method are responsible for checking if this Layer is visible;
+     * this method does nothing if the Layer is not visible.<br/>
+     * <br/>
+     * The attributes of the Graphics object (clip region, translation, drawing color, etc.) are not modified as a result of calling this method.
+     *
+     * @param g the graphics object for rendering the Layer
+     *
+     * @throws NullPointerException if g is null
+     */
+    public abstract void paint(Graphics g);
+
+    void setSize(int width, int height) {
+        if(width < 0 || height < 0) {
+            throw new IllegalArgumentException("Layer size should not be negative: " + width + "x" + height);
+        }
+
+        this.width = width;
+        this.height = height;
+    }
+}
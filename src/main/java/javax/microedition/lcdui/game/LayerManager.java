@@ -0,0 +1,196 @@
+package javax.microedition.lcdui.game;
+
+import javax.microedition.lcdui.Graphics;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The LayerManager manages a series of Layers. The LayerManager simplifies the process of rendering the Layers
+ * that have been added to it by automatically rendering the correct regions of each Layer in the appropriate order.<br/>
+ * <br/>
+ * The LayerManager maintains an ordered list to which Layers can be appended, inserted and removed.
+ * A Layer's index correlates to its z-order; the layer at index 0 is closest to the user while a the Layer
+ * with the highest index is furthest away from the user. The indices are always contiguous; that is,
+ * if a Layer is removed, the indices of subsequent Layers will be adjusted to maintain continuity.<br/>
+ * <br/>
+ * The LayerManager class provides several features that control how the game's Layers are rendered on the screen.
+ * The view window controls the size of the visible region and its position relative to the LayerManager's coordinate system.
+ * Changing the position of the view window enables effects such as scrolling or panning the user's view.
+ */
+public class LayerManager {
+
+    private final List<Layer> layers;
+    private int viewX;
+    private int viewY;
+    private int viewWidth;
+    private int viewHeight;
+
+    /**
+     * Creates a new LayerManager.
+     */
+    public LayerManager() {
+        this.layers = new ArrayList<Layer>();
+        setViewWindow(0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Appends a Layer to this LayerManager. The Layer is appended to the list of existing Layers such that
+     * it has the highest index (i.e. it is furthest away from the user). The Layer is first removed from
+     * this LayerManager if it has already been added.
+     *
+     * @param l the Layer to be added
+     *
+     * @throws NullPointerException if the Layer is null
+     */
+    public void append(Layer l) {
+        if(l == null) {
+            throw new NullPointerException("Layer should not be null");
+        }
+
+        layers.remove(l);
+        layers.add(l);
+    }
+
+    /**
+     * Inserts a new Layer in this LayerManager at the specified index.
+     * The Layer is first removed from this LayerManager if it has already been added.
+     *
+     * @param l the Layer to be inserted
+     * @param index the index at which the new Layer is to be inserted
+     *
+     * @throws NullPointerException if the Layer is null
+     * @throws IndexOutOfBoundsException if the index is less than 0 or greater than the number of Layers already
+     * added to the this LayerManager
+     */
+    public void insert(Layer l, int index) {
+        if(l == null) {
+            throw new NullPointerException("Layer should not be null");
+        }
+
+        int current = layers.indexOf(l);
+        int size = current >= 0 ? layers.size() - 1 : layers.size();
+        if(index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Invalid layer index " + index);
+        }
+
+        if(current >= 0) {
+            layers.remove(current);
+        }
+
+        layers.add(index, l);
+    }
+
+    /**
+     * Gets the Layer with the specified index.
+     *
+     * @param index the index of the desired Layer
+     * @return the Layer that has the specified index
+     *
+     * @throws IndexOutOfBoundsException if the specified index is less than zero,
+     * or if it is equal to or greater than the number of Layers added to the this LayerManager
+     */
+    public Layer getLayerAt(int index) {
+        return layers.get(index);
+    }
+
+    /**
+     * Gets the number of Layers in this LayerManager.
+     * @return the number of Layers
+     */
+    public int getSize() {
+        return layers.size();
+    }
+
+    /**
+     * Removes the specified Layer from this LayerManager. This method does nothing if the specified
+     * Layer is not added to the this LayerManager.
+     *
+     * @param l the Layer to be removed
+     *
+     * @throws NullPointerException if the specified Layer is null
+     */
+    public void remove(Layer l) {
+        if(l == null) {
+            throw new NullPointerException("Layer should not be null");
+        }
+
+        layers.remove(l);
+    }
+
+    /**
+     * Renders the LayerManager's current view window at the specified location.<br/>
+     * <br/>
+     * The LayerManager renders each of its layers in order of descending index, thereby implementing the correct
+     * z-order. Layers that are completely outside of the view window are not rendered.<br/>
+     * <br/>
+     * The coordinates passed to this method determine where the LayerManager's view window will be rendered
+     * relative to the origin of the Graphics object. The attributes of the Graphics object
+     * (clip region, translation, drawing color, etc.) are not modified as a result of calling this method.
+     *
+     * @param g the graphics instance with which to draw the LayerManager
+     * @param x the horizontal location at which to render the view window, relative to the Graphics' translated origin
+     * @param y the vertical location at which to render the view window, relative to the Graphics' translated origin
+     *
+     * @throws NullPointerException if g is null
+     */
+    public void paint(Graphics g, int x, int y) {
+        int clipX = g.getClipX();
+        int clipY = g.getClipY();
+        int clipWidth = g.getClipWidth();
+        int clipHeight = g.getClipHeight();
+        int dx = x - viewX;
+        int dy = y - viewY;
+
+        g.clipRect(x, y, viewWidth, viewHeight);
+        g.translate(dx, dy);
+
+        try {
+            for(int i = layers.size() - 1; i >= 0; i--) {
+                Layer layer = layers.get(i);
+                if(layer.isVisible() && intersectsView(layer)) {
+                    layer.paint(g);
+                }
+            }
+        } finally {
+            g.translate(-dx, -dy);
+            g.setClip(clipX, clipY, clipWidth, clipHeight);
+        }
+    }
+
+    /**
+     * Sets the view window on the LayerManager.<br/>
+     * <br/>
+     * The view window specifies the region that the LayerManager draws when its paint(javax.microedition.lcdui.Graphics, int, int)
+     * method is called. It allows the developer to control the size of the visible region, as well as the location
+     * of the view window relative to the LayerManager's coordinate system.<br/>
+     * <br/>
+     * The view window stays in effect until it is modified by another call to this method.
+     * By default, the view window is located at (0,0) in the LayerManager's coordinate system and
+     * its width and height are both set to Integer.MAX_VALUE.
+     *
+     * @param x the horizontal location of the view window relative to the LayerManager's origin
+     * @param y the vertical location of the view window relative to the LayerManager's origin
+     * @param width the width of the view window
+     * @param height the height of the view window
+     *
+     * @throws IllegalArgumentException if the width or height is less than 0
+     */
+    public void setViewWindow(int x, int y, int width, int height) {
+        if(width < 0 || height < 0) {
+            throw new IllegalArgumentException("View window size should not be negative: " + width + "x" + height);
+        }
+
+        this.viewX = x;
+        this.viewY = y;
+        this.viewWidth = width;
+        this.viewHeight = height;
+    }
+
+    private boolean intersectsView(Layer layer) {
+        long left = Math.max((long) viewX, layer.getX());
+        long top = Math.max((long) viewY, layer.getY());
+        long right = Math.min((long) viewX + viewWidth, (long) layer.getX() + layer.getWidth());
+        long bottom = Math.min((long) viewY + viewHeight, (long) layer.getY() + layer.getHeight());
+        return left < right && top < bottom;
+    }
+}
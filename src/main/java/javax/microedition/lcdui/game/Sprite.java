@@ -0,0 +1,748 @@
+package javax.microedition.lcdui.game;
+
+import ru.threedisevenzeror.retrophone.utils.ImageTransform;
+
+import javax.microedition.lcdui.Graphics;
+import javax.microedition.lcdui.Image;
+
+/**
+ * A Sprite is a basic visual element that can be rendered with one of several frames stored in an Image;
+ * different frames can be shown to animate the Sprite. Several transforms such as flipping and rotation
+ * can also be applied to a Sprite to further vary its appearance. As with all Layer subclasses,
+ * a Sprite's location can be changed and it can also be made visible or invisible.<br/>
+ * <br/>
+ * The raw frames used to render a Sprite are provided in a single Image object, which may be mutable or immutable.
+ * If more than one frame is used, the Image is broken up into a series of equally-sized frames of a specified width
+ * and height. The frames are numbered in row-major order, starting with frame 0.<br/>
+ * <br/>
+ * The frame sequence defines an ordered list of frames to be displayed. The default frame sequence mirrors
+ * the list of available frames, so there is a direct mapping between the sequence index and the corresponding frame.<br/>
+ * <br/>
+ * Sprites can be tested for collisions with other Sprites, TiledLayers and Images, either by their collision
+ * rectangles or pixel by pixel. Pixel-level tests first reject by the intersection of collision rectangles,
+ * then compare 1-bit opacity masks of the current frames 64 pixels at once. Masks are built once per frame
+ * and transform and shared between Sprites created from each other.
+ */
+public class Sprite extends Layer {
+
+    /**
+     * No transform is applied to the Sprite.
+     */
+    public static final int TRANS_NONE = ImageTransform.TRANS_NONE;
+
+    /**
+     * Causes the Sprite to appear rotated clockwise by 90 degrees.
+     */
+    public static final int TRANS_ROT90 = ImageTransform.TRANS_ROT90;
+
+    /**
+     * Causes the Sprite to appear rotated clockwise by 180 degrees.
+     */
+    public static final int TRANS_ROT180 = ImageTransform.TRANS_ROT180;
+
+    /**
+     * Causes the Sprite to appear rotated clockwise by 270 degrees.
+     */
+    public static final int TRANS_ROT270 = ImageTransform.TRANS_ROT270;
+
+    /**
+     * Causes the Sprite to appear reflected about its vertical center.
+     */
+    public static final int TRANS_MIRROR = ImageTransform.TRANS_MIRROR;
+
+    /**
+     * Causes the Sprite to appear reflected about its vertical center and then rotated clockwise by 90 degrees.
+     */
+    public static final int TRANS_MIRROR_ROT90 = ImageTransform.TRANS_MIRROR_ROT90;
+
+    /**
+     * Causes the Sprite to appear reflected about its vertical center and then rotated clockwise by 180 degrees.
+     */
+    public static final int TRANS_MIRROR_ROT180 = ImageTransform.TRANS_MIRROR_ROT180;
+
+    /**
+     * Causes the Sprite to appear reflected about its vertical center and then rotated clockwise by 270 degrees.
+     */
+    public static final int TRANS_MIRROR_ROT270 = ImageTransform.TRANS_MIRROR_ROT270;
+
+    private Image image;
+    private int frameWidth;
+    private int frameHeight;
+    private int rawFrameCount;
+    private int framesPerRow;
+    private CollisionMasks collisionMasks;
+
+    private int[] frameSequence;
+    private int sequenceIndex;
+    private boolean isCustomSequence;
+
+    private int referenceX;
+    private int referenceY;
+    private int transform;
+
+    private int collisionX;
+    private int collisionY;
+    private int collisionWidth;
+    private int collisionHeight;
+
+    // collision rectangle with applied transform, relative to sprite position
+    private int transformedCollisionX;
+    private int transformedCollisionY;
+    private int transformedCollisionWidth;
+    private int transformedCollisionHeight;
+
+    private CollisionMasks lastImageMasks;
+
+    /**
+     * Creates a new non-animated Sprite using the provided Image. This constructor is functionally equivalent
+     * to calling new Sprite(image, image.getWidth(), image.getHeight())<br/>
+     * <br/>
+     * By default, the Sprite is visible and its upper-left corner is positioned at (0,0) in the painter's coordinate system.
+     *
+     * @param image the Image to use as the single frame for the Sprite
+     *
+     * @throws NullPointerException if img is null
+     */
+    public Sprite(Image image) {
+        this(image, image.getWidth(), image.getHeight());
+    }
+
+    /**
+     * Creates a new animated Sprite using frames contained in the provided Image. The frames must be equally sized,
+     * with the dimensions specified by frameWidth and frameHeight. They may be laid out in the image horizontally,
+     * vertically, or as a grid. The width of the source image must be an integer multiple of the frame width,
+     * and the height of the source image must be an integer multiple of the frame height.<br/>
+     * <br/>
+     * By default, the Sprite is visible and its upper-left corner is positioned at (0,0) in the painter's coordinate system.
+     *
+     * @param image the Image to use for Sprite
+     * @param frameWidth the width, in pixels, of the individual raw frames
+     * @param frameHeight the height, in pixels, of the individual raw frames
+     *
+     * @throws NullPointerException if img is null
+     * @throws IllegalArgumentException if frameHeight or frameWidth is less than 1
+     * @throws IllegalArgumentException if the image width is not an integer multiple of the frameWidth
+     * @throws IllegalArgumentException if the image height is not an integer multiple of the frameHeight
+     */
+    public Sprite(Image image, int frameWidth, int frameHeight) {
+        super(0, 0);
+        setImage(image, frameWidth, frameHeight);
+    }
+
+    /**
+     * Creates a new Sprite from another Sprite.<br/>
+     * <br/>
+     * All instance attributes (raw frames, position, frame sequence, current frame, reference point,
+     * collision rectangle, transform, and visibility) of the source Sprite are duplicated in the new Sprite.
+     *
+     * @param s the Sprite to create a copy of
+     *
+     * @throws NullPointerException if s is null
+     */
+    public Sprite(Sprite s) {
+        super(s.getWidth(), s.getHeight());
+
+        this.image = s.image;
+        this.frameWidth = s.frameWidth;
+        this.frameHeight = s.frameHeight;
+        this.rawFrameCount = s.rawFrameCount;
+        this.framesPerRow = s.framesPerRow;
+        this.collisionMasks = s.collisionMasks;
+        this.frameSequence = s.frameSequence.clone();
+        this.sequenceIndex = s.sequenceIndex;
+        this.isCustomSequence = s.isCustomSequence;
+        this.referenceX = s.referenceX;
+        this.referenceY = s.referenceY;
+        this.transform = s.transform;
+        this.collisionX = s.collisionX;
+        this.collisionY = s.collisionY;
+        this.collisionWidth = s.collisionWidth;
+        this.collisionHeight = s.collisionHeight;
+
+        updateTransformedCollision();
+        setPosition(s.getX(), s.getY());
+        setVisible(s.isVisible());
+    }
+
+    /**
+     * Defines the reference pixel for this Sprite. The pixel is defined by its location relative to the upper-left
+     * corner of the Sprite's un-transformed frame, and it may lay outside of the frame's bounds.<br/>
+     * <br/>
+     * When a transformation is applied, the reference pixel is defined relative to the Sprite's initial
+     * upper-left corner before transformation. This corner may no longer appear as the upper-left corner
+     * in the painter's coordinate system under current transformation.<br/>
+     * <br/>
+     * By default, a Sprite's reference pixel is located at (0,0); that is, the pixel in the upper-left corner of the raw frame.
+     * Changing the reference pixel does not change the Sprite's physical position in the painter's coordinate system.
+     *
+     * @param x the horizontal location of the reference pixel, relative to the left edge of the un-transformed frame
+     * @param y the vertical location of the reference pixel, relative to the top edge of the un-transformed frame
+     */
+    public void defineReferencePixel(int x, int y) {
+        this.referenceX = x;
+        this.referenceY = y;
+    }
+
+    /**
+     * Sets this Sprite's position such that its reference pixel is located at (x,y) in the painter's coordinate system.
+     *
+     * @param x the horizontal location at which to place the reference pixel
+     * @param y the vertical location at which to place the reference pixel
+     */
+    public void setRefPixelPosition(int x, int y) {
+        setPosition(x - transformX(referenceX, referenceY, transform),
+                y - transformY(referenceX, referenceY, transform));
+    }
+
+    /**
+     * Gets the horizontal position of this Sprite's reference pixel in the painter's coordinate system.
+     * @return the horizontal location of the reference pixel
+     */
+    public int getRefPixelX() {
+        return getX() + transformX(referenceX, referenceY, transform);
+    }
+
+    /**
+     * Gets the vertical position of this Sprite's reference pixel in the painter's coordinate system.
+     * @return the vertical location of the reference pixel
+     */
+    public int getRefPixelY() {
+        return getY() + transformY(referenceX, referenceY, transform);
+    }
+
+    /**
+     * Selects the current frame in the frame sequence.<br/>
+     * <br/>
+     * The current frame is rendered when paint(Graphics) is called.<br/>
+     * <br/>
+     * The index provided refers to the desired entry in the frame sequence, not the index of the actual frame itself.
+     *
+     * @param sequenceIndex the index of of the desired entry in the frame sequence
+     *
+     * @throws IndexOutOfBoundsException if frameIndex is less than0
+     * @throws IndexOutOfBoundsException if frameIndex is equal to or greater than the length of the current frame sequence
+     */
+    public void setFrame(int sequenceIndex) {
+        if(sequenceIndex < 0 || sequenceIndex >= frameSequence.length) {
+            throw new IndexOutOfBoundsException("Invalid frame sequence index " + sequenceIndex);
+        }
+
+        this.sequenceIndex = sequenceIndex;
+    }
+
+    /**
+     * Gets the current index in the frame sequence.<br/>
+     * <br/>
+     * The index returned refers to the current entry in the frame sequence, not the index of the actual frame that is displayed.
+     *
+     * @return the current index in the frame sequence
+     */
+    public final int getFrame() {
+        return sequenceIndex;
+    }
+
+    /**
+     * Gets the number of raw frames for this Sprite. The value returned reflects the number of frames;
+     * it does not reflect the length of the Sprite's frame sequence. However, these two values will be
+     * the same if the default frame sequence is used.
+     *
+     * @return the number of raw frames for this Sprite
+     */
+    public int getRawFrameCount() {
+        return rawFrameCount;
+    }
+
+    /**
+     * Gets the number of elements in the frame sequence. The value returned reflects the length of the Sprite's
+     * frame sequence; it does not reflect the number of raw frames. However, these two values will be the same
+     * if the default frame sequence is used.
+     *
+     * @return the number of elements in this Sprite's frame sequence
+     */
+    public int getFrameSequenceLength() {
+        return frameSequence.length;
+    }
+
+    /**
+     * Selects the next frame in the frame sequence.<br/>
+     * <br/>
+     * The frame sequence is considered to be circular, i.e. if nextFrame() is called when at the end of the sequence,
+     * this method will advance to the first entry in the sequence.
+     */
+    public void nextFrame() {
+        sequenceIndex = (sequenceIndex + 1) % frameSequence.length;
+    }
+
+    /**
+     * Selects the previous frame in the frame sequence.<br/>
+     * <br/>
+     * The frame sequence is considered to be circular, i.e. if prevFrame() is called when at the start of the sequence,
+     * this method will advance to the last entry in the sequence.
+     */
+    public void prevFrame() {
+        sequenceIndex = (sequenceIndex + frameSequence.length - 1) % frameSequence.length;
+    }
+
+    /**
+     * Draws the Sprite.<br/>
+     * <br/>
+     * Draws current frame of Sprite using the provided Graphics object. The Sprite's upper left corner is rendered
+     * at the Sprite's current position relative to the origin of the Graphics object.
+     * Rendering is subject to the clip region of the Graphics object. The Sprite will be drawn only if it is visible.<br/>
+     * <br/>
+     * If the Sprite's Image is mutable, the Sprite is rendered using the current contents of the Image.
+     *
+     * @param g the graphics object to draw Sprite on
+     *
+     * @throws NullPointerException if g is null
+     */
+    public final void paint(Graphics g) {
+        if(g == null) {
+            throw new NullPointerException("Graphics should not be null");
+        }
+
+        if(isVisible()) {
+            int frame = frameSequence[sequenceIndex];
+            g.drawRegion(image, (frame % framesPerRow) * frameWidth, (frame / framesPerRow) * frameHeight,
+                    frameWidth, frameHeight, transform, getX(), getY(), Graphics.TOP | Graphics.LEFT);
+        }
+    }
+
+    /**
+     * Set the frame sequence for this Sprite.<br/>
+     * <br/>
+     * All Sprites have a default sequence that displays the Sprites frames in order. This method allows for the creation
+     * of an arbitrary sequence using the available frames. The current index in the frame sequence is reset to zero as
+     * a result of calling this method.<br/>
+     * <br/>
+     * The contents of the sequence array are copied when this method is called; thus, any changes made to the array
+     * after this method returns have no effect on the Sprite's frame sequence.<br/>
+     * <br/>
+     * Passing in null causes the Sprite to revert to the default frame sequence.
+     *
+     * @param sequence an array of integers, where each integer is a reference to a frame
+     *
+     * @throws ArrayIndexOutOfBoundsException if seq is non-null and any member of the array has a value less than 0
+     * or greater than or equal to the number of frames as reported by getRawFrameCount()
+     * @throws IllegalArgumentException if the array has less than 1 element
+     */
+    public void setFrameSequence(int[] sequence) {
+        if(sequence == null) {
+            frameSequence = createDefaultSequence(rawFrameCount);
+            isCustomSequence = false;
+        } else {
+            if(sequence.length < 1) {
+                throw new IllegalArgumentException("Frame sequence should not be empty");
+            }
+
+            for(int frame : sequence) {
+                if(frame < 0 || frame >= rawFrameCount) {
+                    throw new ArrayIndexOutOfBoundsException("Invalid frame index " + frame);
+                }
+            }
+
+            frameSequence = sequence.clone();
+            isCustomSequence = true;
+        }
+
+        sequenceIndex = 0;
+    }
+
+    /**
+     * Changes the Image containing the Sprite's frames.<br/>
+     * <br/>
+     * Replaces the current raw frames of the Sprite with a new set of raw frames.<br/>
+     * <br/>
+     * Changing the image for the Sprite could change the number of raw frames. If the new frame set has as many or
+     * more raw frames than the previous frame set, then the current frame and custom frame sequence are unchanged.
+     * Otherwise they are reset to the default frame sequence.<br/>
+     * <br/>
+     * If the frame size changes, the collision rectangle is reset to the bounds of the new frame, and the Sprite is
+     * repositioned so that its reference pixel stays at the same location in the painter's coordinate system.
+     *
+     * @param image the Image to use for Sprite
+     * @param frameWidth the width in pixels of the individual raw frames
+     * @param frameHeight the height in pixels of the individual raw frames
+     *
+     * @throws NullPointerException if img is null
+     * @throws IllegalArgumentException if frameHeight or frameWidth is less than 1
+     * @throws IllegalArgumentException if the image width is not an integer multiple of the frameWidth
+     * @throws IllegalArgumentException if the image height is not an integer multiple of the frameHeight
+     */
+    public void setImage(Image image, int frameWidth, int frameHeight) {
+        if(image == null) {
+            throw new NullPointerException("Sprite image should not be null");
+        }
+
+        if(frameWidth < 1 || frameHeight < 1 ||
+                image.getWidth() % frameWidth != 0 || image.getHeight() % frameHeight != 0) {
+            throw new IllegalArgumentException("Image " + image.getWidth() + "x" + image.getHeight() +
+                    " cannot be split to " + frameWidth + "x" + frameHeight + " frames");
+        }
+
+        int newFrameCount = (image.getWidth() / frameWidth) * (image.getHeight() / frameHeight);
+        boolean isSizeChanged = this.frameWidth != frameWidth || this.frameHeight != frameHeight;
+        boolean isFirstImage = this.image == null;
+        int refPixelX = isFirstImage ? 0 : getRefPixelX();
+        int refPixelY = isFirstImage ? 0 : getRefPixelY();
+
+        this.image = image;
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+        this.framesPerRow = image.getWidth() / frameWidth;
+
+        if(collisionMasks == null || !collisionMasks.isFor(image, frameWidth, frameHeight)) {
+            collisionMasks = new CollisionMasks(image, frameWidth, frameHeight);
+        }
+
+        if(newFrameCount < rawFrameCount || isFirstImage) {
+            rawFrameCount = newFrameCount;
+            setFrameSequence(null);
+        } else {
+            rawFrameCount = newFrameCount;
+            if(!isCustomSequence) {
+                frameSequence = createDefaultSequence(rawFrameCount);
+            }
+        }
+
+        if(isSizeChanged) {
+            defineCollisionRectangle(0, 0, frameWidth, frameHeight);
+            setSize(ImageTransform.getTransformedWidth(transform, frameWidth, frameHeight),
+                    ImageTransform.getTransformedHeight(transform, frameWidth, frameHeight));
+
+            if(!isFirstImage) {
+                setRefPixelPosition(refPixelX, refPixelY);
+            }
+        }
+    }
+
+    /**
+     * Defines the Sprite's bounding rectangle that is used for collision detection purposes.
+     * This rectangle is specified relative to the un-transformed Sprite's upper-left corner and defines the area
+     * that is checked for collision detection. For pixel-level detection, only those pixels within the collision
+     * rectangle are checked. By default, a Sprite's collision rectangle is located at 0,0 as has the same dimensions
+     * as the Sprite. The collision rectangle may be specified to be larger or smaller than the default rectangle;
+     * if made larger, the pixels outside the bounds of the Sprite are considered to be transparent for pixel-level collision detection.
+     *
+     * @param x the horizontal location of the collision rectangle relative to the untransformed Sprite's left edge
+     * @param y the vertical location of the collision rectangle relative to the untransformed Sprite's top edge
+     * @param width the width of the collision rectangle
+     * @param height the height of the collision rectangle
+     *
+     * @throws IllegalArgumentException if the specified width or height is less than 0
+     */
+    public void defineCollisionRectangle(int x, int y, int width, int height) {
+        if(width < 0 || height < 0) {
+            throw new IllegalArgumentException("Collision rectangle size should not be negative: " + width + "x" + height);
+        }
+
+        this.collisionX = x;
+        this.collisionY = y;
+        this.collisionWidth = width;
+        this.collisionHeight = height;
+        updateTransformedCollision();
+    }
+
+    /**
+     * Sets the transform for this Sprite. Transforms can be applied to a Sprite to change its rendered appearance.
+     * Transforms are applied to the original Sprite image; they are not cumulative, nor can they be combined.
+     * By default, a Sprite's transform is TRANS_NONE.<br/>
+     * <br/>
+     * Since some transforms involve rotations of 90 or 270 degrees, their use may result in the overall width and height
+     * of the Sprite being swapped. As a result, the values returned by Layer.getWidth() and Layer.getHeight() may change.<br/>
+     * <br/>
+     * The collision rectangle is also modified by the transform so that it remains static relative to the pixel data
+     * of the Sprite. Similarly, the defined reference pixel is unchanged by this method, but its visual location within
+     * the Sprite may change as a result. The Sprite is repositioned so that the reference pixel remains
+     * at the same location in the painter's coordinate system.
+     *
+     * @param transform the desired transform for this Sprite
+     *
+     * @throws IllegalArgumentException if the requested transform is invalid
+     */
+    public void setTransform(int transform) {
+        if(!ImageTransform.isValid(transform)) {
+            throw new IllegalArgumentException("Unknown transform " + transform);
+        }
+
+        int refPixelX = getRefPixelX();
+        int refPixelY = getRefPixelY();
+
+        this.transform = transform;
+        setSize(ImageTransform.getTransformedWidth(transform, frameWidth, frameHeight),
+                ImageTransform.getTransformedHeight(transform, frameWidth, frameHeight));
+        updateTransformedCollision();
+        setRefPixelPosition(refPixelX, refPixelY);
+    }
+
+    /**
+     * Checks for a collision between this Sprite and the specified Sprite.<br/>
+     * <br/>
+     * If pixel-level detection is used, a collision is detected only if opaque pixels collide. That is, an opaque pixel
+     * in the first Sprite would have to collide with an opaque pixel in the second Sprite for a collision to be detected.
+     * Only those pixels within the Sprites' respective collision rectangles are checked.<br/>
+     * <br/>
+     * If pixel-level detection is not used, this method simply checks if the Sprites' collision rectangles intersect.<br/>
+     * <br/>
+     * Any transforms applied to the Sprites are automatically accounted for.<br/>
+     * <br/>
+     * Both Sprites must be visible in order for a collision to be detected.
+     *
+     * @param s the Sprite to test for collision with
+     * @param pixelLevel true to test for collision on a pixel-by-pixel basis, false to test using simple bounds checking.
+     * @return true if the two Sprites have collided, otherwise false
+     *
+     * @throws NullPointerException if Sprite s is null
+     */
+    public final boolean collidesWith(Sprite s, boolean pixelLevel) {
+        if(!isVisible() || !s.isVisible()) {
+            return false;
+        }
+
+        int left = Math.max(getCollisionLeft(), s.getCollisionLeft());
+        int top = Math.max(getCollisionTop(), s.getCollisionTop());
+        int right = Math.min(getCollisionLeft() + transformedCollisionWidth, s.getCollisionLeft() + s.transformedCollisionWidth);
+        int bottom = Math.min(getCollisionTop() + transformedCollisionHeight, s.getCollisionTop() + s.transformedCollisionHeight);
+
+        if(left >= right || top >= bottom) {
+            return false;
+        }
+
+        if(!pixelLevel) {
+            return true;
+        }
+
+        // pixels outside of frame are transparent
+        left = Math.max(left, Math.max(getX(), s.getX()));
+        top = Math.max(top, Math.max(getY(), s.getY()));
+        right = Math.min(right, Math.min(getX() + getWidth(), s.getX() + s.getWidth()));
+        bottom = Math.min(bottom, Math.min(getY() + getHeight(), s.getY() + s.getHeight()));
+
+        if(left >= right || top >= bottom) {
+            return false;
+        }
+
+        return CollisionMasks.intersects(
+                getCurrentMask(), CollisionMasks.getWordsPerRow(getWidth()), left - getX(), top - getY(),
+                s.getCurrentMask(), CollisionMasks.getWordsPerRow(s.getWidth()), left - s.getX(), top - s.getY(),
+                right - left, bottom - top);
+    }
+
+    /**
+     * Checks for a collision between this Sprite and the specified TiledLayer. If pixel-level detection is used,
+     * a collision is detected only if opaque pixels collide. That is, an opaque pixel in the Sprite would have to collide
+     * with an opaque pixel in TiledLayer for a collision to be detected. Only those pixels within the Sprite's collision
+     * rectangle are checked.<br/>
+     * <br/>
+     * If pixel-level detection is not used, this method simply checks if the Sprite's collision rectangle intersects
+     * with a non-empty cell in the TiledLayer.<br/>
+     * <br/>
+     * Both the Sprite and the TiledLayer must be visible in order for a collision to be detected.
+     *
+     * @param t the TiledLayer to test for collision with
+     * @param pixelLevel true to test for collision on a pixel-by-pixel basis, false to test using simple bounds checking against non-empty cells.
+     * @return true if this Sprite has collided with the TiledLayer, otherwise false
+     *
+     * @throws NullPointerException if t is null
+     */
+    public final boolean collidesWith(TiledLayer t, boolean pixelLevel) {
+        if(!isVisible() || !t.isVisible()) {
+            return false;
+        }
+
+        int left = Math.max(getCollisionLeft(), t.getX());
+        int top = Math.max(getCollisionTop(), t.getY());
+        int right = Math.min(getCollisionLeft() + transformedCollisionWidth, t.getX() + t.getWidth());
+        int bottom = Math.min(getCollisionTop() + transformedCollisionHeight, t.getY() + t.getHeight());
+
+        if(pixelLevel) {
+            left = Math.max(left, getX());
+            top = Math.max(top, getY());
+            right = Math.min(right, getX() + getWidth());
+            bottom = Math.min(bottom, getY() + getHeight());
+        }
+
+        if(left >= right || top >= bottom) {
+            return false;
+        }
+
+        int cellWidth = t.getCellWidth();
+        int cellHeight = t.getCellHeight();
+        int firstColumn = (left - t.getX()) / cellWidth;
+        int lastColumn = (right - 1 - t.getX()) / cellWidth;
+        int firstRow = (top - t.getY()) / cellHeight;
+        int lastRow = (bottom - 1 - t.getY()) / cellHeight;
+
+        long[] mask = pixelLevel ? getCurrentMask() : null;
+        int words = CollisionMasks.getWordsPerRow(getWidth());
+        int tileWords = CollisionMasks.getWordsPerRow(cellWidth);
+
+        for(int row = firstRow; row <= lastRow; row++) {
+            for(int col = firstColumn; col <= lastColumn; col++) {
+                int tile = t.getStaticCell(col, row);
+                if(tile == 0) {
+                    continue;
+                }
+
+                if(!pixelLevel) {
+                    return true;
+                }
+
+                int cellX = t.getX() + col * cellWidth;
+                int cellY = t.getY() + row * cellHeight;
+                int cellLeft = Math.max(left, cellX);
+                int cellTop = Math.max(top, cellY);
+                int cellRight = Math.min(right, cellX + cellWidth);
+                int cellBottom = Math.min(bottom, cellY + cellHeight);
+
+                if(CollisionMasks.intersects(
+                        mask, words, cellLeft - getX(), cellTop - getY(),
+                        t.getCollisionMasks().getMask(tile - 1, TRANS_NONE), tileWords, cellLeft - cellX, cellTop - cellY,
+                        cellRight - cellLeft, cellBottom - cellTop)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks for a collision between this Sprite and the specified Image with its upper left corner at the
+     * specified location. If pixel-level detection is used, a collision is detected only if opaque pixels collide.
+     * That is, an opaque pixel in the Sprite would have to collide with an opaque pixel in Image for a collision
+     * to be detected. Only those pixels within the Sprite's collision rectangle are checked.<br/>
+     * <br/>
+     * If pixel-level detection is not used, this method simply checks if the Sprite's collision rectangle intersects
+     * with the Image's bounds.<br/>
+     * <br/>
+     * The Sprite must be visible in order for a collision to be detected.
+     *
+     * @param image the Image to test for collision
+     * @param x the horizontal location of the Image's upper left corner
+     * @param y the vertical location of the Image's upper left corner
+     * @param pixelLevel true to test for collision on a pixel-by-pixel basis, false to test using simple bounds checking
+     * @return true if this Sprite has collided with the Image, otherwise false
+     *
+     * @throws NullPointerException if image is null
+     */
+    public final boolean collidesWith(Image image, int x, int y, boolean pixelLevel) {
+        if(image == null) {
+            throw new NullPointerException("Image should not be null");
+        }
+
+        if(!isVisible()) {
+            return false;
+        }
+
+        int left = Math.max(getCollisionLeft(), x);
+        int top = Math.max(getCollisionTop(), y);
+        int right = Math.min(getCollisionLeft() + transformedCollisionWidth, x + image.getWidth());
+        int bottom = Math.min(getCollisionTop() + transformedCollisionHeight, y + image.getHeight());
+
+        if(pixelLevel) {
+            left = Math.max(left, getX());
+            top = Math.max(top, getY());
+            right = Math.min(right, getX() + getWidth());
+            bottom = Math.min(bottom, getY() + getHeight());
+        }
+
+        if(left >= right || top >= bottom) {
+            return false;
+        }
+
+        if(!pixelLevel) {
+            return true;
+        }
+
+        if(lastImageMasks == null || !lastImageMasks.isFor(image, image.getWidth(), image.getHeight())) {
+            lastImageMasks = new CollisionMasks(image, image.getWidth(), image.getHeight());
+        }
+
+        return CollisionMasks.intersects(
+                getCurrentMask(), CollisionMasks.getWordsPerRow(getWidth()), left - getX(), top - getY(),
+                lastImageMasks.getMask(0, TRANS_NONE), CollisionMasks.getWordsPerRow(image.getWidth()), left - x, top - y,
+                right - left, bottom - top);
+    }
+
+    private long[] getCurrentMask() {
+        return collisionMasks.getMask(frameSequence[sequenceIndex], transform);
+    }
+
+    private int getCollisionLeft() {
+        return getX() + transformedCollisionX;
+    }
+
+    private int getCollisionTop() {
+        return getY() + transformedCollisionY;
+    }
+
+    private void updateTransformedCollision() {
+        if(collisionWidth == 0 || collisionHeight == 0) {
+            transformedCollisionX = 0;
+            transformedCollisionY = 0;
+            transformedCollisionWidth = 0;
+            transformedCollisionHeight = 0;
+            return;
+        }
+
+        int lastX = collisionX + collisionWidth - 1;
+        int lastY = collisionY + collisionHeight - 1;
+        int x1 = transformX(collisionX, collisionY, transform);
+        int y1 = transformY(collisionX, collisionY, transform);
+        int x2 = transformX(lastX, lastY, transform);
+        int y2 = transformY(lastX, lastY, transform);
+
+        transformedCollisionX = Math.min(x1, x2);
+        transformedCollisionY = Math.min(y1, y2);
+        transformedCollisionWidth = Math.abs(x2 - x1) + 1;
+        transformedCollisionHeight = Math.abs(y2 - y1) + 1;
+    }
+
+    /**
+     * Horizontal position of the untransformed frame pixel after transform
+     */
+    private int transformX(int x, int y, int transform) {
+        switch (transform) {
+            case TRANS_MIRROR:
+            case TRANS_ROT180:
+                return frameWidth - 1 - x;
+            case TRANS_ROT90:
+            case TRANS_MIRROR_ROT90:
+                return frameHeight - 1 - y;
+            case TRANS_ROT270:
+            case TRANS_MIRROR_ROT270:
+                return y;
+            default:
+                return x;
+        }
+    }
+
+    /**
+     * Vertical position of the untransformed frame pixel after transform
+     */
+    private int transformY(int x, int y, int transform) {
+        switch (transform) {
+            case TRANS_MIRROR_ROT180:
+            case TRANS_ROT180:
+                return frameHeight - 1 - y;
+            case TRANS_ROT270:
+            case TRANS_MIRROR_ROT90:
+                return frameWidth - 1 - x;
+            case TRANS_ROT90:
+            case TRANS_MIRROR_ROT270:
+                return x;
+            default:
+                return y;
+        }
+    }
+
+    private static int[] createDefaultSequence(int frameCount) {
+        int[] sequence = new int[frameCount];
+        for(int i = 0; i < frameCount; i++) {
+            sequence[i] = i;
+        }
+
+        return sequence;
+    }
+}
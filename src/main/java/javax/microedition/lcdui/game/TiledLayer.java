@@ -0,0 +1,471 @@
+package javax.microedition.lcdui.game;
+
+import ru.threedisevenzeror.retrophone.utils.ImageTransform;
+
+import javax.microedition.lcdui.Graphics;
+import javax.microedition.lcdui.Image;
+import java.util.Arrays;
+
+/**
+ * A TiledLayer is a visual element composed of a grid of cells that can be filled with a set of tile images.
+ * This class allows large virtual layers to be created without the need for an extremely large Image.
+ * This technique is commonly used in 2D gaming platforms to create very large scrolling backgrounds.<br/>
+ * <br/>
+ * The tiles used to fill the TiledLayer's cells are provided in a single Image object which may be mutable or immutable.
+ * The Image is broken up into a series of equally-sized tiles; the tile size is specified along with the Image.
+ * Each tile is assigned a unique index number. The tile located in the upper-left corner of the Image is assigned
+ * an index of 1. The remaining tiles are then numbered consecutively in row-major order.<br/>
+ * <br/>
+ * Animated tiles have negative indices and refer to a static tile, so changing the static tile associated with
+ * an animated tile updates every cell that contains it.<br/>
+ * <br/>
+ * Cells are stored in a single int array in row-major order. When the tile set is immutable and the layer is not
+ * too large, cells are pre-rendered into a pixel cache: only cells changed by setCell, fillCells or setAnimatedTile
+ * are rendered again, and each paint copies the visible part of the cache with a single drawRGB call.
+ * Otherwise only tiles intersecting the clip region are drawn.
+ */
+public class TiledLayer extends Layer {
+
+    private static final int MAX_CACHED_PIXELS = 512 * 512;
+
+    private final int columns;
+    private final int rows;
+    private final int[] cells;
+
+    private Image image;
+    private int cellWidth;
+    private int cellHeight;
+    private int tileCount;
+    private int[] tileX;
+    private int[] tileY;
+
+    private int[] animatedTiles;
+    private int animatedTileCount;
+
+    private int[] tilePixels;
+    private int tileScanlength;
+    private int[] layerPixels;
+    private long[] dirtyCells;
+    private CollisionMasks collisionMasks;
+
+    /**
+     * Creates a new TiledLayer.<br/>
+     * <br/>
+     * The TiledLayer's grid will be rows cells high and columns cells wide. All cells in the grid are initially
+     * empty (i.e. they contain tile index 0). The contents of the grid may be modified through the use of
+     * setCell(int, int, int) and fillCells(int, int, int, int, int).<br/>
+     * <br/>
+     * The static tile set for the TiledLayer is created from the specified Image with each tile having the
+     * dimensions of tileWidth x tileHeight. The width of the source image must be an integer multiple of the tile width,
+     * and the height of the source image must be an integer multiple of the tile height;
+     * otherwise, an IllegalArgumentException is thrown;
+     *
+     * @param columns the width of the TiledLayer, expressed as a number of cells
+     * @param rows the height of the TiledLayer, expressed as a number of cells
+     * @param image the Image to use for creating the static tile set
+     * @param tileWidth the width in pixels of a single tile
+     * @param tileHeight the height in pixels of a single tile
+     *
+     * @throws NullPointerException if image is null
+     * @throws IllegalArgumentException if the number of rows or columns is less than 1
+     * @throws IllegalArgumentException if tileHeight or tileWidth is less than 1
+     * @throws IllegalArgumentException if the image width is not an integer multiple of the tileWidth
+     * @throws IllegalArgumentException if the image height is not an integer multiple of the tileHeight
+     */
+    public TiledLayer(int columns, int rows, Image image, int tileWidth, int tileHeight) {
+        super(0, 0);
+
+        if(columns < 1 || rows < 1) {
+            throw new IllegalArgumentException("Invalid layer grid size: " + columns + "x" + rows);
+        }
+
+        this.columns = columns;
+        this.rows = rows;
+        this.cells = new int[columns * rows];
+        this.dirtyCells = new long[(cells.length + 63) >>> 6];
+        this.animatedTiles = new int[4];
+
+        setStaticTileSet(image, tileWidth, tileHeight);
+    }
+
+    /**
+     * Creates a new animated tile and returns the index that refers to the new animated tile.
+     * It is initially associated with the specified tile index (either a static tile or 0).<br/>
+     * <br/>
+     * The indices for animated tiles are always negative. The first animated tile shall have the index -1,
+     * the second, -2, etc.
+     *
+     * @param staticTileIndex the index of the associated tile (must be 0 or a valid static tile index)
+     * @return the index of newly created animated tile
+     *
+     * @throws IndexOutOfBoundsException if the staticTileIndex is invalid
+     */
+    public int createAnimatedTile(int staticTileIndex) {
+        checkStaticTileIndex(staticTileIndex);
+
+        if(animatedTileCount == animatedTiles.length) {
+            animatedTiles = Arrays.copyOf(animatedTiles, animatedTiles.length * 2);
+        }
+
+        animatedTiles[animatedTileCount++] = staticTileIndex;
+        return -animatedTileCount;
+    }
+
+    /**
+     * Associates an animated tile with the specified static tile.
+     * Every cell that contains this animated tile is updated on the next paint.
+     *
+     * @param animatedTileIndex the index of the animated tile
+     * @param staticTileIndex the index of the associated tile (must be 0 or a valid static tile index)
+     *
+     * @throws IndexOutOfBoundsException if the staticTileIndex is invalid
+     * @throws IndexOutOfBoundsException if the animated tile index is invalid
+     */
+    public void setAnimatedTile(int animatedTileIndex, int staticTileIndex) {
+        checkAnimatedTileIndex(animatedTileIndex);
+        checkStaticTileIndex(staticTileIndex);
+
+        int slot = -animatedTileIndex - 1;
+        if(animatedTiles[slot] != staticTileIndex) {
+            animatedTiles[slot] = staticTileIndex;
+
+            for(int i = 0; i < cells.length; i++) {
+                if(cells[i] == animatedTileIndex) {
+                    markDirty(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the tile referenced by an animated tile.
+     *
+     * @param animatedTileIndex the index of the animated tile
+     * @return the index of a static tile that's currently associated with the animated tile
+     *
+     * @throws IndexOutOfBoundsException if the animated tile index is invalid
+     */
+    public int getAnimatedTile(int animatedTileIndex) {
+        checkAnimatedTileIndex(animatedTileIndex);
+        return animatedTiles[-animatedTileIndex - 1];
+    }
+
+    /**
+     * Sets the contents of a cell.<br/>
+     * <br/>
+     * The contents may be set to a static tile index, an animated tile index, or it may be left empty (index 0)
+     *
+     * @param col the column of cell to set
+     * @param row the row of cell to set
+     * @param tileIndex the index of tile to place in cell
+     *
+     * @throws IndexOutOfBoundsException if there is no tile with index tileIndex
+     * @throws IndexOutOfBoundsException if row or col is outside the bounds of the TiledLayer grid
+     */
+    public void setCell(int col, int row, int tileIndex) {
+        checkCell(col, row);
+        checkTileIndex(tileIndex);
+
+        int index = row * columns + col;
+        if(cells[index] != tileIndex) {
+            cells[index] = tileIndex;
+            markDirty(index);
+        }
+    }
+
+    /**
+     * Gets the contents of a cell.<br/>
+     * <br/>
+     * Gets the index of the static or animated tile currently displayed in a cell.
+     * The returned index will be 0 if the cell is empty.
+     *
+     * @param col the column of cell to check
+     * @param row the row of cell to check
+     * @return the index of tile in cell
+     *
+     * @throws IndexOutOfBoundsException if row or col is outside the bounds of the TiledLayer grid
+     */
+    public int getCell(int col, int row) {
+        checkCell(col, row);
+        return cells[row * columns + col];
+    }
+
+    /**
+     * Fills a region cells with the specific tile. The cells may be filled with a static tile index,
+     * an animated tile index, or they may be left empty (index 0).
+     *
+     * @param col the column of top-left cell in the region
+     * @param row the row of top-left cell in the region
+     * @param numCols the number of columns in the region
+     * @param numRows the number of rows in the region
+     * @param tileIndex the Index of the tile to place in all cells in the specified region
+     *
+     * @throws IndexOutOfBoundsException if the rectangular region defined by the parameters extends beyond the bounds of the TiledLayer grid
+     * @throws IllegalArgumentException if numCols is less than zero
+     * @throws IllegalArgumentException if numRows is less than zero
+     * @throws IndexOutOfBoundsException if there is no tile with index tileIndex
+     */
+    public void fillCells(int col, int row, int numCols, int numRows, int tileIndex) {
+        if(numCols < 0 || numRows < 0) {
+            throw new IllegalArgumentException("Invalid region size: " + numCols + "x" + numRows);
+        }
+
+        if(col < 0 || row < 0 || col + numCols > columns || row + numRows > rows) {
+            throw new IndexOutOfBoundsException("Region " + col + "," + row + " " + numCols + "x" + numRows +
+                    " is outside of " + columns + "x" + rows + " grid");
+        }
+
+        checkTileIndex(tileIndex);
+
+        for(int r = row; r < row + numRows; r++) {
+            int index = r * columns + col;
+            for(int c = 0; c < numCols; c++, index++) {
+                if(cells[index] != tileIndex) {
+                    cells[index] = tileIndex;
+                    markDirty(index);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the width of a single cell, in pixels.
+     * @return the width in pixels of a single cell in the TiledLayer grid
+     */
+    public final int getCellWidth() {
+        return cellWidth;
+    }
+
+    /**
+     * Gets the height of a single cell, in pixels.
+     * @return the height in pixels of a single cell in the TiledLayer grid
+     */
+    public final int getCellHeight() {
+        return cellHeight;
+    }
+
+    /**
+     * Gets the number of columns in the TiledLayer grid. The overall width of the TiledLayer, in pixels,
+     * may be obtained by calling Layer.getWidth().
+     * @return the width in columns of the TiledLayer grid
+     */
+    public final int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Gets the number of rows in the TiledLayer grid. The overall height of the TiledLayer, in pixels,
+     * may be obtained by calling Layer.getHeight().
+     * @return the height in rows of the TiledLayer grid
+     */
+    public final int getRows() {
+        return rows;
+    }
+
+    /**
+     * Change the static tile set.<br/>
+     * <br/>
+     * Replaces the current static tile set with a new static tile set.<br/>
+     * <br/>
+     * If the new static tile set has as many or more tiles than the previous static tile set,
+     * the animated tiles and cell contents will be preserve. If not, the contents of the grid will be cleared
+     * (all cells will contain index 0) and all animated tiles will be deleted.
+     *
+     * @param image the Image to use for creating the static tile set
+     * @param tileWidth the width in pixels of a single tile
+     * @param tileHeight the height in pixels of a single tile
+     *
+     * @throws NullPointerException if image is null
+     * @throws IllegalArgumentException if tileHeight or tileWidth is less than 1
+     * @throws IllegalArgumentException if the image width is not an integer multiple of the tileWidth
+     * @throws IllegalArgumentException if the image height is not an integer multiple of the tileHeight
+     */
+    public void setStaticTileSet(Image image, int tileWidth, int tileHeight) {
+        if(image == null) {
+            throw new NullPointerException("Tile set image should not be null");
+        }
+
+        if(tileWidth < 1 || tileHeight < 1 ||
+                image.getWidth() % tileWidth != 0 || image.getHeight() % tileHeight != 0) {
+            throw new IllegalArgumentException("Image " + image.getWidth() + "x" + image.getHeight() +
+                    " cannot be split to " + tileWidth + "x" + tileHeight + " tiles");
+        }
+
+        int tilesPerRow = image.getWidth() / tileWidth;
+        int newTileCount = tilesPerRow * (image.getHeight() / tileHeight);
+
+        if(newTileCount < tileCount) {
+            Arrays.fill(cells, 0);
+            animatedTileCount = 0;
+        }
+
+        this.image = image;
+        this.cellWidth = tileWidth;
+        this.cellHeight = tileHeight;
+        this.tileCount = newTileCount;
+        this.tileX = new int[newTileCount + 1];
+        this.tileY = new int[newTileCount + 1];
+
+        for(int i = 0; i < newTileCount; i++) {
+            tileX[i + 1] = (i % tilesPerRow) * tileWidth;
+            tileY[i + 1] = (i / tilesPerRow) * tileHeight;
+        }
+
+        setSize(columns * tileWidth, rows * tileHeight);
+
+        tilePixels = null;
+        layerPixels = null;
+        collisionMasks = null;
+        Arrays.fill(dirtyCells, -1L);
+
+        if(!image.isMutable() && (long) getWidth() * getHeight() <= MAX_CACHED_PIXELS) {
+            tileScanlength = image.getWidth();
+            tilePixels = new int[image.getWidth() * image.getHeight()];
+            image.getRGB(tilePixels, 0, tileScanlength, 0, 0, image.getWidth(), image.getHeight());
+        }
+    }
+
+    /**
+     * Draws the TiledLayer. The entire TiledLayer is rendered subject to the clip region of the Graphics object.
+     * The TiledLayer's upper left corner is rendered at the TiledLayer's current position relative to
+     * the origin of the Graphics object. The current position of the TiledLayer's upper-left corner can be
+     * retrieved by calling Layer.getX() and Layer.getY(). The appropriate use of a clip region and/or
+     * translation allows an arbitrary region of the TiledLayer to be rendered.<br/>
+     * <br/>
+     * If the TiledLayer's Image is mutable, the TiledLayer is rendered using the current contents of the Image.
+     *
+     * @param g the graphics object to draw the TiledLayer
+     *
+     * @throws NullPointerException if g is null
+     */
+    public final void paint(Graphics g) {
+        if(g == null) {
+            throw new NullPointerException("Graphics should not be null");
+        }
+
+        if(!isVisible()) {
+            return;
+        }
+
+        int x = getX();
+        int y = getY();
+        int left = Math.max(0, g.getClipX() - x);
+        int top = Math.max(0, g.getClipY() - y);
+        int right = Math.min(getWidth(), g.getClipX() + g.getClipWidth() - x);
+        int bottom = Math.min(getHeight(), g.getClipY() + g.getClipHeight() - y);
+
+        if(left >= right || top >= bottom) {
+            return;
+        }
+
+        int firstColumn = left / cellWidth;
+        int lastColumn = (right - 1) / cellWidth;
+        int firstRow = top / cellHeight;
+        int lastRow = (bottom - 1) / cellHeight;
+
+        if(tilePixels != null) {
+            if(layerPixels == null) {
+                layerPixels = new int[getWidth() * getHeight()];
+            }
+
+            for(int row = firstRow; row <= lastRow; row++) {
+                int index = row * columns + firstColumn;
+                for(int col = firstColumn; col <= lastColumn; col++, index++) {
+                    if((dirtyCells[index >>> 6] & (1L << index)) != 0) {
+                        dirtyCells[index >>> 6] &= ~(1L << index);
+                        renderCell(index, col, row);
+                    }
+                }
+            }
+
+            g.drawRGB(layerPixels, top * getWidth() + left, getWidth(),
+                    x + left, y + top, right - left, bottom - top, true);
+        } else {
+            for(int row = firstRow; row <= lastRow; row++) {
+                int index = row * columns + firstColumn;
+                for(int col = firstColumn; col <= lastColumn; col++, index++) {
+                    int tile = resolveTile(cells[index]);
+                    if(tile != 0) {
+                        g.drawRegion(image, tileX[tile], tileY[tile], cellWidth, cellHeight, ImageTransform.TRANS_NONE,
+                                x + col * cellWidth, y + row * cellHeight, Graphics.TOP | Graphics.LEFT);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Renders tile of specified cell to the pixel cache, empty cells become transparent
+     */
+    private void renderCell(int index, int col, int row) {
+        int tile = resolveTile(cells[index]);
+        int layerWidth = getWidth();
+        int destination = row * cellHeight * layerWidth + col * cellWidth;
+
+        if(tile == 0) {
+            for(int i = 0; i < cellHeight; i++) {
+                Arrays.fill(layerPixels, destination, destination + cellWidth, 0);
+                destination += layerWidth;
+            }
+        } else {
+            int source = tileY[tile] * tileScanlength + tileX[tile];
+            for(int i = 0; i < cellHeight; i++) {
+                System.arraycopy(tilePixels, source, layerPixels, destination, cellWidth);
+                source += tileScanlength;
+                destination += layerWidth;
+            }
+        }
+    }
+
+    /**
+     * Static tile index displayed in the cell, animated tiles are resolved
+     */
+    int getStaticCell(int col, int row) {
+        return resolveTile(cells[row * columns + col]);
+    }
+
+    /**
+     * Opacity masks of static tiles, mask frame index is tile index - 1
+     */
+    CollisionMasks getCollisionMasks() {
+        if(collisionMasks == null) {
+            collisionMasks = new CollisionMasks(image, cellWidth, cellHeight);
+        }
+
+        return collisionMasks;
+    }
+
+    private int resolveTile(int tileIndex) {
+        return tileIndex < 0 ? animatedTiles[-tileIndex - 1] : tileIndex;
+    }
+
+    private void markDirty(int index) {
+        dirtyCells[index >>> 6] |= 1L << index;
+    }
+
+    private void checkCell(int col, int row) {
+        if(col < 0 || row < 0 || col >= columns || row >= rows) {
+            throw new IndexOutOfBoundsException("Cell " + col + "," + row + " is outside of " + columns + "x" + rows + " grid");
+        }
+    }
+
+    private void checkTileIndex(int tileIndex) {
+        if(tileIndex < 0) {
+            checkAnimatedTileIndex(tileIndex);
+        } else {
+            checkStaticTileIndex(tileIndex);
+        }
+    }
+
+    private void checkStaticTileIndex(int tileIndex) {
+        if(tileIndex < 0 || tileIndex > tileCount) {
+            throw new IndexOutOfBoundsException("Invalid static tile index " + tileIndex);
+        }
+    }
+
+    private void checkAnimatedTileIndex(int tileIndex) {
+        if(tileIndex >= 0 || -tileIndex > animatedTileCount) {
+            throw new IndexOutOfBoundsException("Invalid animated tile index " + tileIndex);
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package javax.microedition.rms;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Enumeration over plain array of record ids.<br/>
+ * <br/>
+ * On build every record is loaded once at most: for filter and for comparator together,
+ * records are sorted with stable merge sort over loaded data.<br/>
+ * <br/>
+ * When enumeration is kept updated, it listens to its record store and applies every change to the existing index:
+ * deleted records are removed, added and changed records are filtered and put in place with binary search,
+ * so a single change costs one record load for filter and a logarithmic number of loads for comparator
+ * instead of a full rebuild.
+ */
+class RecordEnumerationImpl implements RecordEnumeration, RecordListener {
+
+    private static final int NO_SELECTION = Integer.MIN_VALUE;
+
+    private final RecordStore recordStore;
+    private final RecordFilter filter;
+    private final RecordComparator comparator;
+    private boolean isKeptUpdated;
+    private boolean isDestroyed;
+
+    private int[] ids;
+    private int count;
+    private int current;
+
+    RecordEnumerationImpl(RecordStore recordStore, RecordFilter filter, RecordComparator comparator, boolean keepUpdated)
+            throws RecordStoreNotOpenException {
+
+        this.recordStore = recordStore;
+        this.filter = filter;
+        this.comparator = comparator;
+        this.isKeptUpdated = keepUpdated;
+
+        if(keepUpdated) {
+            recordStore.addRecordListener(this);
+        }
+
+        build();
+    }
+
+    public synchronized int numRecords() {
+        checkDestroyed();
+        return count;
+    }
+
+    public byte[] nextRecord() throws InvalidRecordIDException, RecordStoreException, RecordStoreNotOpenException {
+        return recordStore.getRecord(nextRecordId());
+    }
+
+    public synchronized int nextRecordId() throws InvalidRecordIDException {
+        checkDestroyed();
+        int next = current == NO_SELECTION ? 0 : current + 1;
+
+        if(next >= count) {
+            throw new InvalidRecordIDException("No more records");
+        }
+
+        current = next;
+        return ids[current];
+    }
+
+    public byte[] previousRecord() throws InvalidRecordIDException, RecordStoreException, RecordStoreNotOpenException {
+        return recordStore.getRecord(previousRecordId());
+    }
+
+    public synchronized int previousRecordId() throws InvalidRecordIDException {
+        checkDestroyed();
+        int previous = current == NO_SELECTION ? count - 1 : current - 1;
+
+        if(previous < 0) {
+            throw new InvalidRecordIDException("No more records");
+        }
+
+        current = previous;
+        return ids[current];
+    }
+
+    public synchronized boolean hasNextElement() {
+        checkDestroyed();
+        return current == NO_SELECTION ? count > 0 : current < count - 1;
+    }
+
+    public synchronized boolean hasPreviousElement() {
+        checkDestroyed();
+        return current == NO_SELECTION ? count > 0 : current > 0;
+    }
+
+    public synchronized void reset() {
+        checkDestroyed();
+        current = NO_SELECTION;
+    }
+
+    public synchronized void rebuild() {
+        checkDestroyed();
+
+        try {
+            build();
+        } catch (RecordStoreNotOpenException e) {
+            count = 0;
+            current = NO_SELECTION;
+        }
+    }
+
+    public synchronized void keepUpdated(boolean keepUpdated) {
+        checkDestroyed();
+
+        if(keepUpdated != isKeptUpdated) {
+            isKeptUpdated = keepUpdated;
+
+            if(keepUpdated) {
+                recordStore.addRecordListener(this);
+                rebuild();
+            } else {
+                recordStore.removeRecordListener(this);
+            }
+        }
+    }
+
+    public synchronized boolean isKeptUpdated() {
+        checkDestroyed();
+        return isKeptUpdated;
+    }
+
+    public synchronized void destroy() {
+        checkDestroyed();
+        recordStore.removeRecordListener(this);
+        isDestroyed = true;
+        ids = null;
+        count = 0;
+    }
+
+    public synchronized void recordAdded(RecordStore recordStore, int recordId) {
+        if(!isDestroyed) {
+            insert(recordId);
+        }
+    }
+
+    public synchronized void recordChanged(RecordStore recordStore, int recordId) {
+        if(!isDestroyed) {
+            remove(recordId);
+            insert(recordId);
+        }
+    }
+
+    public synchronized void recordDeleted(RecordStore recordStore, int recordId) {
+        if(!isDestroyed) {
+            remove(recordId);
+        }
+    }
+
+    private void checkDestroyed() {
+        if(isDestroyed) {
+            throw new IllegalStateException("RecordEnumeration is destroyed");
+        }
+    }
+
+    private void build() throws RecordStoreNotOpenException {
+        int[] allIds = recordStore.getRecordIds();
+        byte[][] records = null;
+        int found = allIds.length;
+
+        if(filter != null || comparator != null) {
+            records = new byte[allIds.length][];
+            found = 0;
+
+            for(int recordId : allIds) {
+                byte[] record;
+                try {
+                    record = recordStore.getRecord(recordId);
+                } catch (RecordStoreNotOpenException e) {
+                    throw e;
+                } catch (RecordStoreException e) {
+                    continue;
+                }
+
+                if(filter == null || filter.matches(record)) {
+                    allIds[found] = recordId;
+                    records[found] = record;
+                    found++;
+                }
+            }
+        }
+
+        if(comparator != null && found > 1) {
+            int[] order = new int[found];
+            for(int i = 0; i < found; i++) {
+                order[i] = i;
+            }
+
+            mergeSort(order, new int[found], 0, found, records);
+
+            int[] sorted = new int[found];
+            for(int i = 0; i < found; i++) {
+                sorted[i] = allIds[order[i]];
+            }
+
+            allIds = sorted;
+        }
+
+        ids = allIds;
+        count = found;
+        current = NO_SELECTION;
+    }
+
+    /**
+     * Stable sort of order[from..to) by records they point to
+     */
+    private void mergeSort(int[] order, int[] temp, int from, int to, byte[][] records) {
+        if(to - from < 2) {
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+        mergeSort(order, temp, from, middle, records);
+        mergeSort(order, temp, middle, to, records);
+
+        // halves are already in order
+        if(comparator.compare(records[order[middle - 1]], records[order[middle]]) != RecordComparator.FOLLOWS) {
+            return;
+        }
+
+        System.arraycopy(order, from, temp, from, to - from);
+        int left = from;
+        int right = middle;
+
+        for(int i = from; i < to; i++) {
+            if(right >= to || (left < middle &&
+                    comparator.compare(records[temp[left]], records[temp[right]]) != RecordComparator.FOLLOWS)) {
+                order[i] = temp[left++];
+            } else {
+                order[i] = temp[right++];
+            }
+        }
+    }
+
+    private void insert(int recordId) {
+        byte[] record = null;
+
+        if(filter != null || comparator != null) {
+            try {
+                record = recordStore.getRecord(recordId);
+            } catch (RecordStoreException e) {
+                return;
+            }
+
+            if(filter != null && !filter.matches(record)) {
+                return;
+            }
+        }
+
+        int position = count;
+        if(comparator != null) {
+            position = findInsertPosition(record);
+        }
+
+        if(count == ids.length) {
+            int[] newIds = new int[Math.max(8, count * 2)];
+            System.arraycopy(ids, 0, newIds, 0, count);
+            ids = newIds;
+        }
+
+        System.arraycopy(ids, position, ids, position + 1, count - position);
+        ids[position] = recordId;
+        count++;
+
+        if(current != NO_SELECTION && position <= current) {
+            current++;
+        }
+    }
+
+    /**
+     * Binary search of position after all records that do not follow specified one.
+     * Ids of records that cannot be read anymore are removed on the way
+     */
+    private int findInsertPosition(byte[] record) {
+        int low = 0;
+        int high = count;
+
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            byte[] other;
+
+            try {
+                other = recordStore.getRecord(ids[middle]);
+            } catch (RecordStoreException e) {
+                // stale id of deleted record, whose event is not applied yet
+                removeAt(middle);
+                high--;
+                continue;
+            }
+
+            if(comparator.compare(record, other) == RecordComparator.PRECEDES) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+
+        return low;
+    }
+
+    private void remove(int recordId) {
+        for(int i = 0; i < count; i++) {
+            if(ids[i] == recordId) {
+                removeAt(i);
+                return;
+            }
+        }
+    }
+
+    private void removeAt(int index) {
+        System.arraycopy(ids, index + 1, ids, index, count - index - 1);
+        count--;
+
+        if(current != NO_SELECTION && index <= current) {
+            current--;
+        }
+    }
+}
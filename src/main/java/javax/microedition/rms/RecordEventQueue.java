@@ -0,0 +1,229 @@
+package javax.microedition.rms;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Record events of a store that wait for delivery to its listeners.<br/>
+ * <br/>
+ * Writer only puts event to ring buffer, and listeners are called later from executor, in batches,
+ * so modification takes the same time regardless of how many listeners there are and how slow they are.
+ * Events are delivered in the order they happened. Change of record that already has pending added
+ * or changed event is dropped, since listener will see the latest data of record anyway.<br/>
+ * <br/>
+ * Buffer grows up to {@link #MAX_CAPACITY} events. When it is full, events of records that are deleted
+ * later are coalesced: they are dropped, and record that was added and deleted is not reported at all.
+ * After that every record has at most one pending event, so if buffer is still more than half full,
+ * it grows further. Events are never dropped otherwise, and buffer is bounded by number of records
+ * that changed since the last delivery, so slow listeners never make memory grow unbounded.
+ */
+class RecordEventQueue implements Runnable {
+
+    static final int ADDED = 0;
+    static final int CHANGED = 1;
+    static final int DELETED = 2;
+    // deletion of record whose addition was coalesced, it is dropped too
+    private static final int SKIPPED = 3;
+
+    static final int MAX_CAPACITY = 4096;
+
+    private final RecordStore recordStore;
+    private final List<RecordListener> listeners;
+    private final Executor executor;
+    private final int maxCapacity;
+
+    // ring buffer of pending events, position of event is its sequence number masked by capacity
+    private int[] types;
+    private int[] ids;
+    private long head;
+    private int size;
+    // sequence number plus one of the latest event of every record, indexed by record id.
+    // Events before head are already taken, so entries are never cleared
+    private long[] latestEvents;
+    private boolean isScheduled;
+
+    // events taken by delivering thread, only one delivery is running at a time
+    private int[] batchTypes;
+    private int[] batchIds;
+
+    RecordEventQueue(RecordStore recordStore, List<RecordListener> listeners, Executor executor) {
+        this(recordStore, listeners, executor, MAX_CAPACITY);
+    }
+
+    /**
+     * @param maxCapacity number of pending events at which they are coalesced, power of two
+     */
+    RecordEventQueue(RecordStore recordStore, List<RecordListener> listeners, Executor executor, int maxCapacity) {
+        this.recordStore = recordStore;
+        this.listeners = listeners;
+        this.executor = executor;
+        this.maxCapacity = maxCapacity;
+        this.types = new int[Math.min(16, maxCapacity)];
+        this.ids = new int[types.length];
+        this.latestEvents = new long[64];
+        this.batchTypes = new int[0];
+        this.batchIds = new int[0];
+    }
+
+    void add(int type, int recordId) {
+        boolean shouldSchedule;
+
+        synchronized (this) {
+            long latest = getLatestEvent(recordId);
+            if(type == CHANGED && latest >= head && types[mask(latest)] != DELETED) {
+                return;
+            }
+
+            if(size == types.length) {
+                if(types.length < maxCapacity) {
+                    grow();
+                } else {
+                    coalesce();
+
+                    if(size > types.length / 2) {
+                        grow();
+                    }
+                }
+            }
+
+            long sequence = head + size;
+            types[mask(sequence)] = type;
+            ids[mask(sequence)] = recordId;
+            setLatestEvent(recordId, sequence);
+            size++;
+
+            shouldSchedule = !isScheduled;
+            isScheduled = true;
+        }
+
+        if(shouldSchedule) {
+            executor.execute(this);
+        }
+    }
+
+    /**
+     * Delivers all pending events, including the ones added during delivery
+     */
+    public void run() {
+        while(true) {
+            int count;
+
+            synchronized (this) {
+                if(size == 0) {
+                    isScheduled = false;
+                    return;
+                }
+
+                count = size;
+                if(batchTypes.length < count) {
+                    batchTypes = new int[types.length];
+                    batchIds = new int[types.length];
+                }
+
+                for(int i = 0; i < count; i++) {
+                    batchTypes[i] = types[mask(head + i)];
+                    batchIds[i] = ids[mask(head + i)];
+                }
+
+                head += count;
+                size = 0;
+            }
+
+            for(int i = 0; i < count; i++) {
+                for(RecordListener listener : listeners) {
+                    try {
+                        deliver(recordStore, listener, batchTypes[i], batchIds[i]);
+                    } catch (RuntimeException e) {
+                        // failed listener should not prevent delivery to others
+                        Thread thread = Thread.currentThread();
+                        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                    }
+                }
+            }
+        }
+    }
+
+    static void deliver(RecordStore recordStore, RecordListener listener, int type, int recordId) {
+        switch (type) {
+            case ADDED:
+                listener.recordAdded(recordStore, recordId);
+                break;
+            case CHANGED:
+                listener.recordChanged(recordStore, recordId);
+                break;
+            case DELETED:
+                listener.recordDeleted(recordStore, recordId);
+                break;
+        }
+    }
+
+    /**
+     * Removes events of records that are deleted later, keeping order of remaining events
+     */
+    private void coalesce() {
+        long target = head;
+
+        for(long sequence = head; sequence < head + size; sequence++) {
+            int type = types[mask(sequence)];
+            int recordId = ids[mask(sequence)];
+            long latest = getLatestEvent(recordId);
+
+            if(sequence != latest) {
+                // latest event is not moved yet, since events are moved only backwards
+                int latestType = types[mask(latest)];
+                if(latestType == DELETED || latestType == SKIPPED) {
+                    if(type == ADDED) {
+                        types[mask(latest)] = SKIPPED;
+                    }
+
+                    continue;
+                }
+            } else if(type == SKIPPED) {
+                latestEvents[recordId] = 0;
+                continue;
+            } else {
+                setLatestEvent(recordId, target);
+            }
+
+            types[mask(target)] = type;
+            ids[mask(target)] = recordId;
+            target++;
+        }
+
+        size = (int) (target - head);
+    }
+
+    /**
+     * @return sequence number of the latest event of record, which is pending if it is not less than head
+     */
+    private long getLatestEvent(int recordId) {
+        return recordId < latestEvents.length ? latestEvents[recordId] - 1 : -1;
+    }
+
+    private void setLatestEvent(int recordId, long sequence) {
+        if(recordId >= latestEvents.length) {
+            latestEvents = Arrays.copyOf(latestEvents, Math.max(latestEvents.length * 2, recordId + 1));
+        }
+
+        latestEvents[recordId] = sequence + 1;
+    }
+
+    private void grow() {
+        int[] newTypes = new int[types.length * 2];
+        int[] newIds = new int[ids.length * 2];
+
+        for(long sequence = head; sequence < head + size; sequence++) {
+            newTypes[(int) (sequence & (newTypes.length - 1))] = types[mask(sequence)];
+            newIds[(int) (sequence & (newIds.length - 1))] = ids[mask(sequence)];
+        }
+
+        types = newTypes;
+        ids = newIds;
+    }
+
+    private int mask(long sequence) {
+        return (int) (sequence & (types.length - 1));
+    }
+}
@@ -1,7 +1,7 @@
 package javax.microedition.rms;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 
 /**
  * A class representing a record store. A record store consists of a collection of records
@@ -48,17 +48,85 @@ import java.util.List;
  */
 public class RecordStore {
 
-    private List<RecordListener> recordListeners;
-    private boolean isOpened;
-    private int version;
-    private long lastModified;
-    private String name;
+    public abstract static class Impl {
 
-    private RecordStore(String name) {
-        this.recordListeners = new ArrayList<RecordListener>();
-        this.isOpened = true;
-        this.version = 1;
+        public abstract int getNumRecords();
+
+        public abstract int getSize();
+
+        public abstract int getSizeAvailable();
+
+        public abstract int getVersion();
+
+        public abstract long getLastModified();
+
+        public abstract int getNextRecordID();
+
+        public abstract int addRecord(byte[] data, int offset, int numBytes) throws RecordStoreException;
+
+        public abstract void setRecord(int recordId, byte[] data, int offset, int numBytes) throws RecordStoreException;
+
+        public abstract void deleteRecord(int recordId) throws RecordStoreException;
+
+        public abstract int getRecordSize(int recordId) throws RecordStoreException;
+
+        public abstract int getRecord(int recordId, byte[] buffer, int offset) throws RecordStoreException;
+
+        /**
+         * Returns ids of all records in ascending order
+         */
+        public abstract int[] getRecordIds();
+
+        public abstract void close() throws RecordStoreException;
+
+        /**
+         * Puts record with specified id, without changing version and modification time of store.
+         * Used to restore store from snapshot, store is expected to be empty before restoring
+         */
+        public void restoreRecord(int recordId, byte[] data, int offset, int numBytes) throws RecordStoreException {
+            throw new RecordStoreException("Record store cannot be restored from snapshot");
+        }
+
+        /**
+         * Sets next record id, version and modification time of store, after its records are restored
+         */
+        public void restoreState(int nextId, int version, long lastModified) throws RecordStoreException {
+            throw new RecordStoreException("Record store cannot be restored from snapshot");
+        }
+
+        /**
+         * Sets listener that is called when size of store changes without modification, e.g. after
+         * background compaction. It is called without store locks held. Stores that never do that ignore it
+         */
+        public void setSizeListener(Runnable listener) {
+        }
+    }
+
+    private static final int MAX_NAME_LENGTH = 32;
+
+    private final RecordStoreRegistry registry;
+    // listeners are notified far more often than changed, so notification never takes a lock
+    private final CopyOnWriteArrayList<RecordListener> recordListeners;
+    // enumerations are always kept updated synchronously, so they reflect changes as soon as they are made
+    private final CopyOnWriteArrayList<RecordListener> enumerationListeners;
+    // null if record listeners are called synchronously
+    private final RecordEventQueue eventQueue;
+    // modification and notification of its event are done under this lock, so events of concurrent
+    // writers are seen by listeners in the same order as modifications. Readers never take it
+    private final Object modificationLock = new Object();
+    private int openCount;
+    private final String name;
+    // null when store is closed
+    private volatile Impl impl;
+
+    RecordStore(String name, Impl impl, RecordStoreRegistry registry, Executor eventExecutor) {
+        this.registry = registry;
+        this.recordListeners = new CopyOnWriteArrayList<RecordListener>();
+        this.enumerationListeners = new CopyOnWriteArrayList<RecordListener>();
+        this.eventQueue = eventExecutor != null ? new RecordEventQueue(this, recordListeners, eventExecutor) : null;
+        this.openCount = 1;
         this.name = name;
+        this.impl = impl;
     }
 
     /**
@@ -74,8 +142,7 @@ public class RecordStore {
      * @throws RecordStoreNotOpenException if the record store is not open.
      */
     public void closeRecordStore() throws RecordStoreException, RecordStoreNotOpenException {
-        isOpened = false;
-        recordListeners.clear();
+        registry.close(this);
     }
 
     /**
@@ -84,11 +151,8 @@ public class RecordStore {
      * @throws RecordStoreNotOpenException if the record store is not open.
      */
     public String getName() throws RecordStoreNotOpenException {
-        if(isOpened) {
-            return name;
-        } else {
-            throw new RecordStoreNotOpenException();
-        }
+        getImpl();
+        return name;
     }
 
     /**
@@ -101,11 +165,7 @@ public class RecordStore {
      * @throws RecordStoreNotOpenException if the record store is not open.
      */
     public int getVersion() throws RecordStoreNotOpenException {
-        if(isOpened) {
-            return version;
-        } else {
-            throw new RecordStoreNotOpenException();
-        }
+        return getImpl().getVersion();
     }
 
     /**
@@ -114,11 +174,7 @@ public class RecordStore {
      * @throws RecordStoreNotOpenException if the record store is not open.
      */
     public int getNumRecords() throws RecordStoreNotOpenException {
-        if(isOpened) {
-            return 0;
-        } else {
-            throw new RecordStoreNotOpenException();
-        }
+        return getImpl().getNumRecords();
     }
 
     /**
@@ -130,12 +186,7 @@ public class RecordStore {
      * @throws RecordStoreNotOpenException if the record store is not open.
      */
     public int getSize() throws RecordStoreNotOpenException {
-
-        if(isOpened) {
-            return 0;
-        } else {
-            throw new RecordStoreNotOpenException();
-        }
+        return getImpl().getSize();
     }
 
     /**
@@ -148,11 +199,7 @@ public class RecordStore {
      * @throws RecordStoreNotOpenException if the record store is not open.
      */
     public int getSizeAvailable() throws RecordStoreNotOpenException {
-        if(isOpened) {
-            return Integer.MAX_VALUE;
-        } else {
-            throw new RecordStoreNotOpenException();
-        }
+        return getImpl().getSizeAvailable();
     }
 
     /**
@@ -161,11 +208,7 @@ public class RecordStore {
      * @throws RecordStoreNotOpenException if the record store is not open.
      */
     public long getLastModified() throws RecordStoreNotOpenException {
-        if(isOpened) {
-            return lastModified;
-        } else {
-            throw new RecordStoreNotOpenException();
-        }
+        return getImpl().getLastModified();
     }
 
     /**
@@ -174,10 +217,8 @@ public class RecordStore {
      * @param listener the RecordChangedListener.
      */
     public void addRecordListener(RecordListener listener) {
-        if(isOpened) {
-            if (!recordListeners.contains(listener)) {
-                recordListeners.add(listener);
-            }
+        if(impl != null) {
+            getListeners(listener).addIfAbsent(listener);
         }
     }
 
@@ -186,8 +227,8 @@ public class RecordStore {
      * @param listener the RecordChangedListener.
      */
     public void removeRecordListener(RecordListener listener) {
-        if(isOpened) {
-            recordListeners.remove(listener);
+        if(impl != null) {
+            getListeners(listener).remove(listener);
         }
     }
 
@@ -203,7 +244,7 @@ public class RecordStore {
      * @throws RecordStoreNotOpenException if the record store is not open.
      */
     public int getNextRecordID() throws RecordStoreException, RecordStoreNotOpenException {
-        return 0;
+        return getImpl().getNextRecordID();
     }
 
     /**
@@ -221,7 +262,15 @@ public class RecordStore {
      */
     public int addRecord(byte[] data, int offset, int numBytes)
             throws RecordStoreException, RecordStoreFullException, RecordStoreNotOpenException {
-        return 0;
+        Impl impl = getImpl();
+        checkData(data, offset, numBytes);
+
+        synchronized (modificationLock) {
+            int recordId = impl.addRecord(data, offset, numBytes);
+            fireRecordEvent(RecordEventQueue.ADDED, recordId);
+
+            return recordId;
+        }
     }
 
     /**
@@ -235,6 +284,12 @@ public class RecordStore {
      */
     public void deleteRecord(int recordId) throws InvalidRecordIDException,
             RecordStoreException, RecordStoreNotOpenException {
+        Impl impl = getImpl();
+
+        synchronized (modificationLock) {
+            impl.deleteRecord(recordId);
+            fireRecordEvent(RecordEventQueue.DELETED, recordId);
+        }
     }
 
     /**
@@ -249,7 +304,7 @@ public class RecordStore {
      */
     public int getRecordSize(int recordId) throws InvalidRecordIDException,
             RecordStoreException, RecordStoreNotOpenException {
-        return 0;
+        return getImpl().getRecordSize(recordId);
     }
 
     /**
@@ -267,7 +322,7 @@ public class RecordStore {
      */
     public int getRecord(int recordId, byte[] buffer, int offset)
             throws InvalidRecordIDException, RecordStoreException, RecordStoreNotOpenException {
-        return 0;
+        return getImpl().getRecord(recordId, buffer, offset);
     }
 
     /**
@@ -282,7 +337,16 @@ public class RecordStore {
      */
     public byte[] getRecord(int recordId) throws InvalidRecordIDException,
             RecordStoreException, RecordStoreNotOpenException {
-        return null;
+        Impl impl = getImpl();
+
+        int size = impl.getRecordSize(recordId);
+        if(size == 0) {
+            return null;
+        }
+
+        byte[] data = new byte[size];
+        impl.getRecord(recordId, data, 0);
+        return data;
     }
 
     /**
@@ -318,55 +382,8 @@ public class RecordStore {
      */
     public RecordEnumeration enumerateRecords(RecordFilter filter, RecordComparator comparator, boolean keepUpdated)
             throws RecordStoreNotOpenException {
-        return new RecordEnumeration() {
-            public int numRecords() {
-                return 0;
-            }
-
-            public byte[] nextRecord() throws InvalidRecordIDException, RecordStoreException, RecordStoreNotOpenException {
-                return new byte[0];
-            }
-
-            public int nextRecordId() throws InvalidRecordIDException {
-                return 0;
-            }
-
-            public byte[] previousRecord() throws InvalidRecordIDException, RecordStoreException, RecordStoreNotOpenException {
-                return new byte[0];
-            }
-
-            public int previousRecordId() throws InvalidRecordIDException {
-                return 0;
-            }
-
-            public boolean hasNextElement() {
-                return false;
-            }
-
-            public boolean hasPreviousElement() {
-                return false;
-            }
-
-            public void reset() {
-
-            }
-
-            public void rebuild() {
-
-            }
-
-            public void keepUpdated(boolean keepUpdated) {
-
-            }
-
-            public boolean isKeptUpdated() {
-                return false;
-            }
-
-            public void destroy() {
-
-            }
-        };
+        getImpl();
+        return new RecordEnumerationImpl(this, filter, comparator, keepUpdated);
     }
 
     /**
@@ -385,6 +402,13 @@ public class RecordStore {
      */
     public void setRecord(int recordId, byte[] newData, int offset, int numBytes)
             throws InvalidRecordIDException, RecordStoreException, RecordStoreFullException, RecordStoreNotOpenException {
+        Impl impl = getImpl();
+        checkData(newData, offset, numBytes);
+
+        synchronized (modificationLock) {
+            impl.setRecord(recordId, newData, offset, numBytes);
+            fireRecordEvent(RecordEventQueue.CHANGED, recordId);
+        }
     }
 
     /**
@@ -399,6 +423,7 @@ public class RecordStore {
      */
     public static void deleteRecordStore(String recordStoreName)
             throws RecordStoreException, RecordStoreNotFoundException {
+        RecordStoreRegistry.getInstance().delete(recordStoreName);
     }
 
     /**
@@ -416,7 +441,11 @@ public class RecordStore {
      */
     public static RecordStore openRecordStore(String recordStoreName, boolean createIfNecessary)
             throws RecordStoreException, RecordStoreFullException, RecordStoreNotFoundException {
-        return new RecordStore(recordStoreName); // TODO: Implementation
+        if(recordStoreName == null || recordStoreName.length() == 0 || recordStoreName.length() > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("Invalid record store name \"" + recordStoreName + "\"");
+        }
+
+        return RecordStoreRegistry.getInstance().open(recordStoreName, createIfNecessary);
     }
 
     /**
@@ -429,7 +458,92 @@ public class RecordStore {
      * this function will return NULL.
      */
     public static String[] listRecordStores() {
-        return null;
+        try {
+            return RecordStoreRegistry.getInstance().list();
+        } catch (RecordStoreException e) {
+            // without device there is no storage, so there are no stores either
+            return null;
+        }
+    }
+
+    /**
+     * Called by registry when store is opened again, under registry lock as well as {@link #release()}
+     */
+    void retain() {
+        openCount++;
+    }
+
+    /**
+     * Called by registry when store is closed
+     *
+     * @return true if it was the last reference to store
+     */
+    boolean release() throws RecordStoreNotOpenException {
+        getImpl();
+        return --openCount == 0;
+    }
+
+    /**
+     * Closes store in storage, after this its file handles and caches can be released
+     */
+    void closeImpl() throws RecordStoreException {
+        Impl closedImpl = impl;
+        impl = null;
+        recordListeners.clear();
+        enumerationListeners.clear();
+        closedImpl.close();
+    }
+
+    int[] getRecordIds() throws RecordStoreNotOpenException {
+        return getImpl().getRecordIds();
+    }
+
+    private CopyOnWriteArrayList<RecordListener> getListeners(RecordListener listener) {
+        return listener instanceof RecordEnumerationImpl ? enumerationListeners : recordListeners;
+    }
+
+    /**
+     * Called under modification lock, synchronously called listeners hold it too
+     */
+    private void fireRecordEvent(int type, int recordId) {
+        for(RecordListener listener : enumerationListeners) {
+            RecordEventQueue.deliver(this, listener, type, recordId);
+        }
+
+        if(eventQueue != null) {
+            if(!recordListeners.isEmpty()) {
+                eventQueue.add(type, recordId);
+            }
+        } else {
+            for(RecordListener listener : recordListeners) {
+                RecordEventQueue.deliver(this, listener, type, recordId);
+            }
+        }
+    }
+
+    private Impl getImpl() throws RecordStoreNotOpenException {
+        Impl impl = this.impl;
+        if(impl == null) {
+            throw new RecordStoreNotOpenException();
+        }
+
+        return impl;
+    }
+
+    private static void checkData(byte[] data, int offset, int numBytes) {
+        if(numBytes < 0) {
+            throw new ArrayIndexOutOfBoundsException("Negative record size " + numBytes);
+        }
+
+        if(numBytes > 0) {
+            if(data == null) {
+                throw new NullPointerException("Record data should not be null");
+            }
+
+            if(offset < 0 || offset + numBytes > data.length) {
+                throw new ArrayIndexOutOfBoundsException("Record data is out of array bounds");
+            }
+        }
     }
 }
 
@@ -0,0 +1,168 @@
+package javax.microedition.rms;
+
+import ru.threedisevenzeror.retrophone.RetroDevice;
+import ru.threedisevenzeror.retrophone.StorageDevice;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Record stores of a MIDlet suite, which are open or exist in its storage.<br/>
+ * <br/>
+ * Opening a store that is already open returns the same {@link RecordStore} and increments its open count,
+ * store is closed in storage only when it is closed as many times as it was opened.<br/>
+ * <br/>
+ * Names of existing stores are listed from storage once, and then kept up to date when stores are created
+ * or deleted, so listing stores and checking whether store exists never touch the storage itself.<br/>
+ * <br/>
+ * Tools that change stores directly in storage (e.g. restore them from snapshot) {@link #lock(String)} them first,
+ * so that suite cannot use them meanwhile.
+ */
+public class RecordStoreRegistry {
+
+    // registry refers to its storage, so it is weakly referenced too, open stores keep it alive
+    private static final Map<StorageDevice, WeakReference<RecordStoreRegistry>> registries =
+            new WeakHashMap<StorageDevice, WeakReference<RecordStoreRegistry>>();
+
+    private final StorageDevice storage;
+    private final Map<String, RecordStore> openStores;
+    // stores that are changed directly in storage
+    private final Set<String> lockedNames;
+    private Set<String> names;
+
+    private RecordStoreRegistry(StorageDevice storage) {
+        this.storage = storage;
+        this.openStores = new HashMap<String, RecordStore>();
+        this.lockedNames = new HashSet<String>();
+    }
+
+    /**
+     * Returns registry of storage of current device, every running suite has its own one
+     *
+     * @throws RecordStoreException if there is no device on current thread
+     */
+    static RecordStoreRegistry getInstance() throws RecordStoreException {
+        RetroDevice device = RetroDevice.getInstance();
+        if(device == null) {
+            throw new RecordStoreException("Device is not created on this thread");
+        }
+
+        return forStorage(device.getStorage());
+    }
+
+    /**
+     * Returns registry of stores of storage, which is shared by everyone who uses that storage
+     */
+    public static RecordStoreRegistry forStorage(StorageDevice storage) {
+        synchronized (registries) {
+            WeakReference<RecordStoreRegistry> reference = registries.get(storage);
+            RecordStoreRegistry registry = reference != null ? reference.get() : null;
+
+            if(registry == null) {
+                registry = new RecordStoreRegistry(storage);
+                registries.put(storage, new WeakReference<RecordStoreRegistry>(registry));
+            }
+
+            return registry;
+        }
+    }
+
+    synchronized RecordStore open(String name, boolean createIfNecessary) throws RecordStoreException {
+        RecordStore store = openStores.get(name);
+        if(store != null) {
+            store.retain();
+            return store;
+        }
+
+        checkUnlocked(name);
+        if(!createIfNecessary && !getNames().contains(name)) {
+            throw new RecordStoreNotFoundException("Record store \"" + name + "\" is not found");
+        }
+
+        store = new RecordStore(name, storage.openRecordStore(name, createIfNecessary), this,
+                RetroDevice.getInstance().getRecordEventExecutor());
+        openStores.put(name, store);
+        getNames().add(name);
+        return store;
+    }
+
+    /**
+     * Releases one reference to store, closing it when there are no more references
+     */
+    synchronized void close(RecordStore store) throws RecordStoreException {
+        if(store.release()) {
+            openStores.remove(store.getName());
+            store.closeImpl();
+        }
+    }
+
+    synchronized void delete(String name) throws RecordStoreException {
+        if(openStores.containsKey(name)) {
+            throw new RecordStoreException("Record store \"" + name + "\" is open");
+        }
+
+        checkUnlocked(name);
+
+        if(!getNames().contains(name)) {
+            throw new RecordStoreNotFoundException("Record store \"" + name + "\" is not found");
+        }
+
+        storage.deleteRecordStore(name);
+        names.remove(name);
+    }
+
+    /**
+     * Takes store away from suite, so it can be changed directly in storage.
+     * Until store is unlocked, suite can neither open nor delete it
+     *
+     * @throws RecordStoreException if store is open or locked already
+     */
+    public synchronized void lock(String name) throws RecordStoreException {
+        if(openStores.containsKey(name)) {
+            throw new RecordStoreException("Record store \"" + name + "\" is open");
+        }
+
+        checkUnlocked(name);
+        lockedNames.add(name);
+    }
+
+    /**
+     * Gives locked store back to suite. Store could be created or deleted meanwhile,
+     * so names of stores are listed from storage again
+     */
+    public synchronized void unlock(String name) {
+        lockedNames.remove(name);
+        names = null;
+    }
+
+    synchronized String[] list() {
+        Set<String> names = getNames();
+        return names.isEmpty() ? null : names.toArray(new String[names.size()]);
+    }
+
+    private void checkUnlocked(String name) throws RecordStoreException {
+        if(lockedNames.contains(name)) {
+            throw new RecordStoreException("Record store \"" + name + "\" is in use");
+        }
+    }
+
+    private Set<String> getNames() {
+        if(names == null) {
+            names = new HashSet<String>();
+
+            String[] existing = storage.listRecordStores();
+            if(existing != null) {
+                for(String name : existing) {
+                    names.add(name);
+                }
+            }
+        }
+
+        return names;
+    }
+}
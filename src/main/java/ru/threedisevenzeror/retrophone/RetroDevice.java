@@ -3,6 +3,10 @@ package ru.threedisevenzeror.retrophone;
 import ru.threedisevenzeror.retrophone.impl.empty.NullDisplayDevice;
 import ru.threedisevenzeror.retrophone.impl.empty.NullGraphicsDevice;
 import ru.threedisevenzeror.retrophone.impl.empty.NullInputDevice;
+import ru.threedisevenzeror.retrophone.impl.rms.MemoryStorageDevice;
+import ru.threedisevenzeror.retrophone.info.ApplicationInfo;
+
+import java.util.concurrent.Executor;
 
 /**
  * Created by ThreeDISevenZeroR on 04.11.2016.
@@ -14,6 +18,9 @@ public class RetroDevice {
         private GraphicsDevice graphicsDevice;
         private InputDevice inputDevice;
         private DisplayDevice displayDevice;
+        private StorageDevice storageDevice;
+        private Executor recordEventExecutor;
+        private ApplicationInfo applicationInfo;
 
         public Builder graphicsDevice(GraphicsDevice graphicsDevice) {
             this.graphicsDevice = graphicsDevice;
@@ -30,12 +37,49 @@ public class RetroDevice {
             return this;
         }
 
+        /**
+         * Storage of record stores. If it is not set, stores are kept in memory and nothing is written to disk,
+         * use {@link ru.threedisevenzeror.retrophone.impl.rms.FileStorageDevice} to keep them between runs
+         */
+        public Builder storageDevice(StorageDevice storageDevice) {
+            this.storageDevice = storageDevice;
+            return this;
+        }
+
+        /**
+         * MIDlet suite that runs on device. Unless storage device is set, suite gets
+         * {@link MemoryStorageDevice#getDefault(ApplicationInfo) default storage} of its own
+         */
+        public Builder applicationInfo(ApplicationInfo applicationInfo) {
+            this.applicationInfo = applicationInfo;
+            return this;
+        }
+
+        /**
+         * Makes record listeners to be called on specified executor, usually the one that runs
+         * MIDlet events, instead of inside of methods that modify record store
+         */
+        public Builder recordEventExecutor(Executor recordEventExecutor) {
+            this.recordEventExecutor = recordEventExecutor;
+            return this;
+        }
+
         public void createDeviceInstance() {
             RetroDevice device = new RetroDevice();
 
             device.graphicsDevice = graphicsDevice != null ? graphicsDevice : NullGraphicsDevice.instance;
             device.displayDevice = displayDevice != null ? displayDevice : NullDisplayDevice.instance;
             device.inputDevice = inputDevice != null ? inputDevice : NullInputDevice.instance;
+            device.recordEventExecutor = recordEventExecutor;
+            device.applicationInfo = applicationInfo;
+
+            if(storageDevice != null) {
+                device.storageDevice = storageDevice;
+            } else if(applicationInfo != null) {
+                device.storageDevice = MemoryStorageDevice.getDefault(applicationInfo);
+            } else {
+                device.storageDevice = MemoryStorageDevice.getDefault();
+            }
 
             instance.set(device);
         }
@@ -46,11 +90,21 @@ public class RetroDevice {
     private GraphicsDevice graphicsDevice;
     private InputDevice inputDevice;
     private DisplayDevice displayDevice;
+    private StorageDevice storageDevice;
+    private Executor recordEventExecutor;
+    private ApplicationInfo applicationInfo;
 
     public static RetroDevice getInstance() {
         return instance.get();
     }
 
+    /**
+     * Removes device of current thread, threads started afterwards do not get it either
+     */
+    public static void removeInstance() {
+        instance.remove();
+    }
+
     public GraphicsDevice getGraphics() {
         return graphicsDevice;
     }
@@ -62,4 +116,22 @@ public class RetroDevice {
     public DisplayDevice getDisplay() {
         return displayDevice;
     }
+
+    public StorageDevice getStorage() {
+        return storageDevice;
+    }
+
+    /**
+     * @return suite that runs on device, or null if it is not known
+     */
+    public ApplicationInfo getApplicationInfo() {
+        return applicationInfo;
+    }
+
+    /**
+     * @return executor that calls record listeners, or null if they are called synchronously
+     */
+    public Executor getRecordEventExecutor() {
+        return recordEventExecutor;
+    }
 }
@@ -0,0 +1,37 @@
+package ru.threedisevenzeror.retrophone;
+
+import javax.microedition.rms.RecordStore;
+import javax.microedition.rms.RecordStoreException;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ */
+public abstract class StorageDevice {
+
+    public abstract RecordStore.Impl openRecordStore(String name, boolean createIfNecessary) throws RecordStoreException;
+
+    public abstract void deleteRecordStore(String name) throws RecordStoreException;
+
+    /**
+     * Replaces store with another store of this storage, which takes its name.
+     * Store with that name does not need to exist, replacement store does not exist afterwards
+     */
+    public abstract void replaceRecordStore(String name, String replacementName) throws RecordStoreException;
+
+    public abstract String[] listRecordStores();
+
+    /**
+     * Returns size of closed store, as {@link RecordStore.Impl#getSize()} would return.
+     * Opens the store by default, storages that know sizes of their stores override it
+     *
+     * @throws javax.microedition.rms.RecordStoreNotFoundException if store does not exist
+     */
+    public long getRecordStoreSize(String name) throws RecordStoreException {
+        RecordStore.Impl store = openRecordStore(name, false);
+        try {
+            return store.getSize();
+        } finally {
+            store.close();
+        }
+    }
+}
@@ -49,6 +49,11 @@ public class NullGraphics extends Graphics.Impl {
 
     }
 
+    @Override
+    public void copyArea(int xSrc, int ySrc, int width, int height, int xDest, int yDest, int anchor) {
+
+    }
+
     @Override
     public void drawArc(int x, int y, int width, int height, int startAngle, int arcAngle) {
 
@@ -69,6 +74,16 @@ public class NullGraphics extends Graphics.Impl {
 
     }
 
+    @Override
+    public void drawRGB(int[] rgbData, int offset, int scanlength, int x, int y, int width, int height, boolean processAlpha) {
+
+    }
+
+    @Override
+    public void drawRegion(Image src, int xSrc, int ySrc, int width, int height, int transform, int xDest, int yDest, int anchor) {
+
+    }
+
     @Override
     public void drawRect(int x, int y, int width, int height) {
 
@@ -31,4 +31,9 @@ public class NullImage extends Image.Impl {
     public int getWidth() {
         return width;
     }
+
+    @Override
+    public void getRGB(int[] rgbData, int offset, int scanlength, int x, int y, int width, int height) {
+
+    }
 }
@@ -0,0 +1,81 @@
+package ru.threedisevenzeror.retrophone.impl.resources;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Counters of resource cache lookups of a single suite
+ */
+public class CacheStatistics {
+
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong hitBytes;
+    private final AtomicLong loadedBytes;
+    private final AtomicLong uncached;
+
+    public CacheStatistics() {
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.hitBytes = new AtomicLong();
+        this.loadedBytes = new AtomicLong();
+        this.uncached = new AtomicLong();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public double getHitRatio() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * Bytes served from cache
+     */
+    public long getHitBytes() {
+        return hitBytes.get();
+    }
+
+    /**
+     * Bytes read from underlying provider
+     */
+    public long getLoadedBytes() {
+        return loadedBytes.get();
+    }
+
+    /**
+     * Number of loaded resources that were too large to be cached
+     */
+    public long getUncachedCount() {
+        return uncached.get();
+    }
+
+    public void reset() {
+        hits.set(0);
+        misses.set(0);
+        hitBytes.set(0);
+        loadedBytes.set(0);
+        uncached.set(0);
+    }
+
+    void recordHit(int size) {
+        hits.incrementAndGet();
+        hitBytes.addAndGet(size);
+    }
+
+    void recordMiss(int size, boolean cached) {
+        misses.incrementAndGet();
+        loadedBytes.addAndGet(size);
+
+        if(!cached) {
+            uncached.incrementAndGet();
+        }
+    }
+}
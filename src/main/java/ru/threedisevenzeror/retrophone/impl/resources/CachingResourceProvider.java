@@ -0,0 +1,80 @@
+package ru.threedisevenzeror.retrophone.impl.resources;
+
+import ru.threedisevenzeror.retrophone.ResourceProvider;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Provider that keeps recently used resources of a suite in {@link ResourceCache}.<br/>
+ * <br/>
+ * Resource is read from underlying provider once and then served from cache, until it is evicted.
+ * Returned streams read cached data in place. Each suite should have its own provider,
+ * since resources are cached per provider.
+ */
+public class CachingResourceProvider implements ResourceProvider {
+
+    private final ResourceProvider provider;
+    private final ResourceCache cache;
+    private final CacheStatistics statistics;
+
+    public CachingResourceProvider(ResourceProvider provider) {
+        this(provider, ResourceCache.getShared());
+    }
+
+    public CachingResourceProvider(ResourceProvider provider, ResourceCache cache) {
+        this.provider = provider;
+        this.cache = cache;
+        this.statistics = new CacheStatistics();
+    }
+
+    @Override
+    public InputStream open(String name) throws IOException {
+        ByteArrayInputStream cached = cache.open(this, name);
+        if(cached != null) {
+            statistics.recordHit(cached.available());
+            return cached;
+        }
+
+        byte[] data;
+        int length;
+
+        InputStream stream = provider.open(name);
+        try {
+            data = new byte[Math.max(stream.available(), 4096)];
+            length = 0;
+
+            int read;
+            while((read = stream.read(data, length, data.length - length)) != -1) {
+                length += read;
+                if(length == data.length) {
+                    data = Arrays.copyOf(data, data.length * 2);
+                }
+            }
+        } finally {
+            stream.close();
+        }
+
+        cached = cache.put(this, name, data, length);
+        statistics.recordMiss(length, cached != null);
+        return cached != null ? cached : new ByteArrayInputStream(data, 0, length);
+    }
+
+    /**
+     * Removes all cached resources of this provider
+     */
+    public void invalidate() {
+        cache.remove(this);
+    }
+
+    public ResourceProvider getProvider() {
+        return provider;
+    }
+
+    public CacheStatistics getStatistics() {
+        return statistics;
+    }
+}
@@ -0,0 +1,230 @@
+package ru.threedisevenzeror.retrophone.impl.resources;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Resource data of several suites kept in memory within size budget, shared by {@link CachingResourceProvider}s.<br/>
+ * <br/>
+ * Resources are copied one after another into slab segments of fixed size, so many small resources share
+ * a single array instead of having one each. Resources are served as streams over their part of segment,
+ * without copying. Segments are evicted as a whole, least recently used first, when budget is exceeded.
+ * Evicted segment is never reused, so streams that still read from it stay valid.
+ * Resources larger than segment get a segment of their own, resources larger than a quarter of budget
+ * are not cached at all.
+ */
+public class ResourceCache {
+
+    public static final String CAPACITY_PROPERTY = "retrophone.resourceCacheCapacity";
+
+    private static final int SEGMENT_SIZE = 64 * 1024;
+    private static final ResourceCache shared = new ResourceCache(Long.getLong(CAPACITY_PROPERTY, 8L * 1024 * 1024));
+
+    private final long capacity;
+    private final Map<Key, Entry> entries;
+    // ordered from least to most recently used
+    private final LinkedHashMap<Segment, Segment> segments;
+    // segment which new resources are appended to
+    private Segment current;
+    private long size;
+
+    /**
+     * @param capacity maximal size of all segments in bytes
+     */
+    public ResourceCache(long capacity) {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        }
+
+        this.capacity = capacity;
+        this.entries = new HashMap<Key, Entry>();
+        this.segments = new LinkedHashMap<Segment, Segment>(16, 0.75f, true);
+    }
+
+    /**
+     * Cache used by default, its capacity is taken from {@link #CAPACITY_PROPERTY} system property
+     */
+    public static ResourceCache getShared() {
+        return shared;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Size of all segments in bytes
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public synchronized int getResourceCount() {
+        return entries.size();
+    }
+
+    /**
+     * Opens stream of cached resource
+     *
+     * @return stream, or null if resource is not cached
+     */
+    synchronized ByteArrayInputStream open(Object owner, String name) {
+        Entry entry = entries.get(new Key(owner, name));
+        if(entry == null) {
+            return null;
+        }
+
+        segments.get(entry.segment);
+        return new ByteArrayInputStream(entry.segment.data, entry.offset, entry.length);
+    }
+
+    /**
+     * Copies resource to cache
+     *
+     * @return stream of cached resource, or null if it is too large to be cached
+     */
+    synchronized ByteArrayInputStream put(Object owner, String name, byte[] data, int length) {
+        if(length > capacity / 4) {
+            return null;
+        }
+
+        Key key = new Key(owner, name);
+        if(entries.containsKey(key)) {
+            return open(owner, name);
+        }
+
+        Segment segment;
+        if(length > SEGMENT_SIZE) {
+            segment = allocate(length);
+        } else {
+            if(current == null || current.data.length - current.used < length) {
+                current = allocate(SEGMENT_SIZE);
+            }
+
+            segment = current;
+        }
+
+        Entry entry = new Entry(segment, segment.used, length);
+        System.arraycopy(data, 0, segment.data, segment.used, length);
+        segment.used += length;
+        segment.keys.add(key);
+        entries.put(key, entry);
+        return new ByteArrayInputStream(segment.data, entry.offset, length);
+    }
+
+    /**
+     * Removes all resources of owner, segments left without resources are released
+     */
+    synchronized void remove(Object owner) {
+        Iterator<Segment> iterator = segments.keySet().iterator();
+        while(iterator.hasNext()) {
+            Segment segment = iterator.next();
+            Iterator<Key> keys = segment.keys.iterator();
+
+            while(keys.hasNext()) {
+                Key key = keys.next();
+                if(key.owner == owner) {
+                    entries.remove(key);
+                    keys.remove();
+                }
+            }
+
+            if(segment.keys.isEmpty() && segment != current) {
+                iterator.remove();
+                size -= segment.data.length;
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        segments.clear();
+        current = null;
+        size = 0;
+    }
+
+    /**
+     * Creates new segment, evicting least recently used ones to fit budget
+     */
+    private Segment allocate(int segmentSize) {
+        Iterator<Segment> iterator = segments.keySet().iterator();
+        while(size + segmentSize > capacity && iterator.hasNext()) {
+            Segment segment = iterator.next();
+            iterator.remove();
+            size -= segment.data.length;
+
+            for(Key key : segment.keys) {
+                entries.remove(key);
+            }
+
+            if(segment == current) {
+                current = null;
+            }
+        }
+
+        Segment segment = new Segment(new byte[segmentSize]);
+        segments.put(segment, segment);
+        size += segmentSize;
+        return segment;
+    }
+
+    private static final class Segment {
+
+        final byte[] data;
+        final List<Key> keys;
+        int used;
+
+        Segment(byte[] data) {
+            this.data = data;
+            this.keys = new ArrayList<Key>();
+        }
+    }
+
+    private static final class Entry {
+
+        final Segment segment;
+        final int offset;
+        final int length;
+
+        Entry(Segment segment, int offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Name of resource of specific owner, owners are compared by identity
+     */
+    private static final class Key {
+
+        final Object owner;
+        final String name;
+
+        Key(Object owner, String name) {
+            this.owner = owner;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(!(o instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) o;
+            return owner == other.owner && name.equals(other.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(owner) * 31 + name.hashCode();
+        }
+    }
+}
@@ -0,0 +1,412 @@
+package ru.threedisevenzeror.retrophone.impl.resources;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
+import ru.threedisevenzeror.retrophone.ResourceProvider;
+import ru.threedisevenzeror.retrophone.info.ApplicationInfo;
+import ru.threedisevenzeror.retrophone.utils.ByteBufferInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Resources of installed MIDlet suite, extracted from its jar once into a single uncompressed blob.<br/>
+ * <br/>
+ * On install, every entry of jar is inflated and appended to blob file, and its location is saved
+ * to index file next to it. Blob is memory-mapped when store is opened, so resources are served as slices
+ * of mapped region, without inflating or copying them on every launch. Entries of at least page size start
+ * at page boundary, so each of them touches as few pages as possible, smaller ones are packed together.<br/>
+ * <br/>
+ * Size of jar is checked against its MIDlet-Jar-Size attribute on install. Checksum of blob is kept in index,
+ * and is verified when store is opened, together with checksum of index itself.<br/>
+ * <br/>
+ * Index layout:
+ * <pre>
+ * magic(4) formatVersion(4) jarSize(8) version(UTF) blobLength(8) blobChecksum(4) count(4)
+ * entry: name(UTF) offset(4) size(4), repeated count times
+ * checksum(4)
+ * </pre>
+ */
+public class ResourceStore implements ResourceProvider, Closeable {
+
+    public static final String BLOB_FILE = "resources.bin";
+    public static final String INDEX_FILE = "resources.idx";
+
+    static final int MAGIC = 0x52505253; // "RPRS"
+    static final int FORMAT_VERSION = 1;
+
+    private static final int PAGE_SIZE = 4096;
+    private static final int ALIGNMENT = 8;
+    private static final String KEY_JAR_SIZE = "MIDlet-Jar-Size";
+
+    private final File directory;
+    private final ByteBuffer blob;
+    private final Map<String, Integer> entries;
+    private final int[] offsets;
+    private final int[] sizes;
+    private final long jarSize;
+    private final String version;
+    private volatile boolean isClosed;
+
+    private ResourceStore(File directory, ByteBuffer blob, Map<String, Integer> entries,
+                          int[] offsets, int[] sizes, long jarSize, String version) {
+        this.directory = directory;
+        this.blob = blob;
+        this.entries = entries;
+        this.offsets = offsets;
+        this.sizes = sizes;
+        this.jarSize = jarSize;
+        this.version = version;
+    }
+
+    /**
+     * Opens store of application from directory, installing it there first
+     * if directory has no valid store or it was installed from different jar
+     */
+    public static ResourceStore openOrInstall(ApplicationInfo info, File directory) throws IOException {
+        try {
+            ResourceStore store = open(directory);
+            if(store.jarSize == getJarSize(info) && store.version.equals(getVersion(info))) {
+                return store;
+            }
+
+            store.close();
+        } catch (IOException e) {
+            // store is missing or broken, so it is installed again
+        }
+
+        return install(info, directory);
+    }
+
+    /**
+     * Extracts all entries of application jar to directory, replacing store that is already there
+     *
+     * @throws IOException if jar cannot be read, or its size does not match MIDlet-Jar-Size attribute
+     */
+    public static ResourceStore install(ApplicationInfo info, File directory) throws IOException {
+        if(!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create directory " + directory);
+        }
+
+        File blobFile = new File(directory, BLOB_FILE);
+        File indexFile = new File(directory, INDEX_FILE);
+        File tempBlobFile = new File(directory, BLOB_FILE + ".tmp");
+        File tempIndexFile = new File(directory, INDEX_FILE + ".tmp");
+
+        Map<String, Integer> entries = new HashMap<String, Integer>();
+        String[] names = new String[64];
+        int[] offsets = new int[64];
+        int[] sizes = new int[64];
+        int count = 0;
+        long blobLength = 0;
+        long jarSize;
+        CRC32 blobChecksum = new CRC32();
+
+        CountingInputStream jarStream = new CountingInputStream(new BufferedInputStream(info.getJarStream()));
+        OutputStream blobStream = new CheckedOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tempBlobFile), 64 * 1024), blobChecksum);
+
+        try {
+            ZipInputStream zip = new ZipInputStream(jarStream);
+            byte[] data = new byte[PAGE_SIZE];
+            byte[] padding = new byte[PAGE_SIZE];
+            ZipEntry entry;
+
+            while((entry = zip.getNextEntry()) != null) {
+                if(entry.isDirectory() || entries.containsKey(entry.getName())) {
+                    continue;
+                }
+
+                int size = 0;
+                int read;
+                while((read = zip.read(data, size, data.length - size)) > 0) {
+                    size += read;
+                    if(size == data.length) {
+                        data = Arrays.copyOf(data, data.length * 2);
+                    }
+                }
+
+                int alignment = size >= PAGE_SIZE ? PAGE_SIZE : ALIGNMENT;
+                int paddingLength = (int) ((alignment - blobLength % alignment) % alignment);
+                if(blobLength + paddingLength + size > Integer.MAX_VALUE) {
+                    throw new IOException("Application is too large to be installed");
+                }
+
+                blobStream.write(padding, 0, paddingLength);
+                blobLength += paddingLength;
+                blobStream.write(data, 0, size);
+
+                if(count == names.length) {
+                    names = Arrays.copyOf(names, count * 2);
+                    offsets = Arrays.copyOf(offsets, count * 2);
+                    sizes = Arrays.copyOf(sizes, count * 2);
+                }
+
+                entries.put(entry.getName(), count);
+                names[count] = entry.getName();
+                offsets[count] = (int) blobLength;
+                sizes[count] = size;
+                count++;
+                blobLength += size;
+            }
+
+            // central directory is counted too, so whole jar is compared with declared size
+            IOUtils.skip(jarStream, Long.MAX_VALUE);
+            jarSize = jarStream.getByteCount();
+            blobStream.close();
+        } catch (IOException e) {
+            IOUtils.closeQuietly(blobStream);
+            tempBlobFile.delete();
+            throw e;
+        } finally {
+            IOUtils.closeQuietly(jarStream);
+        }
+
+        String declaredSize = info.getMainAttribute(KEY_JAR_SIZE);
+        if(declaredSize != null && !declaredSize.trim().equals(String.valueOf(jarSize))) {
+            tempBlobFile.delete();
+            throw new IOException("Size of jar is " + jarSize + ", but " + declaredSize.trim() + " is declared");
+        }
+
+        String version = getVersion(info);
+        CRC32 indexChecksum = new CRC32();
+        DataOutputStream indexStream = new DataOutputStream(new CheckedOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tempIndexFile)), indexChecksum));
+
+        try {
+            indexStream.writeInt(MAGIC);
+            indexStream.writeInt(FORMAT_VERSION);
+            indexStream.writeLong(jarSize);
+            indexStream.writeUTF(version);
+            indexStream.writeLong(blobLength);
+            indexStream.writeInt((int) blobChecksum.getValue());
+            indexStream.writeInt(count);
+
+            for(int i = 0; i < count; i++) {
+                indexStream.writeUTF(names[i]);
+                indexStream.writeInt(offsets[i]);
+                indexStream.writeInt(sizes[i]);
+            }
+
+            indexStream.flush();
+            indexStream.writeInt((int) indexChecksum.getValue());
+            indexStream.close();
+        } catch (IOException e) {
+            IOUtils.closeQuietly(indexStream);
+            tempBlobFile.delete();
+            tempIndexFile.delete();
+            throw e;
+        }
+
+        // index goes last, store with index of the old blob fails its checksum and is installed again
+        replace(tempBlobFile, blobFile);
+        replace(tempIndexFile, indexFile);
+        return open(directory);
+    }
+
+    /**
+     * Opens store installed in directory, verifying its index and blob
+     *
+     * @throws IOException if store is missing or corrupted
+     */
+    public static ResourceStore open(File directory) throws IOException {
+        File indexFile = new File(directory, INDEX_FILE);
+        CRC32 indexChecksum = new CRC32();
+        DataInputStream indexStream = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(new FileInputStream(indexFile)), indexChecksum));
+
+        long jarSize;
+        String version;
+        long blobLength;
+        int blobChecksum;
+        Map<String, Integer> entries;
+        int[] offsets;
+        int[] sizes;
+
+        try {
+            if(indexStream.readInt() != MAGIC || indexStream.readInt() != FORMAT_VERSION) {
+                throw new IOException("Resource index " + indexFile + " has unknown format");
+            }
+
+            jarSize = indexStream.readLong();
+            version = indexStream.readUTF();
+            blobLength = indexStream.readLong();
+            blobChecksum = indexStream.readInt();
+            int count = indexStream.readInt();
+
+            // every entry takes at least 10 bytes of index, so corrupted count cannot cause huge allocation
+            if(count < 0 || count > indexFile.length() / 10 || blobLength < 0 || blobLength > Integer.MAX_VALUE) {
+                throw new IOException("Resource index " + indexFile + " is corrupted");
+            }
+
+            entries = new HashMap<String, Integer>(count * 2);
+            offsets = new int[count];
+            sizes = new int[count];
+
+            for(int i = 0; i < count; i++) {
+                entries.put(indexStream.readUTF(), i);
+                offsets[i] = indexStream.readInt();
+                sizes[i] = indexStream.readInt();
+
+                if(offsets[i] < 0 || sizes[i] < 0 || (long) offsets[i] + sizes[i] > blobLength) {
+                    throw new IOException("Resource index " + indexFile + " is corrupted");
+                }
+            }
+
+            int expectedChecksum = (int) indexChecksum.getValue();
+            if(indexStream.readInt() != expectedChecksum) {
+                throw new IOException("Resource index " + indexFile + " is corrupted");
+            }
+        } finally {
+            IOUtils.closeQuietly(indexStream);
+        }
+
+        ByteBuffer blob = map(new File(directory, BLOB_FILE), blobLength);
+        if(checksum(blob) != blobChecksum) {
+            throw new IOException("Resource blob in " + directory + " is corrupted");
+        }
+
+        return new ResourceStore(directory, blob, entries, offsets, sizes, jarSize, version);
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Size of jar this store was installed from
+     */
+    public long getJarSize() {
+        return jarSize;
+    }
+
+    public boolean hasResource(String name) {
+        return find(name) >= 0;
+    }
+
+    /**
+     * @return size of resource, or -1 if there is no such resource
+     */
+    public int getSize(String name) {
+        int index = find(name);
+        return index >= 0 ? sizes[index] : -1;
+    }
+
+    /**
+     * Returns resource as read-only slice of mapped blob
+     *
+     * @return resource data, or null if there is no such resource
+     */
+    public ByteBuffer getBuffer(String name) {
+        int index = find(name);
+        if(index < 0) {
+            return null;
+        }
+
+        ByteBuffer view = blob.duplicate();
+        view.limit(offsets[index] + sizes[index]);
+        view.position(offsets[index]);
+        return view.slice();
+    }
+
+    /**
+     * Opens resource, name is resolved like in {@link Class#getResourceAsStream(String)} for class in root package
+     */
+    public InputStream open(String name) throws IOException {
+        ByteBuffer buffer = getBuffer(name);
+        if(buffer == null) {
+            throw new IOException("Resource " + name + " is not found");
+        }
+
+        return new ByteBufferInputStream(buffer);
+    }
+
+    /**
+     * Closed store cannot be read anymore, streams that were opened before stay valid
+     */
+    public void close() {
+        isClosed = true;
+    }
+
+    private int find(String name) {
+        if(isClosed) {
+            return -1;
+        }
+
+        Integer index = entries.get(name.startsWith("/") ? name.substring(1) : name);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * @return size of application jar, or -1 if it is not known
+     */
+    private static long getJarSize(ApplicationInfo info) {
+        try {
+            return info.getJarSize();
+        } catch (RuntimeException e) {
+            // jad without valid MIDlet-Jar-Size
+            return -1;
+        }
+    }
+
+    private static String getVersion(ApplicationInfo info) {
+        String version = info.getVersion();
+        return version != null ? version.trim() : "";
+    }
+
+    private static ByteBuffer map(File file, long length) throws IOException {
+        RandomAccessFile source = new RandomAccessFile(file, "r");
+        try {
+            if(source.length() != length) {
+                throw new IOException("Resource blob " + file + " is corrupted");
+            }
+
+            // mapping stays valid after file is closed
+            return source.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+        } finally {
+            source.close();
+        }
+    }
+
+    private static int checksum(ByteBuffer buffer) {
+        CRC32 checksum = new CRC32();
+        ByteBuffer view = buffer.duplicate();
+        byte[] chunk = new byte[64 * 1024];
+
+        while(view.hasRemaining()) {
+            int length = Math.min(chunk.length, view.remaining());
+            view.get(chunk, 0, length);
+            checksum.update(chunk, 0, length);
+        }
+
+        return (int) checksum.getValue();
+    }
+
+    private static void replace(File source, File target) throws IOException {
+        if(!source.renameTo(target) && !(target.delete() && source.renameTo(target))) {
+            source.delete();
+            throw new IOException("Cannot replace " + target);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package ru.threedisevenzeror.retrophone.impl.rms;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Defines when record store modifications reach the disk.<br/>
+ * <br/>
+ * In write-through mode (default) every modification is written to file before method returns.
+ * In write-behind mode modifications are applied in memory immediately and are written to file in batches,
+ * when amount of pending data reaches the limit, when delay since the first pending modification expires,
+ * or when record store is closed.<br/>
+ * <br/>
+ * With sync enabled, file is also synced to storage device after every write, so written data survives
+ * not only killed process, but power loss too.<br/>
+ * <br/>
+ * Record index is checkpointed to separate file every time log grows by checkpoint interval,
+ * so reopening store only needs to scan entries written after the last checkpoint.
+ */
+public class CommitPolicy {
+
+    public static final String WRITE_BEHIND_BYTES_PROPERTY = "retrophone.rms.writeBehindBytes";
+    public static final String WRITE_BEHIND_DELAY_PROPERTY = "retrophone.rms.writeBehindDelay";
+    public static final String SYNC_PROPERTY = "retrophone.rms.sync";
+    public static final String CHECKPOINT_INTERVAL_PROPERTY = "retrophone.rms.checkpointInterval";
+
+    public static final long DEFAULT_CHECKPOINT_INTERVAL = 1024 * 1024;
+
+    public static final CommitPolicy WRITE_THROUGH = new Builder().build();
+
+    public static class Builder {
+
+        private int maxPendingBytes;
+        private long maxDelayMillis;
+        private boolean isSync;
+        private long checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+
+        /**
+         * Enables write-behind mode
+         *
+         * @param maxPendingBytes amount of pending data that triggers write
+         * @param maxDelayMillis max time modification can wait for write, 0 to wait until size limit or close
+         */
+        public Builder writeBehind(int maxPendingBytes, long maxDelayMillis) {
+            if(maxPendingBytes < 0 || maxDelayMillis < 0) {
+                throw new IllegalArgumentException("Write-behind limits should not be negative");
+            }
+
+            this.maxPendingBytes = maxPendingBytes;
+            this.maxDelayMillis = maxDelayMillis;
+            return this;
+        }
+
+        public Builder sync(boolean isSync) {
+            this.isSync = isSync;
+            return this;
+        }
+
+        /**
+         * @param checkpointInterval amount of log data written between index checkpoints
+         */
+        public Builder checkpointInterval(long checkpointInterval) {
+            if(checkpointInterval <= 0) {
+                throw new IllegalArgumentException("Checkpoint interval should be positive: " + checkpointInterval);
+            }
+
+            this.checkpointInterval = checkpointInterval;
+            return this;
+        }
+
+        public CommitPolicy build() {
+            return new CommitPolicy(this);
+        }
+    }
+
+    private final int maxPendingBytes;
+    private final long maxDelayMillis;
+    private final boolean isSync;
+    private final long checkpointInterval;
+
+    private CommitPolicy(Builder builder) {
+        this.maxPendingBytes = builder.maxPendingBytes;
+        this.maxDelayMillis = builder.maxDelayMillis;
+        this.isSync = builder.isSync;
+        this.checkpointInterval = builder.checkpointInterval;
+    }
+
+    /**
+     * Creates policy from {@link #WRITE_BEHIND_BYTES_PROPERTY}, {@link #WRITE_BEHIND_DELAY_PROPERTY}
+     * {@link #SYNC_PROPERTY} and {@link #CHECKPOINT_INTERVAL_PROPERTY} system properties,
+     * policy is write-through if they are not set
+     */
+    public static CommitPolicy fromSystemProperties() {
+        return new Builder()
+                .writeBehind(Integer.getInteger(WRITE_BEHIND_BYTES_PROPERTY, 0),
+                        Long.getLong(WRITE_BEHIND_DELAY_PROPERTY, 0))
+                .sync(Boolean.getBoolean(SYNC_PROPERTY))
+                .checkpointInterval(Long.getLong(CHECKPOINT_INTERVAL_PROPERTY, DEFAULT_CHECKPOINT_INTERVAL))
+                .build();
+    }
+
+    public boolean isWriteBehind() {
+        return maxPendingBytes > 0;
+    }
+
+    public int getMaxPendingBytes() {
+        return maxPendingBytes;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    public boolean isSync() {
+        return isSync;
+    }
+
+    public long getCheckpointInterval() {
+        return checkpointInterval;
+    }
+}
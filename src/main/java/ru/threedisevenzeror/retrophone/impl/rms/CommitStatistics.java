@@ -0,0 +1,94 @@
+package ru.threedisevenzeror.retrophone.impl.rms;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Counters of record store writes, shared by all stores of a storage
+ */
+public class CommitStatistics {
+
+    private final AtomicLong commits;
+    private final AtomicLong entries;
+    private final AtomicLong bytes;
+    private final AtomicLong maxBatchEntries;
+    private final AtomicLong flushNanos;
+    private final AtomicLong maxFlushNanos;
+
+    public CommitStatistics() {
+        this.commits = new AtomicLong();
+        this.entries = new AtomicLong();
+        this.bytes = new AtomicLong();
+        this.maxBatchEntries = new AtomicLong();
+        this.flushNanos = new AtomicLong();
+        this.maxFlushNanos = new AtomicLong();
+    }
+
+    /**
+     * Number of writes to disk
+     */
+    public long getCommitCount() {
+        return commits.get();
+    }
+
+    /**
+     * Number of log entries written
+     */
+    public long getCommittedEntries() {
+        return entries.get();
+    }
+
+    public long getCommittedBytes() {
+        return bytes.get();
+    }
+
+    public long getMaxBatchEntries() {
+        return maxBatchEntries.get();
+    }
+
+    public double getAverageBatchEntries() {
+        long count = commits.get();
+        return count == 0 ? 0 : (double) entries.get() / count;
+    }
+
+    /**
+     * Total time spent in writes (including sync)
+     */
+    public long getTotalFlushNanos() {
+        return flushNanos.get();
+    }
+
+    public long getMaxFlushNanos() {
+        return maxFlushNanos.get();
+    }
+
+    public double getAverageFlushNanos() {
+        long count = commits.get();
+        return count == 0 ? 0 : (double) flushNanos.get() / count;
+    }
+
+    public void reset() {
+        commits.set(0);
+        entries.set(0);
+        bytes.set(0);
+        maxBatchEntries.set(0);
+        flushNanos.set(0);
+        maxFlushNanos.set(0);
+    }
+
+    void record(int batchEntries, int batchBytes, long nanos) {
+        commits.incrementAndGet();
+        entries.addAndGet(batchEntries);
+        bytes.addAndGet(batchBytes);
+        flushNanos.addAndGet(nanos);
+        updateMax(maxBatchEntries, batchEntries);
+        updateMax(maxFlushNanos, nanos);
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current;
+        do {
+            current = max.get();
+        } while(value > current && !max.compareAndSet(current, value));
+    }
+}
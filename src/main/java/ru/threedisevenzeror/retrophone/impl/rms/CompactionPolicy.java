@@ -0,0 +1,55 @@
+package ru.threedisevenzeror.retrophone.impl.rms;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Defines when record store log is compacted.<br/>
+ * <br/>
+ * Every changed or deleted record leaves dead entries in log. When store file is at least of minimal size
+ * and dead entries take at least specified part of it, live records are rewritten into new file in background.
+ */
+public class CompactionPolicy {
+
+    public static final String DEAD_RATIO_PROPERTY = "retrophone.rms.compactionRatio";
+    public static final String MIN_SIZE_PROPERTY = "retrophone.rms.compactionMinSize";
+
+    public static final CompactionPolicy DEFAULT = new CompactionPolicy(0.5, 64 * 1024);
+    public static final CompactionPolicy DISABLED = new CompactionPolicy(1, Long.MAX_VALUE);
+
+    private final double deadRatio;
+    private final long minSize;
+
+    /**
+     * @param deadRatio part of file taken by dead entries that triggers compaction, from 0 to 1
+     * @param minSize minimal file size that can be compacted
+     */
+    public CompactionPolicy(double deadRatio, long minSize) {
+        if(deadRatio < 0 || deadRatio > 1 || minSize < 0) {
+            throw new IllegalArgumentException("Invalid compaction policy: ratio " + deadRatio + ", size " + minSize);
+        }
+
+        this.deadRatio = deadRatio;
+        this.minSize = minSize;
+    }
+
+    /**
+     * Creates policy from {@link #DEAD_RATIO_PROPERTY} and {@link #MIN_SIZE_PROPERTY} system properties,
+     * values of {@link #DEFAULT} policy are used for missing ones
+     */
+    public static CompactionPolicy fromSystemProperties() {
+        String ratio = System.getProperty(DEAD_RATIO_PROPERTY);
+        return new CompactionPolicy(ratio != null ? Double.parseDouble(ratio) : DEFAULT.deadRatio,
+                Long.getLong(MIN_SIZE_PROPERTY, DEFAULT.minSize));
+    }
+
+    public double getDeadRatio() {
+        return deadRatio;
+    }
+
+    public long getMinSize() {
+        return minSize;
+    }
+
+    public boolean shouldCompact(long totalSize, long deadSize) {
+        return totalSize >= minSize && deadSize > 0 && deadSize >= totalSize * deadRatio;
+    }
+}
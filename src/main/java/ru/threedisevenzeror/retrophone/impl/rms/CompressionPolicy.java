@@ -0,0 +1,58 @@
+package ru.threedisevenzeror.retrophone.impl.rms;
+
+import java.util.zip.Deflater;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Defines which records are compressed in store file.<br/>
+ * <br/>
+ * Records of at least minimal size are compressed with deflate, and are kept compressed only if
+ * that makes them smaller. Small records rarely shrink, so they are always kept as is.
+ * Compression is transparent for MIDlet, record size and data are always reported uncompressed.
+ */
+public class CompressionPolicy {
+
+    public static final String MIN_SIZE_PROPERTY = "retrophone.rms.compressionMinSize";
+    public static final String LEVEL_PROPERTY = "retrophone.rms.compressionLevel";
+
+    public static final CompressionPolicy DISABLED = new CompressionPolicy(Integer.MAX_VALUE, Deflater.DEFAULT_COMPRESSION);
+
+    private final int minSize;
+    private final int level;
+
+    /**
+     * @param minSize minimal size of record that is compressed
+     * @param level deflate compression level, from 0 to 9, or {@link Deflater#DEFAULT_COMPRESSION}
+     */
+    public CompressionPolicy(int minSize, int level) {
+        if(minSize < 0 || level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression policy: size " + minSize + ", level " + level);
+        }
+
+        this.minSize = minSize;
+        this.level = level;
+    }
+
+    /**
+     * Creates policy from {@link #MIN_SIZE_PROPERTY} and {@link #LEVEL_PROPERTY} system properties,
+     * compression is disabled if minimal size is not set
+     */
+    public static CompressionPolicy fromSystemProperties() {
+        Integer minSize = Integer.getInteger(MIN_SIZE_PROPERTY);
+        return minSize != null
+                ? new CompressionPolicy(minSize, Integer.getInteger(LEVEL_PROPERTY, Deflater.DEFAULT_COMPRESSION))
+                : DISABLED;
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public boolean shouldCompress(int size) {
+        return size >= minSize;
+    }
+}
@@ -0,0 +1,159 @@
+package ru.threedisevenzeror.retrophone.impl.rms;
+
+import org.apache.commons.lang3.StringUtils;
+import ru.threedisevenzeror.retrophone.StorageDevice;
+import ru.threedisevenzeror.retrophone.info.ApplicationInfo;
+
+import javax.microedition.rms.RecordStore;
+import javax.microedition.rms.RecordStoreException;
+import javax.microedition.rms.RecordStoreNotFoundException;
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Storage that keeps every record store in its own append-only log file
+ */
+public class FileStorageDevice extends StorageDevice {
+
+    /**
+     * Name of system property with directory where record stores are kept by default
+     */
+    public static final String ROOT_PROPERTY = "retrophone.rms.root";
+
+    private static final String SUITES_DIRECTORY = "suites";
+
+    // default storages are shared, so devices never open the same store file twice
+    private static final Map<File, FileStorageDevice> defaultStorages = new HashMap<File, FileStorageDevice>();
+
+    protected final File directory;
+    protected final CommitPolicy policy;
+    protected final CompactionPolicy compactionPolicy;
+    protected final CompressionPolicy compressionPolicy;
+    protected final CommitStatistics statistics;
+
+    public FileStorageDevice(File directory) {
+        this(directory, CommitPolicy.WRITE_THROUGH, CompactionPolicy.DEFAULT);
+    }
+
+    public FileStorageDevice(File directory, CommitPolicy policy, CompactionPolicy compactionPolicy) {
+        this(directory, policy, compactionPolicy, CompressionPolicy.DISABLED);
+    }
+
+    public FileStorageDevice(File directory, CommitPolicy policy, CompactionPolicy compactionPolicy,
+                             CompressionPolicy compressionPolicy) {
+        this.directory = directory;
+        this.policy = policy;
+        this.compactionPolicy = compactionPolicy;
+        this.compressionPolicy = compressionPolicy;
+        this.statistics = new CommitStatistics();
+    }
+
+    /**
+     * Returns storage in directory specified by {@link #ROOT_PROPERTY}, or in "rms" directory if it is not set.
+     * Storage is shared by all devices that do not run specific suite.
+     * Commit, compaction and compression policies are taken from system properties,
+     * see {@link CommitPolicy#fromSystemProperties()}, {@link CompactionPolicy#fromSystemProperties()}
+     * and {@link CompressionPolicy#fromSystemProperties()}
+     */
+    public static FileStorageDevice getDefault() {
+        return getDefault(getRootDirectory());
+    }
+
+    /**
+     * Returns storage of MIDlet suite, which is kept in subdirectory of default directory named after vendor
+     * and name of suite, so suites never see stores of each other. Storage is shared by all devices that run
+     * this suite, policies are the same as in {@link #getDefault()}
+     */
+    public static FileStorageDevice getDefault(ApplicationInfo info) {
+        File suites = new File(getRootDirectory(), SUITES_DIRECTORY);
+        File vendor = new File(suites, encodeSuiteName(info.getVendor()));
+        return getDefault(new File(vendor, encodeSuiteName(info.getName())));
+    }
+
+    private static synchronized FileStorageDevice getDefault(File directory) {
+        File key = directory.getAbsoluteFile();
+        FileStorageDevice storage = defaultStorages.get(key);
+
+        if(storage == null) {
+            storage = new FileStorageDevice(key, CommitPolicy.fromSystemProperties(),
+                    CompactionPolicy.fromSystemProperties(), CompressionPolicy.fromSystemProperties());
+            defaultStorages.put(key, storage);
+        }
+
+        return storage;
+    }
+
+    private static File getRootDirectory() {
+        return new File(System.getProperty(ROOT_PROPERTY, "rms"));
+    }
+
+    /**
+     * Encodes vendor or name of suite as directory name, dots are encoded too, so it is never "." or ".."
+     */
+    private static String encodeSuiteName(String name) {
+        return LogRecordStore.encodeName(StringUtils.defaultIfEmpty(name, "unknown")).replace(".", "%2E");
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public CommitPolicy getPolicy() {
+        return policy;
+    }
+
+    public CompactionPolicy getCompactionPolicy() {
+        return compactionPolicy;
+    }
+
+    public CompressionPolicy getCompressionPolicy() {
+        return compressionPolicy;
+    }
+
+    /**
+     * Write counters of all record stores opened from this storage
+     */
+    public CommitStatistics getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public RecordStore.Impl openRecordStore(String name, boolean createIfNecessary) throws RecordStoreException {
+        return LogRecordStore.open(directory, name, createIfNecessary,
+                policy, compactionPolicy, compressionPolicy, statistics);
+    }
+
+    @Override
+    public void deleteRecordStore(String name) throws RecordStoreException {
+        LogRecordStore.delete(directory, name);
+    }
+
+    @Override
+    public void replaceRecordStore(String name, String replacementName) throws RecordStoreException {
+        LogRecordStore.replace(directory, name, replacementName);
+    }
+
+    /**
+     * Size of closed store is the length of its file, so store is not opened
+     */
+    @Override
+    public long getRecordStoreSize(String name) throws RecordStoreException {
+        File storeFile = LogRecordStore.getStoreFile(directory, name);
+        long length = storeFile.length();
+
+        if(length == 0 && !storeFile.exists()) {
+            throw new RecordStoreNotFoundException("Record store \"" + name + "\" is not found");
+        }
+
+        return length;
+    }
+
+    @Override
+    public String[] listRecordStores() {
+        List<String> names = LogRecordStore.list(directory);
+        return names.isEmpty() ? null : names.toArray(new String[names.size()]);
+    }
+}
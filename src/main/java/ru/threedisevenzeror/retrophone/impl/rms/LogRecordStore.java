@@ -0,0 +1,1226 @@
+package ru.threedisevenzeror.retrophone.impl.rms;
+
+import javax.microedition.rms.InvalidRecordIDException;
+import javax.microedition.rms.RecordStore;
+import javax.microedition.rms.RecordStoreException;
+import javax.microedition.rms.RecordStoreNotFoundException;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Record store kept as append-only log file.<br/>
+ * <br/>
+ * Every modification is appended to the end of file as a single entry, so writes are always sequential.
+ * Location of every live record is kept in memory in arrays indexed by record id. Every entry carries
+ * a checksum of its header and data, which is verified when log is scanned and when record is read from file.
+ * Torn or corrupted entry at the end of log (e.g. process was killed mid-write) is cut off on open.<br/>
+ * <br/>
+ * Record index is periodically saved to checkpoint file next to the log, together with log length it describes
+ * and id of the log file. On open, index is loaded from checkpoint and only entries after it are scanned,
+ * so recovery time depends on amount of data written since the last checkpoint, not on store size.
+ * Checkpoint that does not match the log (e.g. log was compacted after it) is ignored.<br/>
+ * <br/>
+ * Records of size from {@link CompressionPolicy} are deflated if that makes them smaller. Compressed entry
+ * has a flag in its type and keeps uncompressed size before deflated data, so index can be rebuilt without
+ * inflating records. Records are inflated only when read, and their size is always reported uncompressed.<br/>
+ * <br/>
+ * Size of live records is tracked, so amount of dead entries is always known. When it reaches the limit
+ * of {@link CompactionPolicy}, live records are rewritten to new file on low priority background thread,
+ * and the new file replaces the old one. Store stays available during compaction, entries appended meanwhile
+ * are moved to the new file before replacement.<br/>
+ * <br/>
+ * New entries are collected in memory buffer and written with single write, either right away
+ * or in batches, according to {@link CommitPolicy}. Records from entries that are not written yet are read
+ * directly from that buffer.<br/>
+ * <br/>
+ * File layout:
+ * <pre>
+ * header: magic(4) nextId(4) version(4) lastModified(8) logId(8)
+ * entry:  type(1) recordId(4) version(4) time(8) length(4) checksum(4) data(length)
+ * compressed entry data: size(4) deflated(length - 4)
+ * </pre>
+ * Checkpoint layout:
+ * <pre>
+ * magic(4) logId(8) logLength(8) nextId(4) version(4) lastModified(8) count(4)
+ * records: recordId(4) dataOffset(8) length(4) size(4), repeated count times
+ * checksum(4)
+ * </pre>
+ */
+public class LogRecordStore extends RecordStore.Impl {
+
+    public static final String FILE_EXTENSION = ".rms";
+
+    public static final String CHECKPOINT_EXTENSION = ".idx";
+
+    static final int MAGIC = 0x524D5332; // "RMS2"
+    static final int HEADER_SIZE = 28;
+    static final int ENTRY_HEADER_SIZE = 25;
+    // checksum covers entry header up to the checksum itself, and entry data
+    static final int CHECKSUM_OFFSET = 21;
+
+    static final int CHECKPOINT_MAGIC = 0x524D4932; // "RMI2"
+    private static final int CHECKPOINT_HEADER_SIZE = 40;
+    private static final int CHECKPOINT_RECORD_SIZE = 20;
+
+    static final byte ENTRY_ADD = 1;
+    static final byte ENTRY_SET = 2;
+    static final byte ENTRY_DELETE = 3;
+    // flag of add and set entries, which data is compressed
+    static final byte ENTRY_COMPRESSED = 0x10;
+    // uncompressed size, which precedes deflated data
+    static final int COMPRESSED_HEADER_SIZE = 4;
+
+    private static ScheduledExecutorService flushScheduler;
+    private static ExecutorService compactionExecutor;
+    private static final Random logIds = new Random();
+
+    private final File storeFile;
+    private final File checkpointFile;
+    private RandomAccessFile file;
+    private final CommitPolicy policy;
+    private final CompactionPolicy compactionPolicy;
+    private final CompressionPolicy compressionPolicy;
+    private final CommitStatistics statistics;
+    private final Runnable flushTask;
+    private final Runnable compactionTask;
+    private ScheduledFuture<?> scheduledFlush;
+    private boolean isCompacting;
+    private boolean isCompactionQueued;
+    private boolean isClosed;
+    private final UsableSpace usableSpace;
+    private volatile Runnable sizeListener;
+    private final CRC32 checksum;
+    private final Lock readLock;
+    private final Lock writeLock;
+
+    // entries that are not written to file yet
+    private byte[] pending;
+    private int pendingLength;
+    private int pendingEntries;
+    private long writtenLength;
+    private long checkpointLength;
+
+    private RecordIndex index;
+    private int nextId;
+    private int version;
+    private long lastModified;
+    private long logId;
+
+    private LogRecordStore(File storeFile, RandomAccessFile file, CommitPolicy policy, CompactionPolicy compactionPolicy,
+                           CompressionPolicy compressionPolicy, CommitStatistics statistics) {
+        this.storeFile = storeFile;
+        this.checkpointFile = getCheckpointFile(storeFile);
+        this.usableSpace = new UsableSpace(storeFile);
+        this.file = file;
+        this.policy = policy;
+        this.compactionPolicy = compactionPolicy;
+        this.compressionPolicy = compressionPolicy;
+        this.statistics = statistics;
+        this.pending = new byte[policy.isWriteBehind() ? Math.min(policy.getMaxPendingBytes(), 64 * 1024) : 256];
+        this.flushTask = new Runnable() {
+            public void run() {
+                flushScheduled();
+            }
+        };
+        this.compactionTask = new Runnable() {
+            public void run() {
+                compactQuietly();
+            }
+        };
+        this.checksum = new CRC32();
+        ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        this.readLock = lock.readLock();
+        this.writeLock = lock.writeLock();
+        this.index = new RecordIndex();
+        this.nextId = 1;
+    }
+
+    /**
+     * Opens record store with specified name in directory, every modification is written to file right away
+     *
+     * @throws RecordStoreNotFoundException if store does not exist and createIfNecessary is false
+     */
+    public static LogRecordStore open(File directory, String name, boolean createIfNecessary) throws RecordStoreException {
+        return open(directory, name, createIfNecessary,
+                CommitPolicy.WRITE_THROUGH, CompactionPolicy.DEFAULT, CompressionPolicy.DISABLED, new CommitStatistics());
+    }
+
+    /**
+     * Opens record store with specified name in directory
+     *
+     * @param policy defines when modifications are written to file
+     * @param compactionPolicy defines when log is compacted
+     * @param compressionPolicy defines which records are compressed
+     * @param statistics write counters to update
+     * @throws RecordStoreNotFoundException if store does not exist and createIfNecessary is false
+     */
+    public static LogRecordStore open(File directory, String name, boolean createIfNecessary,
+                                      CommitPolicy policy, CompactionPolicy compactionPolicy,
+                                      CompressionPolicy compressionPolicy,
+                                      CommitStatistics statistics) throws RecordStoreException {
+
+        File storeFile = getStoreFile(directory, name);
+        boolean isNew = prepareStoreFile(directory, storeFile, name, createIfNecessary);
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(storeFile, "rw");
+            LogRecordStore store = new LogRecordStore(storeFile, file, policy, compactionPolicy, compressionPolicy, statistics);
+
+            if(isNew || file.length() == 0) {
+                store.writeHeader();
+            } else {
+                store.readLog();
+            }
+
+            return store;
+        } catch (IOException e) {
+            closeQuietly(file);
+            throw new RecordStoreException("Cannot open record store \"" + name + "\": " + e.getMessage());
+        } catch (RecordStoreException e) {
+            closeQuietly(file);
+            throw e;
+        }
+    }
+
+    /**
+     * Deletes file of record store with specified name, together with its checkpoint
+     *
+     * @throws RecordStoreNotFoundException if there is no such store
+     */
+    public static void delete(File directory, String name) throws RecordStoreException {
+        File storeFile = getStoreFile(directory, name);
+
+        if(!storeFile.exists()) {
+            throw new RecordStoreNotFoundException("Record store \"" + name + "\" is not found");
+        }
+
+        if(!storeFile.delete()) {
+            throw new RecordStoreException("Cannot delete record store \"" + name + "\"");
+        }
+
+        File checkpointFile = getCheckpointFile(storeFile);
+        if(checkpointFile.exists()) {
+            checkpointFile.delete();
+        }
+    }
+
+    /**
+     * Replaces record store with another one, which takes its name. Log file is renamed over the old one,
+     * so store is replaced atomically where platform allows it
+     *
+     * @throws RecordStoreNotFoundException if there is no replacement store
+     */
+    public static void replace(File directory, String name, String replacementName) throws RecordStoreException {
+        File storeFile = getStoreFile(directory, name);
+        File replacementFile = getStoreFile(directory, replacementName);
+
+        if(!replacementFile.exists()) {
+            throw new RecordStoreNotFoundException("Record store \"" + replacementName + "\" is not found");
+        }
+
+        // checkpoint of old log would be ignored anyway, since it has another log id
+        File checkpointFile = getCheckpointFile(storeFile);
+        if(checkpointFile.exists()) {
+            checkpointFile.delete();
+        }
+
+        if(!replacementFile.renameTo(storeFile) && !(storeFile.delete() && replacementFile.renameTo(storeFile))) {
+            throw new RecordStoreException("Cannot replace record store \"" + name + "\"");
+        }
+
+        File replacementCheckpoint = getCheckpointFile(replacementFile);
+        if(replacementCheckpoint.exists() && !replacementCheckpoint.renameTo(checkpointFile)) {
+            replacementCheckpoint.delete();
+        }
+    }
+
+    /**
+     * Lists names of all record stores in directory
+     */
+    public static List<String> list(File directory) {
+        List<String> names = new ArrayList<String>();
+        String[] files = directory.list();
+
+        if(files != null) {
+            for(String fileName : files) {
+                if(fileName.endsWith(FILE_EXTENSION)) {
+                    names.add(decodeName(fileName.substring(0, fileName.length() - FILE_EXTENSION.length())));
+                }
+            }
+        }
+
+        return names;
+    }
+
+    public static File getStoreFile(File directory, String name) {
+        return new File(directory, encodeName(name) + FILE_EXTENSION);
+    }
+
+    static File getCheckpointFile(File storeFile) {
+        return new File(storeFile.getPath() + CHECKPOINT_EXTENSION);
+    }
+
+    /**
+     * Checks that store file can be opened, creating its directory if necessary
+     *
+     * @return true if there is no store file yet
+     * @throws RecordStoreNotFoundException if store does not exist and createIfNecessary is false
+     */
+    static boolean prepareStoreFile(File directory, File storeFile, String name, boolean createIfNecessary)
+            throws RecordStoreException {
+
+        boolean isNew = !storeFile.exists();
+
+        if(isNew && !createIfNecessary) {
+            throw new RecordStoreNotFoundException("Record store \"" + name + "\" is not found");
+        }
+
+        if(isNew && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new RecordStoreException("Cannot create record store directory " + directory);
+        }
+
+        return isNew;
+    }
+
+    @Override
+    public int getNumRecords() {
+        readLock.lock();
+        try {
+            return index.getCount();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int getSize() {
+        readLock.lock();
+        try {
+            return (int) Math.min(getTotalSize(), Integer.MAX_VALUE);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Free disk space is queried at most once a second, so this method is cheap to call often
+     */
+    @Override
+    public int getSizeAvailable() {
+        return (int) Math.max(0, Math.min(usableSpace.get() - ENTRY_HEADER_SIZE, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Size of store file including pending entries
+     */
+    public long getTotalSize() {
+        readLock.lock();
+        try {
+            return writtenLength + pendingLength;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Size of entries that are left in log by changed or deleted records
+     */
+    public long getDeadSize() {
+        readLock.lock();
+        try {
+            return getTotalSize() - HEADER_SIZE - (long) index.getCount() * ENTRY_HEADER_SIZE - index.getDataSize();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int getVersion() {
+        readLock.lock();
+        try {
+            return version;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public long getLastModified() {
+        readLock.lock();
+        try {
+            return lastModified;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int getNextRecordID() {
+        readLock.lock();
+        try {
+            return nextId;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int addRecord(byte[] data, int offset, int numBytes) throws RecordStoreException {
+        writeLock.lock();
+        try {
+            int id = nextId;
+            append(ENTRY_ADD, id, data, offset, numBytes, version + 1, System.currentTimeMillis());
+            checkCompaction();
+            return id;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void setRecord(int recordId, byte[] data, int offset, int numBytes) throws RecordStoreException {
+        writeLock.lock();
+        try {
+            index.check(recordId);
+            append(ENTRY_SET, recordId, data, offset, numBytes, version + 1, System.currentTimeMillis());
+            checkCompaction();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteRecord(int recordId) throws RecordStoreException {
+        writeLock.lock();
+        try {
+            index.check(recordId);
+            append(ENTRY_DELETE, recordId, null, 0, 0, version + 1, System.currentTimeMillis());
+            checkCompaction();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void restoreRecord(int recordId, byte[] data, int offset, int numBytes) throws RecordStoreException {
+        if(recordId <= 0) {
+            throw new InvalidRecordIDException("Invalid record id " + recordId);
+        }
+
+        writeLock.lock();
+        try {
+            byte type = index.contains(recordId) ? ENTRY_SET : ENTRY_ADD;
+            append(type, recordId, data, offset, numBytes, version, lastModified);
+            checkCompaction();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Restored state is written to file header, which is never older than entries when log is scanned
+     */
+    @Override
+    public void restoreState(int nextId, int version, long lastModified) throws RecordStoreException {
+        writeLock.lock();
+        try {
+            flush();
+            this.nextId = Math.max(this.nextId, nextId);
+            this.version = version;
+            this.lastModified = lastModified;
+
+            byte[] header = new byte[16];
+            writeInt(header, 0, this.nextId);
+            writeInt(header, 4, version);
+            writeLong(header, 8, lastModified);
+
+            file.seek(4);
+            file.write(header);
+            if(policy.isSync()) {
+                file.getFD().sync();
+            }
+        } catch (IOException e) {
+            throw new RecordStoreException("Cannot write record store: " + e.getMessage());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public int getRecordSize(int recordId) throws RecordStoreException {
+        readLock.lock();
+        try {
+            index.check(recordId);
+            return index.getSize(recordId);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int[] getRecordIds() {
+        readLock.lock();
+        try {
+            return index.getIds();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int getRecord(int recordId, byte[] buffer, int offset) throws RecordStoreException {
+        readLock.lock();
+        try {
+            index.check(recordId);
+            int size = index.getSize(recordId);
+            checkBuffer(recordId, size, buffer, offset);
+            long dataOffset = index.getOffset(recordId);
+            int storedSize = index.getStoredSize(recordId);
+            boolean isCompressed = index.isCompressed(recordId);
+            byte[] data;
+            int dataStart;
+
+            if(dataOffset >= writtenLength) {
+                data = pending;
+                dataStart = (int) (dataOffset - writtenLength);
+            } else {
+                // compressed data is read to scratch buffer, other records go straight to the caller
+                data = isCompressed ? RecordCompressor.get().getBuffer(storedSize) : buffer;
+                dataStart = isCompressed ? 0 : offset;
+
+                // positional reads do not move file pointer, so they can be done by several readers at once
+                byte[] header = new byte[ENTRY_HEADER_SIZE];
+                try {
+                    FileChannel channel = file.getChannel();
+                    readFully(channel, ByteBuffer.wrap(header), dataOffset - ENTRY_HEADER_SIZE);
+                    readFully(channel, ByteBuffer.wrap(data, dataStart, storedSize), dataOffset);
+                } catch (IOException e) {
+                    throw new RecordStoreException("Cannot read record " + recordId + ": " + e.getMessage());
+                }
+
+                if(readInt(header, CHECKSUM_OFFSET) != checksum(new CRC32(), header, 0, data, dataStart, storedSize)) {
+                    throw new RecordStoreException("Record " + recordId + " is corrupted");
+                }
+            }
+
+            if(isCompressed) {
+                RecordCompressor.get().decompress(data, dataStart + COMPRESSED_HEADER_SIZE,
+                        storedSize - COMPRESSED_HEADER_SIZE, buffer, offset, size);
+            } else if(data != buffer) {
+                System.arraycopy(data, dataStart, buffer, offset, size);
+            }
+
+            return size;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws RecordStoreException {
+        writeLock.lock();
+        try {
+            boolean isFlushed = false;
+
+            try {
+                flush();
+
+                if(writtenLength != checkpointLength) {
+                    checkpointQuietly();
+                }
+
+                isFlushed = true;
+            } finally {
+                isClosed = true;
+
+                // file is closed even if its pending entries cannot be written, error of flush is thrown then
+                if(!isFlushed) {
+                    closeQuietly(file);
+                }
+            }
+
+            try {
+                file.close();
+            } catch (IOException e) {
+                throw new RecordStoreException("Cannot close record store: " + e.getMessage());
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    static void checkBuffer(int recordId, int size, byte[] buffer, int offset) {
+        if(offset < 0 || offset + size > buffer.length) {
+            throw new ArrayIndexOutOfBoundsException("Record " + recordId + " of size " + size +
+                    " does not fit to buffer of size " + buffer.length + " at offset " + offset);
+        }
+    }
+
+    /**
+     * Writes all pending entries to file
+     */
+    public void flush() throws RecordStoreException {
+        writeLock.lock();
+        try {
+            if(scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+
+            if(pendingLength == 0) {
+                return;
+            }
+
+            long startTime = System.nanoTime();
+            try {
+                file.seek(writtenLength);
+                file.write(pending, 0, pendingLength);
+
+                if(policy.isSync()) {
+                    file.getFD().sync();
+                }
+            } catch (IOException e) {
+                // drop partially written entries, they are still pending
+                truncateQuietly(writtenLength);
+                throw new RecordStoreException("Cannot write record store: " + e.getMessage());
+            }
+
+            statistics.record(pendingEntries, pendingLength, System.nanoTime() - startTime);
+            writtenLength += pendingLength;
+            pendingLength = 0;
+            pendingEntries = 0;
+
+            if(writtenLength - checkpointLength >= policy.getCheckpointInterval()) {
+                checkpointQuietly();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void flushScheduled() {
+        writeLock.lock();
+        try {
+            scheduledFlush = null;
+
+            try {
+                flush();
+            } catch (RecordStoreException e) {
+                // entries are kept pending, next modification or close will retry
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Appends entry to the end of log and applies it to index,
+     * store gets version and modification time of entry.
+     * Entry is applied before it is flushed, since flush can write checkpoint, which must already include it
+     */
+    private void append(byte type, int recordId, byte[] data, int offset, int length, int newVersion, long time)
+            throws RecordStoreException {
+        int entryStart = pendingLength;
+        int dataStart = entryStart + ENTRY_HEADER_SIZE;
+        if(pending.length < dataStart + length) {
+            pending = Arrays.copyOf(pending, Math.max(dataStart + length, pending.length * 2));
+        }
+
+        int storedLength = length;
+        if(type != ENTRY_DELETE && compressionPolicy.shouldCompress(length)) {
+            // deflated data is kept only if it is smaller, otherwise record is copied as is
+            int compressedLength = RecordCompressor.get().compress(data, offset, length, compressionPolicy.getLevel(),
+                    pending, dataStart + COMPRESSED_HEADER_SIZE, length - COMPRESSED_HEADER_SIZE - 1);
+
+            if(compressedLength >= 0) {
+                type |= ENTRY_COMPRESSED;
+                storedLength = COMPRESSED_HEADER_SIZE + compressedLength;
+                writeInt(pending, dataStart, length);
+            }
+        }
+
+        if(storedLength == length && length > 0) {
+            System.arraycopy(data, offset, pending, dataStart, length);
+        }
+
+        pending[entryStart] = type;
+        writeInt(pending, entryStart + 1, recordId);
+        writeInt(pending, entryStart + 5, newVersion);
+        writeLong(pending, entryStart + 9, time);
+        writeInt(pending, entryStart + 17, storedLength);
+        writeInt(pending, entryStart + CHECKSUM_OFFSET,
+                checksum(checksum, pending, entryStart, pending, dataStart, storedLength));
+
+        long dataOffset = writtenLength + dataStart;
+        pendingLength = dataStart + storedLength;
+        pendingEntries++;
+
+        // previous state of record and store, which is brought back if entry cannot be written
+        boolean existed = index.contains(recordId);
+        long oldOffset = existed ? index.getOffset(recordId) : 0;
+        int oldStoredSize = existed ? index.getStoredSize(recordId) : 0;
+        int oldSize = existed ? index.getSize(recordId) : 0;
+        int oldNextId = nextId;
+        int oldVersion = version;
+        long oldLastModified = lastModified;
+
+        index.apply(type, recordId, dataOffset, storedLength, length);
+        if(type != ENTRY_DELETE) {
+            nextId = Math.max(nextId, recordId + 1);
+        }
+
+        version = newVersion;
+        lastModified = time;
+
+        if(!policy.isWriteBehind() || pendingLength >= policy.getMaxPendingBytes()) {
+            try {
+                flush();
+            } catch (RecordStoreException e) {
+                // modification is failed, so its entry should not be written later
+                pendingLength = entryStart;
+                pendingEntries--;
+
+                if(existed) {
+                    index.put(recordId, oldOffset, oldStoredSize, oldSize);
+                } else {
+                    index.remove(recordId);
+                }
+
+                nextId = oldNextId;
+                version = oldVersion;
+                lastModified = oldLastModified;
+                throw e;
+            }
+        } else if(scheduledFlush == null && policy.getMaxDelayMillis() > 0) {
+            scheduledFlush = getFlushScheduler().schedule(flushTask, policy.getMaxDelayMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Rewrites live records into new file, which then replaces current one.
+     * Store can be used from other threads while compaction is in progress
+     */
+    public void compact() throws RecordStoreException {
+        int[] ids;
+        long[] sourceOffsets;
+        int[] storedSizes;
+        int[] sizes;
+        long snapshotLength;
+        byte[] header = new byte[HEADER_SIZE];
+
+        writeLock.lock();
+        try {
+            if(isClosed || isCompacting) {
+                return;
+            }
+
+            flush();
+            isCompacting = true;
+
+            ids = index.getIds();
+            sourceOffsets = new long[ids.length];
+            storedSizes = new int[ids.length];
+            sizes = new int[ids.length];
+            for(int i = 0; i < ids.length; i++) {
+                sourceOffsets[i] = index.getOffset(ids[i]);
+                storedSizes[i] = index.getStoredSize(ids[i]);
+                sizes[i] = index.getSize(ids[i]);
+            }
+
+            snapshotLength = writtenLength;
+            writeInt(header, 0, MAGIC);
+            writeInt(header, 4, nextId);
+            writeInt(header, 8, version);
+            writeLong(header, 12, lastModified);
+            // new file gets new id, so checkpoint of the old one is never applied to it
+            writeLong(header, 20, nextLogId());
+        } finally {
+            writeLock.unlock();
+        }
+
+        File tempFile = new File(storeFile.getPath() + ".tmp");
+        RandomAccessFile source = null;
+        RandomAccessFile target = null;
+        boolean isReplaced = false;
+
+        try {
+            source = new RandomAccessFile(storeFile, "r");
+            target = new RandomAccessFile(tempFile, "rw");
+            target.setLength(0);
+            target.write(header);
+
+            // live records are copied without holding the lock, old file is only appended meanwhile
+            RecordIndex newIndex = new RecordIndex();
+            byte[] buffer = new byte[Math.max(ENTRY_HEADER_SIZE, 64 * 1024)];
+            long position = HEADER_SIZE;
+
+            for(int i = 0; i < ids.length; i++) {
+                int entrySize = ENTRY_HEADER_SIZE + storedSizes[i];
+                if(buffer.length < entrySize) {
+                    buffer = new byte[entrySize];
+                }
+
+                source.seek(sourceOffsets[i] - ENTRY_HEADER_SIZE);
+                // entry is copied as is, so its checksum stays valid
+                source.readFully(buffer, 0, entrySize);
+                target.write(buffer, 0, entrySize);
+
+                newIndex.put(ids[i], position + ENTRY_HEADER_SIZE, storedSizes[i], sizes[i]);
+                position += entrySize;
+            }
+
+            writeLock.lock();
+            try {
+                if(isClosed) {
+                    return;
+                }
+
+                // move entries appended during compaction
+                flush();
+                long tailStart = position;
+                long tailLength = writtenLength - snapshotLength;
+                source.seek(snapshotLength);
+
+                while(tailLength > 0) {
+                    int chunk = (int) Math.min(buffer.length, tailLength);
+                    source.readFully(buffer, 0, chunk);
+                    target.write(buffer, 0, chunk);
+                    tailLength -= chunk;
+                    position += chunk;
+                }
+
+                scanEntries(target, tailStart, position, newIndex);
+                target.getFD().sync();
+                target.close();
+                target = null;
+                source.close();
+                source = null;
+
+                replaceStoreFile(tempFile);
+                index = newIndex;
+                writtenLength = position;
+                logId = readLong(header, 20);
+                isReplaced = true;
+                checkpointQuietly();
+            } finally {
+                writeLock.unlock();
+            }
+        } catch (IOException e) {
+            throw new RecordStoreException("Cannot compact record store: " + e.getMessage());
+        } finally {
+            closeQuietly(source);
+            closeQuietly(target);
+            if(tempFile.exists()) {
+                tempFile.delete();
+            }
+
+            writeLock.lock();
+            try {
+                isCompacting = false;
+
+                // entries moved from the tail could already be dead enough for another pass
+                if(isReplaced) {
+                    checkCompaction();
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        Runnable listener = sizeListener;
+        if(isReplaced && listener != null) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Listener is called after compaction replaced store file
+     */
+    @Override
+    public void setSizeListener(Runnable listener) {
+        this.sizeListener = listener;
+    }
+
+    /**
+     * Swaps store file with compacted one, must be called with write lock held
+     */
+    private void replaceStoreFile(File compactedFile) throws IOException {
+        file.close();
+
+        // rename replaces file atomically where platform allows it, otherwise old file is removed first
+        if(!compactedFile.renameTo(storeFile) && !(storeFile.delete() && compactedFile.renameTo(storeFile))) {
+            file = new RandomAccessFile(storeFile, "rw");
+            throw new IOException("Cannot replace " + storeFile + " with compacted file");
+        }
+
+        file = new RandomAccessFile(storeFile, "rw");
+    }
+
+    private void compactQuietly() {
+        writeLock.lock();
+        try {
+            isCompactionQueued = false;
+        } finally {
+            writeLock.unlock();
+        }
+
+        try {
+            compact();
+        } catch (RecordStoreException e) {
+            // store is left as is, compaction will be retried on next modification
+        }
+    }
+
+    private void checkCompaction() {
+        if(!isCompacting && !isCompactionQueued && compactionPolicy.shouldCompact(getTotalSize(), getDeadSize())) {
+            isCompactionQueued = true;
+            getCompactionExecutor().execute(compactionTask);
+        }
+    }
+
+    private static synchronized ExecutorService getCompactionExecutor() {
+        if(compactionExecutor == null) {
+            compactionExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "RecordStore compaction");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+        }
+
+        return compactionExecutor;
+    }
+
+    private static synchronized ScheduledExecutorService getFlushScheduler() {
+        if(flushScheduler == null) {
+            flushScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "RecordStore flush");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        return flushScheduler;
+    }
+
+    private void writeHeader() throws IOException {
+        byte[] header = new byte[HEADER_SIZE];
+        writeInt(header, 0, MAGIC);
+        writeInt(header, 4, nextId);
+        writeInt(header, 8, version);
+        writeLong(header, 12, lastModified);
+        logId = nextLogId();
+        writeLong(header, 20, logId);
+
+        file.seek(0);
+        file.write(header);
+        file.setLength(HEADER_SIZE);
+        writtenLength = HEADER_SIZE;
+    }
+
+    private static long nextLogId() {
+        synchronized (logIds) {
+            return logIds.nextLong();
+        }
+    }
+
+    /**
+     * Rebuilds record index from checkpoint and entries written after it,
+     * or by scanning whole log if there is no valid checkpoint
+     */
+    private void readLog() throws IOException, RecordStoreException {
+        long length = file.length();
+        byte[] header = new byte[Math.max(HEADER_SIZE, ENTRY_HEADER_SIZE)];
+
+        if(length < HEADER_SIZE) {
+            throw new RecordStoreException("Record store file is corrupted");
+        }
+
+        file.seek(0);
+        file.readFully(header, 0, HEADER_SIZE);
+        if(readInt(header, 0) != MAGIC) {
+            throw new RecordStoreException("Record store file has unknown format");
+        }
+
+        nextId = readInt(header, 4);
+        version = readInt(header, 8);
+        lastModified = readLong(header, 12);
+        logId = readLong(header, 20);
+
+        long position = scanEntries(file, readCheckpoint(length), length, index);
+        if(position != length) {
+            file.setLength(position);
+        }
+
+        writtenLength = position;
+    }
+
+    /**
+     * Applies entries of log from specified position to index
+     *
+     * @return position after last valid entry
+     */
+    private long scanEntries(RandomAccessFile source, long position, long length, RecordIndex target) throws IOException {
+        byte[] header = new byte[ENTRY_HEADER_SIZE];
+        byte[] data = new byte[4096];
+        source.seek(position);
+
+        while(position + ENTRY_HEADER_SIZE <= length) {
+            source.readFully(header, 0, ENTRY_HEADER_SIZE);
+            byte type = header[0];
+            int recordId = readInt(header, 1);
+            int dataLength = readInt(header, 17);
+            long dataOffset = position + ENTRY_HEADER_SIZE;
+
+            if(!isValidEntry(type, recordId, dataLength, dataOffset, length)) {
+                break;
+            }
+
+            if(data.length < dataLength) {
+                data = new byte[Math.max(dataLength, data.length * 2)];
+            }
+
+            source.readFully(data, 0, dataLength);
+            if(readInt(header, CHECKSUM_OFFSET) != checksum(checksum, header, 0, data, 0, dataLength)) {
+                break;
+            }
+
+            int size = (type & ENTRY_COMPRESSED) != 0 ? readInt(data, 0) : dataLength;
+            target.apply(type, recordId, dataOffset, dataLength, size);
+            nextId = Math.max(nextId, recordId + 1);
+            // compacted entries keep their own versions, which can be older than the one in file header
+            version = Math.max(version, readInt(header, 5));
+            lastModified = Math.max(lastModified, readLong(header, 9));
+            position = dataOffset + dataLength;
+        }
+
+        return position;
+    }
+
+    /**
+     * Loads record index from checkpoint file
+     *
+     * @return log position from which entries should be scanned
+     */
+    private long readCheckpoint(long logLength) {
+        if(!checkpointFile.exists()) {
+            return HEADER_SIZE;
+        }
+
+        RandomAccessFile source = null;
+        byte[] data;
+        try {
+            source = new RandomAccessFile(checkpointFile, "r");
+            long length = source.length();
+            if(length < CHECKPOINT_HEADER_SIZE + 4 || length > Integer.MAX_VALUE) {
+                return HEADER_SIZE;
+            }
+
+            data = new byte[(int) length];
+            source.readFully(data);
+        } catch (IOException e) {
+            return HEADER_SIZE;
+        } finally {
+            closeQuietly(source);
+        }
+
+        int checksumOffset = data.length - 4;
+        checksum.reset();
+        checksum.update(data, 0, checksumOffset);
+        long checkpointEnd = readLong(data, 12);
+        int count = readInt(data, 36);
+
+        if(readInt(data, 0) != CHECKPOINT_MAGIC || readLong(data, 4) != logId
+                || readInt(data, checksumOffset) != (int) checksum.getValue()
+                || checkpointEnd < HEADER_SIZE || checkpointEnd > logLength
+                || count < 0 || (long) count * CHECKPOINT_RECORD_SIZE != checksumOffset - CHECKPOINT_HEADER_SIZE) {
+            return HEADER_SIZE;
+        }
+
+        nextId = Math.max(nextId, readInt(data, 20));
+        version = Math.max(version, readInt(data, 24));
+        lastModified = Math.max(lastModified, readLong(data, 28));
+
+        for(int i = 0, p = CHECKPOINT_HEADER_SIZE; i < count; i++, p += CHECKPOINT_RECORD_SIZE) {
+            index.put(readInt(data, p), readLong(data, p + 4), readInt(data, p + 12), readInt(data, p + 16));
+        }
+
+        checkpointLength = checkpointEnd;
+        return checkpointEnd;
+    }
+
+    /**
+     * Saves record index of written entries to checkpoint file, which is replaced atomically
+     */
+    private void writeCheckpoint() throws IOException {
+        int[] ids = index.getIds();
+        byte[] data = new byte[CHECKPOINT_HEADER_SIZE + ids.length * CHECKPOINT_RECORD_SIZE + 4];
+
+        writeInt(data, 0, CHECKPOINT_MAGIC);
+        writeLong(data, 4, logId);
+        writeLong(data, 12, writtenLength);
+        writeInt(data, 20, nextId);
+        writeInt(data, 24, version);
+        writeLong(data, 28, lastModified);
+        writeInt(data, 36, ids.length);
+
+        int position = CHECKPOINT_HEADER_SIZE;
+        for(int recordId : ids) {
+            writeInt(data, position, recordId);
+            writeLong(data, position + 4, index.getOffset(recordId));
+            writeInt(data, position + 12, index.getStoredSize(recordId));
+            writeInt(data, position + 16, index.getSize(recordId));
+            position += CHECKPOINT_RECORD_SIZE;
+        }
+
+        checksum.reset();
+        checksum.update(data, 0, position);
+        writeInt(data, position, (int) checksum.getValue());
+
+        File tempFile = new File(checkpointFile.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(tempFile);
+        try {
+            out.write(data);
+            if(policy.isSync()) {
+                out.getFD().sync();
+            }
+        } finally {
+            out.close();
+        }
+
+        if(!tempFile.renameTo(checkpointFile) && !(checkpointFile.delete() && tempFile.renameTo(checkpointFile))) {
+            tempFile.delete();
+            throw new IOException("Cannot replace " + checkpointFile);
+        }
+
+        checkpointLength = writtenLength;
+    }
+
+    /**
+     * Checkpoint is only an optimization, log stays the source of truth if it cannot be written
+     */
+    private void checkpointQuietly() {
+        try {
+            writeCheckpoint();
+        } catch (IOException ignored) {
+            // next open scans more of the log
+        }
+    }
+
+    /**
+     * Computes checksum of entry from its header and data
+     */
+    static int checksum(CRC32 checksum, byte[] header, int headerOffset, byte[] data, int dataOffset, int length) {
+        checksum.reset();
+        checksum.update(header, headerOffset, CHECKSUM_OFFSET);
+        if(length > 0) {
+            checksum.update(data, dataOffset, length);
+        }
+
+        return (int) checksum.getValue();
+    }
+
+    static boolean isValidEntry(byte type, int recordId, int dataLength, long dataOffset, long fileLength) {
+        if((type & ENTRY_COMPRESSED) != 0) {
+            type &= ~ENTRY_COMPRESSED;
+            if(type == ENTRY_DELETE || dataLength < COMPRESSED_HEADER_SIZE) {
+                return false;
+            }
+        }
+
+        return recordId > 0 && dataLength >= 0 && dataOffset + dataLength <= fileLength
+                && type >= ENTRY_ADD && type <= ENTRY_DELETE;
+    }
+
+    private void truncateQuietly(long length) {
+        try {
+            file.setLength(length);
+        } catch (IOException ignored) {
+            // next open will cut torn entry anyway
+        }
+    }
+
+    static void readFully(FileChannel channel, ByteBuffer target, long position) throws IOException {
+        while(target.hasRemaining()) {
+            int read = channel.read(target, position);
+            if(read < 0) {
+                throw new EOFException();
+            }
+
+            position += read;
+        }
+    }
+
+    static void closeQuietly(RandomAccessFile file) {
+        if(file != null) {
+            try {
+                file.close();
+            } catch (IOException ignored) {
+                // nothing to do
+            }
+        }
+    }
+
+    static String encodeName(String name) {
+        try {
+            return URLEncoder.encode(name, "UTF-8").replace("*", "%2A");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String decodeName(String fileName) {
+        try {
+            return URLDecoder.decode(fileName, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static void writeInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+
+    static void writeLong(byte[] buffer, int offset, long value) {
+        writeInt(buffer, offset, (int) (value >>> 32));
+        writeInt(buffer, offset + 4, (int) value);
+    }
+
+    static int readInt(byte[] buffer, int offset) {
+        return ((buffer[offset] & 0xFF) << 24) | ((buffer[offset + 1] & 0xFF) << 16) |
+                ((buffer[offset + 2] & 0xFF) << 8) | (buffer[offset + 3] & 0xFF);
+    }
+
+    static long readLong(byte[] buffer, int offset) {
+        return ((long) readInt(buffer, offset) << 32) | (readInt(buffer, offset + 4) & 0xFFFFFFFFL);
+    }
+}
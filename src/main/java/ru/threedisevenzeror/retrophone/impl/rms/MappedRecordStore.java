@@ -0,0 +1,491 @@
+package ru.threedisevenzeror.retrophone.impl.rms;
+
+import javax.microedition.rms.InvalidRecordIDException;
+import javax.microedition.rms.RecordStore;
+import javax.microedition.rms.RecordStoreException;
+import javax.microedition.rms.RecordStoreFullException;
+import javax.microedition.rms.RecordStoreNotOpenException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Record store that keeps its log file memory-mapped.<br/>
+ * <br/>
+ * File format is the same as in {@link LogRecordStore}, so both can open stores created by each other.
+ * Records are copied straight from mapped region into caller's buffer, and new entries are written
+ * straight into it, so neither reads nor writes go through intermediate buffers or system calls.<br/>
+ * <br/>
+ * Mapped region is larger than the log itself and grows in large chunks, when log reaches its end,
+ * region is remapped twice as large. Unused tail of region is zero filled, which is never a valid entry,
+ * so the log end is found by scanning just like in {@link LogRecordStore}. File is trimmed to log length on close.<br/>
+ * <br/>
+ * Entry checksums are written and verified the same way as in {@link LogRecordStore}. Index checkpoints
+ * are not written, whole log is scanned on open, but the checkpoint left by {@link LogRecordStore}
+ * stays valid, since entries are only appended after it. Records are compressed according to
+ * {@link CompressionPolicy} the same way too.<br/>
+ * <br/>
+ * Java has no public way to unmap a region, so closed store and region replaced by a larger one only drop
+ * their references, and region is unmapped when its buffer is garbage collected. Until then mapped file
+ * still takes address space, and on platforms that lock mapped files (e.g. Windows) it cannot be deleted
+ * or replaced.
+ */
+public class MappedRecordStore extends RecordStore.Impl {
+
+    private static final int MIN_MAPPING_SIZE = 1024 * 1024;
+    private static final long MAX_MAPPING_SIZE = Integer.MAX_VALUE;
+
+    private final File storeFile;
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final RecordIndex index;
+    private final CompressionPolicy compressionPolicy;
+    private final UsableSpace usableSpace;
+    // null when store is closed
+    private MappedByteBuffer buffer;
+    private int length;
+    private int nextId;
+    private int version;
+    private long lastModified;
+    private final CRC32 checksum;
+    private final byte[] entryHeader;
+    private final Lock readLock;
+    private final Lock writeLock;
+
+    private MappedRecordStore(File storeFile, RandomAccessFile file, CompressionPolicy compressionPolicy) {
+        this.storeFile = storeFile;
+        this.file = file;
+        this.channel = file.getChannel();
+        this.index = new RecordIndex();
+        this.compressionPolicy = compressionPolicy;
+        this.usableSpace = new UsableSpace(storeFile);
+        this.checksum = new CRC32();
+        this.entryHeader = new byte[LogRecordStore.ENTRY_HEADER_SIZE];
+        ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        this.readLock = lock.readLock();
+        this.writeLock = lock.writeLock();
+        this.nextId = 1;
+    }
+
+    /**
+     * Opens record store with specified name in directory
+     *
+     * @throws javax.microedition.rms.RecordStoreNotFoundException if store does not exist and createIfNecessary is false
+     */
+    public static MappedRecordStore open(File directory, String name, boolean createIfNecessary) throws RecordStoreException {
+        return open(directory, name, createIfNecessary, CompressionPolicy.DISABLED);
+    }
+
+    /**
+     * Opens record store with specified name in directory
+     *
+     * @param compressionPolicy defines which records are compressed
+     * @throws javax.microedition.rms.RecordStoreNotFoundException if store does not exist and createIfNecessary is false
+     */
+    public static MappedRecordStore open(File directory, String name, boolean createIfNecessary,
+                                         CompressionPolicy compressionPolicy) throws RecordStoreException {
+        File storeFile = LogRecordStore.getStoreFile(directory, name);
+        boolean isNew = LogRecordStore.prepareStoreFile(directory, storeFile, name, createIfNecessary);
+        RandomAccessFile file = null;
+
+        try {
+            file = new RandomAccessFile(storeFile, "rw");
+            MappedRecordStore store = new MappedRecordStore(storeFile, file, compressionPolicy);
+            long fileLength = file.length();
+
+            if(fileLength > MAX_MAPPING_SIZE) {
+                throw new RecordStoreException("Record store \"" + name + "\" is too large to be mapped");
+            }
+
+            store.map(Math.max(MIN_MAPPING_SIZE, (int) fileLength));
+
+            if(isNew || fileLength == 0) {
+                store.writeHeader();
+            } else {
+                store.readLog((int) fileLength);
+            }
+
+            return store;
+        } catch (IOException e) {
+            LogRecordStore.closeQuietly(file);
+            throw new RecordStoreException("Cannot open record store \"" + name + "\": " + e.getMessage());
+        } catch (RecordStoreException e) {
+            LogRecordStore.closeQuietly(file);
+            throw e;
+        }
+    }
+
+    @Override
+    public int getNumRecords() {
+        readLock.lock();
+        try {
+            return index.getCount();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int getSize() {
+        readLock.lock();
+        try {
+            return length;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Unused part of mapped region plus free disk space, which is queried at most once a second
+     */
+    @Override
+    public int getSizeAvailable() {
+        readLock.lock();
+        try {
+            int capacity = buffer != null ? buffer.capacity() : length;
+            long available = Math.min(usableSpace.get() + capacity - length, MAX_MAPPING_SIZE - length);
+            return (int) Math.max(0, available - LogRecordStore.ENTRY_HEADER_SIZE);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int getVersion() {
+        readLock.lock();
+        try {
+            return version;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public long getLastModified() {
+        readLock.lock();
+        try {
+            return lastModified;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int getNextRecordID() {
+        readLock.lock();
+        try {
+            return nextId;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int addRecord(byte[] data, int offset, int numBytes) throws RecordStoreException {
+        writeLock.lock();
+        try {
+            int id = nextId;
+            append(LogRecordStore.ENTRY_ADD, id, data, offset, numBytes, version + 1, System.currentTimeMillis());
+            nextId++;
+            return id;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void setRecord(int recordId, byte[] data, int offset, int numBytes) throws RecordStoreException {
+        writeLock.lock();
+        try {
+            index.check(recordId);
+            append(LogRecordStore.ENTRY_SET, recordId, data, offset, numBytes, version + 1, System.currentTimeMillis());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteRecord(int recordId) throws RecordStoreException {
+        writeLock.lock();
+        try {
+            index.check(recordId);
+            append(LogRecordStore.ENTRY_DELETE, recordId, null, 0, 0, version + 1, System.currentTimeMillis());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void restoreRecord(int recordId, byte[] data, int offset, int numBytes) throws RecordStoreException {
+        if(recordId <= 0) {
+            throw new InvalidRecordIDException("Invalid record id " + recordId);
+        }
+
+        writeLock.lock();
+        try {
+            byte type = index.contains(recordId) ? LogRecordStore.ENTRY_SET : LogRecordStore.ENTRY_ADD;
+            append(type, recordId, data, offset, numBytes, version, lastModified);
+            nextId = Math.max(nextId, recordId + 1);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void restoreState(int nextId, int version, long lastModified) throws RecordStoreException {
+        writeLock.lock();
+        try {
+            checkOpen();
+            this.nextId = Math.max(this.nextId, nextId);
+            this.version = version;
+            this.lastModified = lastModified;
+
+            buffer.putInt(4, this.nextId);
+            buffer.putInt(8, version);
+            buffer.putLong(12, lastModified);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public int getRecordSize(int recordId) throws RecordStoreException {
+        readLock.lock();
+        try {
+            index.check(recordId);
+            return index.getSize(recordId);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int[] getRecordIds() {
+        readLock.lock();
+        try {
+            return index.getIds();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int getRecord(int recordId, byte[] data, int offset) throws RecordStoreException {
+        readLock.lock();
+        try {
+            checkOpen();
+            index.check(recordId);
+            int size = index.getSize(recordId);
+            LogRecordStore.checkBuffer(recordId, size, data, offset);
+
+            int storedSize = index.getStoredSize(recordId);
+            boolean isCompressed = index.isCompressed(recordId);
+            byte[] stored = isCompressed ? RecordCompressor.get().getBuffer(storedSize) : data;
+            int storedOffset = isCompressed ? 0 : offset;
+
+            // every reader gets its own position in mapped region
+            ByteBuffer view = buffer.duplicate();
+            byte[] header = new byte[LogRecordStore.ENTRY_HEADER_SIZE];
+            view.position((int) index.getOffset(recordId) - LogRecordStore.ENTRY_HEADER_SIZE);
+            view.get(header);
+            view.get(stored, storedOffset, storedSize);
+
+            if(LogRecordStore.readInt(header, LogRecordStore.CHECKSUM_OFFSET) !=
+                    LogRecordStore.checksum(new CRC32(), header, 0, stored, storedOffset, storedSize)) {
+                throw new RecordStoreException("Record " + recordId + " is corrupted");
+            }
+
+            if(isCompressed) {
+                RecordCompressor.get().decompress(stored, LogRecordStore.COMPRESSED_HEADER_SIZE,
+                        storedSize - LogRecordStore.COMPRESSED_HEADER_SIZE, data, offset, size);
+            }
+
+            return size;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws RecordStoreException {
+        writeLock.lock();
+        try {
+            if(buffer == null) {
+                return;
+            }
+
+            try {
+                buffer.force();
+
+                try {
+                    file.setLength(length);
+                } catch (IOException ignored) {
+                    // some platforms cannot truncate mapped file, zero filled tail is skipped on open anyway
+                }
+
+                file.close();
+            } catch (IOException e) {
+                throw new RecordStoreException("Cannot close record store: " + e.getMessage());
+            }
+        } finally {
+            // region is unmapped when buffer is collected, see class description
+            buffer = null;
+            writeLock.unlock();
+        }
+    }
+
+    private void map(int size) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private void checkOpen() throws RecordStoreNotOpenException {
+        if(buffer == null) {
+            throw new RecordStoreNotOpenException("Record store is closed");
+        }
+    }
+
+    /**
+     * Writes entry directly into mapped region, growing it if necessary, and applies it to index
+     */
+    private void append(byte type, int recordId, byte[] data, int offset, int size, int newVersion, long time)
+            throws RecordStoreException {
+        checkOpen();
+
+        byte[] stored = data;
+        int storedOffset = offset;
+        int dataLength = size;
+
+        if(type != LogRecordStore.ENTRY_DELETE && compressionPolicy.shouldCompress(size)) {
+            // record is deflated to scratch buffer, and is kept only if it became smaller
+            RecordCompressor compressor = RecordCompressor.get();
+            byte[] compressed = compressor.getBuffer(size);
+            int compressedLength = compressor.compress(data, offset, size, compressionPolicy.getLevel(), compressed,
+                    LogRecordStore.COMPRESSED_HEADER_SIZE, size - LogRecordStore.COMPRESSED_HEADER_SIZE - 1);
+
+            if(compressedLength >= 0) {
+                type |= LogRecordStore.ENTRY_COMPRESSED;
+                LogRecordStore.writeInt(compressed, 0, size);
+                stored = compressed;
+                storedOffset = 0;
+                dataLength = LogRecordStore.COMPRESSED_HEADER_SIZE + compressedLength;
+            }
+        }
+
+        long entryEnd = (long) length + LogRecordStore.ENTRY_HEADER_SIZE + dataLength;
+        if(entryEnd > buffer.capacity()) {
+            grow(entryEnd);
+        }
+
+        int position = length;
+
+        // data goes first, entry becomes valid only when its header is written
+        buffer.position(position + LogRecordStore.ENTRY_HEADER_SIZE);
+        if(dataLength > 0) {
+            buffer.put(stored, storedOffset, dataLength);
+        }
+
+        entryHeader[0] = type;
+        LogRecordStore.writeInt(entryHeader, 1, recordId);
+        LogRecordStore.writeInt(entryHeader, 5, newVersion);
+        LogRecordStore.writeLong(entryHeader, 9, time);
+        LogRecordStore.writeInt(entryHeader, 17, dataLength);
+        LogRecordStore.writeInt(entryHeader, LogRecordStore.CHECKSUM_OFFSET,
+                LogRecordStore.checksum(checksum, entryHeader, 0, stored, storedOffset, dataLength));
+
+        buffer.position(position + 1);
+        buffer.put(entryHeader, 1, LogRecordStore.ENTRY_HEADER_SIZE - 1);
+        buffer.put(position, type);
+
+        length = (int) entryEnd;
+        index.apply(type, recordId, position + LogRecordStore.ENTRY_HEADER_SIZE, dataLength, size);
+        version = newVersion;
+        lastModified = time;
+    }
+
+    private void grow(long required) throws RecordStoreException {
+        if(required > MAX_MAPPING_SIZE) {
+            throw new RecordStoreFullException("Record store cannot grow beyond " + MAX_MAPPING_SIZE + " bytes");
+        }
+
+        long size = Math.max(required, (long) buffer.capacity() * 2);
+        size = (size + MIN_MAPPING_SIZE - 1) / MIN_MAPPING_SIZE * MIN_MAPPING_SIZE;
+
+        try {
+            buffer.force();
+            map((int) Math.min(size, MAX_MAPPING_SIZE));
+        } catch (IOException e) {
+            throw new RecordStoreFullException("Cannot grow record store: " + e.getMessage());
+        }
+    }
+
+    private void writeHeader() {
+        buffer.putInt(0, LogRecordStore.MAGIC);
+        buffer.putInt(4, nextId);
+        buffer.putInt(8, version);
+        buffer.putLong(12, lastModified);
+        buffer.putLong(20, new Random().nextLong());
+        length = LogRecordStore.HEADER_SIZE;
+    }
+
+    /**
+     * Rebuilds record index by scanning mapped log
+     */
+    private void readLog(int fileLength) throws RecordStoreException {
+        if(fileLength < LogRecordStore.HEADER_SIZE || buffer.getInt(0) != LogRecordStore.MAGIC) {
+            throw new RecordStoreException("Record store file has unknown format");
+        }
+
+        nextId = buffer.getInt(4);
+        version = buffer.getInt(8);
+        lastModified = buffer.getLong(12);
+
+        int position = LogRecordStore.HEADER_SIZE;
+        byte[] data = new byte[4096];
+        while(position + LogRecordStore.ENTRY_HEADER_SIZE <= fileLength) {
+            buffer.position(position);
+            buffer.get(entryHeader);
+            byte type = entryHeader[0];
+            int recordId = LogRecordStore.readInt(entryHeader, 1);
+            int dataLength = LogRecordStore.readInt(entryHeader, 17);
+            long dataOffset = position + LogRecordStore.ENTRY_HEADER_SIZE;
+
+            if(!LogRecordStore.isValidEntry(type, recordId, dataLength, dataOffset, fileLength)) {
+                break;
+            }
+
+            if(data.length < dataLength) {
+                data = new byte[Math.max(dataLength, data.length * 2)];
+            }
+
+            buffer.get(data, 0, dataLength);
+            if(LogRecordStore.readInt(entryHeader, LogRecordStore.CHECKSUM_OFFSET) !=
+                    LogRecordStore.checksum(checksum, entryHeader, 0, data, 0, dataLength)) {
+                break;
+            }
+
+            int size = (type & LogRecordStore.ENTRY_COMPRESSED) != 0 ? LogRecordStore.readInt(data, 0) : dataLength;
+            index.apply(type, recordId, dataOffset, dataLength, size);
+            nextId = Math.max(nextId, recordId + 1);
+            // compacted entries keep their own versions, which can be older than the latest one
+            version = Math.max(version, LogRecordStore.readInt(entryHeader, 5));
+            lastModified = Math.max(lastModified, LogRecordStore.readLong(entryHeader, 9));
+            position = (int) dataOffset + dataLength;
+        }
+
+
+        // clear torn entry, so its leftovers are never mistaken for entries appended later
+        for(int i = position; i < fileLength; i++) {
+            buffer.put(i, (byte) 0);
+        }
+
+        length = position;
+    }
+}
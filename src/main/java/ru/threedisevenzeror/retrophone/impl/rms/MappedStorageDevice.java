@@ -0,0 +1,26 @@
+package ru.threedisevenzeror.retrophone.impl.rms;
+
+import javax.microedition.rms.RecordStore;
+import javax.microedition.rms.RecordStoreException;
+import java.io.File;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Storage with memory-mapped record store files, best suited for stores that are read much more often than written.
+ * Files are compatible with {@link FileStorageDevice}
+ */
+public class MappedStorageDevice extends FileStorageDevice {
+
+    public MappedStorageDevice(File directory) {
+        super(directory);
+    }
+
+    public MappedStorageDevice(File directory, CompressionPolicy compressionPolicy) {
+        super(directory, CommitPolicy.WRITE_THROUGH, CompactionPolicy.DEFAULT, compressionPolicy);
+    }
+
+    @Override
+    public RecordStore.Impl openRecordStore(String name, boolean createIfNecessary) throws RecordStoreException {
+        return MappedRecordStore.open(directory, name, createIfNecessary, compressionPolicy);
+    }
+}
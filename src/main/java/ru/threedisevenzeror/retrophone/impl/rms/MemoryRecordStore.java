@@ -0,0 +1,251 @@
+package ru.threedisevenzeror.retrophone.impl.rms;
+
+import javax.microedition.rms.InvalidRecordIDException;
+import javax.microedition.rms.RecordStore;
+import javax.microedition.rms.RecordStoreException;
+import java.util.Arrays;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Record store kept in memory only, records are stored as arrays indexed by record id.
+ * Closing store does not drop its records, they live as long as {@link MemoryStorageDevice} that created it
+ */
+public class MemoryRecordStore extends RecordStore.Impl {
+
+    private static final byte[] EMPTY_RECORD = new byte[0];
+    private static final int RECORD_OVERHEAD = 8;
+
+    // null if there is no record with such id
+    private byte[][] records;
+    private int numRecords;
+    private int size;
+    private int nextId;
+    private int version;
+    private long lastModified;
+    private final Lock readLock;
+    private final Lock writeLock;
+
+    public MemoryRecordStore() {
+        this.records = new byte[16][];
+        this.nextId = 1;
+
+        ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        this.readLock = lock.readLock();
+        this.writeLock = lock.writeLock();
+    }
+
+    @Override
+    public int getNumRecords() {
+        readLock.lock();
+        try {
+            return numRecords;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int getSize() {
+        readLock.lock();
+        try {
+            return size;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int getSizeAvailable() {
+        Runtime runtime = Runtime.getRuntime();
+        long available = runtime.maxMemory() - runtime.totalMemory() + runtime.freeMemory() - RECORD_OVERHEAD;
+        return (int) Math.max(0, Math.min(available, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public int getVersion() {
+        readLock.lock();
+        try {
+            return version;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public long getLastModified() {
+        readLock.lock();
+        try {
+            return lastModified;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int getNextRecordID() {
+        readLock.lock();
+        try {
+            return nextId;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int addRecord(byte[] data, int offset, int numBytes) {
+        writeLock.lock();
+        try {
+            int id = nextId;
+            if(id >= records.length) {
+                records = Arrays.copyOf(records, Math.max(records.length * 2, id + 1));
+            }
+
+            records[id] = copy(data, offset, numBytes);
+            numRecords++;
+            size += numBytes + RECORD_OVERHEAD;
+            nextId++;
+            modified();
+            return id;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void setRecord(int recordId, byte[] data, int offset, int numBytes) throws RecordStoreException {
+        writeLock.lock();
+        try {
+            checkRecord(recordId);
+            size += numBytes - records[recordId].length;
+            records[recordId] = copy(data, offset, numBytes);
+            modified();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteRecord(int recordId) throws RecordStoreException {
+        writeLock.lock();
+        try {
+            checkRecord(recordId);
+            size -= records[recordId].length + RECORD_OVERHEAD;
+            records[recordId] = null;
+            numRecords--;
+            modified();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void restoreRecord(int recordId, byte[] data, int offset, int numBytes) throws RecordStoreException {
+        if(recordId <= 0) {
+            throw new InvalidRecordIDException("Invalid record id " + recordId);
+        }
+
+        writeLock.lock();
+        try {
+            if(recordId >= records.length) {
+                records = Arrays.copyOf(records, Math.max(records.length * 2, recordId + 1));
+            }
+
+            if(records[recordId] == null) {
+                numRecords++;
+                size += RECORD_OVERHEAD;
+            } else {
+                size -= records[recordId].length;
+            }
+
+            records[recordId] = copy(data, offset, numBytes);
+            size += numBytes;
+            nextId = Math.max(nextId, recordId + 1);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void restoreState(int nextId, int version, long lastModified) {
+        writeLock.lock();
+        try {
+            this.nextId = Math.max(this.nextId, nextId);
+            this.version = version;
+            this.lastModified = lastModified;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public int getRecordSize(int recordId) throws RecordStoreException {
+        readLock.lock();
+        try {
+            checkRecord(recordId);
+            return records[recordId].length;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int[] getRecordIds() {
+        readLock.lock();
+        try {
+            int[] ids = new int[numRecords];
+            int found = 0;
+
+            for(int id = 1; found < numRecords; id++) {
+                if(records[id] != null) {
+                    ids[found++] = id;
+                }
+            }
+
+            return ids;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int getRecord(int recordId, byte[] buffer, int offset) throws RecordStoreException {
+        readLock.lock();
+        try {
+            checkRecord(recordId);
+            byte[] record = records[recordId];
+            LogRecordStore.checkBuffer(recordId, record.length, buffer, offset);
+            System.arraycopy(record, 0, buffer, offset, record.length);
+            return record.length;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        // records are kept until storage is dropped
+    }
+
+    private void checkRecord(int recordId) throws InvalidRecordIDException {
+        if(recordId <= 0 || recordId >= records.length || records[recordId] == null) {
+            throw new InvalidRecordIDException("Invalid record id " + recordId);
+        }
+    }
+
+    private void modified() {
+        version++;
+        lastModified = System.currentTimeMillis();
+    }
+
+    private static byte[] copy(byte[] data, int offset, int numBytes) {
+        if(numBytes == 0) {
+            return EMPTY_RECORD;
+        }
+
+        byte[] record = new byte[numBytes];
+        System.arraycopy(data, offset, record, 0, numBytes);
+        return record;
+    }
+}
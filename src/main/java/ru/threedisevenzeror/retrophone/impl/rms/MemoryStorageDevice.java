@@ -0,0 +1,104 @@
+package ru.threedisevenzeror.retrophone.impl.rms;
+
+import ru.threedisevenzeror.retrophone.StorageDevice;
+import ru.threedisevenzeror.retrophone.info.ApplicationInfo;
+
+import javax.microedition.rms.RecordStore;
+import javax.microedition.rms.RecordStoreException;
+import javax.microedition.rms.RecordStoreNotFoundException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Storage that keeps record stores in memory, nothing is written to disk.
+ * Useful for batch runs, where saved data is not needed after device is gone
+ */
+public class MemoryStorageDevice extends StorageDevice {
+
+    // default storages are shared, so devices of the same suite see the same stores, keyed by vendor and name
+    private static final Map<List<String>, MemoryStorageDevice> defaultStorages =
+            new HashMap<List<String>, MemoryStorageDevice>();
+
+    private final Map<String, MemoryRecordStore> stores;
+
+    public MemoryStorageDevice() {
+        this.stores = new HashMap<String, MemoryRecordStore>();
+    }
+
+    /**
+     * Returns storage shared by all devices that do not run specific suite
+     */
+    public static MemoryStorageDevice getDefault() {
+        return getDefault(Arrays.asList((String) null, null));
+    }
+
+    /**
+     * Returns storage of MIDlet suite, which is shared by all devices that run this suite,
+     * so suites never see stores of each other
+     */
+    public static MemoryStorageDevice getDefault(ApplicationInfo info) {
+        return getDefault(Arrays.asList(String.valueOf(info.getVendor()), String.valueOf(info.getName())));
+    }
+
+    private static synchronized MemoryStorageDevice getDefault(List<String> key) {
+        MemoryStorageDevice storage = defaultStorages.get(key);
+
+        if(storage == null) {
+            storage = new MemoryStorageDevice();
+            defaultStorages.put(key, storage);
+        }
+
+        return storage;
+    }
+
+    @Override
+    public synchronized RecordStore.Impl openRecordStore(String name, boolean createIfNecessary) throws RecordStoreException {
+        MemoryRecordStore store = stores.get(name);
+
+        if(store == null) {
+            if(!createIfNecessary) {
+                throw new RecordStoreNotFoundException("Record store \"" + name + "\" is not found");
+            }
+
+            store = new MemoryRecordStore();
+            stores.put(name, store);
+        }
+
+        return store;
+    }
+
+    @Override
+    public synchronized void deleteRecordStore(String name) throws RecordStoreException {
+        if(stores.remove(name) == null) {
+            throw new RecordStoreNotFoundException("Record store \"" + name + "\" is not found");
+        }
+    }
+
+    @Override
+    public synchronized void replaceRecordStore(String name, String replacementName) throws RecordStoreException {
+        MemoryRecordStore replacement = stores.remove(replacementName);
+        if(replacement == null) {
+            throw new RecordStoreNotFoundException("Record store \"" + replacementName + "\" is not found");
+        }
+
+        stores.put(name, replacement);
+    }
+
+    @Override
+    public synchronized long getRecordStoreSize(String name) throws RecordStoreException {
+        MemoryRecordStore store = stores.get(name);
+        if(store == null) {
+            throw new RecordStoreNotFoundException("Record store \"" + name + "\" is not found");
+        }
+
+        return store.getSize();
+    }
+
+    @Override
+    public synchronized String[] listRecordStores() {
+        return stores.isEmpty() ? null : stores.keySet().toArray(new String[stores.size()]);
+    }
+}
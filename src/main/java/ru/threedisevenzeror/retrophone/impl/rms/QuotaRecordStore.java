@@ -0,0 +1,174 @@
+package ru.threedisevenzeror.retrophone.impl.rms;
+
+import javax.microedition.rms.RecordStore;
+import javax.microedition.rms.RecordStoreException;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Record store that charges changes of size of another store to quota.<br/>
+ * <br/>
+ * Before modification, its data and entry overhead are charged in advance, so quota is never exceeded.
+ * After modification charge is corrected by actual change of store size. Charge is also recalculated
+ * after background compaction of store and when store is closed, so space freed by compaction
+ * or taken by flushed pending data is accounted right away.
+ */
+class QuotaRecordStore extends RecordStore.Impl {
+
+    private static final int RECORD_OVERHEAD = LogRecordStore.ENTRY_HEADER_SIZE;
+
+    private final RecordStore.Impl store;
+    private final StorageQuota quota;
+    private long chargedSize;
+
+    /**
+     * @param chargedSize size of store that is already charged to quota
+     */
+    QuotaRecordStore(RecordStore.Impl store, StorageQuota quota, long chargedSize) {
+        this.store = store;
+        this.quota = quota;
+        this.chargedSize = chargedSize;
+        recharge();
+
+        store.setSizeListener(new Runnable() {
+            public void run() {
+                recharge();
+            }
+        });
+    }
+
+    @Override
+    public int getNumRecords() {
+        return store.getNumRecords();
+    }
+
+    @Override
+    public int getSize() {
+        return store.getSize();
+    }
+
+    @Override
+    public int getSizeAvailable() {
+        return (int) Math.min(store.getSizeAvailable(), Math.max(0, quota.getAvailable() - RECORD_OVERHEAD));
+    }
+
+    @Override
+    public int getVersion() {
+        return store.getVersion();
+    }
+
+    @Override
+    public long getLastModified() {
+        return store.getLastModified();
+    }
+
+    @Override
+    public int getNextRecordID() {
+        return store.getNextRecordID();
+    }
+
+    @Override
+    public synchronized int addRecord(byte[] data, int offset, int numBytes) throws RecordStoreException {
+        long reserved = reserve(numBytes);
+
+        try {
+            int recordId = store.addRecord(data, offset, numBytes);
+            settle(reserved);
+            return recordId;
+        } catch (RecordStoreException e) {
+            quota.release(reserved);
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized void setRecord(int recordId, byte[] data, int offset, int numBytes) throws RecordStoreException {
+        long reserved = reserve(numBytes);
+
+        try {
+            store.setRecord(recordId, data, offset, numBytes);
+            settle(reserved);
+        } catch (RecordStoreException e) {
+            quota.release(reserved);
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized void deleteRecord(int recordId) throws RecordStoreException {
+        long reserved = reserve(0);
+
+        try {
+            store.deleteRecord(recordId);
+            settle(reserved);
+        } catch (RecordStoreException e) {
+            quota.release(reserved);
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized void restoreRecord(int recordId, byte[] data, int offset, int numBytes) throws RecordStoreException {
+        long reserved = reserve(numBytes);
+
+        try {
+            store.restoreRecord(recordId, data, offset, numBytes);
+            settle(reserved);
+        } catch (RecordStoreException e) {
+            quota.release(reserved);
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized void restoreState(int nextId, int version, long lastModified) throws RecordStoreException {
+        store.restoreState(nextId, version, lastModified);
+    }
+
+    @Override
+    public int getRecordSize(int recordId) throws RecordStoreException {
+        return store.getRecordSize(recordId);
+    }
+
+    @Override
+    public int getRecord(int recordId, byte[] buffer, int offset) throws RecordStoreException {
+        return store.getRecord(recordId, buffer, offset);
+    }
+
+    @Override
+    public int[] getRecordIds() {
+        return store.getRecordIds();
+    }
+
+    @Override
+    public synchronized void close() throws RecordStoreException {
+        store.setSizeListener(null);
+
+        try {
+            store.close();
+        } finally {
+            recharge();
+        }
+    }
+
+    /**
+     * Recalculates charge from current size of store
+     */
+    synchronized void recharge() {
+        settle(0);
+    }
+
+    private long reserve(int numBytes) throws RecordStoreException {
+        long reserved = (long) numBytes + RECORD_OVERHEAD;
+        quota.charge(reserved);
+        return reserved;
+    }
+
+    /**
+     * Replaces advance charge with actual change of store size
+     */
+    private void settle(long reserved) {
+        long size = store.getSize();
+        quota.chargeExisting(size - chargedSize - reserved);
+        chargedSize = size;
+    }
+}
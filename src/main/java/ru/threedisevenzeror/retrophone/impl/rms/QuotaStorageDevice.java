@@ -0,0 +1,100 @@
+package ru.threedisevenzeror.retrophone.impl.rms;
+
+import ru.threedisevenzeror.retrophone.StorageDevice;
+
+import javax.microedition.rms.RecordStore;
+import javax.microedition.rms.RecordStoreException;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Storage that limits total size of all record stores of another storage with {@link StorageQuota}.<br/>
+ * <br/>
+ * Sizes of existing stores are charged once, when the first store is opened, stores are not opened for that,
+ * see {@link StorageDevice#getRecordStoreSize(String)}. After that every modification charges the change
+ * of store size, so total stays up to date without looking at other stores.
+ * Modification that would exceed the quota fails with {@link javax.microedition.rms.RecordStoreFullException}.
+ */
+public class QuotaStorageDevice extends StorageDevice {
+
+    private final StorageDevice storage;
+    private final StorageQuota quota;
+    private boolean isExistingCharged;
+
+    public QuotaStorageDevice(StorageDevice storage, StorageQuota quota) {
+        this.storage = storage;
+        this.quota = quota;
+    }
+
+    public StorageQuota getQuota() {
+        return quota;
+    }
+
+    @Override
+    public synchronized RecordStore.Impl openRecordStore(String name, boolean createIfNecessary) throws RecordStoreException {
+        chargeExistingStores();
+
+        String[] existing = storage.listRecordStores();
+        boolean isNew = existing == null || !contains(existing, name);
+        long chargedSize = isNew ? 0 : storage.getRecordStoreSize(name);
+
+        // new store is charged for its empty size, existing one is corrected if opening changed its size
+        return new QuotaRecordStore(storage.openRecordStore(name, createIfNecessary), quota, chargedSize);
+    }
+
+    @Override
+    public synchronized void deleteRecordStore(String name) throws RecordStoreException {
+        chargeExistingStores();
+
+        long size = storage.getRecordStoreSize(name);
+        storage.deleteRecordStore(name);
+        quota.release(size);
+    }
+
+    /**
+     * Replacement store is already charged, so only size of replaced store is released
+     */
+    @Override
+    public synchronized void replaceRecordStore(String name, String replacementName) throws RecordStoreException {
+        chargeExistingStores();
+
+        String[] existing = storage.listRecordStores();
+        long size = existing != null && contains(existing, name) ? storage.getRecordStoreSize(name) : 0;
+        storage.replaceRecordStore(name, replacementName);
+        quota.release(size);
+    }
+
+    @Override
+    public String[] listRecordStores() {
+        return storage.listRecordStores();
+    }
+
+    @Override
+    public long getRecordStoreSize(String name) throws RecordStoreException {
+        return storage.getRecordStoreSize(name);
+    }
+
+    private void chargeExistingStores() throws RecordStoreException {
+        if(isExistingCharged) {
+            return;
+        }
+
+        String[] names = storage.listRecordStores();
+        if(names != null) {
+            for(String name : names) {
+                quota.chargeExisting(storage.getRecordStoreSize(name));
+            }
+        }
+
+        isExistingCharged = true;
+    }
+
+    private static boolean contains(String[] names, String name) {
+        for(String existing : names) {
+            if(existing.equals(name)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,105 @@
+package ru.threedisevenzeror.retrophone.impl.rms;
+
+import javax.microedition.rms.RecordStoreException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Compresses and decompresses record data. Every thread has its own instance with its own
+ * {@link Deflater}, {@link Inflater} and scratch buffer, which are reused for every record,
+ * so neither native zlib state nor temporary arrays are allocated per call.
+ */
+final class RecordCompressor {
+
+    private static final ThreadLocal<RecordCompressor> compressors = new ThreadLocal<RecordCompressor>() {
+        @Override
+        protected RecordCompressor initialValue() {
+            return new RecordCompressor();
+        }
+    };
+
+    private final Deflater deflater;
+    private final Inflater inflater;
+    private byte[] buffer;
+
+    private RecordCompressor() {
+        this.deflater = new Deflater();
+        this.inflater = new Inflater();
+        this.buffer = new byte[4096];
+    }
+
+    static RecordCompressor get() {
+        return compressors.get();
+    }
+
+    /**
+     * Compresses data into target, result is kept only if it fits to specified length
+     *
+     * @return length of compressed data, or -1 if data does not shrink enough
+     */
+    int compress(byte[] data, int offset, int length, int level, byte[] target, int targetOffset, int maxLength) {
+        if(maxLength <= 0) {
+            return -1;
+        }
+
+        deflater.reset();
+        deflater.setLevel(level);
+        deflater.setInput(data, offset, length);
+        deflater.finish();
+
+        int compressedLength = 0;
+        while(!deflater.finished()) {
+            if(compressedLength == maxLength) {
+                return -1;
+            }
+
+            compressedLength += deflater.deflate(target, targetOffset + compressedLength, maxLength - compressedLength);
+        }
+
+        return compressedLength;
+    }
+
+    /**
+     * Decompresses data into target
+     *
+     * @param size expected size of decompressed data
+     * @throws RecordStoreException if data is corrupted or does not match expected size
+     */
+    void decompress(byte[] data, int offset, int length, byte[] target, int targetOffset, int size)
+            throws RecordStoreException {
+
+        inflater.reset();
+        inflater.setInput(data, offset, length);
+
+        try {
+            int decompressedLength = 0;
+            while(decompressedLength < size && !inflater.finished()) {
+                int read = inflater.inflate(target, targetOffset + decompressedLength, size - decompressedLength);
+                if(read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+
+                decompressedLength += read;
+            }
+
+            if(decompressedLength != size || !inflater.finished()) {
+                throw new RecordStoreException("Compressed record is corrupted");
+            }
+        } catch (DataFormatException e) {
+            throw new RecordStoreException("Compressed record is corrupted: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns scratch buffer of at least specified size, its contents are overwritten by the next call
+     */
+    byte[] getBuffer(int size) {
+        if(buffer.length < size) {
+            buffer = new byte[Math.max(size, buffer.length * 2)];
+        }
+
+        return buffer;
+    }
+}
@@ -0,0 +1,120 @@
+package ru.threedisevenzeror.retrophone.impl.rms;
+
+import javax.microedition.rms.InvalidRecordIDException;
+import java.util.Arrays;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Location of live records in store file, kept in arrays indexed by record id.
+ * Offset of 0 means that there is no record with such id, since every store file starts with header.
+ * Compressed record is stored smaller than its size, so size in file is kept separately
+ */
+final class RecordIndex {
+
+    private long[] offsets;
+    private int[] sizes;
+    private int[] storedSizes;
+    private int count;
+    private long dataSize;
+
+    RecordIndex() {
+        this.offsets = new long[16];
+        this.sizes = new int[16];
+        this.storedSizes = new int[16];
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * Total size of data of all live records in file
+     */
+    long getDataSize() {
+        return dataSize;
+    }
+
+    boolean contains(int recordId) {
+        return recordId > 0 && recordId < offsets.length && offsets[recordId] != 0;
+    }
+
+    void check(int recordId) throws InvalidRecordIDException {
+        if(!contains(recordId)) {
+            throw new InvalidRecordIDException("Invalid record id " + recordId);
+        }
+    }
+
+    long getOffset(int recordId) {
+        return offsets[recordId];
+    }
+
+    int getSize(int recordId) {
+        return sizes[recordId];
+    }
+
+    /**
+     * Size of record data in file
+     */
+    int getStoredSize(int recordId) {
+        return storedSizes[recordId];
+    }
+
+    /**
+     * Record is compressed only if that makes it smaller, so any other record is stored with its own size
+     */
+    boolean isCompressed(int recordId) {
+        return storedSizes[recordId] != sizes[recordId];
+    }
+
+    void put(int recordId, long offset, int storedSize, int size) {
+        if(recordId >= offsets.length) {
+            int capacity = Math.max(offsets.length * 2, recordId + 1);
+            offsets = Arrays.copyOf(offsets, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+            storedSizes = Arrays.copyOf(storedSizes, capacity);
+        }
+
+        if(offsets[recordId] == 0) {
+            count++;
+        }
+
+        dataSize += storedSize - storedSizes[recordId];
+        offsets[recordId] = offset;
+        sizes[recordId] = size;
+        storedSizes[recordId] = storedSize;
+    }
+
+    void remove(int recordId) {
+        if(contains(recordId)) {
+            dataSize -= storedSizes[recordId];
+            offsets[recordId] = 0;
+            sizes[recordId] = 0;
+            storedSizes[recordId] = 0;
+            count--;
+        }
+    }
+
+    int[] getIds() {
+        int[] ids = new int[count];
+        int found = 0;
+
+        for(int id = 1; found < count; id++) {
+            if(offsets[id] != 0) {
+                ids[found++] = id;
+            }
+        }
+
+        return ids;
+    }
+
+    /**
+     * Applies log entry to index
+     */
+    void apply(byte type, int recordId, long dataOffset, int length, int size) {
+        if(type == LogRecordStore.ENTRY_DELETE) {
+            remove(recordId);
+        } else {
+            put(recordId, dataOffset, length, size);
+        }
+    }
+}
@@ -0,0 +1,432 @@
+package ru.threedisevenzeror.retrophone.impl.rms;
+
+import ru.threedisevenzeror.retrophone.StorageDevice;
+
+import javax.microedition.rms.RecordStore;
+import javax.microedition.rms.RecordStoreException;
+import javax.microedition.rms.RecordStoreRegistry;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Snapshot of all record stores of a storage, used to back up save data or move it to another host.<br/>
+ * <br/>
+ * Snapshot is written and read sequentially through channel with fixed size buffer, records are passed
+ * one by one, so memory use does not depend on number of records (except for array of record ids of a store
+ * that is being written). Record ids, versions and modification times of stores are preserved.
+ * Every store in snapshot has its own checksum, store that does not match it is not restored.
+ * Store header is checksummed separately, so record ids and sizes can be checked before records are read.<br/>
+ * <br/>
+ * Every store is locked in {@link RecordStoreRegistry} of storage while it is written or restored,
+ * so store that is open by running suite is refused, and suite cannot open it meanwhile.
+ * Store is restored into temporary store first, which replaces existing one only when it is read completely
+ * and its checksum matches, so corrupted snapshot never destroys existing data.<br/>
+ * <br/>
+ * Layout:
+ * <pre>
+ * snapshot: magic(4) formatVersion(4) store* end(1)
+ * store:    marker(1) nameLength(2) name(UTF-8) nextId(4) version(4) lastModified(8) maxRecordSize(4)
+ *           headerChecksum(4)
+ *           record* 0(4) checksum(4)
+ * record:   recordId(4) length(4) data(length), ids are ascending
+ * </pre>
+ */
+public class RecordStoreSnapshot {
+
+    static final int MAGIC = 0x524D5353; // "RMSS"
+    static final int FORMAT_VERSION = 1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte STORE_MARKER = 1;
+    private static final byte END_MARKER = 0;
+    // store names of suites are at most 32 characters, so temporary stores never clash with them
+    private static final String TEMPORARY_SUFFIX = ".restoring-snapshot-temporary-store";
+
+    private RecordStoreSnapshot() {
+
+    }
+
+    /**
+     * Writes all record stores of storage to channel
+     *
+     * @return names of written stores
+     * @throws RecordStoreException if store is open by running suite
+     */
+    public static String[] export(StorageDevice storage, WritableByteChannel channel)
+            throws IOException, RecordStoreException {
+
+        Output out = new Output(channel);
+        out.putInt(MAGIC);
+        out.putInt(FORMAT_VERSION);
+
+        RecordStoreRegistry registry = RecordStoreRegistry.forStorage(storage);
+        List<String> names = new ArrayList<String>();
+        String[] existing = storage.listRecordStores();
+        if(existing != null) {
+            for(String name : existing) {
+                // left by interrupted restore
+                if(!name.endsWith(TEMPORARY_SUFFIX)) {
+                    names.add(name);
+                }
+            }
+        }
+
+        byte[] data = new byte[256];
+        for(String name : names) {
+            registry.lock(name);
+            RecordStore.Impl store = null;
+
+            try {
+                store = storage.openRecordStore(name, false);
+                byte[] encodedName = name.getBytes("UTF-8");
+
+                out.startChecksum();
+                out.put(STORE_MARKER);
+                out.putShort(encodedName.length);
+                out.put(encodedName, 0, encodedName.length);
+                out.putInt(store.getNextRecordID());
+                out.putInt(store.getVersion());
+                out.putLong(store.getLastModified());
+
+                int[] recordIds = store.getRecordIds();
+                int maxRecordSize = 0;
+                for(int recordId : recordIds) {
+                    maxRecordSize = Math.max(maxRecordSize, store.getRecordSize(recordId));
+                }
+
+                out.putInt(maxRecordSize);
+                out.putInt(out.getChecksum());
+
+                for(int recordId : recordIds) {
+                    int size = store.getRecordSize(recordId);
+                    if(data.length < size) {
+                        data = new byte[Math.max(size, data.length * 2)];
+                    }
+
+                    store.getRecord(recordId, data, 0);
+                    out.putInt(recordId);
+                    out.putInt(size);
+                    out.put(data, 0, size);
+                }
+
+                out.putInt(0);
+                out.putInt(out.getChecksum());
+            } finally {
+                try {
+                    if(store != null) {
+                        store.close();
+                    }
+                } finally {
+                    registry.unlock(name);
+                }
+            }
+        }
+
+        out.put(END_MARKER);
+        out.flush();
+        return names.toArray(new String[names.size()]);
+    }
+
+    /**
+     * Restores record stores from snapshot, replacing existing stores with the same names.
+     * Existing store is replaced only after its snapshot is read and verified, stores that are not in snapshot
+     * are left as is
+     *
+     * @return names of restored stores
+     * @throws IOException if snapshot cannot be read or is corrupted, stores restored before that are kept,
+     * store which snapshot is corrupted is left unchanged
+     * @throws RecordStoreException if store is open by running suite
+     */
+    public static String[] restore(StorageDevice storage, ReadableByteChannel channel)
+            throws IOException, RecordStoreException {
+
+        Input in = new Input(channel);
+        if(in.getInt() != MAGIC) {
+            throw new IOException("Not a record store snapshot");
+        }
+
+        int formatVersion = in.getInt();
+        if(formatVersion != FORMAT_VERSION) {
+            throw new IOException("Unsupported record store snapshot version " + formatVersion);
+        }
+
+        RecordStoreRegistry registry = RecordStoreRegistry.forStorage(storage);
+        List<String> existingNames = new ArrayList<String>();
+        String[] existing = storage.listRecordStores();
+        if(existing != null) {
+            existingNames.addAll(Arrays.asList(existing));
+        }
+
+        List<String> names = new ArrayList<String>();
+
+        while(true) {
+            in.startChecksum();
+            byte marker = in.getByte();
+
+            if(marker == END_MARKER) {
+                break;
+            }
+
+            if(marker != STORE_MARKER) {
+                throw new IOException("Record store snapshot is corrupted");
+            }
+
+            byte[] encodedName = new byte[in.getShort()];
+            in.get(encodedName, 0, encodedName.length);
+            String name = new String(encodedName, "UTF-8");
+            int nextId = in.getInt();
+            int version = in.getInt();
+            long lastModified = in.getLong();
+            int maxRecordSize = in.getInt();
+
+            int headerChecksum = in.getChecksum();
+            if(in.getInt() != headerChecksum) {
+                throw new IOException("Record store snapshot is corrupted");
+            }
+
+            registry.lock(name);
+            try {
+                String temporaryName = name + TEMPORARY_SUFFIX;
+                if(existingNames.remove(temporaryName)) {
+                    storage.deleteRecordStore(temporaryName);
+                }
+
+                restoreStore(storage, in, name, temporaryName, nextId, version, lastModified, maxRecordSize);
+                storage.replaceRecordStore(name, temporaryName);
+            } finally {
+                registry.unlock(name);
+            }
+
+            names.add(name);
+        }
+
+        return names.toArray(new String[names.size()]);
+    }
+
+    /**
+     * Reads records of store from snapshot into new temporary store, which is deleted if snapshot is corrupted
+     */
+    private static void restoreStore(StorageDevice storage, Input in, String name, String temporaryName,
+                                     int nextId, int version, long lastModified, int maxRecordSize)
+            throws IOException, RecordStoreException {
+
+        RecordStore.Impl store = storage.openRecordStore(temporaryName, true);
+        boolean isRestored = false;
+        byte[] data = new byte[256];
+
+        try {
+            int recordId;
+            int previousId = 0;
+            while((recordId = in.getInt()) != 0) {
+                int size = in.getInt();
+                if(recordId <= previousId || recordId >= nextId || size < 0 || size > maxRecordSize) {
+                    throw new IOException("Snapshot of record store \"" + name + "\" is corrupted");
+                }
+
+                if(data.length < size) {
+                    data = new byte[Math.max(size, data.length * 2)];
+                }
+
+                in.get(data, 0, size);
+                store.restoreRecord(recordId, data, 0, size);
+                previousId = recordId;
+            }
+
+            int checksum = in.getChecksum();
+            if(in.getInt() != checksum) {
+                throw new IOException("Snapshot of record store \"" + name + "\" is corrupted");
+            }
+
+            store.restoreState(nextId, version, lastModified);
+            isRestored = true;
+        } finally {
+            store.close();
+
+            if(!isRestored) {
+                deleteQuietly(storage, temporaryName);
+            }
+        }
+    }
+
+    private static void deleteQuietly(StorageDevice storage, String name) {
+        try {
+            storage.deleteRecordStore(name);
+        } catch (RecordStoreException ignored) {
+            // temporary store is left, it is deleted by the next restore
+        }
+    }
+
+    /**
+     * Buffered writer to channel, that computes checksum of written data
+     */
+    private static class Output {
+
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer;
+        private final CRC32 checksum;
+        // start of data in buffer that is not added to checksum yet
+        private int checksumPosition;
+
+        Output(WritableByteChannel channel) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            this.checksum = new CRC32();
+        }
+
+        void put(byte value) throws IOException {
+            require(1);
+            buffer.put(value);
+        }
+
+        void putShort(int value) throws IOException {
+            require(2);
+            buffer.putShort((short) value);
+        }
+
+        void putInt(int value) throws IOException {
+            require(4);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            require(8);
+            buffer.putLong(value);
+        }
+
+        void put(byte[] data, int offset, int length) throws IOException {
+            while(length > 0) {
+                require(1);
+                int chunk = Math.min(length, buffer.remaining());
+                buffer.put(data, offset, chunk);
+                offset += chunk;
+                length -= chunk;
+            }
+        }
+
+        void startChecksum() {
+            checksum.reset();
+            checksumPosition = buffer.position();
+        }
+
+        int getChecksum() {
+            updateChecksum();
+            return (int) checksum.getValue();
+        }
+
+        void flush() throws IOException {
+            updateChecksum();
+            buffer.flip();
+
+            while(buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+
+            buffer.clear();
+            checksumPosition = 0;
+        }
+
+        private void require(int length) throws IOException {
+            if(buffer.remaining() < length) {
+                flush();
+            }
+        }
+
+        private void updateChecksum() {
+            checksum.update(buffer.array(), checksumPosition, buffer.position() - checksumPosition);
+            checksumPosition = buffer.position();
+        }
+    }
+
+    /**
+     * Buffered reader from channel, that computes checksum of read data
+     */
+    private static class Input {
+
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer;
+        private final CRC32 checksum;
+        // start of data in buffer that is not added to checksum yet
+        private int checksumPosition;
+
+        Input(ReadableByteChannel channel) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            this.buffer.flip();
+            this.checksum = new CRC32();
+        }
+
+        byte getByte() throws IOException {
+            require(1);
+            return buffer.get();
+        }
+
+        int getShort() throws IOException {
+            require(2);
+            return buffer.getShort() & 0xFFFF;
+        }
+
+        int getInt() throws IOException {
+            require(4);
+            return buffer.getInt();
+        }
+
+        long getLong() throws IOException {
+            require(8);
+            return buffer.getLong();
+        }
+
+        void get(byte[] data, int offset, int length) throws IOException {
+            while(length > 0) {
+                require(1);
+                int chunk = Math.min(length, buffer.remaining());
+                buffer.get(data, offset, chunk);
+                offset += chunk;
+                length -= chunk;
+            }
+        }
+
+        void startChecksum() {
+            checksum.reset();
+            checksumPosition = buffer.position();
+        }
+
+        int getChecksum() {
+            updateChecksum();
+            return (int) checksum.getValue();
+        }
+
+        /**
+         * Reads from channel until buffer has at least specified amount of unread data
+         */
+        private void require(int length) throws IOException {
+            if(buffer.remaining() >= length) {
+                return;
+            }
+
+            updateChecksum();
+            buffer.compact();
+            checksumPosition = 0;
+
+            while(buffer.position() < length) {
+                if(channel.read(buffer) < 0) {
+                    throw new EOFException("Record store snapshot is truncated");
+                }
+            }
+
+            buffer.flip();
+        }
+
+        private void updateChecksum() {
+            checksum.update(buffer.array(), checksumPosition, buffer.position() - checksumPosition);
+            checksumPosition = buffer.position();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package ru.threedisevenzeror.retrophone.impl.rms;
+
+import ru.threedisevenzeror.retrophone.info.ApplicationInfo;
+
+import javax.microedition.rms.RecordStoreFullException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Running total of bytes used by record stores, limited by a budget.<br/>
+ * <br/>
+ * Quotas can be nested: usage charged to a quota is charged to its parent too, so a quota per MIDlet suite
+ * can share a parent quota that limits the whole host. Charging never blocks and takes constant time.
+ */
+public class StorageQuota {
+
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    private final long limit;
+    private final StorageQuota parent;
+    private final AtomicLong used;
+
+    public StorageQuota(long limit) {
+        this(limit, null);
+    }
+
+    public StorageQuota(long limit, StorageQuota parent) {
+        if(limit < 0) {
+            throw new IllegalArgumentException("Quota limit should not be negative: " + limit);
+        }
+
+        this.limit = limit;
+        this.parent = parent;
+        this.used = new AtomicLong();
+    }
+
+    /**
+     * Creates quota for MIDlet suite. MIDlet-Data-Size is the minimal amount of storage suite requires,
+     * so suite gets either that amount or default quota of the host, whichever is larger
+     *
+     * @param info MIDlet suite
+     * @param defaultLimit quota given to suites that require less storage
+     * @param host quota of the whole host, or null
+     */
+    public static StorageQuota forApplication(ApplicationInfo info, long defaultLimit, StorageQuota host) {
+        return new StorageQuota(Math.max(info.getDataSize(), defaultLimit), host);
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    public StorageQuota getParent() {
+        return parent;
+    }
+
+    public long getUsed() {
+        return used.get();
+    }
+
+    /**
+     * Bytes that still can be charged to this quota, considering limits of parents
+     */
+    public long getAvailable() {
+        long available = limit == UNLIMITED ? UNLIMITED : Math.max(0, limit - used.get());
+        return parent != null ? Math.min(available, parent.getAvailable()) : available;
+    }
+
+    /**
+     * Charges bytes to this quota and all of its parents
+     *
+     * @throws RecordStoreFullException if any of quotas would be exceeded, nothing is charged in that case
+     */
+    public void charge(long bytes) throws RecordStoreFullException {
+        if(bytes <= 0) {
+            release(-bytes);
+            return;
+        }
+
+        long current;
+        do {
+            current = used.get();
+            if(limit != UNLIMITED && current + bytes > limit) {
+                throw new RecordStoreFullException("Storage quota of " + limit + " bytes is exceeded");
+            }
+        } while(!used.compareAndSet(current, current + bytes));
+
+        if(parent != null) {
+            try {
+                parent.charge(bytes);
+            } catch (RecordStoreFullException e) {
+                used.addAndGet(-bytes);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Returns bytes to this quota and all of its parents
+     */
+    public void release(long bytes) {
+        if(bytes != 0) {
+            used.addAndGet(-bytes);
+
+            if(parent != null) {
+                parent.release(bytes);
+            }
+        }
+    }
+
+    /**
+     * Charges bytes ignoring limit, used for data that already exists in storage
+     */
+    public void chargeExisting(long bytes) {
+        used.addAndGet(bytes);
+
+        if(parent != null) {
+            parent.chargeExisting(bytes);
+        }
+    }
+}
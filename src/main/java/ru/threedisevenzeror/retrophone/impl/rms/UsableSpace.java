@@ -0,0 +1,32 @@
+package ru.threedisevenzeror.retrophone.impl.rms;
+
+import java.io.File;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Free space of disk where store file is. It is queried at most once a second,
+ * so stores can report available size as often as MIDlet asks for it
+ */
+final class UsableSpace {
+
+    private static final long QUERY_INTERVAL = 1000;
+
+    private final File file;
+    private volatile long usableSpace;
+    private volatile long queryTime;
+
+    UsableSpace(File file) {
+        this.file = file;
+    }
+
+    long get() {
+        long time = System.currentTimeMillis();
+        if(queryTime == 0 || time - queryTime > QUERY_INTERVAL) {
+            // threads that race here just query it twice
+            usableSpace = file.getUsableSpace();
+            queryTime = time;
+        }
+
+        return usableSpace;
+    }
+}
@@ -0,0 +1,83 @@
+package ru.threedisevenzeror.retrophone.impl.software;
+
+import javax.microedition.lcdui.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Font backed by AWT font
+ */
+public class SoftwareFont extends Font.Impl {
+
+    private static final Graphics2D metricsGraphics =
+            new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+
+    private final java.awt.Font font;
+    private final FontMetrics metrics;
+
+    public SoftwareFont(int face, int styleMask, int size) {
+        super(face, styleMask, size);
+
+        this.font = new java.awt.Font(getFamily(face), getAwtStyle(styleMask), getPointSize(size));
+
+        synchronized (metricsGraphics) {
+            this.metrics = metricsGraphics.getFontMetrics(font);
+        }
+    }
+
+    @Override
+    public int getHeight() {
+        return metrics.getHeight();
+    }
+
+    @Override
+    public int getBaselinePosition() {
+        return metrics.getAscent();
+    }
+
+    @Override
+    public int charsWidth(char[] ch, int offset, int length) {
+        return metrics.charsWidth(ch, offset, length);
+    }
+
+    @Override
+    public int substringWidth(String str, int offset, int len) {
+        return metrics.stringWidth(str.substring(offset, offset + len));
+    }
+
+    java.awt.Font getAwtFont() {
+        return font;
+    }
+
+    private static String getFamily(int face) {
+        switch (face) {
+            case Font.FACE_MONOSPACE: return java.awt.Font.MONOSPACED;
+            case Font.FACE_PROPORTIONAL: return java.awt.Font.SANS_SERIF;
+            default: return java.awt.Font.DIALOG;
+        }
+    }
+
+    private static int getAwtStyle(int styleMask) {
+        int style = java.awt.Font.PLAIN;
+
+        if((styleMask & Font.STYLE_BOLD) != 0) {
+            style |= java.awt.Font.BOLD;
+        }
+
+        if((styleMask & Font.STYLE_ITALIC) != 0) {
+            style |= java.awt.Font.ITALIC;
+        }
+
+        return style;
+    }
+
+    private static int getPointSize(int size) {
+        switch (size) {
+            case Font.SIZE_SMALL: return 10;
+            case Font.SIZE_LARGE: return 16;
+            default: return 12;
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package ru.threedisevenzeror.retrophone.impl.software;
+
+import ru.threedisevenzeror.retrophone.utils.ImageTransform;
+import ru.threedisevenzeror.retrophone.utils.TransformedImageCache;
+
+import javax.microedition.lcdui.Font;
+import javax.microedition.lcdui.Graphics;
+import javax.microedition.lcdui.Image;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Stroke;
+import java.util.Arrays;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Graphics that renders directly to pixels of SoftwareImage.
+ * Fills and image blits are done by hand, other primitives and text are rendered by AWT
+ */
+public class SoftwareGraphics extends Graphics.Impl {
+
+    private static final Stroke solidStroke = new BasicStroke(1);
+    private static final Stroke dottedStroke = new BasicStroke(1, BasicStroke.CAP_BUTT,
+            BasicStroke.JOIN_MITER, 10, new float[] { 1, 1 }, 0);
+
+    private final SoftwareImage target;
+    private final int[] pixels;
+    private final int scanlength;
+    private Graphics2D awtGraphics;
+
+    // clip in absolute coordinates, right and bottom edges are exclusive
+    private int clipLeft;
+    private int clipTop;
+    private int clipRight;
+    private int clipBottom;
+
+    public SoftwareGraphics(SoftwareImage target) {
+        this.target = target;
+        this.pixels = target.getPixels();
+        this.scanlength = target.getWidth();
+        this.clipRight = target.getWidth();
+        this.clipBottom = target.getHeight();
+    }
+
+    public SoftwareImage getTarget() {
+        return target;
+    }
+
+    @Override
+    public int getClipHeight() {
+        return clipBottom - clipTop;
+    }
+
+    @Override
+    public int getClipWidth() {
+        return clipRight - clipLeft;
+    }
+
+    @Override
+    public int getClipX() {
+        return clipLeft - getTranslateX();
+    }
+
+    @Override
+    public int getClipY() {
+        return clipTop - getTranslateY();
+    }
+
+    @Override
+    public int getWidth() {
+        return target.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return target.getHeight();
+    }
+
+    @Override
+    public void clipRect(int x, int y, int width, int height) {
+        int left = x + getTranslateX();
+        int top = y + getTranslateY();
+
+        clipLeft = Math.max(clipLeft, left);
+        clipTop = Math.max(clipTop, top);
+        clipRight = Math.max(clipLeft, (int) Math.min(clipRight, (long) left + Math.max(0, width)));
+        clipBottom = Math.max(clipTop, (int) Math.min(clipBottom, (long) top + Math.max(0, height)));
+    }
+
+    @Override
+    public void setClip(int x, int y, int width, int height) {
+        int left = x + getTranslateX();
+        int top = y + getTranslateY();
+
+        clipLeft = Math.max(0, left);
+        clipTop = Math.max(0, top);
+        clipRight = Math.max(clipLeft, (int) Math.min(getWidth(), (long) left + Math.max(0, width)));
+        clipBottom = Math.max(clipTop, (int) Math.min(getHeight(), (long) top + Math.max(0, height)));
+    }
+
+    @Override
+    public void fillRect(int x, int y, int width, int height) {
+        int left = Math.max(clipLeft, x + getTranslateX());
+        int top = Math.max(clipTop, y + getTranslateY());
+        int right = Math.min(clipRight, x + getTranslateX() + width);
+        int bottom = Math.min(clipBottom, y + getTranslateY() + height);
+
+        if(left >= right || top >= bottom) {
+            return;
+        }
+
+        int color = getColor() | 0xFF000000;
+        int row = top * scanlength;
+
+        for(int i = top; i < bottom; i++) {
+            Arrays.fill(pixels, row + left, row + right, color);
+            row += scanlength;
+        }
+
+        target.getDirtyRegion().include(left, top, right, bottom);
+    }
+
+    @Override
+    public void copyArea(int xSrc, int ySrc, int width, int height, int xDest, int yDest, int anchor) {
+        int sourceLeft = xSrc + getTranslateX();
+        int sourceTop = ySrc + getTranslateY();
+        int x = alignX(xDest, width, anchor) + getTranslateX();
+        int y = alignY(yDest, height, anchor) + getTranslateY();
+
+        int left = Math.max(clipLeft, x);
+        int top = Math.max(clipTop, y);
+        int right = Math.min(clipRight, x + width);
+        int bottom = Math.min(clipBottom, y + height);
+
+        if(left >= right || top >= bottom) {
+            return;
+        }
+
+        int count = right - left;
+        int source = (sourceTop + top - y) * scanlength + sourceLeft + left - x;
+        int destination = top * scanlength + left;
+        int rows = bottom - top;
+
+        // when moving down, rows are copied from the bottom, so overlapping source rows are not overwritten before read
+        if(destination > source) {
+            source += (rows - 1) * scanlength;
+            destination += (rows - 1) * scanlength;
+
+            for(int i = 0; i < rows; i++) {
+                System.arraycopy(pixels, source, pixels, destination, count);
+                source -= scanlength;
+                destination -= scanlength;
+            }
+        } else {
+            for(int i = 0; i < rows; i++) {
+                System.arraycopy(pixels, source, pixels, destination, count);
+                source += scanlength;
+                destination += scanlength;
+            }
+        }
+
+        target.getDirtyRegion().includeCopy(sourceLeft + left - x, sourceTop + top - y, left, top, right, bottom);
+    }
+
+    @Override
+    public void drawRGB(int[] rgbData, int offset, int scanlength, int x, int y,
+                        int width, int height, boolean processAlpha) {
+        blit(rgbData, offset, 1, scanlength, x + getTranslateX(), y + getTranslateY(), width, height, processAlpha);
+    }
+
+    @Override
+    public void drawImage(Image img, int x, int y, int anchor) {
+        drawRegion(img, 0, 0, img.getWidth(), img.getHeight(), ImageTransform.TRANS_NONE, x, y, anchor);
+    }
+
+    @Override
+    public void drawRegion(Image src, int xSrc, int ySrc, int width, int height,
+                           int transform, int xDest, int yDest, int anchor) {
+
+        Image.Impl impl = src.getImplementation();
+        if(!(impl instanceof SoftwareImage)) {
+            super.drawRegion(src, xSrc, ySrc, width, height, transform, xDest, yDest, anchor);
+            return;
+        }
+
+        SoftwareImage image = (SoftwareImage) impl;
+        int dstWidth = ImageTransform.getTransformedWidth(transform, width, height);
+        int dstHeight = ImageTransform.getTransformedHeight(transform, width, height);
+        int x = alignX(xDest, dstWidth, anchor) + getTranslateX();
+        int y = alignY(yDest, dstHeight, anchor) + getTranslateY();
+
+        int[] transformed = null;
+        if(transform != ImageTransform.TRANS_NONE) {
+            transformed = TransformedImageCache.instance.getTransformedRegion(image, xSrc, ySrc, width, height, transform);
+        }
+
+        if(transformed != null) {
+            blit(transformed, 0, 1, dstWidth, x, y, dstWidth, dstHeight, image.hasAlpha());
+        } else {
+            int sourceScanlength = image.getWidth();
+            int offset = ySrc * sourceScanlength + xSrc;
+
+            blit(image.getPixels(),
+                    ImageTransform.getStartIndex(transform, offset, sourceScanlength, width, height),
+                    ImageTransform.getColumnStep(transform, sourceScanlength),
+                    ImageTransform.getRowStep(transform, sourceScanlength),
+                    x, y, dstWidth, dstHeight, image.hasAlpha());
+        }
+    }
+
+    @Override
+    public void drawArc(int x, int y, int width, int height, int startAngle, int arcAngle) {
+        getAwtGraphics().drawArc(x + getTranslateX(), y + getTranslateY(), width, height, startAngle, arcAngle);
+        markDirty(x, y, width + 1, height + 1);
+    }
+
+    @Override
+    public void fillArc(int x, int y, int width, int height, int startAngle, int arcAngle) {
+        getAwtGraphics().fillArc(x + getTranslateX(), y + getTranslateY(), width, height, startAngle, arcAngle);
+        markDirty(x, y, width, height);
+    }
+
+    @Override
+    public void drawLine(int x1, int y1, int x2, int y2) {
+        getAwtGraphics().drawLine(x1 + getTranslateX(), y1 + getTranslateY(), x2 + getTranslateX(), y2 + getTranslateY());
+        markDirty(Math.min(x1, x2), Math.min(y1, y2), Math.abs(x2 - x1) + 1, Math.abs(y2 - y1) + 1);
+    }
+
+    @Override
+    public void drawRect(int x, int y, int width, int height) {
+        if(width >= 0 && height >= 0) {
+            getAwtGraphics().drawRect(x + getTranslateX(), y + getTranslateY(), width, height);
+            markDirty(x, y, width + 1, height + 1);
+        }
+    }
+
+    @Override
+    public void drawRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) {
+        getAwtGraphics().drawRoundRect(x + getTranslateX(), y + getTranslateY(), width, height, arcWidth, arcHeight);
+        markDirty(x, y, width + 1, height + 1);
+    }
+
+    @Override
+    public void fillRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) {
+        getAwtGraphics().fillRoundRect(x + getTranslateX(), y + getTranslateY(), width, height, arcWidth, arcHeight);
+        markDirty(x, y, width, height);
+    }
+
+    @Override
+    public void drawChars(char[] data, int offset, int length, int x, int y, int anchor) {
+        drawSubstring(new String(data, offset, length), 0, length, x, y, anchor);
+    }
+
+    @Override
+    public void drawSubstring(String str, int offset, int len, int x, int y, int anchor) {
+        Font font = getFont();
+        Font.Impl fontImpl = font.getImplementation();
+        String text = str.substring(offset, offset + len);
+        int width = fontImpl.substringWidth(str, offset, len);
+        int left = alignX(x, width, anchor) + getTranslateX();
+        int baseline = y + getTranslateY();
+
+        if((anchor & Graphics.TOP) != 0) {
+            baseline += fontImpl.getBaselinePosition();
+        } else if((anchor & Graphics.BOTTOM) != 0) {
+            baseline -= fontImpl.getHeight() - fontImpl.getBaselinePosition();
+        }
+
+        Graphics2D graphics = getAwtGraphics();
+        if(fontImpl instanceof SoftwareFont) {
+            graphics.setFont(((SoftwareFont) fontImpl).getAwtFont());
+        }
+
+        graphics.drawString(text, left, baseline);
+
+        if(fontImpl.isUnderlined()) {
+            graphics.drawLine(left, baseline + 1, left + width - 1, baseline + 1);
+        }
+
+        int textTop = baseline - fontImpl.getBaselinePosition();
+        markDirty(left - getTranslateX(), textTop - getTranslateY(), width, fontImpl.getHeight());
+    }
+
+    /**
+     * Copies pixels to the framebuffer, walking source data with specified steps.
+     * Destination rectangle is in absolute coordinates and gets clipped before copying
+     */
+    private void blit(int[] source, int startIndex, int columnStep, int rowStep,
+                      int x, int y, int width, int height, boolean processAlpha) {
+
+        int left = Math.max(clipLeft, x);
+        int top = Math.max(clipTop, y);
+        int right = Math.min(clipRight, x + width);
+        int bottom = Math.min(clipBottom, y + height);
+
+        if(left >= right || top >= bottom) {
+            return;
+        }
+
+        int rowStart = startIndex + (left - x) * columnStep + (top - y) * rowStep;
+        int count = right - left;
+        int row = top * scanlength + left;
+
+        for(int i = top; i < bottom; i++) {
+            int s = rowStart;
+            int d = row;
+            int end = row + count;
+
+            if(processAlpha) {
+                while (d < end) {
+                    int pixel = source[s];
+                    int alpha = pixel >>> 24;
+
+                    if(alpha == 0xFF) {
+                        pixels[d] = pixel;
+                    } else if(alpha != 0) {
+                        pixels[d] = blend(pixel, alpha, pixels[d]);
+                    }
+
+                    s += columnStep;
+                    d++;
+                }
+            } else {
+                while (d < end) {
+                    pixels[d++] = source[s] | 0xFF000000;
+                    s += columnStep;
+                }
+            }
+
+            rowStart += rowStep;
+            row += scanlength;
+        }
+
+        target.getDirtyRegion().include(left, top, right, bottom);
+    }
+
+    /**
+     * Marks rectangle in translated coordinates as changed, rectangle is clipped by current clip
+     */
+    private void markDirty(int x, int y, int width, int height) {
+        int left = x + getTranslateX();
+        int top = y + getTranslateY();
+
+        target.getDirtyRegion().include(
+                Math.max(clipLeft, left),
+                Math.max(clipTop, top),
+                Math.min(clipRight, left + width),
+                Math.min(clipBottom, top + height));
+    }
+
+    private static int blend(int source, int alpha, int destination) {
+        int inverse = 255 - alpha;
+        int redBlue = (((source & 0xFF00FF) * alpha + (destination & 0xFF00FF) * inverse) >>> 8) & 0xFF00FF;
+        int green = (((source & 0x00FF00) * alpha + (destination & 0x00FF00) * inverse) >>> 8) & 0x00FF00;
+        return 0xFF000000 | redBlue | green;
+    }
+
+    private Graphics2D getAwtGraphics() {
+        if(awtGraphics == null) {
+            awtGraphics = target.getBufferedImage().createGraphics();
+        }
+
+        awtGraphics.setColor(new Color(getColor() & 0xFFFFFF));
+        awtGraphics.setClip(clipLeft, clipTop, clipRight - clipLeft, clipBottom - clipTop);
+        awtGraphics.setStroke(getStrokeStyle() == Graphics.DOTTED ? dottedStroke : solidStroke);
+        return awtGraphics;
+    }
+}
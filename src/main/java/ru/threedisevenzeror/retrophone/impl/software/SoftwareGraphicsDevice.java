@@ -0,0 +1,63 @@
+package ru.threedisevenzeror.retrophone.impl.software;
+
+import ru.threedisevenzeror.retrophone.GraphicsDevice;
+import ru.threedisevenzeror.retrophone.ResourceProvider;
+
+import javax.microedition.lcdui.Font;
+import javax.microedition.lcdui.Graphics;
+import javax.microedition.lcdui.Image;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Graphics device that keeps all images as pixel arrays in memory
+ */
+public class SoftwareGraphicsDevice extends GraphicsDevice {
+
+    private final ResourceProvider resourceProvider;
+
+    public SoftwareGraphicsDevice(ResourceProvider resourceProvider) {
+        this.resourceProvider = resourceProvider;
+    }
+
+    @Override
+    public Font.Impl getFontImpl(int face, int style, int size) {
+        return new SoftwareFont(face, style, size);
+    }
+
+    @Override
+    public Graphics.Impl getOffScreenGraphicsImpl(Image image) {
+        return new SoftwareGraphics((SoftwareImage) image.getImplementation());
+    }
+
+    @Override
+    public Image.Impl createMutableImage(int width, int height) {
+        return SoftwareImage.createMutable(width, height);
+    }
+
+    @Override
+    public Image.Impl createImmutableImage(byte[] imageData, int imageOffset, int imageLenght) {
+        try {
+            return SoftwareImage.decode(new ByteArrayInputStream(imageData, imageOffset, imageLenght));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot decode image", e);
+        }
+    }
+
+    @Override
+    public Image.Impl createImmutableImage(String name) throws IOException {
+        InputStream stream = resourceProvider.open(name);
+        try {
+            return SoftwareImage.decode(stream);
+        } finally {
+            stream.close();
+        }
+    }
+
+    @Override
+    public Image.Impl createImmutableImage(Image image) {
+        return SoftwareImage.createImmutable(image.getImplementation());
+    }
+}
@@ -0,0 +1,137 @@
+package ru.threedisevenzeror.retrophone.impl.software;
+
+import ru.threedisevenzeror.retrophone.utils.DirtyRegion;
+
+import javax.imageio.ImageIO;
+import javax.microedition.lcdui.Image;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Image stored as plain array of 0xAARRGGBB pixels.
+ * Pixel array is shared with AWT image, so shapes and text rendered by AWT land in the same framebuffer
+ */
+public class SoftwareImage extends Image.Impl {
+
+    private final boolean isMutable;
+    private final int width;
+    private final int height;
+    private final BufferedImage image;
+    private final int[] pixels;
+    private final DirtyRegion dirtyRegion;
+    private boolean hasAlpha;
+
+    private SoftwareImage(boolean isMutable, BufferedImage image) {
+        this.isMutable = isMutable;
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+        this.image = image;
+        this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        this.dirtyRegion = new DirtyRegion();
+    }
+
+    /**
+     * Creates new mutable image filled with white color
+     */
+    public static SoftwareImage createMutable(int width, int height) {
+        SoftwareImage image = new SoftwareImage(true, new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB));
+        Arrays.fill(image.pixels, 0xFFFFFFFF);
+        return image;
+    }
+
+    /**
+     * Creates immutable copy of image pixels
+     */
+    public static SoftwareImage createImmutable(Image.Impl source) {
+        SoftwareImage image = new SoftwareImage(false,
+                new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_ARGB));
+
+        source.getRGB(image.pixels, 0, image.width, 0, 0, image.width, image.height);
+        image.hasAlpha = image.scanAlpha();
+        return image;
+    }
+
+    /**
+     * Decodes immutable image from stream, stream is not closed
+     *
+     * @throws IOException if image cannot be decoded
+     */
+    public static SoftwareImage decode(InputStream stream) throws IOException {
+        BufferedImage decoded = ImageIO.read(stream);
+        if(decoded == null) {
+            throw new IOException("Unsupported image format");
+        }
+
+        SoftwareImage image = new SoftwareImage(false,
+                new BufferedImage(decoded.getWidth(), decoded.getHeight(), BufferedImage.TYPE_INT_ARGB));
+
+        decoded.getRGB(0, 0, image.width, image.height, image.pixels, 0, image.width);
+        image.hasAlpha = image.scanAlpha();
+        return image;
+    }
+
+    @Override
+    public boolean isMutable() {
+        return isMutable;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public void getRGB(int[] rgbData, int offset, int scanlength, int x, int y, int width, int height) {
+        int source = y * this.width + x;
+        for(int row = 0; row < height; row++) {
+            System.arraycopy(pixels, source, rgbData, offset, width);
+            source += this.width;
+            offset += scanlength;
+        }
+    }
+
+    /**
+     * Pixels of this image, row by row, scanline is equal to width
+     */
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    /**
+     * Area of this image that was changed by rendering since last time it was taken
+     */
+    public DirtyRegion getDirtyRegion() {
+        return dirtyRegion;
+    }
+
+    /**
+     * Does this image contain any non-opaque pixels.
+     * Mutable images are always opaque
+     */
+    public boolean hasAlpha() {
+        return hasAlpha;
+    }
+
+    BufferedImage getBufferedImage() {
+        return image;
+    }
+
+    private boolean scanAlpha() {
+        for(int pixel : pixels) {
+            if((pixel >>> 24) != 0xFF) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,484 @@
+package ru.threedisevenzeror.retrophone.info;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Catalog of MIDlet suites found in directories, backed by index file.<br/>
+ * <br/>
+ * Main attributes and MIDlets of every JAR and JAD file are kept in index, together with path,
+ * size and modification time of the file. When directories are scanned again, only files that are new
+ * or do not match their index entry are parsed, the rest is taken from index as is.
+ * Files are parsed in parallel by a pool of threads. Files that cannot be parsed are kept in index too,
+ * so they are not parsed again until they change.<br/>
+ * <br/>
+ * Applications returned by catalog do not open their JAR until its entries are accessed.<br/>
+ * <br/>
+ * Index layout:
+ * <pre>
+ * magic(4) formatVersion(4) stringCount string* entryCount entry* checksum(4)
+ * string: length bytes(UTF-8)
+ * entry:  path size(8) lastModified(8) flags(1) attributeCount (name value)* midletCount (name icon className)*
+ * </pre>
+ * Counts and lengths are variable length integers, and strings inside entries are indices in string table,
+ * so attribute names and values that repeat across suites are stored once.
+ */
+public class ApplicationCatalog {
+
+    static final int MAGIC = 0x52504349; // "RPCI"
+    // 2: descriptors are read by DescriptorParser, suites rejected by Manifest are rescanned
+    static final int FORMAT_VERSION = 2;
+
+    private static final int FLAG_JAD = 1;
+    private static final int FLAG_INVALID = 2;
+
+    // files parsed by a single task, so tasks are large enough to outweigh scheduling
+    private static final int BATCH_SIZE = 32;
+
+    private final File indexFile;
+    private final int parallelism;
+    private Map<String, Entry> entries;
+
+    /**
+     * Creates catalog which parses files with as many threads as there are processors
+     */
+    public ApplicationCatalog(File indexFile) {
+        this(indexFile, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism number of threads that parse files
+     */
+    public ApplicationCatalog(File indexFile, int parallelism) {
+        if(parallelism <= 0) {
+            throw new IllegalArgumentException("Invalid parallelism " + parallelism);
+        }
+
+        this.indexFile = indexFile;
+        this.parallelism = parallelism;
+    }
+
+    public File getIndexFile() {
+        return indexFile;
+    }
+
+    /**
+     * Returns applications from index as is, without checking files
+     */
+    public synchronized ApplicationInfo[] getApplications() {
+        return toApplications(getEntries().values());
+    }
+
+    /**
+     * Finds all JAR and JAD files in directories and their subdirectories, parses files that changed
+     * since the last scan and saves index. Files that are not found anymore are removed from index
+     *
+     * @return applications of all files that could be parsed, in order they were found
+     * @throws IOException if index cannot be written
+     */
+    public synchronized ApplicationInfo[] scan(File... directories) throws IOException {
+        Map<String, Entry> oldEntries = getEntries();
+        List<File> files = new ArrayList<File>();
+        for(File directory : directories) {
+            collectFiles(directory, files);
+        }
+
+        Map<String, Entry> newEntries = new LinkedHashMap<String, Entry>();
+        List<File> changedFiles = new ArrayList<File>();
+
+        for(File file : files) {
+            String path = file.getAbsolutePath();
+            Entry entry = oldEntries.get(path);
+
+            if(entry != null && entry.size == file.length() && entry.lastModified == file.lastModified()) {
+                newEntries.put(path, entry);
+            } else {
+                // placeholder keeps order of files, it is replaced once file is parsed
+                newEntries.put(path, null);
+                changedFiles.add(file);
+            }
+        }
+
+        for(Entry entry : parse(changedFiles)) {
+            newEntries.put(entry.path, entry);
+        }
+
+        boolean isChanged = !changedFiles.isEmpty() || newEntries.size() != oldEntries.size();
+        entries = newEntries;
+
+        if(isChanged) {
+            writeIndex();
+        }
+
+        return toApplications(newEntries.values());
+    }
+
+    private Map<String, Entry> getEntries() {
+        if(entries == null) {
+            try {
+                entries = readIndex();
+            } catch (IOException e) {
+                // missing or broken index is rebuilt by the next scan
+                entries = new LinkedHashMap<String, Entry>();
+            }
+        }
+
+        return entries;
+    }
+
+    private static ApplicationInfo[] toApplications(Iterable<Entry> entries) {
+        List<ApplicationInfo> applications = new ArrayList<ApplicationInfo>();
+        for(Entry entry : entries) {
+            if(entry.attributes != null) {
+                applications.add(ApplicationInfo.fromCatalog(
+                        new File(entry.path), entry.isJad, entry.attributes, entry.midlets));
+            }
+        }
+
+        return applications.toArray(new ApplicationInfo[applications.size()]);
+    }
+
+    private static void collectFiles(File directory, List<File> files) {
+        File[] children = directory.listFiles();
+        if(children == null) {
+            return;
+        }
+
+        Arrays.sort(children);
+        for(File child : children) {
+            if(child.isDirectory()) {
+                collectFiles(child, files);
+            } else if(isJar(child) || isJad(child)) {
+                files.add(child);
+            }
+        }
+    }
+
+    /**
+     * Parses files in batches on a pool of threads
+     */
+    private List<Entry> parse(List<File> files) throws IOException {
+        if(files.isEmpty()) {
+            return new ArrayList<Entry>();
+        }
+
+        List<Callable<List<Entry>>> tasks = new ArrayList<Callable<List<Entry>>>();
+        for(int i = 0; i < files.size(); i += BATCH_SIZE) {
+            final List<File> batch = files.subList(i, Math.min(files.size(), i + BATCH_SIZE));
+            tasks.add(new Callable<List<Entry>>() {
+                public List<Entry> call() {
+                    List<Entry> result = new ArrayList<Entry>(batch.size());
+                    for(File file : batch) {
+                        result.add(parse(file));
+                    }
+
+                    return result;
+                }
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, tasks.size()),
+                new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "ApplicationCatalog scan");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+
+        try {
+            List<Entry> result = new ArrayList<Entry>(files.size());
+            for(Future<List<Entry>> future : executor.invokeAll(tasks)) {
+                result.addAll(future.get());
+            }
+
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Application scan is interrupted");
+        } catch (ExecutionException e) {
+            throw (IOException) new IOException("Cannot scan applications: " + e.getCause()).initCause(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Entry parse(File file) {
+        long size = file.length();
+        long lastModified = file.lastModified();
+        boolean isJad = isJad(file);
+        ApplicationInfo info = null;
+
+        try {
+            info = isJad ? ApplicationInfo.fromJad(file) : ApplicationInfo.fromJar(file);
+
+            String[] attributes = info.getMainAttributes();
+
+            MidletInfo[] midletInfos = info.getMidlets();
+            String[] midlets = new String[midletInfos.length * 3];
+            for(int i = 0; i < midletInfos.length; i++) {
+                midlets[i * 3] = midletInfos[i].getName();
+                midlets[i * 3 + 1] = midletInfos[i].getIcon();
+                midlets[i * 3 + 2] = midletInfos[i].getClassName();
+            }
+
+            return new Entry(file.getAbsolutePath(), size, lastModified, isJad, attributes, midlets);
+        } catch (IOException e) {
+            return new Entry(file.getAbsolutePath(), size, lastModified, isJad, null, null);
+        } catch (RuntimeException e) {
+            // malformed manifest
+            return new Entry(file.getAbsolutePath(), size, lastModified, isJad, null, null);
+        } finally {
+            if(info != null) {
+                info.close();
+            }
+        }
+    }
+
+    private static boolean isJar(File file) {
+        return file.getName().toLowerCase().endsWith(".jar");
+    }
+
+    private static boolean isJad(File file) {
+        return file.getName().toLowerCase().endsWith(".jad");
+    }
+
+    private Map<String, Entry> readIndex() throws IOException {
+        Map<String, Entry> result = new LinkedHashMap<String, Entry>();
+        if(!indexFile.exists()) {
+            return result;
+        }
+
+        // no count or length can exceed file length, so corrupted index cannot cause huge allocations
+        int limit = (int) Math.min(indexFile.length(), Integer.MAX_VALUE);
+        CRC32 checksum = new CRC32();
+        DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(new FileInputStream(indexFile), 64 * 1024), checksum));
+
+        try {
+            if(in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unknown application index format");
+            }
+
+            String[] strings = new String[readCount(in, limit)];
+            byte[] buffer = new byte[256];
+            for(int i = 0; i < strings.length; i++) {
+                int length = readCount(in, limit);
+                if(buffer.length < length) {
+                    buffer = new byte[Math.max(length, buffer.length * 2)];
+                }
+
+                in.readFully(buffer, 0, length);
+                strings[i] = new String(buffer, 0, length, "UTF-8");
+            }
+
+            int count = readCount(in, limit);
+            for(int i = 0; i < count; i++) {
+                String path = readString(in, strings);
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                int flags = in.readUnsignedByte();
+
+                String[] attributes = null;
+                String[] midlets = null;
+                if((flags & FLAG_INVALID) == 0) {
+                    attributes = readStrings(in, strings, 2, limit);
+                    midlets = readStrings(in, strings, 3, limit);
+                }
+
+                result.put(path, new Entry(path, size, lastModified, (flags & FLAG_JAD) != 0, attributes, midlets));
+            }
+
+            int expectedChecksum = (int) checksum.getValue();
+            if(in.readInt() != expectedChecksum) {
+                throw new IOException("Application index is corrupted");
+            }
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+
+        return result;
+    }
+
+    /**
+     * Writes index to temporary file, which then replaces the old one
+     */
+    private void writeIndex() throws IOException {
+        Map<String, Integer> stringIds = new HashMap<String, Integer>();
+        List<String> strings = new ArrayList<String>();
+        for(Entry entry : entries.values()) {
+            addString(entry.path, stringIds, strings);
+            if(entry.attributes != null) {
+                for(String value : entry.attributes) {
+                    addString(value, stringIds, strings);
+                }
+
+                for(String value : entry.midlets) {
+                    addString(value, stringIds, strings);
+                }
+            }
+        }
+
+        File directory = indexFile.getAbsoluteFile().getParentFile();
+        if(directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create directory " + directory);
+        }
+
+        File tempFile = new File(indexFile.getPath() + ".tmp");
+        CRC32 checksum = new CRC32();
+        DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tempFile), 64 * 1024), checksum));
+
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+
+            writeCount(out, strings.size());
+            for(String value : strings) {
+                byte[] encoded = value.getBytes("UTF-8");
+                writeCount(out, encoded.length);
+                out.write(encoded);
+            }
+
+            writeCount(out, entries.size());
+            for(Entry entry : entries.values()) {
+                writeCount(out, stringIds.get(entry.path));
+                out.writeLong(entry.size);
+                out.writeLong(entry.lastModified);
+                out.writeByte((entry.isJad ? FLAG_JAD : 0) | (entry.attributes == null ? FLAG_INVALID : 0));
+
+                if(entry.attributes != null) {
+                    writeStrings(out, entry.attributes, stringIds, 2);
+                    writeStrings(out, entry.midlets, stringIds, 3);
+                }
+            }
+
+            out.flush();
+            out.writeInt((int) checksum.getValue());
+            out.close();
+        } catch (IOException e) {
+            IOUtils.closeQuietly(out);
+            tempFile.delete();
+            throw e;
+        }
+
+        if(!tempFile.renameTo(indexFile) && !(indexFile.delete() && tempFile.renameTo(indexFile))) {
+            tempFile.delete();
+            throw new IOException("Cannot replace " + indexFile);
+        }
+    }
+
+    private static void addString(String value, Map<String, Integer> stringIds, List<String> strings) {
+        if(!stringIds.containsKey(value)) {
+            stringIds.put(value, strings.size());
+            strings.add(value);
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, String[] values, Map<String, Integer> stringIds,
+                                     int groupSize) throws IOException {
+        writeCount(out, values.length / groupSize);
+        for(String value : values) {
+            writeCount(out, stringIds.get(value));
+        }
+    }
+
+    private static String[] readStrings(DataInputStream in, String[] strings, int groupSize, int limit)
+            throws IOException {
+        String[] values = new String[readCount(in, limit) * groupSize];
+        for(int i = 0; i < values.length; i++) {
+            values[i] = readString(in, strings);
+        }
+
+        return values;
+    }
+
+    private static String readString(DataInputStream in, String[] strings) throws IOException {
+        int id = readCount(in, strings.length - 1);
+        return strings[id];
+    }
+
+    /**
+     * Writes non-negative integer with 7 bits per byte, high bit marks that more bytes follow
+     */
+    private static void writeCount(DataOutputStream out, int value) throws IOException {
+        while((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        out.writeByte(value);
+    }
+
+    /**
+     * Reads integer written by {@link #writeCount(DataOutputStream, int)}
+     *
+     * @throws IOException if value is greater than limit
+     */
+    private static int readCount(DataInputStream in, int limit) throws IOException {
+        int value = 0;
+        for(int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+
+            if((b & 0x80) == 0) {
+                if(value < 0 || value > limit) {
+                    break;
+                }
+
+                return value;
+            }
+        }
+
+        throw new IOException("Application index is corrupted");
+    }
+
+    /**
+     * Index entry of a single file, attributes are null if file could not be parsed
+     */
+    private static final class Entry {
+
+        final String path;
+        final long size;
+        final long lastModified;
+        final boolean isJad;
+        // names and values of main attributes, one after another
+        final String[] attributes;
+        // names, icons and class names of MIDlets, one after another
+        final String[] midlets;
+
+        Entry(String path, long size, long lastModified, boolean isJad, String[] attributes, String[] midlets) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.isJad = isJad;
+            this.attributes = attributes;
+            this.midlets = midlets;
+        }
+    }
+}
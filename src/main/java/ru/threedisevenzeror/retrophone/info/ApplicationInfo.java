@@ -5,11 +5,9 @@ import org.apache.commons.lang3.StringUtils;
 
 import java.io.*;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.jar.JarFile;
-import java.util.jar.Manifest;
-import java.util.zip.ZipEntry;
 
 /**
  * Created by ThreeDISevenZeroR on 02.11.2016.
@@ -29,12 +27,11 @@ public class ApplicationInfo implements Closeable {
     public static final String KEY_MICRO_EDITION_PROFILE = "MicroEdition-Profile";
     public static final String KEY_MICRO_EDITION_CONFIGURATION = "MicroEdition-Configuration";
 
-    private Manifest manifest;
-    private JarFile jar;
+    private CompactAttributes attributes;
     private MidletInfo[] midlets;
     private File jarFile;
     private File jadFile;
-    private boolean isClosed;
+    private volatile boolean isClosed;
 
     private ApplicationInfo() {
     }
@@ -157,15 +154,15 @@ public class ApplicationInfo implements Closeable {
      * TODO: Javadoc
      */
     public boolean hasIcon() {
-        return jar != null && manifest.getMainAttributes().containsKey(KEY_ICON);
+        return jarFile != null && getMainAttribute(KEY_ICON) != null;
     }
 
     /**
      * TODO: Javadoc
      */
     public long getIconSize() {
-        if(jar != null) {
-            return jar.getEntry(KEY_ICON).getSize();
+        if(jarFile != null) {
+            return getEntrySize(KEY_ICON);
         } else {
             return 0;
         }
@@ -187,31 +184,33 @@ public class ApplicationInfo implements Closeable {
      * TODO: Javadoc
      */
     public String getMainAttribute(String name) {
-        return manifest.getMainAttributes().getValue(name);
+        return attributes.get(name);
     }
 
     /**
      * TODO: Javadoc
      */
     public long getEntrySize(String file) {
-        if(jar != null) {
-            return jar.getEntry(file).getSize();
-        } else {
-            return 0;
-        }
+        return Math.max(0, getJarEntrySize(file));
     }
 
     public boolean hasEntry(String file) {
-        return jar != null && jar.getEntry(file) != null;
+        return getJarEntrySize(file) >= 0;
     }
 
     /**
-     * TODO: Javadoc
+     * Opens stream of jar entry, stored entries are read straight from mapped jar.
+     * Jar is kept open until the stream is closed
      */
     public InputStream getEntry(String file) throws IOException {
-        if(jar != null) {
-            ZipEntry entry = jar.getEntry(file);
-            return jar.getInputStream(entry);
+        if(jarFile != null) {
+            checkOpen();
+            InputStream stream = JarFilePool.getShared().openEntry(jarFile, file);
+            if(stream == null) {
+                throw new IOException("Entry " + file + " is not found in " + jarFile);
+            }
+
+            return stream;
         } else {
             throw new IOException("Cannot get entry " + file + " from jad file");
         }
@@ -219,13 +218,10 @@ public class ApplicationInfo implements Closeable {
 
     /**
      * Closes this application info.
-     * Releases all allocated file streams
+     * Jar is closed by {@link JarFilePool} once entry streams returned by {@link #getEntry(String)} are closed
+     * and it is not used for a while
      */
     public void close() {
-        if(jar != null) {
-            IOUtils.closeQuietly(jar);
-        }
-
         isClosed = true;
     }
 
@@ -244,8 +240,14 @@ public class ApplicationInfo implements Closeable {
 
         ApplicationInfo info = new ApplicationInfo();
         info.jadFile = jadFile;
-        info.manifest = new Manifest(new FileInputStream(jadFile));
-        info.midlets = loadMidletsFromManifest(info, info.manifest);
+        InputStream stream = new FileInputStream(jadFile);
+        try {
+            info.attributes = CompactAttributes.of(DescriptorParser.parse(stream));
+        } finally {
+            IOUtils.closeQuietly(stream);
+        }
+
+        info.midlets = loadMidlets(info);
 
         return info;
     }
@@ -254,35 +256,106 @@ public class ApplicationInfo implements Closeable {
         return fromJar(new File(jarFile));
     }
 
+    /**
+     * Reads manifest of jar, jar itself is taken from {@link JarFilePool} only when its entries are accessed
+     */
     public static ApplicationInfo fromJar(File jarFile) throws IOException {
         ApplicationInfo info = new ApplicationInfo();
-
-        info.jar = new JarFile(jarFile);
         info.jarFile = jarFile;
-        info.manifest = info.jar.getManifest();
-        info.midlets = loadMidletsFromManifest(info, info.manifest);
+
+        JarFilePool pool = JarFilePool.getShared();
+        JarFilePool.Handle handle = pool.acquire(jarFile);
+        try {
+            ByteBuffer manifest = handle.getJar().getBuffer(MappedJarFile.MANIFEST_NAME);
+            if(manifest == null) {
+                throw new IOException("Jar file " + jarFile + " has no manifest");
+            }
+
+            info.attributes = CompactAttributes.of(DescriptorParser.parse(manifest));
+        } finally {
+            pool.release(handle);
+        }
+
+        info.midlets = loadMidlets(info);
+        return info;
+    }
+
+    /**
+     * Creates application info from attributes kept in {@link ApplicationCatalog},
+     * jar file is not opened until its entries are accessed
+     *
+     * @param attributes names and values of main attributes, one after another
+     * @param midlets names, icons and class names of MIDlets, one after another
+     */
+    static ApplicationInfo fromCatalog(File file, boolean isJad, String[] attributes, String[] midlets) {
+        ApplicationInfo info = new ApplicationInfo();
+
+        if(isJad) {
+            info.jadFile = file;
+        } else {
+            info.jarFile = file;
+        }
+
+        info.attributes = CompactAttributes.of(attributes);
+        info.midlets = new MidletInfo[midlets.length / 3];
+        for(int i = 0; i < info.midlets.length; i++) {
+            info.midlets[i] = new MidletInfo(info, midlets[i * 3], midlets[i * 3 + 1], midlets[i * 3 + 2]);
+        }
 
         return info;
     }
 
+    /**
+     * Names and values of main attributes, one after another
+     */
+    String[] getMainAttributes() {
+        return attributes.toArray();
+    }
+
+    /**
+     * Looks up entry of jar
+     *
+     * @return size of entry, or -1 if there is no such entry or jar cannot be opened
+     */
+    private long getJarEntrySize(String file) {
+        if(jarFile == null || isClosed) {
+            return -1;
+        }
+
+        JarFilePool pool = JarFilePool.getShared();
+        try {
+            JarFilePool.Handle handle = pool.acquire(jarFile);
+            try {
+                return handle.getJar().getSize(file);
+            } finally {
+                pool.release(handle);
+            }
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if(isClosed) {
+            throw new IOException("Application info is closed");
+        }
+    }
+
     private boolean isRelativeUrl(String url) {
         return !url.startsWith("http");
     }
 
-    private static MidletInfo[] loadMidletsFromManifest(ApplicationInfo info, Manifest manifest) {
+    private static MidletInfo[] loadMidlets(ApplicationInfo info) {
         List<MidletInfo> midlets = new ArrayList<MidletInfo>();
         int midletIndex = 1;
 
         while (true) {
             String midletName = "MIDlet-" + midletIndex;
-            String midletInfo = manifest.getMainAttributes().getValue(midletName);
+            String midletInfo = info.getMainAttribute(midletName);
 
             if(midletInfo != null) {
-                String[] infoParts = midletInfo.split(", ");
-                String name = infoParts[0].trim();
-                String icon = infoParts[1].trim();
-                String className = infoParts[2].trim();
-                midlets.add(new MidletInfo(info, name, icon, className));
+                String[] infoParts = DescriptorParser.parseMidlet(midletInfo);
+                midlets.add(new MidletInfo(info, infoParts[0], infoParts[1], infoParts[2]));
                 midletIndex++;
             } else {
                 break;
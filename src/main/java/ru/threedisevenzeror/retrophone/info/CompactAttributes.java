@@ -0,0 +1,78 @@
+package ru.threedisevenzeror.retrophone.info;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Main attributes of a suite, kept as two parallel arrays of names and values.<br/>
+ * <br/>
+ * Names are interned, so lookup by constant name usually succeeds on reference comparison,
+ * and common values are taken from {@link StringPool}, so suites share them instead of holding own copies.
+ */
+final class CompactAttributes {
+
+    private static final String[] EMPTY = new String[0];
+
+    private final String[] names;
+    private final String[] values;
+
+    private CompactAttributes(String[] names, String[] values) {
+        this.names = names;
+        this.values = values;
+    }
+
+    /**
+     * @param attributes names and values of attributes, one after another
+     */
+    static CompactAttributes of(String[] attributes) {
+        int count = attributes.length / 2;
+        if(count == 0) {
+            return new CompactAttributes(EMPTY, EMPTY);
+        }
+
+        StringPool pool = StringPool.getShared();
+        String[] names = new String[count];
+        String[] values = new String[count];
+
+        for(int i = 0; i < count; i++) {
+            names[i] = attributes[i * 2].intern();
+            values[i] = pool.intern(attributes[i * 2 + 1]);
+        }
+
+        return new CompactAttributes(names, values);
+    }
+
+    /**
+     * @return value of attribute, name is compared ignoring case
+     */
+    String get(String name) {
+        for(int i = 0; i < names.length; i++) {
+            if(names[i] == name) {
+                return values[i];
+            }
+        }
+
+        for(int i = 0; i < names.length; i++) {
+            if(names[i].equalsIgnoreCase(name)) {
+                return values[i];
+            }
+        }
+
+        return null;
+    }
+
+    int size() {
+        return names.length;
+    }
+
+    /**
+     * @return names and values of attributes, one after another
+     */
+    String[] toArray() {
+        String[] attributes = new String[names.length * 2];
+        for(int i = 0; i < names.length; i++) {
+            attributes[i * 2] = names[i];
+            attributes[i * 2 + 1] = values[i];
+        }
+
+        return attributes;
+    }
+}
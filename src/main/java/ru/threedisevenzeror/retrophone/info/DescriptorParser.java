@@ -0,0 +1,353 @@
+package ru.threedisevenzeror.retrophone.info;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Single pass parser of main attributes of JAD files and jar manifests.<br/>
+ * <br/>
+ * Unlike {@link java.util.jar.Manifest} it tolerates quirks of real JAD files: any line separators,
+ * missing space after colon, blank lines between attributes, lines without colon and attribute names
+ * that are not valid manifest names. Lines that start with space or tab continue previous value.
+ * Every name and value is decoded as UTF-8, or as {@link #FALLBACK_CHARSET_PROPERTY} charset if it is not valid
+ * UTF-8. Value is checked after its continuation lines are joined, since jar tools wrap lines at 72 bytes
+ * even in the middle of a multibyte character.
+ * Names of well-known attributes are matched in place and are returned as shared constant strings.
+ */
+public final class DescriptorParser {
+
+    public static final String FALLBACK_CHARSET_PROPERTY = "retrophone.descriptorCharset";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final Charset FALLBACK = Charset.forName(System.getProperty(FALLBACK_CHARSET_PROPERTY, "ISO-8859-1"));
+
+    private static final String[] KNOWN_NAMES = createKnownNames();
+    private static final String[] NAME_TABLE = createNameTable(KNOWN_NAMES);
+    private static final String SECTION_NAME = "Name";
+
+    private DescriptorParser() {
+    }
+
+    /**
+     * Parses main attributes of descriptor
+     *
+     * @return names and values of attributes, one after another
+     */
+    public static String[] parse(InputStream stream) throws IOException {
+        byte[] data = IOUtils.toByteArray(stream);
+        return parse(data, 0, data.length);
+    }
+
+    /**
+     * Parses main attributes from remaining data of buffer, position of buffer is not changed
+     *
+     * @return names and values of attributes, one after another
+     */
+    public static String[] parse(ByteBuffer buffer) {
+        if(buffer.hasArray()) {
+            return parse(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+
+        byte[] data = new byte[buffer.remaining()];
+        buffer.duplicate().get(data);
+        return parse(data, 0, data.length);
+    }
+
+    /**
+     * Parses main attributes of descriptor. When attribute is repeated, its last value is used
+     *
+     * @return names and values of attributes, one after another
+     */
+    public static String[] parse(byte[] data, int offset, int length) {
+        int position = offset;
+        int end = offset + length;
+
+        if(length >= 3 && data[offset] == (byte) 0xEF && data[offset + 1] == (byte) 0xBB && data[offset + 2] == (byte) 0xBF) {
+            position += 3;
+        }
+
+        AttributeList attributes = new AttributeList();
+
+        // value of current attribute, continuation lines are gathered into separate buffer
+        String name = null;
+        int valueStart = 0;
+        int valueEnd = 0;
+        byte[] continued = null;
+        int continuedLength = 0;
+        boolean afterBlank = false;
+
+        while(position < end) {
+            int lineStart = position;
+            int lineEnd = position;
+            while(lineEnd < end && data[lineEnd] != '\n' && data[lineEnd] != '\r') {
+                lineEnd++;
+            }
+
+            position = lineEnd + 1;
+            if(lineEnd + 1 < end && data[lineEnd] == '\r' && data[lineEnd + 1] == '\n') {
+                position++;
+            }
+
+            if(lineStart == lineEnd) {
+                afterBlank = true;
+                continue;
+            }
+
+            if(data[lineStart] == ' ' || data[lineStart] == '\t') {
+                if(name != null && !afterBlank) {
+                    int pieceLength = lineEnd - lineStart - 1;
+                    if(continued == null) {
+                        continued = new byte[256];
+                    }
+
+                    if(continuedLength == 0) {
+                        continued = ensureCapacity(continued, valueEnd - valueStart);
+                        System.arraycopy(data, valueStart, continued, 0, valueEnd - valueStart);
+                        continuedLength = valueEnd - valueStart;
+                    }
+
+                    continued = ensureCapacity(continued, continuedLength + pieceLength);
+                    System.arraycopy(data, lineStart + 1, continued, continuedLength, pieceLength);
+                    continuedLength += pieceLength;
+                }
+
+                continue;
+            }
+
+            int colon = lineStart;
+            while(colon < lineEnd && data[colon] != ':') {
+                colon++;
+            }
+
+            int nameEnd = trimEnd(data, lineStart, colon);
+            if(colon == lineEnd || nameEnd == lineStart) {
+                continue;
+            }
+
+            if(name != null) {
+                String value = continuedLength != 0
+                        ? decodeValue(continued, 0, continuedLength)
+                        : decodeValue(data, valueStart, valueEnd);
+                attributes.put(name, value);
+                continuedLength = 0;
+            }
+
+            name = decodeName(data, lineStart, nameEnd);
+            if(afterBlank && SECTION_NAME.equalsIgnoreCase(name)) {
+                // per-entry sections of manifest
+                name = null;
+                break;
+            }
+
+            afterBlank = false;
+            valueStart = colon + 1;
+            valueEnd = lineEnd;
+        }
+
+        if(name != null) {
+            String value = continuedLength != 0
+                    ? decodeValue(continued, 0, continuedLength)
+                    : decodeValue(data, valueStart, valueEnd);
+            attributes.put(name, value);
+        }
+
+        return attributes.toArray();
+    }
+
+    /**
+     * Splits value of MIDlet-&lt;n&gt; attribute into name, icon and class name.
+     * Missing parts are returned as empty strings
+     */
+    public static String[] parseMidlet(String value) {
+        String[] parts = new String[3];
+        int start = 0;
+
+        for(int i = 0; i < 2; i++) {
+            int comma = value.indexOf(',', start);
+            if(comma < 0) {
+                parts[i] = value.substring(start).trim();
+                start = value.length();
+            } else {
+                parts[i] = value.substring(start, comma).trim();
+                start = comma + 1;
+            }
+        }
+
+        parts[2] = value.substring(start).trim();
+        return parts;
+    }
+
+    private static String decodeName(byte[] data, int start, int end) {
+        int length = end - start;
+        int hash = hash(data, start, end);
+        int mask = NAME_TABLE.length - 1;
+
+        for(int i = hash & mask; NAME_TABLE[i] != null; i = (i + 1) & mask) {
+            String known = NAME_TABLE[i];
+            if(known.length() == length && matches(known, data, start)) {
+                return known;
+            }
+        }
+
+        return decode(data, start, end);
+    }
+
+    private static String decodeValue(byte[] data, int start, int end) {
+        while(start < end && (data[start] == ' ' || data[start] == '\t')) {
+            start++;
+        }
+
+        end = trimEnd(data, start, end);
+        return start == end ? "" : decode(data, start, end);
+    }
+
+    private static String decode(byte[] data, int start, int end) {
+        return new String(data, start, end - start, isUtf8(data, start, end) ? UTF8 : FALLBACK);
+    }
+
+    private static int trimEnd(byte[] data, int start, int end) {
+        while(end > start && (data[end - 1] == ' ' || data[end - 1] == '\t')) {
+            end--;
+        }
+
+        return end;
+    }
+
+    private static byte[] ensureCapacity(byte[] buffer, int capacity) {
+        return capacity <= buffer.length ? buffer : Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+    }
+
+    /**
+     * Compares ascii name with bytes ignoring case
+     */
+    private static boolean matches(String name, byte[] data, int start) {
+        for(int i = 0; i < name.length(); i++) {
+            if(toLower(name.charAt(i)) != toLower(data[start + i])) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static int hash(byte[] data, int start, int end) {
+        int hash = 0;
+        for(int i = start; i < end; i++) {
+            hash = hash * 31 + toLower(data[i]);
+        }
+
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int toLower(int c) {
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c & 0xFF;
+    }
+
+    private static boolean isUtf8(byte[] data, int start, int end) {
+        int i = start;
+        while(i < end) {
+            int b = data[i] & 0xFF;
+            int continuation;
+
+            if(b < 0x80) {
+                i++;
+                continue;
+            } else if(b >= 0xC2 && b <= 0xDF) {
+                continuation = 1;
+            } else if(b >= 0xE0 && b <= 0xEF) {
+                continuation = 2;
+            } else if(b >= 0xF0 && b <= 0xF4) {
+                continuation = 3;
+            } else {
+                return false;
+            }
+
+            if(i + continuation >= end) {
+                return false;
+            }
+
+            for(int j = 1; j <= continuation; j++) {
+                if((data[i + j] & 0xC0) != 0x80) {
+                    return false;
+                }
+            }
+
+            i += continuation + 1;
+        }
+
+        return true;
+    }
+
+    private static String[] createKnownNames() {
+        String[] names = new String[] {
+                "Manifest-Version", "Created-By", "Ant-Version", "Main-Class", "Class-Path",
+                "MIDlet-Name", "MIDlet-Version", "MIDlet-Vendor", "MIDlet-Description", "MIDlet-Info-URL",
+                "MIDlet-Icon", "MIDlet-Data-Size", "MIDlet-Jar-Size", "MIDlet-Jar-URL",
+                "MIDlet-Permissions", "MIDlet-Permissions-Opt", "MIDlet-Install-Notify", "MIDlet-Delete-Notify",
+                "MIDlet-Delete-Confirm", "MIDlet-Jar-RSA-SHA1", "MIDlet-Certificate-1-1",
+                "MicroEdition-Profile", "MicroEdition-Configuration"
+        };
+
+        String[] result = Arrays.copyOf(names, names.length + 16);
+        for(int i = 1; i <= 16; i++) {
+            result[names.length + i - 1] = "MIDlet-" + i;
+        }
+
+        return result;
+    }
+
+    private static String[] createNameTable(String[] names) {
+        String[] table = new String[Integer.highestOneBit(names.length) * 4];
+        int mask = table.length - 1;
+
+        for(String name : names) {
+            byte[] bytes = name.getBytes(UTF8);
+            int i = hash(bytes, 0, bytes.length) & mask;
+            while(table[i] != null) {
+                i = (i + 1) & mask;
+            }
+
+            table[i] = name;
+        }
+
+        return table;
+    }
+
+    /**
+     * Names and values of attributes, one after another
+     */
+    private static final class AttributeList {
+
+        private String[] items = new String[32];
+        private int size;
+
+        /**
+         * Puts attribute, replacing attribute with same name
+         */
+        void put(String name, String value) {
+            for(int i = 0; i < size; i += 2) {
+                if(items[i] == name || items[i].equalsIgnoreCase(name)) {
+                    items[i + 1] = value;
+                    return;
+                }
+            }
+
+            if(size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+
+            items[size++] = name;
+            items[size++] = value;
+        }
+
+        String[] toArray() {
+            return Arrays.copyOf(items, size);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package ru.threedisevenzeror.retrophone.info;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Bounded pool of open jar files, shared by all {@link ApplicationInfo} instances.<br/>
+ * <br/>
+ * Jar is opened as {@link MappedJarFile} when it is acquired for the first time, and is kept open for later use.
+ * When there are more open jars than capacity of the pool, least recently used ones are closed, so number of
+ * mappings and central directories in memory does not depend on number of applications. Jar that is in use
+ * is never closed, it is closed once it is released instead. Entry stream keeps its jar in use until the stream
+ * is closed. Jar that changed on disk since it was opened is reopened.
+ */
+public class JarFilePool {
+
+    public static final String CAPACITY_PROPERTY = "retrophone.jarPoolCapacity";
+
+    private static final JarFilePool shared = new JarFilePool(Integer.getInteger(CAPACITY_PROPERTY, 32));
+
+    private final int capacity;
+    // ordered from least to most recently used
+    private final LinkedHashMap<File, Handle> handles;
+
+    public JarFilePool(int capacity) {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        }
+
+        this.capacity = capacity;
+        this.handles = new LinkedHashMap<File, Handle>(16, 0.75f, true);
+    }
+
+    /**
+     * Pool used by {@link ApplicationInfo}, its capacity is taken from {@link #CAPACITY_PROPERTY} system property
+     */
+    public static JarFilePool getShared() {
+        return shared;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Number of jars that are currently open
+     */
+    public synchronized int getOpenCount() {
+        return handles.size();
+    }
+
+    /**
+     * Takes open jar from pool, opening it if necessary. Jar stays open until it is released
+     */
+    public Handle acquire(File file) throws IOException {
+        long lastModified = file.lastModified();
+        long length = file.length();
+
+        synchronized (this) {
+            Handle handle = handles.get(file);
+            if(handle != null && handle.lastModified == lastModified && handle.length == length) {
+                handle.users++;
+                return handle;
+            }
+
+            if(handle != null) {
+                remove(handle);
+            }
+        }
+
+        // jar is opened without holding the lock, so slow disk does not block other jars
+        Handle opened = new Handle(file, MappedJarFile.open(file), lastModified, length);
+        List<Handle> closed;
+
+        synchronized (this) {
+            Handle handle = handles.get(file);
+            if(handle != null && handle.lastModified == lastModified && handle.length == length) {
+                // another thread opened it meanwhile
+                handle.users++;
+                IOUtils.closeQuietly(opened.jar);
+                return handle;
+            }
+
+            if(handle != null) {
+                remove(handle);
+            }
+
+            opened.users++;
+            handles.put(file, opened);
+            closed = evict();
+        }
+
+        closeAll(closed);
+        return opened;
+    }
+
+    /**
+     * Returns jar to pool, it can be closed afterwards
+     */
+    public void release(Handle handle) {
+        List<Handle> closed;
+
+        synchronized (this) {
+            handle.users--;
+
+            // replaced handle is not in pool anymore, so it is closed by its last user
+            if(handle.users == 0 && handles.get(handle.file) != handle) {
+                closed = new ArrayList<Handle>(1);
+                closed.add(handle);
+            } else {
+                closed = evict();
+            }
+        }
+
+        closeAll(closed);
+    }
+
+    /**
+     * Closes all jars that are not in use
+     */
+    public void clear() {
+        List<Handle> closed = new ArrayList<Handle>();
+
+        synchronized (this) {
+            Iterator<Handle> iterator = handles.values().iterator();
+            while(iterator.hasNext()) {
+                Handle handle = iterator.next();
+                if(handle.users == 0) {
+                    iterator.remove();
+                    closed.add(handle);
+                }
+            }
+        }
+
+        closeAll(closed);
+    }
+
+    /**
+     * Opens stream of jar entry, jar is in use until stream is closed
+     *
+     * @return stream, or null if there is no such entry
+     */
+    InputStream openEntry(File file, String name) throws IOException {
+        Handle handle = acquire(file);
+        InputStream stream = null;
+
+        try {
+            stream = handle.getJar().getInputStream(name);
+            return stream != null ? new EntryStream(stream, handle) : null;
+        } finally {
+            if(stream == null) {
+                release(handle);
+            }
+        }
+    }
+
+    /**
+     * Removes replaced handle from pool, it is closed right away if nobody uses it
+     */
+    private void remove(Handle handle) {
+        handles.remove(handle.file);
+        if(handle.users == 0) {
+            IOUtils.closeQuietly(handle.jar);
+        }
+    }
+
+    /**
+     * Removes least recently used jars that are not in use, until pool fits its capacity
+     *
+     * @return handles that should be closed
+     */
+    private List<Handle> evict() {
+        List<Handle> closed = null;
+        Iterator<Handle> iterator = handles.values().iterator();
+        int excess = handles.size() - capacity;
+
+        while(excess > 0 && iterator.hasNext()) {
+            Handle handle = iterator.next();
+            if(handle.users == 0) {
+                iterator.remove();
+                excess--;
+
+                if(closed == null) {
+                    closed = new ArrayList<Handle>();
+                }
+
+                closed.add(handle);
+            }
+        }
+
+        return closed;
+    }
+
+    private static void closeAll(List<Handle> handles) {
+        if(handles != null) {
+            for(Handle handle : handles) {
+                IOUtils.closeQuietly(handle.jar);
+            }
+        }
+    }
+
+    /**
+     * Entry stream that releases its jar when it is closed
+     */
+    private final class EntryStream extends FilterInputStream {
+
+        private Handle handle;
+
+        EntryStream(InputStream stream, Handle handle) {
+            super(stream);
+            this.handle = handle;
+        }
+
+        @Override
+        public void close() throws IOException {
+            Handle released;
+
+            synchronized (this) {
+                released = handle;
+                handle = null;
+            }
+
+            try {
+                super.close();
+            } finally {
+                if(released != null) {
+                    release(released);
+                }
+            }
+        }
+    }
+
+    /**
+     * Open jar taken from pool
+     */
+    public static final class Handle {
+
+        private final File file;
+        private final MappedJarFile jar;
+        private final long lastModified;
+        private final long length;
+        // guarded by pool
+        private int users;
+
+        Handle(File file, MappedJarFile jar, long lastModified, long length) {
+            this.file = file;
+            this.jar = jar;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        public MappedJarFile getJar() {
+            return jar;
+        }
+    }
+}
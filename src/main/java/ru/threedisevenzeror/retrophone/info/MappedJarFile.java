@@ -0,0 +1,594 @@
+package ru.threedisevenzeror.retrophone.info;
+
+import ru.threedisevenzeror.retrophone.utils.ByteBufferInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.Manifest;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Read-only jar file which is memory-mapped as a whole, small jars are read into heap instead.<br/>
+ * <br/>
+ * Central directory is parsed once on open into open-addressing hash table of name hashes,
+ * which points to headers of entries right in mapped region, so lookup allocates nothing
+ * and names are never decoded to strings. Stored entries are returned as slices of mapped region without
+ * copying, deflated ones are inflated in one pass into buffers taken from a pool and returned to it once
+ * their stream is closed. File is not kept open, mapping is released when jar file is garbage collected.<br/>
+ * <br/>
+ * Zip64 archives, encrypted entries and compression methods other than deflate are not supported.
+ */
+public final class MappedJarFile implements Closeable {
+
+    public static final String MANIFEST_NAME = "META-INF/MANIFEST.MF";
+
+    private static final int END_SIGNATURE = 0x06054B50;
+    private static final int CENTRAL_SIGNATURE = 0x02014B50;
+    private static final int LOCAL_SIGNATURE = 0x04034B50;
+    private static final int END_SIZE = 22;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    // smaller jars are read into heap, mapping them costs more than reading,
+    // and every mapping takes one of the limited map slots of process until it is garbage collected
+    private static final int MAP_THRESHOLD = 64 * 1024;
+
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+    private static final int FLAG_ENCRYPTED = 1;
+
+    private static final ThreadLocal<Inflater> inflaters = new ThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater(true);
+        }
+    };
+    private static final BufferPool bufferPool = new BufferPool();
+
+    private final File file;
+    private final ByteBuffer buffer;
+    // offsets of central headers of entries
+    private final int[] headers;
+    private final int[] hashes;
+    // indices of entries plus one, 0 is an empty slot
+    private final int[] table;
+    private volatile boolean isClosed;
+
+    private MappedJarFile(File file, ByteBuffer buffer, int[] headers, int[] hashes, int[] table) {
+        this.file = file;
+        this.buffer = buffer;
+        this.headers = headers;
+        this.hashes = hashes;
+        this.table = table;
+    }
+
+    /**
+     * Maps jar file and reads its central directory
+     *
+     * @throws IOException if file cannot be read or is not a supported zip archive
+     */
+    public static MappedJarFile open(File file) throws IOException {
+        RandomAccessFile source = new RandomAccessFile(file, "r");
+        ByteBuffer buffer;
+
+        try {
+            long length = source.length();
+            if(length > Integer.MAX_VALUE) {
+                throw new IOException("Jar file " + file + " is too large");
+            }
+
+            buffer = length < MAP_THRESHOLD ? null : map(source, length);
+            if(buffer == null) {
+                byte[] data = new byte[(int) length];
+                source.readFully(data);
+                buffer = ByteBuffer.wrap(data);
+            }
+        } finally {
+            source.close();
+        }
+
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        int end = findEnd(buffer);
+        if(end < 0) {
+            throw new IOException("Jar file " + file + " is corrupted or is not a zip archive");
+        }
+
+        int count = buffer.getShort(end + 10) & 0xFFFF;
+        long directorySize = buffer.getInt(end + 12) & 0xFFFFFFFFL;
+        long directoryOffset = buffer.getInt(end + 16) & 0xFFFFFFFFL;
+        if(count == 0xFFFF || directoryOffset == 0xFFFFFFFFL) {
+            throw new IOException("Zip64 jar file " + file + " is not supported");
+        }
+
+        if(directoryOffset + directorySize > end) {
+            throw new IOException("Jar file " + file + " is corrupted");
+        }
+
+        int capacity = Integer.highestOneBit(Math.max(count, 1) * 2 - 1) << 1;
+        int[] headers = new int[count];
+        int[] hashes = new int[count];
+        int[] table = new int[capacity];
+        int mask = capacity - 1;
+        int position = (int) directoryOffset;
+        int directoryEnd = (int) (directoryOffset + directorySize);
+
+        for(int i = 0; i < count; i++) {
+            if(position + CENTRAL_HEADER_SIZE > directoryEnd || buffer.getInt(position) != CENTRAL_SIGNATURE) {
+                throw new IOException("Jar file " + file + " is corrupted");
+            }
+
+            int nameLength = buffer.getShort(position + 28) & 0xFFFF;
+            int next = position + CENTRAL_HEADER_SIZE + nameLength
+                    + (buffer.getShort(position + 30) & 0xFFFF) + (buffer.getShort(position + 32) & 0xFFFF);
+            if(next > directoryEnd) {
+                throw new IOException("Jar file " + file + " is corrupted");
+            }
+
+            int hash = hash(buffer, position + CENTRAL_HEADER_SIZE, nameLength);
+            headers[i] = position;
+            hashes[i] = hash;
+
+            // first entry with duplicate name wins, like in ZipFile
+            int slot = hash & mask;
+            while(table[slot] != 0 && !isSameName(buffer, headers[table[slot] - 1], position)) {
+                slot = (slot + 1) & mask;
+            }
+
+            if(table[slot] == 0) {
+                table[slot] = i + 1;
+            }
+
+            position = next;
+        }
+
+        return new MappedJarFile(file, buffer, headers, hashes, table);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Number of entries in jar, including duplicates
+     */
+    public int size() {
+        return headers.length;
+    }
+
+    public boolean hasEntry(String name) {
+        return find(name) >= 0;
+    }
+
+    /**
+     * @return uncompressed size of entry, or -1 if there is no such entry
+     */
+    public long getSize(String name) {
+        int index = find(name);
+        return index >= 0 ? buffer.getInt(headers[index] + 24) & 0xFFFFFFFFL : -1;
+    }
+
+    /**
+     * Returns data of entry. Stored entry is returned as read-only slice of mapped region,
+     * deflated entry is inflated into new buffer
+     *
+     * @return data, or null if there is no such entry
+     */
+    public ByteBuffer getBuffer(String name) throws IOException {
+        int index = find(name);
+        if(index < 0) {
+            return null;
+        }
+
+        if(getMethod(index) == METHOD_STORED) {
+            return slice(index);
+        }
+
+        byte[] data = new byte[getUncompressedSize(index)];
+        inflate(index, data);
+        return ByteBuffer.wrap(data);
+    }
+
+    /**
+     * Opens stream of entry data. Deflated entry is inflated into pooled buffer,
+     * which is returned to pool when stream is closed
+     *
+     * @return stream, or null if there is no such entry
+     */
+    public InputStream getInputStream(String name) throws IOException {
+        int index = find(name);
+        if(index < 0) {
+            return null;
+        }
+
+        if(getMethod(index) == METHOD_STORED) {
+            return new ByteBufferInputStream(slice(index));
+        }
+
+        int size = getUncompressedSize(index);
+        byte[] data = bufferPool.take(size);
+        try {
+            inflate(index, data);
+        } catch (IOException e) {
+            bufferPool.give(data);
+            throw e;
+        }
+
+        return new PooledInputStream(data, size);
+    }
+
+    public Manifest getManifest() throws IOException {
+        InputStream stream = getInputStream(MANIFEST_NAME);
+        if(stream == null) {
+            return null;
+        }
+
+        try {
+            return new Manifest(stream);
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Names of all entries, in order of central directory
+     */
+    public String[] getNames() throws IOException {
+        String[] names = new String[headers.length];
+        byte[] name = new byte[256];
+
+        for(int i = 0; i < headers.length; i++) {
+            int length = buffer.getShort(headers[i] + 28) & 0xFFFF;
+            if(name.length < length) {
+                name = new byte[length];
+            }
+
+            ByteBuffer view = buffer.duplicate();
+            view.position(headers[i] + CENTRAL_HEADER_SIZE);
+            view.get(name, 0, length);
+            names[i] = new String(name, 0, length, "UTF-8");
+        }
+
+        return names;
+    }
+
+    /**
+     * Closed jar cannot be read anymore, but buffers and streams that were returned before stay valid
+     */
+    public void close() {
+        isClosed = true;
+    }
+
+    /**
+     * Maps whole file, mapping stays valid after file is closed
+     *
+     * @return mapped buffer, or null if process is out of address space or map slots and file should be read instead
+     */
+    private static ByteBuffer map(RandomAccessFile source, long length) throws IOException {
+        try {
+            return source.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+        } catch (IOException e) {
+            if(e.getCause() instanceof OutOfMemoryError) {
+                return null;
+            }
+
+            throw e;
+        }
+    }
+
+    private int find(String name) {
+        if(isClosed) {
+            return -1;
+        }
+
+        byte[] encoded = null;
+        int hash;
+
+        if(isAscii(name)) {
+            hash = hash(name);
+        } else {
+            try {
+                encoded = name.getBytes("UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+
+            hash = hash(ByteBuffer.wrap(encoded), 0, encoded.length);
+        }
+
+        int mask = table.length - 1;
+        for(int slot = hash & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int index = table[slot] - 1;
+            if(hashes[index] == hash && isName(headers[index], name, encoded)) {
+                return index;
+            }
+        }
+
+        return -1;
+    }
+
+    private boolean isName(int header, String name, byte[] encoded) {
+        int length = buffer.getShort(header + 28) & 0xFFFF;
+        int offset = header + CENTRAL_HEADER_SIZE;
+
+        if(encoded != null) {
+            if(length != encoded.length) {
+                return false;
+            }
+
+            for(int i = 0; i < length; i++) {
+                if(buffer.get(offset + i) != encoded[i]) {
+                    return false;
+                }
+            }
+        } else {
+            if(length != name.length()) {
+                return false;
+            }
+
+            for(int i = 0; i < length; i++) {
+                if(buffer.get(offset + i) != (byte) name.charAt(i)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private int getMethod(int index) throws IOException {
+        int header = headers[index];
+        int method = buffer.getShort(header + 10) & 0xFFFF;
+
+        if((buffer.getShort(header + 8) & FLAG_ENCRYPTED) != 0
+                || (method != METHOD_STORED && method != METHOD_DEFLATED)) {
+            throw new IOException("Entry of jar file " + file + " has unsupported compression");
+        }
+
+        return method;
+    }
+
+    private int getUncompressedSize(int index) throws IOException {
+        long size = buffer.getInt(headers[index] + 24) & 0xFFFFFFFFL;
+        if(size > Integer.MAX_VALUE) {
+            throw new IOException("Entry of jar file " + file + " is too large");
+        }
+
+        return (int) size;
+    }
+
+    /**
+     * Returns compressed data of entry as slice of mapped region
+     */
+    private ByteBuffer slice(int index) throws IOException {
+        int header = headers[index];
+        long compressedSize = buffer.getInt(header + 20) & 0xFFFFFFFFL;
+        long localHeader = buffer.getInt(header + 42) & 0xFFFFFFFFL;
+
+        if(localHeader + LOCAL_HEADER_SIZE > buffer.limit() || buffer.getInt((int) localHeader) != LOCAL_SIGNATURE) {
+            throw new IOException("Jar file " + file + " is corrupted");
+        }
+
+        // local header can have its own extra field, so data offset is taken from it
+        long dataOffset = localHeader + LOCAL_HEADER_SIZE + (buffer.getShort((int) localHeader + 26) & 0xFFFF)
+                + (buffer.getShort((int) localHeader + 28) & 0xFFFF);
+        if(dataOffset + compressedSize > buffer.limit()) {
+            throw new IOException("Jar file " + file + " is corrupted");
+        }
+
+        ByteBuffer view = buffer.duplicate();
+        view.limit((int) (dataOffset + compressedSize));
+        view.position((int) dataOffset);
+        return view.slice();
+    }
+
+    /**
+     * Inflates data of entry into array, size of data is taken from central directory
+     */
+    private void inflate(int index, byte[] target) throws IOException {
+        ByteBuffer source = slice(index);
+        int size = getUncompressedSize(index);
+        Inflater inflater = inflaters.get();
+        byte[] input = bufferPool.take(Math.min(source.remaining(), 16 * 1024));
+
+        inflater.reset();
+        try {
+            int inflated = 0;
+            boolean isPadded = false;
+            while(inflated < size && !inflater.finished()) {
+                if(inflater.needsInput()) {
+                    if(!source.hasRemaining()) {
+                        if(isPadded) {
+                            break;
+                        }
+
+                        // inflater of raw deflate can require one more byte to finish
+                        input[0] = 0;
+                        inflater.setInput(input, 0, 1);
+                        isPadded = true;
+                    } else {
+                        int chunk = Math.min(input.length, source.remaining());
+                        source.get(input, 0, chunk);
+                        inflater.setInput(input, 0, chunk);
+                    }
+                }
+
+                int read = inflater.inflate(target, inflated, size - inflated);
+                if(read == 0 && inflater.needsDictionary()) {
+                    break;
+                }
+
+                inflated += read;
+            }
+
+            if(inflated != size) {
+                throw new IOException("Entry of jar file " + file + " is corrupted");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Entry of jar file " + file + " is corrupted: " + e.getMessage());
+        } finally {
+            bufferPool.give(input);
+        }
+    }
+
+    /**
+     * Finds end of central directory record, which is followed only by archive comment
+     *
+     * @return its offset, or -1 if it is not found
+     */
+    private static int findEnd(ByteBuffer buffer) {
+        int limit = buffer.limit();
+        int lowest = Math.max(0, limit - END_SIZE - MAX_COMMENT_SIZE);
+
+        for(int position = limit - END_SIZE; position >= lowest; position--) {
+            if(buffer.getInt(position) == END_SIGNATURE
+                    && position + END_SIZE + (buffer.getShort(position + 20) & 0xFFFF) == limit) {
+                return position;
+            }
+        }
+
+        return -1;
+    }
+
+    private static boolean isSameName(ByteBuffer buffer, int header, int otherHeader) {
+        int length = buffer.getShort(header + 28) & 0xFFFF;
+        if(length != (buffer.getShort(otherHeader + 28) & 0xFFFF)) {
+            return false;
+        }
+
+        for(int i = 0; i < length; i++) {
+            if(buffer.get(header + CENTRAL_HEADER_SIZE + i) != buffer.get(otherHeader + CENTRAL_HEADER_SIZE + i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isAscii(String name) {
+        for(int i = 0; i < name.length(); i++) {
+            if(name.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * FNV-1a hash of name bytes, ascii name is hashed the same as its bytes
+     */
+    private static int hash(String name) {
+        int hash = 0x811C9DC5;
+        for(int i = 0; i < name.length(); i++) {
+            hash = (hash ^ name.charAt(i)) * 0x01000193;
+        }
+
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int hash(ByteBuffer buffer, int offset, int length) {
+        int hash = 0x811C9DC5;
+        for(int i = 0; i < length; i++) {
+            hash = (hash ^ (buffer.get(offset + i) & 0xFF)) * 0x01000193;
+        }
+
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Stream over pooled buffer, which is returned to pool on close
+     */
+    private static class PooledInputStream extends ByteArrayInputStream {
+
+        private boolean isClosed;
+
+        PooledInputStream(byte[] data, int length) {
+            super(data, 0, length);
+        }
+
+        @Override
+        public synchronized void close() {
+            if(!isClosed) {
+                isClosed = true;
+                // stream reads nothing after close, since buffer can be used by somebody else
+                pos = count;
+                bufferPool.give(buf);
+            }
+        }
+
+        @Override
+        public synchronized int read() {
+            return isClosed ? -1 : super.read();
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return isClosed ? -1 : super.read(b, off, len);
+        }
+    }
+
+    /**
+     * Arrays of power of two sizes, that are reused for inflated entries
+     */
+    private static class BufferPool {
+
+        private static final int MIN_SIZE_SHIFT = 10;
+        private static final int MAX_SIZE_SHIFT = 20;
+        private static final int MAX_BUFFERS = 8;
+
+        private final List<List<byte[]>> buckets;
+
+        BufferPool() {
+            buckets = new ArrayList<List<byte[]>>();
+            for(int shift = MIN_SIZE_SHIFT; shift <= MAX_SIZE_SHIFT; shift++) {
+                buckets.add(new ArrayList<byte[]>());
+            }
+        }
+
+        byte[] take(int size) {
+            int shift = getShift(size);
+            if(shift > MAX_SIZE_SHIFT) {
+                return new byte[size];
+            }
+
+            List<byte[]> bucket = buckets.get(shift - MIN_SIZE_SHIFT);
+            synchronized (bucket) {
+                if(!bucket.isEmpty()) {
+                    return bucket.remove(bucket.size() - 1);
+                }
+            }
+
+            return new byte[1 << shift];
+        }
+
+        void give(byte[] buffer) {
+            int shift = getShift(buffer.length);
+            if(shift > MAX_SIZE_SHIFT || buffer.length != 1 << shift) {
+                return;
+            }
+
+            List<byte[]> bucket = buckets.get(shift - MIN_SIZE_SHIFT);
+            synchronized (bucket) {
+                if(bucket.size() < MAX_BUFFERS) {
+                    bucket.add(buffer);
+                }
+            }
+        }
+
+        private static int getShift(int size) {
+            return Math.max(MIN_SIZE_SHIFT, 32 - Integer.numberOfLeadingZeros(Math.max(size, 1) - 1));
+        }
+    }
+}
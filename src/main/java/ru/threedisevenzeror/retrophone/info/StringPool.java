@@ -0,0 +1,54 @@
+package ru.threedisevenzeror.retrophone.info;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Pool of attribute values that repeat across many suites, such as profiles, configurations and versions.<br/>
+ * <br/>
+ * Only short strings are pooled, since long values such as descriptions are rarely shared.
+ * Pool stops growing once it is full, strings that are not pooled are returned as is.
+ */
+final class StringPool {
+
+    private static final int MAX_LENGTH = 48;
+    private static final int MAX_SIZE = 64 * 1024;
+
+    private static final StringPool shared = new StringPool();
+
+    private final ConcurrentMap<String, String> strings;
+
+    private StringPool() {
+        this.strings = new ConcurrentHashMap<String, String>();
+    }
+
+    static StringPool getShared() {
+        return shared;
+    }
+
+    /**
+     * @return pooled instance of string, or string itself if it is not pooled
+     */
+    String intern(String value) {
+        if(value == null || value.length() > MAX_LENGTH) {
+            return value;
+        }
+
+        String pooled = strings.get(value);
+        if(pooled != null) {
+            return pooled;
+        }
+
+        if(strings.size() >= MAX_SIZE) {
+            return value;
+        }
+
+        pooled = strings.putIfAbsent(value, value);
+        return pooled != null ? pooled : value;
+    }
+
+    int size() {
+        return strings.size();
+    }
+}
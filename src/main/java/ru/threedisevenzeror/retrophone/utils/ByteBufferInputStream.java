@@ -0,0 +1,50 @@
+package ru.threedisevenzeror.retrophone.utils;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Stream over remaining data of buffer, which is read in place without copying.
+ * Position of buffer is advanced as stream is read
+ */
+public class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    public ByteBufferInputStream(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+        return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if(len == 0) {
+            return 0;
+        }
+
+        if(!buffer.hasRemaining()) {
+            return -1;
+        }
+
+        int chunk = Math.min(len, buffer.remaining());
+        buffer.get(b, off, chunk);
+        return chunk;
+    }
+
+    @Override
+    public long skip(long n) {
+        int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+        buffer.position(buffer.position() + skipped);
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+}
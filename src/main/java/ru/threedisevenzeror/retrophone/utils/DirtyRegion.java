@@ -0,0 +1,144 @@
+package ru.threedisevenzeror.retrophone.utils;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Bounding rectangle of changed area of some surface.
+ * Renderer includes every changed rectangle, presenter takes accumulated bounds and pushes only them to the screen.<br/>
+ * <br/>
+ * Area copied within the surface is kept apart as a single pending copy, when its source is not changed
+ * since the last presentation. Presenter that takes the copy with {@link #takeCopy(int[])} moves pixels
+ * that are already on the screen and then repaints only changed bounds, e.g. the strip exposed by scrolling.
+ * Otherwise copied area is a part of changed bounds.
+ */
+public class DirtyRegion {
+
+    private int left;
+    private int top;
+    private int right;
+    private int bottom;
+
+    // pending copy, destination edges are exclusive, empty if there is no copy
+    private int copySourceLeft;
+    private int copySourceTop;
+    private int copyLeft;
+    private int copyTop;
+    private int copyRight;
+    private int copyBottom;
+
+    /**
+     * Is there neither changed area nor pending copy
+     */
+    public synchronized boolean isEmpty() {
+        return !hasBounds() && !hasCopy();
+    }
+
+    /**
+     * Extends region to include specified rectangle, right and bottom edges are exclusive
+     */
+    public synchronized void include(int left, int top, int right, int bottom) {
+        if(left >= right || top >= bottom) {
+            return;
+        }
+
+        if(!hasBounds()) {
+            this.left = left;
+            this.top = top;
+            this.right = right;
+            this.bottom = bottom;
+        } else {
+            this.left = Math.min(this.left, left);
+            this.top = Math.min(this.top, top);
+            this.right = Math.max(this.right, right);
+            this.bottom = Math.max(this.bottom, bottom);
+        }
+    }
+
+    /**
+     * Records that area at source position was copied to specified rectangle of the same surface,
+     * right and bottom edges are exclusive. Copy is kept apart from changed bounds if there is no other
+     * pending copy and its source is not changed, otherwise destination is included to changed bounds
+     */
+    public synchronized void includeCopy(int sourceLeft, int sourceTop, int left, int top, int right, int bottom) {
+        if(left >= right || top >= bottom) {
+            return;
+        }
+
+        int sourceRight = sourceLeft + right - left;
+        int sourceBottom = sourceTop + bottom - top;
+        boolean isSourceChanged = hasBounds() && sourceLeft < this.right && this.left < sourceRight
+                && sourceTop < this.bottom && this.top < sourceBottom;
+
+        if(hasCopy() || isSourceChanged) {
+            include(left, top, right, bottom);
+        } else {
+            copySourceLeft = sourceLeft;
+            copySourceTop = sourceTop;
+            copyLeft = left;
+            copyTop = top;
+            copyRight = right;
+            copyBottom = bottom;
+        }
+    }
+
+    /**
+     * Stores pending copy as {sourceX, sourceY, x, y, width, height} to copy array and clears it.
+     * Copy should be applied to the screen before changed bounds are repainted
+     *
+     * @return false if there is no pending copy, array is not modified in this case
+     */
+    public synchronized boolean takeCopy(int[] copy) {
+        if(!hasCopy()) {
+            return false;
+        }
+
+        copy[0] = copySourceLeft;
+        copy[1] = copySourceTop;
+        copy[2] = copyLeft;
+        copy[3] = copyTop;
+        copy[4] = copyRight - copyLeft;
+        copy[5] = copyBottom - copyTop;
+        clearCopy();
+        return true;
+    }
+
+    /**
+     * Stores region as {x, y, width, height} to bounds array and clears it.
+     * Copy that is not taken with {@link #takeCopy(int[])} is included to bounds
+     *
+     * @return false if region was empty, bounds are not modified in this case
+     */
+    public synchronized boolean takeBounds(int[] bounds) {
+        if(hasCopy()) {
+            include(copyLeft, copyTop, copyRight, copyBottom);
+            clearCopy();
+        }
+
+        if(!hasBounds()) {
+            return false;
+        }
+
+        bounds[0] = left;
+        bounds[1] = top;
+        bounds[2] = right - left;
+        bounds[3] = bottom - top;
+        clear();
+        return true;
+    }
+
+    public synchronized void clear() {
+        left = top = right = bottom = 0;
+        clearCopy();
+    }
+
+    private boolean hasBounds() {
+        return left < right && top < bottom;
+    }
+
+    private boolean hasCopy() {
+        return copyLeft < copyRight && copyTop < copyBottom;
+    }
+
+    private void clearCopy() {
+        copySourceLeft = copySourceTop = copyLeft = copyTop = copyRight = copyBottom = 0;
+    }
+}
@@ -0,0 +1,107 @@
+package ru.threedisevenzeror.retrophone.utils;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Helpers for the eight MIDP2 image transforms.
+ * Constant values are the same as in javax.microedition.lcdui.game.Sprite<br/>
+ * <br/>
+ * Every transform is described as a walk over the source pixels: starting index,
+ * step between adjacent destination columns and step between adjacent destination rows,
+ * so blitting loops don't have to compute source coordinates for every pixel.
+ */
+public final class ImageTransform {
+
+    public static final int TRANS_NONE = 0;
+    public static final int TRANS_MIRROR_ROT180 = 1;
+    public static final int TRANS_MIRROR = 2;
+    public static final int TRANS_ROT180 = 3;
+    public static final int TRANS_MIRROR_ROT270 = 4;
+    public static final int TRANS_ROT90 = 5;
+    public static final int TRANS_ROT270 = 6;
+    public static final int TRANS_MIRROR_ROT90 = 7;
+
+    // column and row steps, expressed as (pixel step, scanline step) pairs
+    private static final int[] COLUMN_PIXEL_STEP = { 1, 1, -1, -1, 0, 0, 0, 0 };
+    private static final int[] COLUMN_SCAN_STEP = { 0, 0, 0, 0, 1, -1, 1, -1 };
+    private static final int[] ROW_PIXEL_STEP = { 0, 0, 0, 0, 1, 1, -1, -1 };
+    private static final int[] ROW_SCAN_STEP = { 1, -1, 1, -1, 0, 0, 0, 0 };
+
+    private ImageTransform() {
+    }
+
+    public static boolean isValid(int transform) {
+        return transform >= TRANS_NONE && transform <= TRANS_MIRROR_ROT90;
+    }
+
+    /**
+     * Is width and height of region are swapped after this transform
+     */
+    public static boolean isAxisSwapped(int transform) {
+        return transform >= TRANS_MIRROR_ROT270;
+    }
+
+    public static int getTransformedWidth(int transform, int width, int height) {
+        return isAxisSwapped(transform) ? height : width;
+    }
+
+    public static int getTransformedHeight(int transform, int width, int height) {
+        return isAxisSwapped(transform) ? width : height;
+    }
+
+    /**
+     * Index of source pixel that lands on the top left corner of transformed region
+     */
+    public static int getStartIndex(int transform, int offset, int scanlength, int width, int height) {
+        int x = (COLUMN_PIXEL_STEP[transform] < 0 || ROW_PIXEL_STEP[transform] < 0) ? width - 1 : 0;
+        int y = (COLUMN_SCAN_STEP[transform] < 0 || ROW_SCAN_STEP[transform] < 0) ? height - 1 : 0;
+        return offset + y * scanlength + x;
+    }
+
+    /**
+     * Difference between source indices of two horizontally adjacent destination pixels
+     */
+    public static int getColumnStep(int transform, int scanlength) {
+        return COLUMN_PIXEL_STEP[transform] + COLUMN_SCAN_STEP[transform] * scanlength;
+    }
+
+    /**
+     * Difference between source indices of two vertically adjacent destination pixels
+     */
+    public static int getRowStep(int transform, int scanlength) {
+        return ROW_PIXEL_STEP[transform] + ROW_SCAN_STEP[transform] * scanlength;
+    }
+
+    /**
+     * Copies width x height region from src to dst applying specified transform.
+     * Destination receives transformed region, so its dimensions are swapped for rotations by 90 and 270 degrees
+     */
+    public static void transform(int[] src, int srcOffset, int srcScanlength, int width, int height,
+                                 int transform, int[] dst, int dstOffset, int dstScanlength) {
+
+        int dstWidth = getTransformedWidth(transform, width, height);
+        int dstHeight = getTransformedHeight(transform, width, height);
+        int columnStep = getColumnStep(transform, srcScanlength);
+        int rowStep = getRowStep(transform, srcScanlength);
+        int rowStart = getStartIndex(transform, srcOffset, srcScanlength, width, height);
+
+        if(columnStep == 1) {
+            for(int y = 0; y < dstHeight; y++) {
+                System.arraycopy(src, rowStart, dst, dstOffset + y * dstScanlength, dstWidth);
+                rowStart += rowStep;
+            }
+        } else {
+            for(int y = 0; y < dstHeight; y++) {
+                int s = rowStart;
+                int d = dstOffset + y * dstScanlength;
+                int end = d + dstWidth;
+
+                while (d < end) {
+                    dst[d++] = src[s];
+                    s += columnStep;
+                }
+
+                rowStart += rowStep;
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package ru.threedisevenzeror.retrophone.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Pressed state of game actions, that can be polled instead of handling key events.<br/>
+ * <br/>
+ * Bit number n is set when game action n is pressed. Low half of the state holds keys that are currently held,
+ * high half holds keys that were pressed since last poll, so short taps between two polls are not lost.
+ * Both halves live in one atomic integer, so input thread and game loop never see torn state.
+ */
+public class KeyStateTracker {
+
+    private static final int LATCH_SHIFT = 16;
+    private static final int STATE_MASK = 0xFFFF;
+
+    private final AtomicInteger state = new AtomicInteger();
+    private volatile boolean suppressEvents;
+
+    public void press(int gameAction) {
+        if(isTracked(gameAction)) {
+            int bit = 1 << gameAction;
+            int current;
+
+            do {
+                current = state.get();
+            } while (!state.compareAndSet(current, current | bit | (bit << LATCH_SHIFT)));
+        }
+    }
+
+    public void release(int gameAction) {
+        if(isTracked(gameAction)) {
+            int bit = 1 << gameAction;
+            int current;
+
+            do {
+                current = state.get();
+            } while (!state.compareAndSet(current, current & ~bit));
+        }
+    }
+
+    /**
+     * Returns keys that are held or were pressed since last call, and clears pressed keys latch
+     */
+    public int poll() {
+        int current;
+
+        do {
+            current = state.get();
+        } while (!state.compareAndSet(current, current & STATE_MASK));
+
+        return (current | (current >>> LATCH_SHIFT)) & STATE_MASK;
+    }
+
+    public void reset() {
+        state.set(0);
+    }
+
+    /**
+     * Should key events for game actions be suppressed, their state is tracked anyway
+     */
+    public void setSuppressEvents(boolean suppressEvents) {
+        this.suppressEvents = suppressEvents;
+    }
+
+    public boolean isSuppressEvents() {
+        return suppressEvents;
+    }
+
+    /**
+     * Should key event with specified game action be delivered to the canvas
+     */
+    public boolean shouldDispatch(int gameAction) {
+        return !suppressEvents || gameAction == 0;
+    }
+
+    private static boolean isTracked(int gameAction) {
+        return gameAction > 0 && gameAction < LATCH_SHIFT;
+    }
+}
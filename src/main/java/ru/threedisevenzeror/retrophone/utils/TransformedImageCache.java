@@ -0,0 +1,152 @@
+package ru.threedisevenzeror.retrophone.utils;
+
+import javax.microedition.lcdui.Image;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * LRU cache of transformed regions of small immutable images.
+ * Immutable images never change, so once region is transformed it can be reused by every following blit.
+ * Total amount of cached pixels is limited, least recently used regions are evicted first.
+ */
+public class TransformedImageCache {
+
+    public static final TransformedImageCache instance = new TransformedImageCache(256 * 1024, 128 * 128);
+
+    private static class Key {
+
+        private final Image.Impl image;
+        private final int x;
+        private final int y;
+        private final int width;
+        private final int height;
+        private final int transform;
+
+        Key(Image.Impl image, int x, int y, int width, int height, int transform) {
+            this.image = image;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.transform = transform;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(!(o instanceof Key)) {
+                return false;
+            }
+
+            Key key = (Key) o;
+            return image == key.image && x == key.x && y == key.y &&
+                    width == key.width && height == key.height && transform == key.transform;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(image);
+            result = 31 * result + x;
+            result = 31 * result + y;
+            result = 31 * result + width;
+            result = 31 * result + height;
+            result = 31 * result + transform;
+            return result;
+        }
+    }
+
+    private final LinkedHashMap<Key, int[]> entries;
+    private int maxPixels;
+    private int maxImagePixels;
+    private int cachedPixels;
+
+    public TransformedImageCache(int maxPixels, int maxImagePixels) {
+        this.entries = new LinkedHashMap<Key, int[]>(64, 0.75f, true);
+        this.maxPixels = maxPixels;
+        this.maxImagePixels = maxImagePixels;
+    }
+
+    /**
+     * Can regions of this image be cached
+     */
+    public boolean isCacheable(Image.Impl image) {
+        return !image.isMutable() && image.getWidth() * image.getHeight() <= maxImagePixels;
+    }
+
+    /**
+     * Returns transformed pixels of specified region, scanline of returned data is equal to transformed width.
+     * Returned array is shared and must not be modified.
+     *
+     * @return transformed pixels, or null if image is not cacheable
+     */
+    public int[] getTransformedRegion(Image.Impl image, int x, int y, int width, int height, int transform) {
+
+        if(!isCacheable(image)) {
+            return null;
+        }
+
+        Key key = new Key(image, x, y, width, height, transform);
+
+        synchronized (this) {
+            int[] pixels = entries.get(key);
+            if(pixels != null) {
+                return pixels;
+            }
+        }
+
+        int[] region = new int[width * height];
+        image.getRGB(region, 0, width, x, y, width, height);
+
+        int[] pixels;
+        if(transform == ImageTransform.TRANS_NONE) {
+            pixels = region;
+        } else {
+            pixels = new int[region.length];
+            ImageTransform.transform(region, 0, width, width, height, transform, pixels, 0,
+                    ImageTransform.getTransformedWidth(transform, width, height));
+        }
+
+        synchronized (this) {
+            int[] previous = entries.put(key, pixels);
+            if(previous != null) {
+                cachedPixels -= previous.length;
+            }
+
+            cachedPixels += pixels.length;
+            trim();
+        }
+
+        return pixels;
+    }
+
+    public synchronized void setMaxPixels(int maxPixels) {
+        this.maxPixels = maxPixels;
+        trim();
+    }
+
+    public synchronized int getMaxPixels() {
+        return maxPixels;
+    }
+
+    public synchronized void setMaxImagePixels(int maxImagePixels) {
+        this.maxImagePixels = maxImagePixels;
+    }
+
+    public synchronized int getCachedPixels() {
+        return cachedPixels;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        cachedPixels = 0;
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<Key, int[]>> iterator = entries.entrySet().iterator();
+        while (cachedPixels > maxPixels && iterator.hasNext()) {
+            cachedPixels -= iterator.next().getValue().length;
+            iterator.remove();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package javax.microedition.lcdui;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import ru.threedisevenzeror.retrophone.RetroDevice;
+import ru.threedisevenzeror.retrophone.impl.software.SoftwareGraphicsDevice;
+import ru.threedisevenzeror.retrophone.utils.ImageTransform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Every transform is compared with a reference blit that maps each pixel by formulas of MIDP specification
+ */
+public class DrawRegionTest {
+
+    private static final int[] TRANSFORMS = {
+            ImageTransform.TRANS_NONE, ImageTransform.TRANS_MIRROR_ROT180, ImageTransform.TRANS_MIRROR,
+            ImageTransform.TRANS_ROT180, ImageTransform.TRANS_MIRROR_ROT270, ImageTransform.TRANS_ROT90,
+            ImageTransform.TRANS_ROT270, ImageTransform.TRANS_MIRROR_ROT90
+    };
+
+    private static final int SOURCE_WIDTH = 7;
+    private static final int SOURCE_HEIGHT = 6;
+    private static final int TARGET_SIZE = 12;
+
+    // region is not square and not at origin, so swapped or shifted coordinates are noticed
+    private static final int REGION_X = 2;
+    private static final int REGION_Y = 1;
+    private static final int REGION_WIDTH = 4;
+    private static final int REGION_HEIGHT = 3;
+
+    private int[] sourcePixels;
+
+    @Before
+    public void setUp() {
+        new RetroDevice.Builder().graphicsDevice(new SoftwareGraphicsDevice(null)).createDeviceInstance();
+
+        sourcePixels = new int[SOURCE_WIDTH * SOURCE_HEIGHT];
+        for(int i = 0; i < sourcePixels.length; i++) {
+            sourcePixels[i] = 0xFF000000 | (i + 1) * 0x010305;
+        }
+    }
+
+    @After
+    public void tearDown() {
+        RetroDevice.removeInstance();
+    }
+
+    @Test
+    public void mutableImageRegionMatchesReference() {
+        assertTransforms(createMutableSource());
+    }
+
+    @Test
+    public void immutableImageRegionMatchesReference() {
+        // small immutable images are drawn from transformed region cache
+        assertTransforms(Image.createImage(createMutableSource()));
+    }
+
+    @Test
+    public void otherImageImplementationMatchesReference() {
+        // images of other implementations are drawn with generic blit of base class
+        assertTransforms(new Image(new Image.Impl() {
+            public boolean isMutable() {
+                return false;
+            }
+
+            public int getHeight() {
+                return SOURCE_HEIGHT;
+            }
+
+            public int getWidth() {
+                return SOURCE_WIDTH;
+            }
+
+            public void getRGB(int[] rgbData, int offset, int scanlength, int x, int y, int width, int height) {
+                for(int row = 0; row < height; row++) {
+                    System.arraycopy(sourcePixels, (y + row) * SOURCE_WIDTH + x, rgbData, offset + row * scanlength, width);
+                }
+            }
+        }));
+    }
+
+    @Test
+    public void anchorIsAppliedToTransformedSize() {
+        Image source = createMutableSource();
+
+        for(int transform : TRANSFORMS) {
+            Image target = Image.createImage(TARGET_SIZE, TARGET_SIZE);
+            target.getGraphics().drawRegion(source, REGION_X, REGION_Y, REGION_WIDTH, REGION_HEIGHT, transform,
+                    10, 9, Graphics.BOTTOM | Graphics.RIGHT);
+
+            int width = ImageTransform.getTransformedWidth(transform, REGION_WIDTH, REGION_HEIGHT);
+            int height = ImageTransform.getTransformedHeight(transform, REGION_WIDTH, REGION_HEIGHT);
+            assertEquals(reference(transform, 10 - width, 9 - height), getPixels(target));
+        }
+    }
+
+    @Test
+    public void regionCannotBeDrawnToItsOwnImage() {
+        Image image = createMutableSource();
+
+        try {
+            image.getGraphics().drawRegion(image, 0, 0, 2, 2, ImageTransform.TRANS_ROT90, 4, 0,
+                    Graphics.TOP | Graphics.LEFT);
+            fail("Region is drawn to its own image");
+        } catch (IllegalArgumentException expected) {
+            // source is destination
+        }
+    }
+
+    private void assertTransforms(Image source) {
+        for(int transform : TRANSFORMS) {
+            Image target = Image.createImage(TARGET_SIZE, TARGET_SIZE);
+            Graphics graphics = target.getGraphics();
+            graphics.translate(1, 2);
+            graphics.drawRegion(source, REGION_X, REGION_Y, REGION_WIDTH, REGION_HEIGHT, transform,
+                    2, 3, Graphics.TOP | Graphics.LEFT);
+
+            assertEquals("transform " + transform, reference(transform, 3, 5), getPixels(target));
+        }
+    }
+
+    private Image createMutableSource() {
+        Image image = Image.createImage(SOURCE_WIDTH, SOURCE_HEIGHT);
+        image.getGraphics().drawRGB(sourcePixels, 0, SOURCE_WIDTH, 0, 0, SOURCE_WIDTH, SOURCE_HEIGHT, false);
+        return image;
+    }
+
+    /**
+     * Target image after region is drawn with its top left corner at specified point
+     */
+    private String reference(int transform, int left, int top) {
+        int[] target = new int[TARGET_SIZE * TARGET_SIZE];
+        int width = ImageTransform.getTransformedWidth(transform, REGION_WIDTH, REGION_HEIGHT);
+        int height = ImageTransform.getTransformedHeight(transform, REGION_WIDTH, REGION_HEIGHT);
+        int w = REGION_WIDTH;
+        int h = REGION_HEIGHT;
+
+        for(int y = 0; y < height; y++) {
+            for(int x = 0; x < width; x++) {
+                int sourceX;
+                int sourceY;
+
+                switch (transform) {
+                    case ImageTransform.TRANS_NONE: sourceX = x; sourceY = y; break;
+                    case ImageTransform.TRANS_MIRROR: sourceX = w - 1 - x; sourceY = y; break;
+                    case ImageTransform.TRANS_MIRROR_ROT180: sourceX = x; sourceY = h - 1 - y; break;
+                    case ImageTransform.TRANS_ROT180: sourceX = w - 1 - x; sourceY = h - 1 - y; break;
+                    case ImageTransform.TRANS_ROT90: sourceX = y; sourceY = h - 1 - x; break;
+                    case ImageTransform.TRANS_ROT270: sourceX = w - 1 - y; sourceY = x; break;
+                    case ImageTransform.TRANS_MIRROR_ROT90: sourceX = w - 1 - y; sourceY = h - 1 - x; break;
+                    case ImageTransform.TRANS_MIRROR_ROT270: sourceX = y; sourceY = x; break;
+                    default: throw new IllegalArgumentException("Unknown transform " + transform);
+                }
+
+                target[(top + y) * TARGET_SIZE + left + x] =
+                        sourcePixels[(REGION_Y + sourceY) * SOURCE_WIDTH + REGION_X + sourceX];
+            }
+        }
+
+        return format(target);
+    }
+
+    private static String getPixels(Image image) {
+        int[] pixels = new int[TARGET_SIZE * TARGET_SIZE];
+        image.getRGB(pixels, 0, TARGET_SIZE, 0, 0, TARGET_SIZE, TARGET_SIZE);
+        return format(pixels);
+    }
+
+    /**
+     * Pixels as text, so failed comparison shows the whole picture. Color of untouched pixels is ignored
+     */
+    private static String format(int[] pixels) {
+        StringBuilder builder = new StringBuilder();
+        for(int y = 0; y < TARGET_SIZE; y++) {
+            for(int x = 0; x < TARGET_SIZE; x++) {
+                int pixel = pixels[y * TARGET_SIZE + x];
+                builder.append(pixel >>> 24 == 0xFF && (pixel & 0xFFFFFF) != 0xFFFFFF
+                        ? String.format("%6X ", pixel & 0xFFFFFF) : "     . ");
+            }
+
+            builder.append('\n');
+        }
+
+        return builder.toString();
+    }
+}
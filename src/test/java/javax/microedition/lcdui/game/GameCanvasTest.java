@@ -0,0 +1,166 @@
+package javax.microedition.lcdui.game;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import ru.threedisevenzeror.retrophone.RetroDevice;
+import ru.threedisevenzeror.retrophone.impl.GenericInputDevice;
+import ru.threedisevenzeror.retrophone.impl.software.SoftwareGraphicsDevice;
+
+import javax.microedition.lcdui.Canvas;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ */
+public class GameCanvasTest {
+
+    private static final int UP_KEY = Canvas.KEY_NUM2;
+    private static final int FIRE_KEY = Canvas.KEY_NUM5;
+
+    private TestCanvas canvas;
+    private Canvas.CanvasDelegate delegate;
+
+    @Before
+    public void setUp() {
+        new RetroDevice.Builder()
+                .graphicsDevice(new SoftwareGraphicsDevice(null))
+                .inputDevice(new GenericInputDevice.Builder().create())
+                .createDeviceInstance();
+    }
+
+    @After
+    public void tearDown() {
+        RetroDevice.removeInstance();
+    }
+
+    @Test
+    public void heldKeyIsReportedUntilReleased() {
+        show(true);
+
+        delegate.notifyKeyPressed(UP_KEY);
+        assertEquals(GameCanvas.UP_PRESSED, canvas.getKeyStates());
+        assertEquals(GameCanvas.UP_PRESSED, canvas.getKeyStates());
+
+        delegate.notifyKeyPressed(FIRE_KEY);
+        assertEquals(GameCanvas.UP_PRESSED | GameCanvas.FIRE_PRESSED, canvas.getKeyStates());
+
+        delegate.notifyKeyReleased(UP_KEY);
+        assertEquals(GameCanvas.FIRE_PRESSED, canvas.getKeyStates());
+        delegate.notifyKeyReleased(FIRE_KEY);
+        assertEquals(0, canvas.getKeyStates());
+    }
+
+    @Test
+    public void tapBetweenPollsIsLatchedOnce() {
+        show(true);
+
+        delegate.notifyKeyPressed(FIRE_KEY);
+        delegate.notifyKeyReleased(FIRE_KEY);
+        delegate.notifyKeyPressed(UP_KEY);
+        delegate.notifyKeyReleased(UP_KEY);
+
+        // latch is cleared by the first poll
+        assertEquals(GameCanvas.UP_PRESSED | GameCanvas.FIRE_PRESSED, canvas.getKeyStates());
+        assertEquals(0, canvas.getKeyStates());
+    }
+
+    @Test
+    public void keyPressedAgainBeforePollIsReportedAsHeld() {
+        show(true);
+
+        delegate.notifyKeyPressed(FIRE_KEY);
+        delegate.notifyKeyReleased(FIRE_KEY);
+        delegate.notifyKeyPressed(FIRE_KEY);
+
+        assertEquals(GameCanvas.FIRE_PRESSED, canvas.getKeyStates());
+        assertEquals(GameCanvas.FIRE_PRESSED, canvas.getKeyStates());
+        delegate.notifyKeyReleased(FIRE_KEY);
+        assertEquals(0, canvas.getKeyStates());
+    }
+
+    @Test
+    public void hiddenCanvasForgetsKeyStates() {
+        show(true);
+
+        delegate.notifyKeyPressed(UP_KEY);
+        delegate.notifyKeyPressed(FIRE_KEY);
+        delegate.notifyKeyReleased(FIRE_KEY);
+        delegate.notifyHide();
+
+        assertEquals(0, canvas.getKeyStates());
+    }
+
+    @Test
+    public void gameKeyEventsAreSuppressed() {
+        show(true);
+
+        delegate.notifyKeyPressed(FIRE_KEY);
+        delegate.notifyKeyRepeated(FIRE_KEY);
+        delegate.notifyKeyReleased(FIRE_KEY);
+        delegate.notifyKeyPressed(Canvas.KEY_STAR);
+        delegate.notifyKeyReleased(Canvas.KEY_STAR);
+
+        // keys without game action are always delivered, and game keys are tracked anyway
+        assertEquals(Arrays.asList("pressed " + Canvas.KEY_STAR, "released " + Canvas.KEY_STAR), canvas.events);
+        assertEquals(GameCanvas.FIRE_PRESSED, canvas.getKeyStates());
+    }
+
+    @Test
+    public void gameKeyEventsAreDeliveredWhenNotSuppressed() {
+        show(false);
+
+        delegate.notifyKeyPressed(FIRE_KEY);
+        delegate.notifyKeyRepeated(FIRE_KEY);
+        delegate.notifyKeyReleased(FIRE_KEY);
+
+        assertEquals(Arrays.asList("pressed " + FIRE_KEY, "repeated " + FIRE_KEY, "released " + FIRE_KEY),
+                canvas.events);
+        assertEquals(GameCanvas.FIRE_PRESSED, canvas.getKeyStates());
+        assertEquals(0, canvas.getKeyStates());
+    }
+
+    private void show(boolean suppressKeyEvents) {
+        canvas = new TestCanvas(suppressKeyEvents);
+        delegate = new Canvas.CanvasDelegate() {
+            public void repaint(int x, int y, int width, int height) {
+                // nothing to repaint
+            }
+
+            public void serviceRepaints() {
+                // nothing to service
+            }
+        };
+
+        canvas.attachDelegate(delegate);
+        delegate.notifyShow();
+    }
+
+    private static class TestCanvas extends GameCanvas {
+
+        private final List<String> events = new ArrayList<String>();
+
+        TestCanvas(boolean suppressKeyEvents) {
+            super(suppressKeyEvents);
+        }
+
+        @Override
+        protected void keyPressed(int keyCode) {
+            events.add("pressed " + keyCode);
+        }
+
+        @Override
+        protected void keyRepeated(int keyCode) {
+            events.add("repeated " + keyCode);
+        }
+
+        @Override
+        protected void keyReleased(int keyCode) {
+            events.add("released " + keyCode);
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package javax.microedition.lcdui.game;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import ru.threedisevenzeror.retrophone.RetroDevice;
+import ru.threedisevenzeror.retrophone.impl.software.SoftwareGraphicsDevice;
+
+import javax.imageio.ImageIO;
+import javax.microedition.lcdui.Image;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Pixel-level collisions are compared with a reference that maps every pixel back to its raw frame
+ * by formulas of MIDP specification and checks its opacity and collision rectangle one by one
+ */
+public class SpriteCollisionTest {
+
+    private static final int[] TRANSFORMS = {
+            Sprite.TRANS_NONE, Sprite.TRANS_MIRROR_ROT180, Sprite.TRANS_MIRROR, Sprite.TRANS_ROT180,
+            Sprite.TRANS_MIRROR_ROT270, Sprite.TRANS_ROT90, Sprite.TRANS_ROT270, Sprite.TRANS_MIRROR_ROT90
+    };
+
+    // frames are not square, so swapped axes are noticed
+    private static final int FRAME_WIDTH = 5;
+    private static final int FRAME_HEIGHT = 3;
+    private static final int FRAME_COUNT = 2;
+    private static final int OTHER_WIDTH = 4;
+    private static final int OTHER_HEIGHT = 6;
+    private static final int TILE_SIZE = 4;
+
+    private Random random;
+
+    @Before
+    public void setUp() {
+        new RetroDevice.Builder().graphicsDevice(new SoftwareGraphicsDevice(null)).createDeviceInstance();
+        random = new Random(1);
+    }
+
+    @After
+    public void tearDown() {
+        RetroDevice.removeInstance();
+    }
+
+    @Test
+    public void spritesCollideByOpaquePixelsInEveryTransform() throws Exception {
+        Frames first = new Frames(FRAME_WIDTH * FRAME_COUNT, FRAME_HEIGHT, FRAME_WIDTH, FRAME_HEIGHT);
+        Frames second = new Frames(OTHER_WIDTH, OTHER_HEIGHT, OTHER_WIDTH, OTHER_HEIGHT);
+        Sprite sprite = new Sprite(first.image, FRAME_WIDTH, FRAME_HEIGHT);
+        Sprite other = new Sprite(second.image);
+        sprite.setFrame(1);
+
+        assertSpriteCollisions(sprite, first, other, second);
+    }
+
+    @Test
+    public void collisionRectangleFollowsPixelData() throws Exception {
+        Frames first = new Frames(FRAME_WIDTH * FRAME_COUNT, FRAME_HEIGHT, FRAME_WIDTH, FRAME_HEIGHT);
+        Frames second = new Frames(OTHER_WIDTH, OTHER_HEIGHT, OTHER_WIDTH, OTHER_HEIGHT);
+        Sprite sprite = new Sprite(first.image, FRAME_WIDTH, FRAME_HEIGHT);
+        Sprite other = new Sprite(second.image);
+
+        // one rectangle is inside of frame, another one exceeds it, pixels outside of frame are transparent
+        sprite.defineCollisionRectangle(1, 0, 3, 2);
+        other.defineCollisionRectangle(-2, 1, 5, 8);
+        first.defineCollisionRectangle(1, 0, 3, 2);
+        second.defineCollisionRectangle(-2, 1, 5, 8);
+
+        assertSpriteCollisions(sprite, first, other, second);
+    }
+
+    @Test
+    public void spriteCollidesWithTiledLayerByOpaquePixels() throws Exception {
+        Frames first = new Frames(FRAME_WIDTH * FRAME_COUNT, FRAME_HEIGHT, FRAME_WIDTH, FRAME_HEIGHT);
+        Frames tiles = new Frames(TILE_SIZE * 3, TILE_SIZE, TILE_SIZE, TILE_SIZE);
+        Sprite sprite = new Sprite(first.image, FRAME_WIDTH, FRAME_HEIGHT);
+        TiledLayer layer = new TiledLayer(3, 2, tiles.image, TILE_SIZE, TILE_SIZE);
+        first.defineCollisionRectangle(0, 1, 4, 2);
+        sprite.defineCollisionRectangle(0, 1, 4, 2);
+
+        // cells are empty, static or animated
+        int animated = layer.createAnimatedTile(3);
+        layer.setCell(0, 0, 1);
+        layer.setCell(2, 0, animated);
+        layer.setCell(1, 1, 2);
+        layer.setCell(2, 1, 3);
+        layer.setPosition(2, 1);
+
+        for(int transform : TRANSFORMS) {
+            sprite.setTransform(transform);
+
+            for(int y = -4; y < 12; y++) {
+                for(int x = -6; x < 16; x++) {
+                    sprite.setPosition(x, y);
+
+                    Set<Integer> expected = first.getPixels(sprite, 0, transform);
+                    expected.retainAll(getPixels(layer, tiles));
+                    assertEquals("transform " + transform + " at " + x + "," + y,
+                            !expected.isEmpty(), sprite.collidesWith(layer, true));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void spriteCollidesWithImageByOpaquePixels() throws Exception {
+        Frames first = new Frames(FRAME_WIDTH * FRAME_COUNT, FRAME_HEIGHT, FRAME_WIDTH, FRAME_HEIGHT);
+        Frames second = new Frames(OTHER_WIDTH, OTHER_HEIGHT, OTHER_WIDTH, OTHER_HEIGHT);
+        Sprite sprite = new Sprite(first.image, FRAME_WIDTH, FRAME_HEIGHT);
+
+        for(int transform : TRANSFORMS) {
+            sprite.setTransform(transform);
+            sprite.setPosition(0, 0);
+
+            for(int y = -OTHER_HEIGHT; y <= FRAME_WIDTH; y++) {
+                for(int x = -OTHER_WIDTH; x <= FRAME_WIDTH; x++) {
+                    Set<Integer> expected = first.getPixels(sprite, 0, transform);
+                    expected.retainAll(second.getPixels(x, y, 0, Sprite.TRANS_NONE));
+                    assertEquals("transform " + transform + " at " + x + "," + y,
+                            !expected.isEmpty(), sprite.collidesWith(second.image, x, y, true));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void pixelsOfMutableImagesAreOpaque() {
+        Sprite sprite = new Sprite(Image.createImage(FRAME_WIDTH, FRAME_HEIGHT));
+        Sprite other = new Sprite(Image.createImage(OTHER_WIDTH, OTHER_HEIGHT));
+
+        for(int transform : TRANSFORMS) {
+            sprite.setTransform(transform);
+            sprite.setPosition(0, 0);
+
+            other.setPosition(sprite.getWidth() - 1, sprite.getHeight() - 1);
+            assertTrue(sprite.collidesWith(other, true));
+            other.setPosition(sprite.getWidth(), 0);
+            assertFalse(sprite.collidesWith(other, true));
+        }
+    }
+
+    @Test
+    public void invisibleSpritesDoNotCollide() throws Exception {
+        Sprite sprite = new Sprite(Image.createImage(FRAME_WIDTH, FRAME_HEIGHT));
+        Sprite other = new Sprite(Image.createImage(OTHER_WIDTH, OTHER_HEIGHT));
+        assertTrue(sprite.collidesWith(other, true));
+
+        other.setVisible(false);
+        assertFalse(sprite.collidesWith(other, true));
+        assertFalse(sprite.collidesWith(other, false));
+        assertFalse(other.collidesWith(sprite, true));
+    }
+
+    /**
+     * Every pair of transforms at every position where sprite bounds touch, checked both ways
+     */
+    private void assertSpriteCollisions(Sprite sprite, Frames first, Sprite other, Frames second) {
+        int frame = sprite.getFrame();
+
+        for(int transform : TRANSFORMS) {
+            sprite.setTransform(transform);
+            sprite.setPosition(0, 0);
+
+            for(int otherTransform : TRANSFORMS) {
+                other.setTransform(otherTransform);
+
+                for(int y = -OTHER_WIDTH - 3; y <= FRAME_WIDTH + 3; y++) {
+                    for(int x = -OTHER_WIDTH - 3; x <= FRAME_WIDTH + 3; x++) {
+                        other.setPosition(x, y);
+
+                        Set<Integer> expected = first.getPixels(sprite, frame, transform);
+                        expected.retainAll(second.getPixels(other, 0, otherTransform));
+                        String message = "transforms " + transform + ", " + otherTransform + " at " + x + "," + y;
+                        assertEquals(message, !expected.isEmpty(), sprite.collidesWith(other, true));
+                        assertEquals(message, !expected.isEmpty(), other.collidesWith(sprite, true));
+                    }
+                }
+            }
+        }
+    }
+
+    private static Set<Integer> getPixels(TiledLayer layer, Frames tiles) {
+        Set<Integer> pixels = new HashSet<Integer>();
+
+        for(int row = 0; row < layer.getRows(); row++) {
+            for(int col = 0; col < layer.getColumns(); col++) {
+                int tile = layer.getCell(col, row);
+                if(tile < 0) {
+                    tile = layer.getAnimatedTile(tile);
+                }
+
+                if(tile != 0) {
+                    pixels.addAll(tiles.getPixels(layer.getX() + col * TILE_SIZE, layer.getY() + row * TILE_SIZE,
+                            tile - 1, Sprite.TRANS_NONE));
+                }
+            }
+        }
+
+        return pixels;
+    }
+
+    private static int key(int x, int y) {
+        return (y + 1000) * 2000 + x + 1000;
+    }
+
+    /**
+     * Immutable image with random transparent pixels and its opacity, as reference sees it
+     */
+    private class Frames {
+
+        private final Image image;
+        private final boolean[] opaque;
+        private final int imageWidth;
+        private final int frameWidth;
+        private final int frameHeight;
+
+        private int collisionX;
+        private int collisionY;
+        private int collisionWidth;
+        private int collisionHeight;
+
+        Frames(int imageWidth, int imageHeight, int frameWidth, int frameHeight) throws Exception {
+            this.imageWidth = imageWidth;
+            this.frameWidth = frameWidth;
+            this.frameHeight = frameHeight;
+            this.opaque = new boolean[imageWidth * imageHeight];
+            defineCollisionRectangle(0, 0, frameWidth, frameHeight);
+
+            BufferedImage decoded = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_ARGB);
+            for(int y = 0; y < imageHeight; y++) {
+                for(int x = 0; x < imageWidth; x++) {
+                    // translucent pixels are opaque for collisions too
+                    int alpha = random.nextInt(3) == 0 ? 0 : random.nextBoolean() ? 0xFF : 0x40;
+                    opaque[y * imageWidth + x] = alpha != 0;
+                    decoded.setRGB(x, y, alpha << 24 | 0x3366AA);
+                }
+            }
+
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            ImageIO.write(decoded, "png", stream);
+            byte[] data = stream.toByteArray();
+            this.image = Image.createImage(data, 0, data.length);
+        }
+
+        void defineCollisionRectangle(int x, int y, int width, int height) {
+            this.collisionX = x;
+            this.collisionY = y;
+            this.collisionWidth = width;
+            this.collisionHeight = height;
+        }
+
+        Set<Integer> getPixels(Layer layer, int frame, int transform) {
+            return getPixels(layer.getX(), layer.getY(), frame, transform);
+        }
+
+        /**
+         * Opaque pixels of transformed frame within collision rectangle, with frame top left corner at specified point
+         */
+        Set<Integer> getPixels(int left, int top, int frame, int transform) {
+            Set<Integer> pixels = new HashSet<Integer>();
+            boolean isSwapped = transform >= Sprite.TRANS_MIRROR_ROT270;
+            int width = isSwapped ? frameHeight : frameWidth;
+            int height = isSwapped ? frameWidth : frameHeight;
+            int w = frameWidth;
+            int h = frameHeight;
+            int framesPerRow = imageWidth / frameWidth;
+            int frameX = (frame % framesPerRow) * frameWidth;
+            int frameY = (frame / framesPerRow) * frameHeight;
+
+            for(int y = 0; y < height; y++) {
+                for(int x = 0; x < width; x++) {
+                    int sourceX;
+                    int sourceY;
+
+                    switch (transform) {
+                        case Sprite.TRANS_NONE: sourceX = x; sourceY = y; break;
+                        case Sprite.TRANS_MIRROR: sourceX = w - 1 - x; sourceY = y; break;
+                        case Sprite.TRANS_MIRROR_ROT180: sourceX = x; sourceY = h - 1 - y; break;
+                        case Sprite.TRANS_ROT180: sourceX = w - 1 - x; sourceY = h - 1 - y; break;
+                        case Sprite.TRANS_ROT90: sourceX = y; sourceY = h - 1 - x; break;
+                        case Sprite.TRANS_ROT270: sourceX = w - 1 - y; sourceY = x; break;
+                        case Sprite.TRANS_MIRROR_ROT90: sourceX = w - 1 - y; sourceY = h - 1 - x; break;
+                        case Sprite.TRANS_MIRROR_ROT270: sourceX = y; sourceY = x; break;
+                        default: throw new IllegalArgumentException("Unknown transform " + transform);
+                    }
+
+                    boolean isInCollision = sourceX >= collisionX && sourceX < collisionX + collisionWidth
+                            && sourceY >= collisionY && sourceY < collisionY + collisionHeight;
+
+                    if(isInCollision && opaque[(frameY + sourceY) * imageWidth + frameX + sourceX]) {
+                        pixels.add(key(left + x, top + y));
+                    }
+                }
+            }
+
+            return pixels;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package javax.microedition.lcdui.game;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import ru.threedisevenzeror.retrophone.RetroDevice;
+import ru.threedisevenzeror.retrophone.impl.software.SoftwareGraphicsDevice;
+
+import javax.microedition.lcdui.Graphics;
+import javax.microedition.lcdui.Image;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Painted layers are compared with a reference that copies tile of every cell,
+ * so cells that were changed but not rendered again to the pixel cache are noticed
+ */
+public class TiledLayerTest {
+
+    private static final int TILE_WIDTH = 5;
+    private static final int TILE_HEIGHT = 4;
+    private static final int TILES_PER_ROW = 3;
+    private static final int TILE_ROWS = 2;
+    private static final int COLUMNS = 6;
+    private static final int ROWS = 4;
+    private static final int LAYER_X = 3;
+    private static final int LAYER_Y = 2;
+    private static final int TARGET_WIDTH = 40;
+    private static final int TARGET_HEIGHT = 24;
+    private static final int TILE_COUNT = TILES_PER_ROW * TILE_ROWS;
+
+    private int[] tilePixels;
+
+    @Before
+    public void setUp() {
+        new RetroDevice.Builder().graphicsDevice(new SoftwareGraphicsDevice(null)).createDeviceInstance();
+
+        tilePixels = new int[TILES_PER_ROW * TILE_WIDTH * TILE_ROWS * TILE_HEIGHT];
+        for(int i = 0; i < tilePixels.length; i++) {
+            tilePixels[i] = 0xFF000000 | (i + 1) * 0x010305;
+        }
+    }
+
+    @After
+    public void tearDown() {
+        RetroDevice.removeInstance();
+    }
+
+    @Test
+    public void cachedLayerIsRepaintedAfterChanges() {
+        assertChangesArePainted(createLayer(Image.createImage(createTileSet())));
+    }
+
+    @Test
+    public void uncachedLayerIsRepaintedAfterChanges() {
+        // tiles of mutable image can change at any time, so they are drawn directly
+        assertChangesArePainted(createLayer(createTileSet()));
+    }
+
+    @Test
+    public void animatedTileChangesEveryCellThatContainsIt() {
+        TiledLayer layer = createLayer(Image.createImage(createTileSet()));
+        int water = layer.createAnimatedTile(1);
+        int lava = layer.createAnimatedTile(0);
+        assertEquals(-1, water);
+        assertEquals(-2, lava);
+
+        layer.fillCells(0, 0, COLUMNS, 2, water);
+        layer.fillCells(0, 2, COLUMNS, 2, lava);
+        layer.setCell(5, 3, 4);
+        assertPainted(layer);
+
+        for(int frame = 0; frame <= TILE_COUNT; frame++) {
+            layer.setAnimatedTile(water, frame);
+            layer.setAnimatedTile(lava, TILE_COUNT - frame);
+            assertEquals(frame, layer.getAnimatedTile(water));
+            assertEquals(-1, layer.getCell(0, 0));
+            assertPainted(layer);
+        }
+    }
+
+    @Test
+    public void cellsOutsideOfClipArePaintedLater() {
+        TiledLayer layer = createLayer(Image.createImage(createTileSet()));
+        layer.fillCells(0, 0, COLUMNS, ROWS, 1);
+        assertPainted(layer);
+
+        // only the first column is rendered, other changed cells must stay dirty
+        layer.fillCells(0, 0, COLUMNS, ROWS, 2);
+        Image target = Image.createImage(TARGET_WIDTH, TARGET_HEIGHT);
+        Graphics graphics = target.getGraphics();
+        graphics.setClip(LAYER_X, LAYER_Y, TILE_WIDTH, TARGET_HEIGHT);
+        layer.paint(graphics);
+
+        assertPainted(layer);
+    }
+
+    @Test
+    public void smallerTileSetClearsCells() {
+        TiledLayer layer = createLayer(Image.createImage(createTileSet()));
+        int animated = layer.createAnimatedTile(2);
+        layer.fillCells(0, 0, 3, 2, animated);
+        layer.setCell(4, 3, TILE_COUNT);
+        assertPainted(layer);
+
+        // same number of tiles keeps cells, but they are rendered from the new image
+        tilePixels = reverse(tilePixels);
+        layer.setStaticTileSet(Image.createImage(createTileSet()), TILE_WIDTH, TILE_HEIGHT);
+        assertEquals(animated, layer.getCell(0, 0));
+        assertPainted(layer);
+
+        // only the first row of tiles, so grid is cleared and animated tiles are deleted
+        layer.setStaticTileSet(Image.createImage(createTileSet(1)), TILE_WIDTH, TILE_HEIGHT);
+        assertEquals(0, layer.getCell(0, 0));
+        assertEquals(0, layer.getCell(4, 3));
+        assertEquals(-1, layer.createAnimatedTile(0));
+        assertPainted(layer);
+    }
+
+    @Test
+    public void layerManagerPaintsViewWindow() {
+        TiledLayer layer = createLayer(Image.createImage(createTileSet()));
+        fillRandomly(layer, new Random(1));
+
+        LayerManager manager = new LayerManager();
+        manager.append(layer);
+        int viewX = LAYER_X + 4;
+        int viewY = LAYER_Y + 3;
+        manager.setViewWindow(viewX, viewY, 17, 9);
+
+        Image target = Image.createImage(TARGET_WIDTH, TARGET_HEIGHT);
+        manager.paint(target.getGraphics(), 2, 1);
+
+        // view window is drawn at 2,1 and nothing is drawn outside of it
+        int[] expected = new int[TARGET_WIDTH * TARGET_HEIGHT];
+        int[] layerPixels = reference(layer);
+        for(int i = 0; i < expected.length; i++) {
+            int x = i % TARGET_WIDTH - 2 + viewX;
+            int y = i / TARGET_WIDTH - 1 + viewY;
+            boolean isInView = x >= viewX && x < viewX + 17 && y >= viewY && y < viewY + 9;
+            expected[i] = isInView ? layerPixels[y * TARGET_WIDTH + x] : 0xFFFFFFFF;
+        }
+
+        assertArrayEquals(expected, getPixels(target));
+    }
+
+    /**
+     * Random changes with painting through random clip regions, whole layer is compared after each one
+     */
+    private void assertChangesArePainted(TiledLayer layer) {
+        Random random = new Random(2);
+        assertPainted(layer);
+
+        for(int i = 0; i < 300; i++) {
+            switch (random.nextInt(5)) {
+                case 0:
+                    layer.setCell(random.nextInt(COLUMNS), random.nextInt(ROWS), randomTile(layer, random));
+                    break;
+                case 1:
+                    int col = random.nextInt(COLUMNS);
+                    int row = random.nextInt(ROWS);
+                    layer.fillCells(col, row, random.nextInt(COLUMNS - col + 1), random.nextInt(ROWS - row + 1),
+                            randomTile(layer, random));
+                    break;
+                case 2:
+                    layer.createAnimatedTile(random.nextInt(TILE_COUNT + 1));
+                    break;
+                case 3:
+                    int animated = randomTile(layer, random);
+                    if(animated < 0) {
+                        layer.setAnimatedTile(animated, random.nextInt(TILE_COUNT + 1));
+                    }
+                    break;
+                default:
+                    Image target = Image.createImage(TARGET_WIDTH, TARGET_HEIGHT);
+                    Graphics graphics = target.getGraphics();
+                    graphics.setClip(random.nextInt(TARGET_WIDTH), random.nextInt(TARGET_HEIGHT),
+                            random.nextInt(TARGET_WIDTH), random.nextInt(TARGET_HEIGHT));
+                    layer.paint(graphics);
+                    break;
+            }
+
+            assertPainted(layer);
+        }
+    }
+
+    private static void fillRandomly(TiledLayer layer, Random random) {
+        for(int row = 0; row < ROWS; row++) {
+            for(int col = 0; col < COLUMNS; col++) {
+                layer.setCell(col, row, random.nextInt(TILE_COUNT + 1));
+            }
+        }
+    }
+
+    private static int randomTile(TiledLayer layer, Random random) {
+        int animatedCount = 0;
+        while(animatedCount < 64 && isAnimatedTile(layer, -animatedCount - 1)) {
+            animatedCount++;
+        }
+
+        return random.nextInt(TILE_COUNT + 1 + animatedCount) - animatedCount;
+    }
+
+    private static boolean isAnimatedTile(TiledLayer layer, int index) {
+        try {
+            layer.getAnimatedTile(index);
+            return true;
+        } catch (IndexOutOfBoundsException e) {
+            return false;
+        }
+    }
+
+    private static TiledLayer createLayer(Image tileSet) {
+        TiledLayer layer = new TiledLayer(COLUMNS, ROWS, tileSet, TILE_WIDTH, TILE_HEIGHT);
+        layer.setPosition(LAYER_X, LAYER_Y);
+        return layer;
+    }
+
+    private Image createTileSet() {
+        return createTileSet(TILE_ROWS);
+    }
+
+    private Image createTileSet(int tileRows) {
+        int width = TILES_PER_ROW * TILE_WIDTH;
+        Image image = Image.createImage(width, tileRows * TILE_HEIGHT);
+        image.getGraphics().drawRGB(tilePixels, 0, width, 0, 0, width, tileRows * TILE_HEIGHT, false);
+        return image;
+    }
+
+    private void assertPainted(TiledLayer layer) {
+        Image target = Image.createImage(TARGET_WIDTH, TARGET_HEIGHT);
+        layer.paint(target.getGraphics());
+        assertArrayEquals(reference(layer), getPixels(target));
+    }
+
+    /**
+     * White target with tile of every non-empty cell copied to it
+     */
+    private int[] reference(TiledLayer layer) {
+        int[] target = new int[TARGET_WIDTH * TARGET_HEIGHT];
+        Arrays.fill(target, 0xFFFFFFFF);
+
+        for(int row = 0; row < ROWS; row++) {
+            for(int col = 0; col < COLUMNS; col++) {
+                int tile = layer.getCell(col, row);
+                if(tile < 0) {
+                    tile = layer.getAnimatedTile(tile);
+                }
+
+                if(tile == 0) {
+                    continue;
+                }
+
+                int tileX = (tile - 1) % TILES_PER_ROW * TILE_WIDTH;
+                int tileY = (tile - 1) / TILES_PER_ROW * TILE_HEIGHT;
+                for(int y = 0; y < TILE_HEIGHT; y++) {
+                    for(int x = 0; x < TILE_WIDTH; x++) {
+                        target[(LAYER_Y + row * TILE_HEIGHT + y) * TARGET_WIDTH + LAYER_X + col * TILE_WIDTH + x] =
+                                tilePixels[(tileY + y) * TILES_PER_ROW * TILE_WIDTH + tileX + x];
+                    }
+                }
+            }
+        }
+
+        return target;
+    }
+
+    private static int[] getPixels(Image image) {
+        int[] pixels = new int[TARGET_WIDTH * TARGET_HEIGHT];
+        image.getRGB(pixels, 0, TARGET_WIDTH, 0, 0, TARGET_WIDTH, TARGET_HEIGHT);
+        return pixels;
+    }
+
+    private static int[] reverse(int[] pixels) {
+        int[] reversed = new int[pixels.length];
+        for(int i = 0; i < pixels.length; i++) {
+            reversed[i] = pixels[pixels.length - 1 - i];
+        }
+
+        return reversed;
+    }
+}
@@ -0,0 +1,204 @@
+package javax.microedition.rms;
+
+import org.junit.Before;
+import org.junit.Test;
+import ru.threedisevenzeror.retrophone.impl.rms.MemoryRecordStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ */
+public class RecordEnumerationTest {
+
+    // orders records by their first byte, null records are not expected
+    private static final RecordComparator BY_KEY = new RecordComparator() {
+        public int compare(byte[] first, byte[] second) {
+            if(first == null || second == null) {
+                throw new NullPointerException("Comparator is called with missing record");
+            }
+
+            return first[0] < second[0] ? PRECEDES : first[0] > second[0] ? FOLLOWS : EQUIVALENT;
+        }
+    };
+
+    private static final RecordFilter EVEN_KEYS = new RecordFilter() {
+        public boolean matches(byte[] candidate) {
+            return candidate[0] % 2 == 0;
+        }
+    };
+
+    private RecordStore store;
+
+    @Before
+    public void setUp() {
+        store = new RecordStore("store", new MemoryRecordStore(), null, null);
+    }
+
+    @Test
+    public void recordsAreSortedStably() throws Exception {
+        Random random = new Random(1);
+        final List<int[]> expected = new ArrayList<int[]>();
+
+        for(int i = 0; i < 500; i++) {
+            int key = random.nextInt(20);
+            expected.add(new int[] {add(key), key});
+        }
+
+        // Collections.sort is stable, so records with equal keys keep order of their ids
+        Collections.sort(expected, new Comparator<int[]>() {
+            public int compare(int[] first, int[] second) {
+                return first[1] - second[1];
+            }
+        });
+
+        List<Integer> expectedIds = new ArrayList<Integer>();
+        for(int[] record : expected) {
+            expectedIds.add(record[0]);
+        }
+
+        assertEquals(expectedIds, ids(store.enumerateRecords(null, BY_KEY, false)));
+    }
+
+    @Test
+    public void filterIsAppliedBeforeSort() throws Exception {
+        int first = add(5);
+        int second = add(4);
+        add(3);
+        int fourth = add(2);
+        int fifth = add(4);
+
+        assertEquals(Arrays.asList(fourth, second, fifth), ids(store.enumerateRecords(EVEN_KEYS, BY_KEY, false)));
+        assertEquals(5, ids(store.enumerateRecords(null, null, false)).size());
+        assertTrue(ids(store.enumerateRecords(EVEN_KEYS, null, false)).indexOf(first) < 0);
+    }
+
+    @Test
+    public void keptUpdatedEnumerationAppliesChanges() throws Exception {
+        int first = add(10);
+        int second = add(20);
+        int third = add(30);
+        RecordEnumeration enumeration = store.enumerateRecords(EVEN_KEYS, BY_KEY, true);
+
+        // odd key is filtered out
+        add(15);
+        assertEquals(Arrays.asList(first, second, third), ids(enumeration));
+        int added = add(16);
+        assertEquals(Arrays.asList(first, added, second, third), ids(enumeration));
+
+        set(third, 12);
+        assertEquals(Arrays.asList(first, third, added, second), ids(enumeration));
+        set(first, 11);
+        assertEquals(Arrays.asList(third, added, second), ids(enumeration));
+        set(first, 40);
+        assertEquals(Arrays.asList(third, added, second, first), ids(enumeration));
+
+        store.deleteRecord(added);
+        assertEquals(Arrays.asList(third, second, first), ids(enumeration));
+    }
+
+    @Test
+    public void enumerationIsNotUpdatedWhenNotKeptUpdated() throws Exception {
+        int first = add(10);
+        RecordEnumeration enumeration = store.enumerateRecords(null, BY_KEY, false);
+
+        int second = add(5);
+        assertEquals(Arrays.asList(first), ids(enumeration));
+
+        enumeration.keepUpdated(true);
+        assertEquals(Arrays.asList(second, first), ids(enumeration));
+    }
+
+    @Test
+    public void cursorStaysOnItsRecordWhenRecordIsInsertedBefore() throws Exception {
+        add(10);
+        int second = add(20);
+        int third = add(30);
+        RecordEnumeration enumeration = store.enumerateRecords(null, BY_KEY, true);
+
+        enumeration.nextRecordId();
+        assertEquals(second, enumeration.nextRecordId());
+
+        int inserted = add(5);
+        assertEquals(third, enumeration.nextRecordId());
+        assertFalse(enumeration.hasNextElement());
+
+        assertEquals(second, enumeration.previousRecordId());
+        enumeration.previousRecordId();
+        assertEquals(inserted, enumeration.previousRecordId());
+        assertFalse(enumeration.hasPreviousElement());
+    }
+
+    @Test
+    public void cursorStaysInPlaceWhenRecordIsRemoved() throws Exception {
+        int first = add(10);
+        int second = add(20);
+        int third = add(30);
+        int fourth = add(40);
+        RecordEnumeration enumeration = store.enumerateRecords(null, BY_KEY, true);
+
+        enumeration.nextRecordId();
+        enumeration.nextRecordId();
+
+        // record before cursor
+        store.deleteRecord(first);
+        assertEquals(third, enumeration.nextRecordId());
+
+        // record under cursor, next record is the one that followed it
+        store.deleteRecord(third);
+        assertEquals(fourth, enumeration.nextRecordId());
+        assertEquals(second, enumeration.previousRecordId());
+
+        // record after cursor
+        store.deleteRecord(fourth);
+        assertFalse(enumeration.hasNextElement());
+    }
+
+    @Test
+    public void staleIdIsRemovedInsteadOfCompared() throws Exception {
+        int first = add(10);
+        int second = add(20);
+        int third = add(30);
+        RecordEnumerationImpl enumeration = (RecordEnumerationImpl) store.enumerateRecords(null, BY_KEY, false);
+
+        // enumeration does not listen to store, so it still has deleted record
+        store.deleteRecord(second);
+        int added = add(25);
+        enumeration.recordAdded(store, added);
+
+        assertEquals(Arrays.asList(first, added, third), ids(enumeration));
+    }
+
+    private int add(int key) throws RecordStoreException {
+        return store.addRecord(new byte[] {(byte) key}, 0, 1);
+    }
+
+    private void set(int recordId, int key) throws RecordStoreException {
+        store.setRecord(recordId, new byte[] {(byte) key}, 0, 1);
+    }
+
+    /**
+     * All ids of enumeration from the start, cursor is reset afterwards
+     */
+    private static List<Integer> ids(RecordEnumeration enumeration) throws InvalidRecordIDException {
+        List<Integer> ids = new ArrayList<Integer>();
+        enumeration.reset();
+
+        while(enumeration.hasNextElement()) {
+            ids.add(enumeration.nextRecordId());
+        }
+
+        enumeration.reset();
+        assertEquals(ids.size(), enumeration.numRecords());
+        return ids;
+    }
+}
@@ -0,0 +1,261 @@
+package javax.microedition.rms;
+
+import org.junit.Before;
+import org.junit.Test;
+import ru.threedisevenzeror.retrophone.impl.rms.MemoryRecordStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ */
+public class RecordEventQueueTest {
+
+    private List<Runnable> tasks;
+    private List<String> events;
+    private RecordEventQueue queue;
+
+    @Before
+    public void setUp() {
+        tasks = new ArrayList<Runnable>();
+        events = new ArrayList<String>();
+        queue = createQueue(16);
+    }
+
+    @Test
+    public void eventsAreDeliveredInOrder() {
+        queue.add(RecordEventQueue.ADDED, 1);
+        queue.add(RecordEventQueue.ADDED, 2);
+        queue.add(RecordEventQueue.DELETED, 1);
+        queue.add(RecordEventQueue.CHANGED, 2);
+        deliver();
+
+        assertEquals(Arrays.asList("added 1", "added 2", "deleted 1"), events);
+    }
+
+    @Test
+    public void changeIsDeliveredAgainAfterDelivery() {
+        queue.add(RecordEventQueue.CHANGED, 1);
+        queue.add(RecordEventQueue.CHANGED, 1);
+        deliver();
+        queue.add(RecordEventQueue.CHANGED, 1);
+        deliver();
+
+        assertEquals(Arrays.asList("changed 1", "changed 1"), events);
+    }
+
+    @Test
+    public void largeRecordIdsAreTracked() {
+        queue.add(RecordEventQueue.ADDED, 100000);
+        queue.add(RecordEventQueue.CHANGED, 100000);
+        deliver();
+
+        assertEquals(Arrays.asList("added 100000"), events);
+    }
+
+    @Test
+    public void eventsOfDeletedRecordsAreCoalescedWhenFull() {
+        for(int i = 1; i <= 10; i++) {
+            queue.add(RecordEventQueue.ADDED, i);
+        }
+
+        queue.add(RecordEventQueue.CHANGED, 20);
+        for(int i = 1; i <= 4; i++) {
+            queue.add(RecordEventQueue.DELETED, i);
+        }
+
+        queue.add(RecordEventQueue.DELETED, 20);
+        // buffer is full here
+        queue.add(RecordEventQueue.ADDED, 11);
+        deliver();
+
+        assertEquals(Arrays.asList("added 5", "added 6", "added 7", "added 8", "added 9", "added 10",
+                "deleted 20", "added 11"), events);
+    }
+
+    @Test
+    public void bufferGrowsWhenNothingCanBeCoalesced() {
+        for(int i = 1; i <= 100; i++) {
+            queue.add(RecordEventQueue.ADDED, i);
+        }
+
+        deliver();
+
+        assertEquals(100, events.size());
+        for(int i = 1; i <= 100; i++) {
+            assertEquals("added " + i, events.get(i - 1));
+        }
+    }
+
+    @Test
+    public void deletionsAreNeverDropped() {
+        for(int i = 1; i <= 100; i++) {
+            queue.add(RecordEventQueue.ADDED, i);
+        }
+
+        deliver();
+        events.clear();
+
+        for(int i = 1; i <= 100; i++) {
+            queue.add(RecordEventQueue.CHANGED, i);
+            queue.add(RecordEventQueue.DELETED, i);
+        }
+
+        queue.add(RecordEventQueue.ADDED, 101);
+        deliver();
+
+        // changes are coalesced only when buffer is full, so some of them can still be delivered
+        List<String> deletions = new ArrayList<String>();
+        for(String event : events) {
+            if(event.startsWith("deleted")) {
+                deletions.add(event);
+            }
+        }
+
+        assertEquals(100, deletions.size());
+        for(int i = 1; i <= 100; i++) {
+            assertEquals("deleted " + i, deletions.get(i - 1));
+        }
+
+        assertEquals("added 101", events.get(events.size() - 1));
+    }
+
+    @Test
+    public void eventsOfConcurrentWritersAreQueuedInOrderOfModifications() throws Exception {
+        final int records = 16;
+        final Map<Integer, List<String>> recordEvents = new HashMap<Integer, List<String>>();
+        ExecutorService eventExecutor = Executors.newSingleThreadExecutor();
+        ExecutorService writers = Executors.newFixedThreadPool(4);
+        // writer is paused right after change, so deletion from another thread would happen before its event
+        RecordStore.Impl impl = new MemoryRecordStore() {
+            @Override
+            public void setRecord(int recordId, byte[] newData, int offset, int numBytes) throws RecordStoreException {
+                super.setRecord(recordId, newData, offset, numBytes);
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        final RecordStore store = new RecordStore("store", impl, null, eventExecutor);
+
+        store.addRecordListener(new RecordListener() {
+            public void recordAdded(RecordStore recordStore, int recordId) {
+            }
+
+            public void recordChanged(RecordStore recordStore, int recordId) {
+                add(recordId, "changed");
+            }
+
+            public void recordDeleted(RecordStore recordStore, int recordId) {
+                add(recordId, "deleted");
+            }
+
+            private void add(int recordId, String event) {
+                synchronized (recordEvents) {
+                    List<String> list = recordEvents.get(recordId);
+                    if(list == null) {
+                        list = new ArrayList<String>();
+                        recordEvents.put(recordId, list);
+                    }
+
+                    list.add(event);
+                }
+            }
+        });
+
+        try {
+            for(int round = 0; round < 10; round++) {
+                final int[] ids = new int[records];
+                for(int i = 0; i < records; i++) {
+                    ids[i] = store.addRecord(new byte[1], 0, 1);
+                }
+
+                List<Future<Void>> futures = new ArrayList<Future<Void>>();
+                for(int w = 0; w < 4; w++) {
+                    final boolean isDeleting = w == 0;
+                    futures.add(writers.submit(new Callable<Void>() {
+                        public Void call() throws Exception {
+                            for(int i = 0; i < records; i++) {
+                                try {
+                                    if(isDeleting) {
+                                        store.deleteRecord(ids[i]);
+                                    } else {
+                                        store.setRecord(ids[i], new byte[2], 0, 2);
+                                    }
+                                } catch (InvalidRecordIDException e) {
+                                    // record is already deleted
+                                }
+                            }
+
+                            return null;
+                        }
+                    }));
+                }
+
+                for(Future<Void> future : futures) {
+                    future.get(10, TimeUnit.SECONDS);
+                }
+            }
+
+            // waits for pending deliveries
+            eventExecutor.submit(new Runnable() {
+                public void run() {
+                }
+            }).get(10, TimeUnit.SECONDS);
+        } finally {
+            writers.shutdownNow();
+            eventExecutor.shutdownNow();
+        }
+
+        synchronized (recordEvents) {
+            for(Map.Entry<Integer, List<String>> entry : recordEvents.entrySet()) {
+                List<String> list = entry.getValue();
+                assertEquals("Events of record " + entry.getKey() + ": " + list, "deleted", list.get(list.size() - 1));
+                assertEquals(list.indexOf("deleted"), list.size() - 1);
+            }
+        }
+    }
+
+    private void deliver() {
+        while(!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    private RecordEventQueue createQueue(int maxCapacity) {
+        List<RecordListener> listeners = new ArrayList<RecordListener>();
+        listeners.add(new RecordListener() {
+            public void recordAdded(RecordStore recordStore, int recordId) {
+                events.add("added " + recordId);
+            }
+
+            public void recordChanged(RecordStore recordStore, int recordId) {
+                events.add("changed " + recordId);
+            }
+
+            public void recordDeleted(RecordStore recordStore, int recordId) {
+                events.add("deleted " + recordId);
+            }
+        });
+
+        return new RecordEventQueue(null, listeners, new Executor() {
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        }, maxCapacity);
+    }
+}
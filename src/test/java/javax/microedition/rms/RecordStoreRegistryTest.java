@@ -0,0 +1,161 @@
+package javax.microedition.rms;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ru.threedisevenzeror.retrophone.RetroDevice;
+import ru.threedisevenzeror.retrophone.impl.rms.FileStorageDevice;
+import ru.threedisevenzeror.retrophone.impl.rms.MemoryStorageDevice;
+import ru.threedisevenzeror.retrophone.info.ApplicationInfo;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Device is kept per thread and inherited by child threads, so each test runs on a thread of its own
+ */
+public class RecordStoreRegistryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ExecutorService executor;
+    private String oldRoot;
+
+    @Before
+    public void setUp() throws Exception {
+        // threads of executor would inherit device of test thread otherwise
+        RetroDevice.removeInstance();
+        executor = Executors.newCachedThreadPool();
+        oldRoot = System.setProperty(FileStorageDevice.ROOT_PROPERTY, folder.newFolder("rms").getPath());
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        if(oldRoot != null) {
+            System.setProperty(FileStorageDevice.ROOT_PROPERTY, oldRoot);
+        } else {
+            System.clearProperty(FileStorageDevice.ROOT_PROPERTY);
+        }
+    }
+
+    @Test
+    public void storesAreNotAvailableWithoutDevice() throws Exception {
+        run(new Callable<Void>() {
+            public Void call() throws Exception {
+                try {
+                    RecordStore.openRecordStore("store", true);
+                    fail("Store is opened without device");
+                } catch (RecordStoreException expected) {
+                    // there is no storage
+                }
+
+                assertNull(RecordStore.listRecordStores());
+                return null;
+            }
+        });
+    }
+
+    @Test
+    public void devicesOfSameSuiteShareStores() throws Exception {
+        final ApplicationInfo info = createSuite("first.jad", "Game", "Vendor");
+        RecordStore first = run(openStore(info));
+        RecordStore second = run(openStore(info));
+
+        try {
+            assertSame(first, second);
+        } finally {
+            first.closeRecordStore();
+            second.closeRecordStore();
+        }
+    }
+
+    @Test
+    public void suitesHaveSeparateStorages() throws Exception {
+        RecordStore first = run(openStore(createSuite("first.jad", "Game", "Vendor")));
+        RecordStore second = run(openStore(createSuite("second.jad", "Game", "Other vendor")));
+        RecordStore third = run(openStore(createSuite("third.jad", "Other game", "Vendor")));
+
+        try {
+            assertNotSame(first, second);
+            assertNotSame(first, third);
+
+            first.addRecord(new byte[] {1}, 0, 1);
+            assertEquals(0, second.getNumRecords());
+            assertEquals(0, third.getNumRecords());
+        } finally {
+            first.closeRecordStore();
+            second.closeRecordStore();
+            third.closeRecordStore();
+        }
+    }
+
+    @Test
+    public void storesAreKeptInMemoryByDefault() throws Exception {
+        ApplicationInfo info = createSuite("first.jad", "Memory game", "Vendor");
+        RecordStore store = run(openStore(info));
+        store.closeRecordStore();
+
+        assertArrayEquals(new String[] {"store"}, MemoryStorageDevice.getDefault(info).listRecordStores());
+        File root = new File(System.getProperty(FileStorageDevice.ROOT_PROPERTY));
+        assertEquals(0, root.list().length);
+    }
+
+    @Test
+    public void suiteStorageIsUnderRootDirectory() throws Exception {
+        final ApplicationInfo info = createSuite("first.jad", "../Game", "Vendor");
+        RecordStore store = run(new Callable<RecordStore>() {
+            public RecordStore call() throws Exception {
+                new RetroDevice.Builder().applicationInfo(info)
+                        .storageDevice(FileStorageDevice.getDefault(info)).createDeviceInstance();
+                return RecordStore.openRecordStore("store", true);
+            }
+        });
+        store.closeRecordStore();
+
+        File root = new File(System.getProperty(FileStorageDevice.ROOT_PROPERTY));
+        assertArrayEquals(new String[] {"store"}, FileStorageDevice.getDefault(info).listRecordStores());
+        assertNull(FileStorageDevice.getDefault().listRecordStores());
+        assertArrayEquals(new String[] {"suites"}, root.list());
+    }
+
+    private Callable<RecordStore> openStore(final ApplicationInfo info) {
+        return new Callable<RecordStore>() {
+            public RecordStore call() throws Exception {
+                new RetroDevice.Builder().applicationInfo(info).createDeviceInstance();
+                return RecordStore.openRecordStore("store", true);
+            }
+        };
+    }
+
+    private ApplicationInfo createSuite(String fileName, String name, String vendor) throws Exception {
+        File jad = folder.newFile(fileName);
+        FileOutputStream stream = new FileOutputStream(jad);
+        try {
+            stream.write(("MIDlet-Name: " + name + "\nMIDlet-Vendor: " + vendor + "\nMIDlet-Version: 1.0\n")
+                    .getBytes("UTF-8"));
+        } finally {
+            stream.close();
+        }
+
+        return ApplicationInfo.fromJad(jad);
+    }
+
+    private <T> T run(Callable<T> callable) throws Exception {
+        return executor.submit(callable).get();
+    }
+}
@@ -0,0 +1,145 @@
+package ru.threedisevenzeror.retrophone.impl.resources;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import ru.threedisevenzeror.retrophone.ResourceProvider;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ */
+public class ResourceCacheTest {
+
+    private static final int SEGMENT_SIZE = 64 * 1024;
+    // fits a quarter of three segments, but two of them do not fit one segment
+    private static final int LARGE = 40 * 1024;
+
+    private final Object owner = new Object();
+
+    @Test
+    public void smallResourcesShareSegment() throws Exception {
+        ResourceCache cache = new ResourceCache(4 * SEGMENT_SIZE);
+        for(int i = 0; i < 10; i++) {
+            cache.put(owner, "resource" + i, data(i, 1000), 1000);
+        }
+
+        assertEquals(10, cache.getResourceCount());
+        assertEquals(SEGMENT_SIZE, cache.getSize());
+        assertArrayEquals(data(7, 1000), IOUtils.toByteArray(cache.open(owner, "resource7")));
+    }
+
+    @Test
+    public void evictedSegmentStaysValidForLiveStreams() throws Exception {
+        ResourceCache cache = new ResourceCache(3 * SEGMENT_SIZE);
+        cache.put(owner, "a", data(1, LARGE), LARGE);
+        ByteArrayInputStream live = cache.open(owner, "a");
+        live.skip(100);
+
+        cache.put(owner, "b", data(2, LARGE), LARGE);
+        cache.put(owner, "c", data(3, LARGE), LARGE);
+        cache.put(owner, "d", data(4, LARGE), LARGE);
+
+        assertNull(cache.open(owner, "a"));
+        assertEquals(3 * SEGMENT_SIZE, cache.getSize());
+
+        // new resources never land in evicted segment, so its data is not overwritten
+        cache.put(owner, "e", data(5, 1000), 1000);
+        assertArrayEquals(Arrays.copyOfRange(data(1, LARGE), 100, LARGE), IOUtils.toByteArray(live));
+    }
+
+    @Test
+    public void recentlyUsedSegmentIsKept() throws Exception {
+        ResourceCache cache = new ResourceCache(3 * SEGMENT_SIZE);
+        cache.put(owner, "a", data(1, LARGE), LARGE);
+        cache.put(owner, "b", data(2, LARGE), LARGE);
+        cache.put(owner, "c", data(3, LARGE), LARGE);
+        cache.open(owner, "a").close();
+        cache.put(owner, "d", data(4, LARGE), LARGE);
+
+        assertNotNull(cache.open(owner, "a"));
+        assertNull(cache.open(owner, "b"));
+        assertNotNull(cache.open(owner, "c"));
+        assertNotNull(cache.open(owner, "d"));
+    }
+
+    @Test
+    public void resourceLargerThanSegmentGetsItsOwn() throws Exception {
+        ResourceCache cache = new ResourceCache(8 * SEGMENT_SIZE);
+        int size = SEGMENT_SIZE + 1;
+        cache.put(owner, "small", data(1, 10), 10);
+        cache.put(owner, "large", data(2, size), size);
+
+        assertEquals(2 * SEGMENT_SIZE + 1, cache.getSize());
+        assertArrayEquals(data(2, size), IOUtils.toByteArray(cache.open(owner, "large")));
+        assertArrayEquals(data(1, 10), IOUtils.toByteArray(cache.open(owner, "small")));
+    }
+
+    @Test
+    public void tooLargeResourceIsNotCached() {
+        ResourceCache cache = new ResourceCache(4 * SEGMENT_SIZE);
+        assertNull(cache.put(owner, "large", new byte[SEGMENT_SIZE + 1], SEGMENT_SIZE + 1));
+        assertEquals(0, cache.getResourceCount());
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void removedOwnerReleasesItsSegments() throws Exception {
+        ResourceCache cache = new ResourceCache(4 * SEGMENT_SIZE);
+        Object other = new Object();
+        cache.put(owner, "a", data(1, LARGE), LARGE);
+        cache.put(other, "a", data(2, LARGE), LARGE);
+        cache.put(owner, "b", data(3, LARGE), LARGE);
+
+        cache.remove(owner);
+
+        assertNull(cache.open(owner, "a"));
+        assertNull(cache.open(owner, "b"));
+        assertArrayEquals(data(2, LARGE), IOUtils.toByteArray(cache.open(other, "a")));
+        assertEquals(1, cache.getResourceCount());
+    }
+
+    @Test
+    public void providerLoadsResourceOnce() throws Exception {
+        final int[] loads = new int[1];
+        ResourceProvider source = new ResourceProvider() {
+            public InputStream open(String name) throws IOException {
+                loads[0]++;
+                return new ByteArrayInputStream(data(name.length(), 5000));
+            }
+        };
+
+        CachingResourceProvider provider = new CachingResourceProvider(source, new ResourceCache(4 * SEGMENT_SIZE));
+        for(int i = 0; i < 3; i++) {
+            InputStream stream = provider.open("resource");
+            assertArrayEquals(data(8, 5000), IOUtils.toByteArray(stream));
+            stream.close();
+        }
+
+        assertEquals(1, loads[0]);
+        assertEquals(1, provider.getStatistics().getMissCount());
+        assertEquals(2, provider.getStatistics().getHitCount());
+        assertEquals(10000, provider.getStatistics().getHitBytes());
+
+        provider.invalidate();
+        provider.open("resource").close();
+        assertEquals(2, loads[0]);
+    }
+
+    private static byte[] data(int seed, int length) {
+        byte[] data = new byte[length];
+        for(int i = 0; i < length; i++) {
+            data[i] = (byte) (seed * 31 + i);
+        }
+
+        return data;
+    }
+}
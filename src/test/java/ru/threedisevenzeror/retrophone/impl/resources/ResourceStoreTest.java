@@ -0,0 +1,276 @@
+package ru.threedisevenzeror.retrophone.impl.resources;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ru.threedisevenzeror.retrophone.info.ApplicationInfo;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ */
+public class ResourceStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void installedStoreHasEveryEntryOfJar() throws Exception {
+        Map<String, byte[]> resources = createResources(new Random(1));
+        File jar = writeJar("game.jar", "1.0", resources);
+
+        ResourceStore store = ResourceStore.install(ApplicationInfo.fromJar(jar), folder.newFolder());
+        assertEquals(jar.length(), store.getJarSize());
+
+        // directories are not resources, and names are resolved from root
+        assertFalse(store.hasResource("images/"));
+        assertArrayEquals(resources.get("images/icon.png"), IOUtils.toByteArray(store.open("/images/icon.png")));
+        assertFalse(store.hasResource("missing"));
+        assertEquals(-1, store.getSize("missing"));
+        assertNull(store.getBuffer("missing"));
+
+        try {
+            store.open("missing");
+            fail("Missing resource is opened");
+        } catch (IOException expected) {
+            // resource is not found
+        }
+
+        assertResources(store, resources);
+    }
+
+    @Test
+    public void installedStoreIsReopened() throws Exception {
+        Map<String, byte[]> resources = createResources(new Random(2));
+        File jar = writeJar("game.jar", "1.0", resources);
+        File directory = folder.newFolder();
+        ResourceStore.install(ApplicationInfo.fromJar(jar), directory).close();
+
+        ResourceStore store = ResourceStore.open(directory);
+        assertEquals(jar.length(), store.getJarSize());
+        ByteBuffer buffer = store.getBuffer("data/large.bin");
+        assertResources(store, resources);
+
+        // closed store serves nothing, but buffers taken before stay readable
+        assertFalse(store.hasResource("data/large.bin"));
+        byte[] data = new byte[buffer.remaining()];
+        buffer.get(data);
+        assertArrayEquals(resources.get("data/large.bin"), data);
+    }
+
+    @Test
+    public void storeIsInstalledAgainOnlyWhenJarChanges() throws Exception {
+        Map<String, byte[]> resources = createResources(new Random(3));
+        File jar = writeJar("game.jar", "1.0", resources);
+        File directory = folder.newFolder();
+        ResourceStore.install(ApplicationInfo.fromJar(jar), directory).close();
+
+        // same size and version, so existing store is taken as is
+        Map<String, byte[]> changed = new LinkedHashMap<String, byte[]>(resources);
+        changed.put("data/small.bin", reverse(resources.get("data/small.bin")));
+        writeJar("game.jar", "1.0", changed);
+        assertEquals(jar.length(), ResourceStore.open(directory).getJarSize());
+        assertResources(ResourceStore.openOrInstall(ApplicationInfo.fromJar(jar), directory), resources);
+
+        writeJar("game.jar", "1.1", changed);
+        assertResources(ResourceStore.openOrInstall(ApplicationInfo.fromJar(jar), directory), changed);
+        assertResources(ResourceStore.open(directory), changed);
+    }
+
+    @Test
+    public void corruptedIndexIsRejected() throws Exception {
+        Map<String, byte[]> resources = createResources(new Random(4));
+        File jar = writeJar("game.jar", "1.0", resources);
+        File directory = folder.newFolder();
+        ResourceStore.install(ApplicationInfo.fromJar(jar), directory).close();
+        File indexFile = new File(directory, ResourceStore.INDEX_FILE);
+        byte[] index = FileUtils.readFileToByteArray(indexFile);
+
+        // every byte of index is covered by its checksum or is checked on its own
+        for(int i = 0; i < index.length; i++) {
+            byte[] corrupted = index.clone();
+            corrupted[i] ^= 0x10;
+            FileUtils.writeByteArrayToFile(indexFile, corrupted);
+            assertOpenFails(directory);
+        }
+
+        FileUtils.writeByteArrayToFile(indexFile, Arrays.copyOf(index, index.length - 1));
+        assertOpenFails(directory);
+
+        // broken store is installed again
+        assertResources(ResourceStore.openOrInstall(ApplicationInfo.fromJar(jar), directory), resources);
+    }
+
+    @Test
+    public void corruptedBlobIsRejected() throws Exception {
+        Map<String, byte[]> resources = createResources(new Random(5));
+        File jar = writeJar("game.jar", "1.0", resources);
+        File directory = folder.newFolder();
+        ResourceStore.install(ApplicationInfo.fromJar(jar), directory).close();
+        File blobFile = new File(directory, ResourceStore.BLOB_FILE);
+
+        RandomAccessFile file = new RandomAccessFile(blobFile, "rw");
+        try {
+            file.seek(file.length() / 2);
+            int value = file.read();
+            file.seek(file.length() / 2);
+            file.write(value ^ 0x01);
+        } finally {
+            file.close();
+        }
+
+        assertOpenFails(directory);
+        assertResources(ResourceStore.openOrInstall(ApplicationInfo.fromJar(jar), directory), resources);
+
+        FileUtils.forceDelete(blobFile);
+        assertOpenFails(directory);
+    }
+
+    @Test
+    public void jarOfDeclaredSizeIsInstalled() throws Exception {
+        Map<String, byte[]> resources = createResources(new Random(6));
+        File jar = writeJar("game.jar", "1.0", resources);
+        File jad = writeJad("game.jad", jar.length());
+
+        ResourceStore store = ResourceStore.install(ApplicationInfo.fromJad(jad), folder.newFolder());
+        assertResources(store, resources);
+        assertEquals(jar.length(), store.getJarSize());
+    }
+
+    @Test
+    public void jarSizeMismatchIsRejected() throws Exception {
+        Map<String, byte[]> resources = createResources(new Random(7));
+        File jar = writeJar("game.jar", "1.0", resources);
+        File directory = folder.newFolder();
+        ResourceStore.install(ApplicationInfo.fromJad(writeJad("game.jad", jar.length())), directory).close();
+
+        try {
+            ResourceStore.install(ApplicationInfo.fromJad(writeJad("game.jad", jar.length() + 1)), directory);
+            fail("Jar of different size is installed");
+        } catch (IOException expected) {
+            // size does not match
+        }
+
+        // installed store is left as it was, and nothing else is left in directory
+        assertResources(ResourceStore.open(directory), resources);
+        String[] files = directory.list();
+        Arrays.sort(files);
+        assertArrayEquals(new String[] {ResourceStore.BLOB_FILE, ResourceStore.INDEX_FILE}, files);
+    }
+
+    /**
+     * Checks every resource and closes store
+     */
+    private static void assertResources(ResourceStore store, Map<String, byte[]> resources) throws Exception {
+        try {
+            for(Map.Entry<String, byte[]> resource : resources.entrySet()) {
+                String name = resource.getKey();
+                assertTrue(name, store.hasResource(name));
+                assertEquals(name, resource.getValue().length, store.getSize(name));
+                assertArrayEquals(name, resource.getValue(), IOUtils.toByteArray(store.open(name)));
+            }
+        } finally {
+            store.close();
+        }
+    }
+
+    private static void assertOpenFails(File directory) {
+        try {
+            ResourceStore.open(directory).close();
+            fail("Corrupted store is opened");
+        } catch (IOException expected) {
+            // store is rejected
+        }
+    }
+
+    /**
+     * Resources smaller and larger than a page, so both packed and page aligned ones are checked
+     */
+    private static Map<String, byte[]> createResources(Random random) {
+        Map<String, byte[]> resources = new LinkedHashMap<String, byte[]>();
+        resources.put("images/icon.png", random(random, 300));
+        resources.put("data/small.bin", random(random, 17));
+        resources.put("data/empty.bin", new byte[0]);
+        resources.put("data/large.bin", random(random, 10000));
+        resources.put("data/page.bin", random(random, 4096));
+        resources.put("text.txt", random(random, 5));
+        return resources;
+    }
+
+    private static byte[] random(Random random, int size) {
+        byte[] data = new byte[size];
+        random.nextBytes(data);
+        return data;
+    }
+
+    private static byte[] reverse(byte[] data) {
+        byte[] reversed = new byte[data.length];
+        for(int i = 0; i < data.length; i++) {
+            reversed[i] = data[data.length - 1 - i];
+        }
+
+        return reversed;
+    }
+
+    private File writeJar(String name, String version, Map<String, byte[]> resources) throws Exception {
+        Manifest manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.putValue("MIDlet-Name", "Game");
+        attributes.putValue("MIDlet-Vendor", "Vendor");
+        attributes.putValue("MIDlet-Version", version);
+        attributes.putValue("MIDlet-1", "Game, /images/icon.png, game.Main");
+
+        File file = new File(folder.getRoot(), name);
+        JarOutputStream stream = new JarOutputStream(new FileOutputStream(file), manifest);
+        try {
+            stream.putNextEntry(new ZipEntry("images/"));
+            stream.closeEntry();
+
+            for(Map.Entry<String, byte[]> resource : resources.entrySet()) {
+                stream.putNextEntry(new ZipEntry(resource.getKey()));
+                stream.write(resource.getValue());
+                stream.closeEntry();
+            }
+        } finally {
+            stream.close();
+        }
+
+        return file;
+    }
+
+    private File writeJad(String name, long jarSize) throws Exception {
+        String descriptor = "MIDlet-Name: Game\n" +
+                "MIDlet-Vendor: Vendor\n" +
+                "MIDlet-Version: 1.0\n" +
+                "MIDlet-1: Game, /images/icon.png, game.Main\n" +
+                "MIDlet-Jar-URL: game.jar\n" +
+                "MIDlet-Jar-Size: " + jarSize + "\n";
+
+        File file = new File(folder.getRoot(), name);
+        FileUtils.writeByteArrayToFile(file, descriptor.getBytes("UTF-8"));
+        return file;
+    }
+}
@@ -0,0 +1,155 @@
+package ru.threedisevenzeror.retrophone.impl.rms;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.microedition.rms.RecordStore;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Measures read throughput of stores with growing number of reader threads,
+ * alone and alongside a writer that keeps changing records
+ */
+public class ConcurrentAccessBenchmark {
+
+    private static final int RECORDS = 1024;
+    private static final int RECORD_SIZE = 128;
+    private static final int[] READER_COUNTS = {1, 2, 4, 8};
+    private static final long DURATION_MILLIS = 500;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void logStore() throws Exception {
+        run("log", LogRecordStore.open(folder.newFolder(), "store", true));
+    }
+
+    @Test
+    public void logStoreWithWriteBehind() throws Exception {
+        run("log write-behind", LogRecordStore.open(folder.newFolder(), "store", true,
+                new CommitPolicy.Builder().writeBehind(65536, 5).build(),
+                CompactionPolicy.DEFAULT, CompressionPolicy.DISABLED, new CommitStatistics()));
+    }
+
+    @Test
+    public void mappedStore() throws Exception {
+        run("mapped", MappedRecordStore.open(folder.newFolder(), "store", true));
+    }
+
+    @Test
+    public void memoryStore() throws Exception {
+        run("memory", new MemoryRecordStore());
+    }
+
+    private void run(String name, RecordStore.Impl store) throws Exception {
+        try {
+            Random random = new Random(1);
+            byte[] record = new byte[RECORD_SIZE];
+            for(int i = 0; i < RECORDS; i++) {
+                random.nextBytes(record);
+                store.addRecord(record, 0, record.length);
+            }
+
+            for(int readers : READER_COUNTS) {
+                long reads = measure(store, readers, false);
+                long readsWhileWriting = measure(store, readers, true);
+
+                System.out.println(String.format("%s store, %d readers: %d reads/s, %d reads/s while writing",
+                        name, readers, reads * 1000 / DURATION_MILLIS, readsWhileWriting * 1000 / DURATION_MILLIS));
+                assertTrue(reads > 0);
+                assertTrue(readsWhileWriting > 0);
+            }
+
+            assertEquals(RECORDS, store.getNumRecords());
+        } finally {
+            store.close();
+        }
+    }
+
+    /**
+     * @return number of records read by all readers during benchmark
+     */
+    private static long measure(final RecordStore.Impl store, int readers, boolean withWriter) throws Exception {
+        final AtomicBoolean isRunning = new AtomicBoolean(true);
+        final CountDownLatch started = new CountDownLatch(readers + 1);
+        ExecutorService executor = Executors.newFixedThreadPool(readers + 1);
+        List<Future<Long>> futures = new ArrayList<Future<Long>>();
+
+        try {
+            for(int i = 0; i < readers; i++) {
+                final Random random = new Random(i);
+                futures.add(executor.submit(new Callable<Long>() {
+                    public Long call() throws Exception {
+                        byte[] buffer = new byte[RECORD_SIZE];
+                        long reads = 0;
+                        started.countDown();
+                        started.await();
+
+                        while(isRunning.get()) {
+                            store.getRecord(1 + random.nextInt(RECORDS), buffer, 0);
+                            reads++;
+                        }
+
+                        return reads;
+                    }
+                }));
+            }
+
+            Future<Long> writer = null;
+            if(withWriter) {
+                writer = executor.submit(new Callable<Long>() {
+                    public Long call() throws Exception {
+                        Random random = new Random(42);
+                        byte[] record = new byte[RECORD_SIZE];
+                        long writes = 0;
+                        started.countDown();
+                        started.await();
+
+                        while(isRunning.get()) {
+                            random.nextBytes(record);
+                            store.setRecord(1 + random.nextInt(RECORDS), record, 0, record.length);
+                            writes++;
+                        }
+
+                        return writes;
+                    }
+                });
+            } else {
+                started.countDown();
+            }
+
+            started.await();
+            Thread.sleep(DURATION_MILLIS);
+            isRunning.set(false);
+
+            long reads = 0;
+            for(Future<Long> future : futures) {
+                reads += future.get(30, TimeUnit.SECONDS);
+            }
+
+            if(writer != null) {
+                assertTrue(writer.get(30, TimeUnit.SECONDS) > 0);
+            }
+
+            return reads;
+        } finally {
+            isRunning.set(false);
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package ru.threedisevenzeror.retrophone.impl.rms;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.microedition.rms.InvalidRecordIDException;
+import javax.microedition.rms.RecordStore;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Readers run in parallel with a writer that changes, deletes and adds records,
+ * every record read should be exactly one of the versions written
+ */
+public class ConcurrentAccessTest {
+
+    private static final int RECORDS = 64;
+    private static final int READERS = 4;
+    private static final int WRITES = 5000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void logStoreWithBackgroundCompaction() throws Exception {
+        CommitStatistics statistics = new CommitStatistics();
+        LogRecordStore store = LogRecordStore.open(folder.newFolder(), "store", true, CommitPolicy.WRITE_THROUGH,
+                new CompactionPolicy(0.3, 4096), CompressionPolicy.DISABLED, statistics);
+        run(store);
+
+        // log was compacted while it was read
+        assertTrue(store.getTotalSize() < statistics.getCommittedBytes() / 2);
+    }
+
+    @Test
+    public void logStoreWithWriteBehind() throws Exception {
+        run(LogRecordStore.open(folder.newFolder(), "store", true, new CommitPolicy.Builder().writeBehind(8192, 5).build(),
+                CompactionPolicy.DEFAULT, CompressionPolicy.DISABLED, new CommitStatistics()));
+    }
+
+    @Test
+    public void mappedStore() throws Exception {
+        run(MappedRecordStore.open(folder.newFolder(), "store", true));
+    }
+
+    @Test
+    public void memoryStore() throws Exception {
+        run(new MemoryRecordStore());
+    }
+
+    private void run(final RecordStore.Impl store) throws Exception {
+        final int[] ids = new int[RECORDS];
+        for(int i = 0; i < RECORDS; i++) {
+            ids[i] = store.addRecord(encode(i, 0), 0, size(0));
+        }
+
+        final AtomicBoolean isWriting = new AtomicBoolean(true);
+        final CountDownLatch started = new CountDownLatch(READERS);
+        ExecutorService executor = Executors.newFixedThreadPool(READERS);
+        List<Future<Integer>> readers = new ArrayList<Future<Integer>>();
+
+        try {
+            for(int i = 0; i < READERS; i++) {
+                final Random random = new Random(i);
+                readers.add(executor.submit(new Callable<Integer>() {
+                    public Integer call() throws Exception {
+                        byte[] buffer = new byte[256];
+                        int reads = 0;
+                        started.countDown();
+
+                        while(isWriting.get()) {
+                            int slot = random.nextInt(RECORDS);
+                            int recordId;
+                            synchronized (ids) {
+                                recordId = ids[slot];
+                            }
+
+                            try {
+                                int size = store.getRecord(recordId, buffer, 0);
+                                verify(buffer, size, slot);
+                                reads++;
+                            } catch (InvalidRecordIDException e) {
+                                // record was replaced meanwhile
+                            }
+
+                            int[] recordIds = store.getRecordIds();
+                            for(int j = 1; j < recordIds.length; j++) {
+                                assertTrue(recordIds[j - 1] < recordIds[j]);
+                            }
+                        }
+
+                        return reads;
+                    }
+                }));
+            }
+
+            started.await();
+            Random random = new Random(42);
+
+            for(int generation = 1; generation <= WRITES; generation++) {
+                int slot = random.nextInt(RECORDS);
+                byte[] data = encode(slot, generation);
+
+                if(random.nextInt(8) == 0) {
+                    // record is replaced with new one, readers can see either old id as deleted or the new one
+                    int recordId = store.addRecord(data, 0, size(generation));
+                    int oldId;
+                    synchronized (ids) {
+                        oldId = ids[slot];
+                        ids[slot] = recordId;
+                    }
+
+                    store.deleteRecord(oldId);
+                } else {
+                    int recordId;
+                    synchronized (ids) {
+                        recordId = ids[slot];
+                    }
+
+                    store.setRecord(recordId, data, 0, size(generation));
+                }
+            }
+
+            isWriting.set(false);
+            int reads = 0;
+            for(Future<Integer> reader : readers) {
+                reads += reader.get(30, TimeUnit.SECONDS);
+            }
+
+            assertTrue(reads > 0);
+            assertEquals(RECORDS, store.getNumRecords());
+        } finally {
+            isWriting.set(false);
+            executor.shutdownNow();
+            store.close();
+        }
+    }
+
+    /**
+     * Record is its slot followed by generation repeated up to its size
+     */
+    private static byte[] encode(int slot, int generation) {
+        byte[] data = new byte[size(generation)];
+        data[0] = (byte) slot;
+        for(int i = 1; i < data.length; i++) {
+            data[i] = (byte) generation;
+        }
+
+        return data;
+    }
+
+    /**
+     * Size depends on generation, so record of one version with data of another one is noticed
+     */
+    private static int size(int generation) {
+        return 2 + (generation & 0xFF) % 100;
+    }
+
+    private static void verify(byte[] data, int size, int slot) {
+        if(data[0] != (byte) slot) {
+            fail("Record of slot " + data[0] + " is read for slot " + slot);
+        }
+
+        byte generation = data[1];
+        if(size != size(generation)) {
+            fail("Record of size " + size + " has generation " + generation);
+        }
+
+        for(int i = 2; i < size; i++) {
+            if(data[i] != generation) {
+                fail("Torn record of slot " + slot + " at byte " + i);
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package ru.threedisevenzeror.retrophone.impl.rms;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ */
+public class LogRecordStoreTest {
+
+    private static final String NAME = "store";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recordSurvivesCheckpointWrittenByItsOwnAppend() throws Exception {
+        File directory = folder.newFolder();
+        CommitPolicy policy = new CommitPolicy.Builder().checkpointInterval(100).build();
+
+        LogRecordStore store = open(directory, policy);
+        int id = store.addRecord(new byte[200], 0, 200);
+        store.close();
+
+        store = open(directory, policy);
+        assertEquals(1, store.getNumRecords());
+        assertEquals(id + 1, store.getNextRecordID());
+        assertEquals(200, store.getRecordSize(id));
+        store.close();
+    }
+
+    @Test
+    public void randomModificationsSurviveReopen() throws Exception {
+        File directory = folder.newFolder();
+        CommitPolicy policy = new CommitPolicy.Builder().checkpointInterval(5000).build();
+        Random random = new Random(42);
+        Map<Integer, byte[]> records = new TreeMap<Integer, byte[]>();
+        int nextId = 1;
+
+        LogRecordStore store = open(directory, policy);
+        for(int i = 0; i < 3000; i++) {
+            nextId = modify(store, records, nextId, random);
+
+            if(random.nextInt(200) == 0) {
+                store.close();
+                store = open(directory, policy);
+                assertContents(store, records, nextId);
+            }
+        }
+
+        store.close();
+        store = open(directory, policy);
+        assertContents(store, records, nextId);
+        store.close();
+    }
+
+    @Test
+    public void logTruncatedAtRandomOffsetRecoversToLastWholeEntry() throws Exception {
+        File directory = folder.newFolder();
+        CommitPolicy policy = new CommitPolicy.Builder().checkpointInterval(2000).build();
+        Random random = new Random(7);
+        Map<Integer, byte[]> records = new TreeMap<Integer, byte[]>();
+        int nextId = 1;
+
+        List<Long> lengths = new ArrayList<Long>();
+        List<Map<Integer, byte[]>> states = new ArrayList<Map<Integer, byte[]>>();
+        List<Integer> nextIds = new ArrayList<Integer>();
+
+        LogRecordStore store = open(directory, policy);
+        lengths.add(store.getTotalSize());
+        states.add(new TreeMap<Integer, byte[]>(records));
+        nextIds.add(nextId);
+
+        for(int i = 0; i < 400; i++) {
+            nextId = modify(store, records, nextId, random);
+            lengths.add(store.getTotalSize());
+            states.add(new TreeMap<Integer, byte[]>(records));
+            nextIds.add(nextId);
+        }
+
+        // files are taken while store is open, as if process was killed, so the last checkpoint is a periodic one
+        File storeFile = LogRecordStore.getStoreFile(directory, NAME);
+        File checkpointFile = LogRecordStore.getCheckpointFile(storeFile);
+        File crashed = folder.newFolder();
+        FileUtils.copyFile(storeFile, new File(crashed, storeFile.getName()));
+        FileUtils.copyFile(checkpointFile, new File(crashed, checkpointFile.getName()));
+        store.close();
+
+        long totalLength = lengths.get(lengths.size() - 1);
+        for(int attempt = 0; attempt < 100; attempt++) {
+            long length = LogRecordStore.HEADER_SIZE + (long) (random.nextDouble() * (totalLength - LogRecordStore.HEADER_SIZE));
+            File target = folder.newFolder();
+            FileUtils.copyDirectory(crashed, target);
+            RandomAccessFile file = new RandomAccessFile(LogRecordStore.getStoreFile(target, NAME), "rw");
+            try {
+                file.setLength(length);
+            } finally {
+                file.close();
+            }
+
+            int state = 0;
+            while(state + 1 < lengths.size() && lengths.get(state + 1) <= length) {
+                state++;
+            }
+
+            LogRecordStore recovered = open(target, policy);
+            assertEquals(lengths.get(state).longValue(), recovered.getTotalSize());
+            assertContents(recovered, states.get(state), nextIds.get(state));
+
+            // recovered store accepts new writes after the cut
+            int id = recovered.addRecord(new byte[] {1, 2, 3}, 0, 3);
+            recovered.close();
+            recovered = open(target, policy);
+            assertArrayEquals(new byte[] {1, 2, 3}, read(recovered, id));
+            recovered.close();
+        }
+    }
+
+    private static LogRecordStore open(File directory, CommitPolicy policy) throws Exception {
+        return LogRecordStore.open(directory, NAME, true, policy, CompactionPolicy.DISABLED,
+                CompressionPolicy.DISABLED, new CommitStatistics());
+    }
+
+    /**
+     * Applies random modification to store and to expected records
+     *
+     * @return expected next record id
+     */
+    private static int modify(LogRecordStore store, Map<Integer, byte[]> records, int nextId, Random random)
+            throws Exception {
+        int operation = records.isEmpty() ? 0 : random.nextInt(3);
+        byte[] data = new byte[random.nextInt(64)];
+        random.nextBytes(data);
+
+        if(operation == 0) {
+            int id = store.addRecord(data, 0, data.length);
+            assertEquals(nextId, id);
+            records.put(id, data);
+            return nextId + 1;
+        }
+
+        Integer[] ids = records.keySet().toArray(new Integer[records.size()]);
+        int id = ids[random.nextInt(ids.length)];
+
+        if(operation == 1) {
+            store.setRecord(id, data, 0, data.length);
+            records.put(id, data);
+        } else {
+            store.deleteRecord(id);
+            records.remove(id);
+        }
+
+        return nextId;
+    }
+
+    private static void assertContents(LogRecordStore store, Map<Integer, byte[]> records, int nextId)
+            throws Exception {
+        assertEquals(records.size(), store.getNumRecords());
+        assertEquals(nextId, store.getNextRecordID());
+
+        for(Map.Entry<Integer, byte[]> record : records.entrySet()) {
+            assertArrayEquals(record.getValue(), read(store, record.getKey()));
+        }
+    }
+
+    private static byte[] read(LogRecordStore store, int recordId) throws Exception {
+        byte[] data = new byte[store.getRecordSize(recordId)];
+        store.getRecord(recordId, data, 0);
+        return data;
+    }
+}
@@ -0,0 +1,68 @@
+package ru.threedisevenzeror.retrophone.impl.rms;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.microedition.rms.RecordStore;
+import javax.microedition.rms.RecordStoreException;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Compares mapped store with write-through log store on the same workload. Timings are only printed,
+ * since they depend on machine, but both stores should return the same data
+ */
+public class MappedRecordStoreBenchmark {
+
+    private static final int RECORDS = 2000;
+    private static final int READS = 50000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readWrite() throws Exception {
+        RecordStore.Impl log = LogRecordStore.open(folder.newFolder(), "store", true);
+        RecordStore.Impl mapped = MappedRecordStore.open(folder.newFolder(), "store", true);
+
+        try {
+            byte[] logData = benchmark("log", log);
+            byte[] mappedData = benchmark("mapped", mapped);
+            assertArrayEquals(logData, mappedData);
+        } finally {
+            log.close();
+            mapped.close();
+        }
+    }
+
+    private static byte[] benchmark(String name, RecordStore.Impl store) throws RecordStoreException {
+        Random random = new Random(1);
+        byte[] record = new byte[128];
+
+        long start = System.nanoTime();
+        for(int i = 0; i < RECORDS; i++) {
+            random.nextBytes(record);
+            store.addRecord(record, 0, 1 + random.nextInt(record.length));
+        }
+
+        long written = System.nanoTime();
+        byte[] buffer = new byte[record.length];
+        byte[] checksum = new byte[record.length];
+
+        for(int i = 0; i < READS; i++) {
+            int size = store.getRecord(1 + random.nextInt(RECORDS), buffer, 0);
+            for(int j = 0; j < size; j++) {
+                checksum[j] ^= buffer[j];
+            }
+        }
+
+        long read = System.nanoTime();
+        System.out.println(String.format("%s store: %d writes/s, %d reads/s", name,
+                RECORDS * 1000000000L / Math.max(1, written - start),
+                READS * 1000000000L / Math.max(1, read - written)));
+        return checksum;
+    }
+}
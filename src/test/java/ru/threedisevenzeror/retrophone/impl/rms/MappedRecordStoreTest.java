@@ -0,0 +1,73 @@
+package ru.threedisevenzeror.retrophone.impl.rms;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.microedition.rms.RecordStore;
+import javax.microedition.rms.RecordStoreException;
+import javax.microedition.rms.RecordStoreNotOpenException;
+import java.io.File;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ */
+public class MappedRecordStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void storesAreOpenedByBothBackends() throws Exception {
+        File directory = folder.newFolder();
+
+        RecordStore.Impl log = LogRecordStore.open(directory, "store", true);
+        log.addRecord(new byte[] {1, 2}, 0, 2);
+        log.close();
+
+        RecordStore.Impl mapped = MappedRecordStore.open(directory, "store", false);
+        assertArrayEquals(new byte[] {1, 2}, read(mapped, 1));
+        mapped.setRecord(1, new byte[] {3}, 0, 1);
+        mapped.addRecord(new byte[] {4}, 0, 1);
+        mapped.close();
+
+        log = LogRecordStore.open(directory, "store", false);
+        assertArrayEquals(new byte[] {3}, read(log, 1));
+        assertArrayEquals(new byte[] {4}, read(log, 2));
+        log.close();
+    }
+
+    @Test
+    public void closedStoreIsNotUsed() throws Exception {
+        RecordStore.Impl store = MappedRecordStore.open(folder.newFolder(), "store", true);
+        int id = store.addRecord(new byte[] {1}, 0, 1);
+        store.close();
+        store.close();
+
+        try {
+            store.getRecord(id, new byte[1], 0);
+            fail("Closed store is read");
+        } catch (RecordStoreNotOpenException expected) {
+            // mapped region is released
+        }
+
+        try {
+            store.addRecord(new byte[1], 0, 1);
+            fail("Closed store is modified");
+        } catch (RecordStoreNotOpenException expected) {
+            // mapped region is released
+        }
+
+        assertEquals(id, store.getNumRecords());
+    }
+
+    private static byte[] read(RecordStore.Impl store, int recordId) throws RecordStoreException {
+        byte[] data = new byte[store.getRecordSize(recordId)];
+        store.getRecord(recordId, data, 0);
+        return data;
+    }
+}
@@ -0,0 +1,14 @@
+package ru.threedisevenzeror.retrophone.impl.rms;
+
+import ru.threedisevenzeror.retrophone.StorageDevice;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ */
+public class MappedStorageDeviceTest extends StorageDeviceConformance {
+
+    @Override
+    protected StorageDevice createStorage() throws Exception {
+        return new MappedStorageDevice(folder.newFolder());
+    }
+}
@@ -0,0 +1,120 @@
+package ru.threedisevenzeror.retrophone.impl.rms;
+
+import org.junit.Test;
+import ru.threedisevenzeror.retrophone.StorageDevice;
+
+import javax.microedition.rms.RecordStore;
+import javax.microedition.rms.RecordStoreException;
+import javax.microedition.rms.RecordStoreFullException;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ */
+public class QuotaStorageDeviceTest extends StorageDeviceConformance {
+
+    @Override
+    protected StorageDevice createStorage() throws Exception {
+        return new QuotaStorageDevice(new MemoryStorageDevice(), new StorageQuota(StorageQuota.UNLIMITED));
+    }
+
+    @Test
+    public void existingStoresAreChargedWithoutOpening() throws Exception {
+        File directory = folder.newFolder();
+        FileStorageDevice files = new FileStorageDevice(directory);
+        for(String name : new String[] {"first", "second", "third"}) {
+            RecordStore.Impl store = files.openRecordStore(name, true);
+            store.addRecord(new byte[100], 0, 100);
+            store.close();
+        }
+
+        TrackingStorageDevice tracking = new TrackingStorageDevice(directory);
+        StorageQuota quota = new StorageQuota(StorageQuota.UNLIMITED);
+        RecordStore.Impl store = new QuotaStorageDevice(tracking, quota).openRecordStore("first", false);
+        store.close();
+
+        assertEquals(1, tracking.opened.size());
+        assertEquals(totalLength(directory), quota.getUsed());
+    }
+
+    @Test
+    public void chargeFollowsCompaction() throws Exception {
+        File directory = folder.newFolder();
+        TrackingStorageDevice tracking = new TrackingStorageDevice(directory);
+        StorageQuota quota = new StorageQuota(StorageQuota.UNLIMITED);
+        RecordStore.Impl store = new QuotaStorageDevice(tracking, quota).openRecordStore("store", true);
+
+        int id = store.addRecord(new byte[0], 0, 0);
+        for(int i = 0; i < 20; i++) {
+            store.setRecord(id, new byte[1000], 0, 1000);
+        }
+
+        long usedBefore = quota.getUsed();
+        tracking.opened.get(0).compact();
+
+        assertTrue(quota.getUsed() < usedBefore);
+        assertEquals(store.getSize(), quota.getUsed());
+
+        store.close();
+        assertEquals(totalLength(directory), quota.getUsed());
+    }
+
+    @Test
+    public void freedSpaceCanBeUsedAgain() throws Exception {
+        StorageQuota quota = new StorageQuota(10000);
+        QuotaStorageDevice storage = new QuotaStorageDevice(new MemoryStorageDevice(), quota);
+        RecordStore.Impl store = storage.openRecordStore("store", true);
+
+        int id = store.addRecord(new byte[6000], 0, 6000);
+        try {
+            store.addRecord(new byte[6000], 0, 6000);
+            fail("Quota is exceeded");
+        } catch (RecordStoreFullException expected) {
+            // only one of records fits
+        }
+
+        store.deleteRecord(id);
+        store.addRecord(new byte[6000], 0, 6000);
+        store.close();
+
+        storage.deleteRecordStore("store");
+        assertEquals(0, quota.getUsed());
+    }
+
+    private static long totalLength(File directory) {
+        long length = 0;
+        for(File file : directory.listFiles()) {
+            if(file.getName().endsWith(LogRecordStore.FILE_EXTENSION)) {
+                length += file.length();
+            }
+        }
+
+        return length;
+    }
+
+    /**
+     * Keeps every store it opens, stores are never compacted in background
+     */
+    private static class TrackingStorageDevice extends FileStorageDevice {
+
+        final List<LogRecordStore> opened = new ArrayList<LogRecordStore>();
+
+        TrackingStorageDevice(File directory) {
+            super(directory, CommitPolicy.WRITE_THROUGH, CompactionPolicy.DISABLED);
+        }
+
+        @Override
+        public RecordStore.Impl openRecordStore(String name, boolean createIfNecessary) throws RecordStoreException {
+            LogRecordStore store = LogRecordStore.open(directory, name, createIfNecessary,
+                    policy, compactionPolicy, compressionPolicy, statistics);
+            opened.add(store);
+            return store;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package ru.threedisevenzeror.retrophone.impl.rms;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.microedition.rms.RecordStore;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ */
+public class RecordCompressionTest {
+
+    private static final String NAME = "store";
+    private static final CompressionPolicy POLICY = new CompressionPolicy(64, 6);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recordsAreReadBackWithLogicalSize() throws Exception {
+        LogRecordStore store = open(folder.newFolder(), POLICY);
+        Map<Integer, byte[]> records = addRecords(store, new Random(1), 200);
+
+        for(Map.Entry<Integer, byte[]> record : records.entrySet()) {
+            assertEquals(record.getValue().length, store.getRecordSize(record.getKey()));
+        }
+
+        assertContents(store, records);
+        store.close();
+    }
+
+    @Test
+    public void compressibleRecordIsStoredSmaller() throws Exception {
+        LogRecordStore store = open(folder.newFolder(), POLICY);
+        long before = store.getTotalSize();
+        int id = store.addRecord(compressible(new Random(2), 4000), 0, 4000);
+
+        assertTrue(store.getTotalSize() - before < LogRecordStore.ENTRY_HEADER_SIZE + 4000 / 2);
+        assertEquals(4000, store.getRecordSize(id));
+        store.close();
+    }
+
+    @Test
+    public void recordThatDoesNotShrinkIsStoredAsIs() throws Exception {
+        LogRecordStore store = open(folder.newFolder(), POLICY);
+        byte[] data = new byte[1000];
+        new Random(3).nextBytes(data);
+
+        long before = store.getTotalSize();
+        int id = store.addRecord(data, 0, data.length);
+
+        assertEquals(LogRecordStore.ENTRY_HEADER_SIZE + data.length, store.getTotalSize() - before);
+        assertEquals(data.length, store.getRecordSize(id));
+        assertArrayEquals(data, read(store, id));
+        store.close();
+    }
+
+    @Test
+    public void recordBelowMinimalSizeIsStoredAsIs() throws Exception {
+        LogRecordStore store = open(folder.newFolder(), POLICY);
+        byte[] data = new byte[63];
+
+        long before = store.getTotalSize();
+        store.addRecord(data, 0, data.length);
+
+        assertEquals(LogRecordStore.ENTRY_HEADER_SIZE + data.length, store.getTotalSize() - before);
+        store.close();
+    }
+
+    @Test
+    public void reopenedStoreReadsCompressedRecords() throws Exception {
+        File directory = folder.newFolder();
+        LogRecordStore store = open(directory, POLICY);
+        Map<Integer, byte[]> records = addRecords(store, new Random(4), 100);
+        store.close();
+
+        // index is restored from checkpoint
+        File checkpointFile = LogRecordStore.getCheckpointFile(LogRecordStore.getStoreFile(directory, NAME));
+        assertEquals(LogRecordStore.CHECKPOINT_MAGIC, readMagic(checkpointFile));
+        store = open(directory, POLICY);
+        assertContents(store, records);
+        store.close();
+
+        // index is rebuilt from log, and policy of reopened store does not affect existing records
+        assertTrue(checkpointFile.delete());
+        store = open(directory, CompressionPolicy.DISABLED);
+        assertContents(store, records);
+        store.close();
+    }
+
+    @Test
+    public void compactionKeepsRecordsCompressed() throws Exception {
+        File directory = folder.newFolder();
+        Random random = new Random(5);
+        LogRecordStore store = open(directory, POLICY);
+        Map<Integer, byte[]> records = addRecords(store, random, 100);
+
+        for(Integer id : records.keySet().toArray(new Integer[records.size()])) {
+            if(random.nextBoolean()) {
+                byte[] data = compressible(random, random.nextInt(2000));
+                store.setRecord(id, data, 0, data.length);
+                records.put(id, data);
+            } else if(random.nextBoolean()) {
+                store.deleteRecord(id);
+                records.remove(id);
+            }
+        }
+
+        assertTrue(store.getDeadSize() > 0);
+        long logicalSize = 0;
+        for(byte[] data : records.values()) {
+            logicalSize += data.length;
+        }
+
+        store.compact();
+        store.flush();
+
+        // dead size is computed from stored sizes, so it is exactly zero after compaction
+        assertEquals(0, store.getDeadSize());
+        assertTrue(store.getTotalSize() < LogRecordStore.HEADER_SIZE
+                + records.size() * LogRecordStore.ENTRY_HEADER_SIZE + logicalSize / 2);
+        assertContents(store, records);
+        store.close();
+
+        store = open(directory, POLICY);
+        assertEquals(0, store.getDeadSize());
+        assertContents(store, records);
+        store.close();
+    }
+
+    @Test
+    public void mappedStoreReadsAndWritesCompressedRecords() throws Exception {
+        File directory = folder.newFolder();
+        LogRecordStore log = open(directory, POLICY);
+        Map<Integer, byte[]> records = addRecords(log, new Random(6), 50);
+        log.close();
+
+        RecordStore.Impl mapped = MappedRecordStore.open(directory, NAME, false, POLICY);
+        assertContents(mapped, records);
+        byte[] data = compressible(new Random(7), 3000);
+        records.put(mapped.addRecord(data, 0, data.length), data);
+        mapped.close();
+
+        log = open(directory, CompressionPolicy.DISABLED);
+        assertContents(log, records);
+        log.close();
+    }
+
+    private static LogRecordStore open(File directory, CompressionPolicy compressionPolicy) throws Exception {
+        return LogRecordStore.open(directory, NAME, true, CommitPolicy.WRITE_THROUGH, CompactionPolicy.DISABLED,
+                compressionPolicy, new CommitStatistics());
+    }
+
+    /**
+     * Adds records of random sizes around minimal compressed size, most of them compressible
+     */
+    private static Map<Integer, byte[]> addRecords(RecordStore.Impl store, Random random, int count) throws Exception {
+        Map<Integer, byte[]> records = new TreeMap<Integer, byte[]>();
+
+        for(int i = 0; i < count; i++) {
+            int size = random.nextInt(4) == 0 ? random.nextInt(128) : random.nextInt(4000);
+            byte[] data;
+            if(random.nextInt(5) == 0) {
+                data = new byte[size];
+                random.nextBytes(data);
+            } else {
+                data = compressible(random, size);
+            }
+
+            records.put(store.addRecord(data, 0, data.length), data);
+        }
+
+        return records;
+    }
+
+    /**
+     * Data of few repeated values, like typical saved game
+     */
+    private static byte[] compressible(Random random, int size) {
+        byte[] data = new byte[size];
+        for(int i = 0; i < size; i++) {
+            data[i] = (byte) random.nextInt(4);
+        }
+
+        return data;
+    }
+
+    private static void assertContents(RecordStore.Impl store, Map<Integer, byte[]> records) throws Exception {
+        assertEquals(records.size(), store.getNumRecords());
+
+        for(Map.Entry<Integer, byte[]> record : records.entrySet()) {
+            assertArrayEquals(record.getValue(), read(store, record.getKey()));
+        }
+    }
+
+    private static byte[] read(RecordStore.Impl store, int recordId) throws Exception {
+        byte[] data = new byte[store.getRecordSize(recordId)];
+        assertEquals(data.length, store.getRecord(recordId, data, 0));
+        return data;
+    }
+
+    private static int readMagic(File file) throws Exception {
+        DataInputStream stream = new DataInputStream(new FileInputStream(file));
+        try {
+            return stream.readInt();
+        } finally {
+            stream.close();
+        }
+    }
+}
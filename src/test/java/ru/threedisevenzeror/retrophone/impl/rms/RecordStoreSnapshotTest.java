@@ -0,0 +1,201 @@
+package ru.threedisevenzeror.retrophone.impl.rms;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ru.threedisevenzeror.retrophone.StorageDevice;
+
+import javax.microedition.rms.RecordStore;
+import javax.microedition.rms.RecordStoreException;
+import javax.microedition.rms.RecordStoreRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ */
+public class RecordStoreSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void restoredStoresMatchExportedOnes() throws Exception {
+        StorageDevice source = new FileStorageDevice(folder.newFolder());
+        fill(source, "save", 50);
+        fill(source, "settings", 3);
+
+        StorageDevice target = new FileStorageDevice(folder.newFolder());
+        String[] restored = RecordStoreSnapshot.restore(target, read(export(source)));
+        Arrays.sort(restored);
+
+        assertArrayEquals(new String[] {"save", "settings"}, restored);
+        assertSameStores(source, target, "save");
+        assertSameStores(source, target, "settings");
+    }
+
+    @Test
+    public void truncatedSnapshotKeepsExistingStore() throws Exception {
+        StorageDevice source = new MemoryStorageDevice();
+        fill(source, "save", 100);
+        byte[] snapshot = export(source);
+
+        StorageDevice target = new FileStorageDevice(folder.newFolder());
+        fill(target, "save", 5);
+        byte[] before = dump(target, "save");
+
+        for(int length = 8; length < snapshot.length; length += 97) {
+            try {
+                RecordStoreSnapshot.restore(target, read(Arrays.copyOf(snapshot, length)));
+                fail("Snapshot truncated to " + length + " bytes is restored");
+            } catch (IOException expected) {
+                // store is left as is
+            }
+
+            assertArrayEquals(before, dump(target, "save"));
+            assertArrayEquals(new String[] {"save"}, target.listRecordStores());
+        }
+    }
+
+    @Test
+    public void corruptedSnapshotKeepsExistingStore() throws Exception {
+        StorageDevice source = new MemoryStorageDevice();
+        fill(source, "save", 10);
+        byte[] snapshot = export(source);
+        snapshot[snapshot.length - 20] ^= 1;
+
+        StorageDevice target = new MemoryStorageDevice();
+        fill(target, "save", 5);
+        byte[] before = dump(target, "save");
+
+        try {
+            RecordStoreSnapshot.restore(target, read(snapshot));
+            fail("Corrupted snapshot is restored");
+        } catch (IOException expected) {
+            // store is left as is
+        }
+
+        assertArrayEquals(before, dump(target, "save"));
+        assertArrayEquals(new String[] {"save"}, target.listRecordStores());
+    }
+
+    @Test
+    public void restoredStoreAddsRecordsAfterRestoredNextId() throws Exception {
+        StorageDevice source = new MemoryStorageDevice();
+        RecordStore.Impl store = source.openRecordStore("save", true);
+        for(int i = 0; i < 100; i++) {
+            store.addRecord(new byte[1], 0, 1);
+        }
+
+        for(int id = 1; id <= 100; id++) {
+            store.deleteRecord(id);
+        }
+
+        StorageDevice target = new MemoryStorageDevice();
+        RecordStoreSnapshot.restore(target, read(export(source)));
+
+        RecordStore.Impl restored = target.openRecordStore("save", false);
+        assertEquals(101, restored.getNextRecordID());
+        assertEquals(101, restored.addRecord(new byte[] {7}, 0, 1));
+        assertEquals(1, restored.getRecordSize(101));
+    }
+
+    @Test
+    public void lockedStoreIsNotRestored() throws Exception {
+        StorageDevice source = new MemoryStorageDevice();
+        fill(source, "save", 10);
+        byte[] snapshot = export(source);
+
+        StorageDevice target = new MemoryStorageDevice();
+        fill(target, "save", 5);
+        byte[] before = dump(target, "save");
+
+        RecordStoreRegistry registry = RecordStoreRegistry.forStorage(target);
+        registry.lock("save");
+        try {
+            RecordStoreSnapshot.restore(target, read(snapshot));
+            fail("Locked store is restored");
+        } catch (RecordStoreException expected) {
+            // store is in use
+        } finally {
+            registry.unlock("save");
+        }
+
+        assertArrayEquals(before, dump(target, "save"));
+        RecordStoreSnapshot.restore(target, read(snapshot));
+        assertSameStores(source, target, "save");
+    }
+
+    private static void fill(StorageDevice storage, String name, int count) throws RecordStoreException {
+        RecordStore.Impl store = storage.openRecordStore(name, true);
+        try {
+            for(int i = 0; i < count; i++) {
+                byte[] data = new byte[i * 7 % 300];
+                Arrays.fill(data, (byte) (i + name.length()));
+                store.addRecord(data, 0, data.length);
+            }
+
+            // leave a gap in record ids
+            if(count > 2) {
+                store.deleteRecord(2);
+            }
+        } finally {
+            store.close();
+        }
+    }
+
+    private static void assertSameStores(StorageDevice expected, StorageDevice actual, String name)
+            throws RecordStoreException {
+        RecordStore.Impl expectedStore = expected.openRecordStore(name, false);
+        RecordStore.Impl actualStore = actual.openRecordStore(name, false);
+        try {
+            assertEquals(expectedStore.getNextRecordID(), actualStore.getNextRecordID());
+            assertEquals(expectedStore.getVersion(), actualStore.getVersion());
+            assertEquals(expectedStore.getLastModified(), actualStore.getLastModified());
+        } finally {
+            expectedStore.close();
+            actualStore.close();
+        }
+
+        assertArrayEquals(dump(expected, name), dump(actual, name));
+    }
+
+    /**
+     * Record ids, sizes and data of store, one after another
+     */
+    private static byte[] dump(StorageDevice storage, String name) throws RecordStoreException {
+        RecordStore.Impl store = storage.openRecordStore(name, false);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            for(int recordId : store.getRecordIds()) {
+                byte[] data = new byte[store.getRecordSize(recordId)];
+                store.getRecord(recordId, data, 0);
+                out.write(recordId);
+                out.write(data.length);
+                out.write(data, 0, data.length);
+            }
+        } finally {
+            store.close();
+        }
+
+        return out.toByteArray();
+    }
+
+    private static byte[] export(StorageDevice storage) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RecordStoreSnapshot.export(storage, Channels.newChannel(out));
+        return out.toByteArray();
+    }
+
+    private static ReadableByteChannel read(byte[] snapshot) {
+        return Channels.newChannel(new ByteArrayInputStream(snapshot));
+    }
+}
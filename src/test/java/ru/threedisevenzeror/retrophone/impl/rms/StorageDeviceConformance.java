@@ -0,0 +1,323 @@
+package ru.threedisevenzeror.retrophone.impl.rms;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ru.threedisevenzeror.retrophone.StorageDevice;
+
+import javax.microedition.rms.InvalidRecordIDException;
+import javax.microedition.rms.RecordStore;
+import javax.microedition.rms.RecordStoreException;
+import javax.microedition.rms.RecordStoreNotFoundException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Behaviour every {@link StorageDevice} should have, each storage has a test that extends this one
+ */
+public abstract class StorageDeviceConformance {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private StorageDevice storage;
+
+    /**
+     * Creates new empty storage
+     */
+    protected abstract StorageDevice createStorage() throws Exception;
+
+    @Before
+    public void setUp() throws Exception {
+        storage = createStorage();
+    }
+
+    @Test
+    public void newStorageHasNoStores() {
+        assertNull(storage.listRecordStores());
+    }
+
+    @Test(expected = RecordStoreNotFoundException.class)
+    public void missingStoreIsNotOpenedWithoutCreation() throws Exception {
+        storage.openRecordStore("missing", false);
+    }
+
+    @Test(expected = RecordStoreNotFoundException.class)
+    public void missingStoreIsNotDeleted() throws Exception {
+        storage.deleteRecordStore("missing");
+    }
+
+    @Test
+    public void newStoreIsEmpty() throws Exception {
+        RecordStore.Impl store = storage.openRecordStore("store", true);
+        try {
+            assertEquals(0, store.getNumRecords());
+            assertEquals(1, store.getNextRecordID());
+            assertEquals(0, store.getRecordIds().length);
+            assertTrue(store.getSizeAvailable() > 0);
+        } finally {
+            store.close();
+        }
+
+        assertArrayEquals(new String[] {"store"}, storage.listRecordStores());
+    }
+
+    @Test
+    public void recordsGetSequentialIds() throws Exception {
+        RecordStore.Impl store = storage.openRecordStore("store", true);
+        try {
+            for(int i = 1; i <= 20; i++) {
+                assertEquals(i, store.getNextRecordID());
+                assertEquals(i, store.addRecord(new byte[] {(byte) i}, 0, 1));
+            }
+
+            store.deleteRecord(20);
+            assertEquals(21, store.addRecord(new byte[0], 0, 0));
+            assertEquals(20, store.getNumRecords());
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void recordsAreAddedChangedAndDeleted() throws Exception {
+        RecordStore.Impl store = storage.openRecordStore("store", true);
+        try {
+            int first = store.addRecord(new byte[] {9, 1, 2, 3, 9}, 1, 3);
+            int second = store.addRecord(new byte[0], 0, 0);
+
+            assertArrayEquals(new byte[] {1, 2, 3}, read(store, first));
+            assertArrayEquals(new byte[0], read(store, second));
+
+            store.setRecord(first, new byte[] {4, 5, 6, 7}, 0, 4);
+            assertArrayEquals(new byte[] {4, 5, 6, 7}, read(store, first));
+            assertEquals(4, store.getRecordSize(first));
+
+            store.deleteRecord(second);
+            assertArrayEquals(new int[] {first}, store.getRecordIds());
+            assertEquals(1, store.getNumRecords());
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void recordIsReadAtBufferOffset() throws Exception {
+        RecordStore.Impl store = storage.openRecordStore("store", true);
+        try {
+            int id = store.addRecord(new byte[] {1, 2}, 0, 2);
+            byte[] buffer = new byte[4];
+
+            assertEquals(2, store.getRecord(id, buffer, 2));
+            assertArrayEquals(new byte[] {0, 0, 1, 2}, buffer);
+
+            try {
+                store.getRecord(id, buffer, 3);
+                fail("Record is read past the end of buffer");
+            } catch (ArrayIndexOutOfBoundsException expected) {
+                // buffer is too small
+            }
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void invalidRecordIdsAreRefused() throws Exception {
+        RecordStore.Impl store = storage.openRecordStore("store", true);
+        try {
+            int id = store.addRecord(new byte[1], 0, 1);
+            store.deleteRecord(id);
+
+            for(int invalidId : new int[] {0, -1, id, id + 1, 1000}) {
+                assertInvalid(store, invalidId);
+            }
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void versionAndModificationTimeFollowModifications() throws Exception {
+        RecordStore.Impl store = storage.openRecordStore("store", true);
+        try {
+            long start = System.currentTimeMillis();
+            int version = store.getVersion();
+
+            int id = store.addRecord(new byte[1], 0, 1);
+            store.setRecord(id, new byte[2], 0, 2);
+            store.deleteRecord(id);
+
+            assertEquals(version + 3, store.getVersion());
+            assertTrue(store.getLastModified() >= start);
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void sizeGrowsWithRecords() throws Exception {
+        RecordStore.Impl store = storage.openRecordStore("store", true);
+        try {
+            int emptySize = store.getSize();
+            store.addRecord(new byte[1000], 0, 1000);
+            assertTrue(store.getSize() >= emptySize + 1000);
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void recordsSurviveReopen() throws Exception {
+        RecordStore.Impl store = storage.openRecordStore("store", true);
+        int id;
+        int version;
+        try {
+            store.addRecord(new byte[] {1}, 0, 1);
+            id = store.addRecord(new byte[] {2, 3}, 0, 2);
+            store.deleteRecord(1);
+            version = store.getVersion();
+        } finally {
+            store.close();
+        }
+
+        store = storage.openRecordStore("store", false);
+        try {
+            assertArrayEquals(new int[] {id}, store.getRecordIds());
+            assertArrayEquals(new byte[] {2, 3}, read(store, id));
+            assertEquals(id + 1, store.getNextRecordID());
+            assertEquals(version, store.getVersion());
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void storesAreIndependent() throws Exception {
+        RecordStore.Impl first = storage.openRecordStore("first", true);
+        RecordStore.Impl second = storage.openRecordStore("second", true);
+        try {
+            first.addRecord(new byte[] {1}, 0, 1);
+            assertEquals(0, second.getNumRecords());
+            assertEquals(1, second.addRecord(new byte[] {2}, 0, 1));
+            assertArrayEquals(new byte[] {1}, read(first, 1));
+        } finally {
+            first.close();
+            second.close();
+        }
+
+        String[] names = storage.listRecordStores();
+        Arrays.sort(names);
+        assertArrayEquals(new String[] {"first", "second"}, names);
+    }
+
+    @Test
+    public void deletedStoreIsGone() throws Exception {
+        RecordStore.Impl store = storage.openRecordStore("store", true);
+        store.addRecord(new byte[1], 0, 1);
+        store.close();
+
+        storage.deleteRecordStore("store");
+        assertNull(storage.listRecordStores());
+
+        store = storage.openRecordStore("store", true);
+        try {
+            assertEquals(0, store.getNumRecords());
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void namesAreNotRestrictedToFileNames() throws Exception {
+        String name = "Save: 1/2 *?слот";
+        RecordStore.Impl store = storage.openRecordStore(name, true);
+        store.close();
+
+        assertArrayEquals(new String[] {name}, storage.listRecordStores());
+        storage.deleteRecordStore(name);
+    }
+
+    @Test
+    public void replacementTakesNameOfStore() throws Exception {
+        RecordStore.Impl store = storage.openRecordStore("store", true);
+        store.addRecord(new byte[] {1}, 0, 1);
+        store.close();
+
+        RecordStore.Impl replacement = storage.openRecordStore("replacement", true);
+        replacement.addRecord(new byte[] {2}, 0, 1);
+        replacement.addRecord(new byte[] {3}, 0, 1);
+        replacement.close();
+
+        storage.replaceRecordStore("store", "replacement");
+        assertArrayEquals(new String[] {"store"}, storage.listRecordStores());
+
+        store = storage.openRecordStore("store", false);
+        try {
+            assertEquals(2, store.getNumRecords());
+            assertArrayEquals(new byte[] {3}, read(store, 2));
+        } finally {
+            store.close();
+        }
+
+        storage.replaceRecordStore("store", "store");
+    }
+
+    @Test
+    public void restoredRecordsKeepIdsAndState() throws Exception {
+        RecordStore.Impl store = storage.openRecordStore("store", true);
+        try {
+            store.restoreRecord(3, new byte[] {3}, 0, 1);
+            store.restoreRecord(7, new byte[] {7, 7}, 0, 2);
+            store.restoreState(10, 42, 1234);
+
+            assertArrayEquals(new int[] {3, 7}, store.getRecordIds());
+            assertArrayEquals(new byte[] {7, 7}, read(store, 7));
+            assertEquals(10, store.getNextRecordID());
+            assertEquals(42, store.getVersion());
+            assertEquals(1234, store.getLastModified());
+            assertEquals(10, store.addRecord(new byte[0], 0, 0));
+        } finally {
+            store.close();
+        }
+    }
+
+    private static void assertInvalid(RecordStore.Impl store, int recordId) throws RecordStoreException {
+        try {
+            store.getRecordSize(recordId);
+            fail("Size of record " + recordId + " is returned");
+        } catch (InvalidRecordIDException expected) {
+            // no such record
+        }
+
+        try {
+            store.setRecord(recordId, new byte[1], 0, 1);
+            fail("Record " + recordId + " is changed");
+        } catch (InvalidRecordIDException expected) {
+            // no such record
+        }
+
+        try {
+            store.deleteRecord(recordId);
+            fail("Record " + recordId + " is deleted");
+        } catch (InvalidRecordIDException expected) {
+            // no such record
+        }
+
+        assertFalse(Arrays.binarySearch(store.getRecordIds(), recordId) >= 0);
+    }
+
+    private static byte[] read(RecordStore.Impl store, int recordId) throws RecordStoreException {
+        byte[] data = new byte[store.getRecordSize(recordId)];
+        store.getRecord(recordId, data, 0);
+        return data;
+    }
+}
@@ -0,0 +1,67 @@
+package ru.threedisevenzeror.retrophone.impl.software;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.microedition.lcdui.Graphics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ */
+public class SoftwareGraphicsTest {
+
+    private SoftwareImage image;
+    private SoftwareGraphics graphics;
+
+    @Before
+    public void setUp() {
+        image = SoftwareImage.createMutable(4, 8);
+        graphics = new SoftwareGraphics(image);
+
+        // every row has its own color
+        for(int y = 0; y < 8; y++) {
+            graphics.setColor(y);
+            graphics.fillRect(0, y, 4, 1);
+        }
+
+        image.getDirtyRegion().clear();
+    }
+
+    @Test
+    public void scrollUpReportsCopyAndExposedStrip() {
+        graphics.copyArea(0, 2, 4, 6, 0, 0, Graphics.TOP | Graphics.LEFT);
+        graphics.setColor(9);
+        graphics.fillRect(0, 6, 4, 2);
+
+        for(int y = 0; y < 8; y++) {
+            assertEquals(0xFF000000 | (y < 6 ? y + 2 : 9), image.getPixels()[y * 4]);
+        }
+
+        int[] copy = new int[6];
+        int[] bounds = new int[4];
+        assertTrue(image.getDirtyRegion().takeCopy(copy));
+        assertArrayEquals(new int[] {0, 2, 0, 0, 4, 6}, copy);
+        assertTrue(image.getDirtyRegion().takeBounds(bounds));
+        assertArrayEquals(new int[] {0, 6, 4, 2}, bounds);
+    }
+
+    @Test
+    public void scrollDownCopiesOverlappingRows() {
+        graphics.setClip(0, 0, 4, 7);
+        graphics.copyArea(1, 0, 2, 6, 1, 2, Graphics.TOP | Graphics.LEFT);
+
+        for(int y = 0; y < 8; y++) {
+            int expected = y < 2 || y == 7 ? y : y - 2;
+            assertEquals(0xFF000000 | y, image.getPixels()[y * 4]);
+            assertEquals(0xFF000000 | expected, image.getPixels()[y * 4 + 1]);
+        }
+
+        int[] copy = new int[6];
+        assertTrue(image.getDirtyRegion().takeCopy(copy));
+        assertArrayEquals(new int[] {1, 0, 1, 2, 2, 5}, copy);
+    }
+}
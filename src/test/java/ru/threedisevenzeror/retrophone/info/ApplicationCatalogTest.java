@@ -0,0 +1,211 @@
+package ru.threedisevenzeror.retrophone.info;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ * Files are changed behind catalog's back while keeping their size and modification time,
+ * so names of returned applications tell whether a file was parsed again or taken from index
+ */
+public class ApplicationCatalogTest {
+
+    // modification times are set explicitly, so they do not depend on file system precision
+    private static final long TIME = 1500000000000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private File indexFile;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = folder.newFolder("apps");
+        indexFile = new File(folder.getRoot(), "catalog.idx");
+    }
+
+    @Test
+    public void onlyChangedFilesAreParsedAgain() throws Exception {
+        File first = writeJad("first.jad", "Game A", TIME);
+        File second = writeJad("second.jad", "Game B", TIME);
+        writeJar("third.jar", "Game C", TIME);
+        ApplicationCatalog catalog = new ApplicationCatalog(indexFile, 2);
+        assertEquals(Arrays.asList("Game A", "Game B", "Game C"), names(catalog.scan(directory)));
+
+        // same size and modification time, file is considered unchanged
+        writeJad(first.getName(), "Game X", TIME);
+        writeJad(second.getName(), "Game Y", TIME + 1000);
+        assertEquals(Arrays.asList("Game A", "Game Y", "Game C"), names(catalog.scan(directory)));
+
+        // size is checked too
+        writeJad(first.getName(), "Game AA", TIME);
+        assertEquals(Arrays.asList("Game AA", "Game Y", "Game C"), names(catalog.scan(directory)));
+    }
+
+    @Test
+    public void indexIsReadByNewCatalog() throws Exception {
+        writeJad("first.jad", "Game A", TIME);
+        writeJar("second.jar", "Game B", TIME);
+        new ApplicationCatalog(indexFile).scan(directory);
+
+        writeJad("first.jad", "Game X", TIME);
+        ApplicationCatalog catalog = new ApplicationCatalog(indexFile);
+        assertEquals(Arrays.asList("Game A", "Game B"), names(catalog.getApplications()));
+        assertEquals(Arrays.asList("Game A", "Game B"), names(catalog.scan(directory)));
+    }
+
+    @Test
+    public void invalidFileIsNotParsedAgainUntilChanged() throws Exception {
+        byte[] valid = createJar("Game A");
+        byte[] garbage = new byte[valid.length];
+        Arrays.fill(garbage, (byte) 'x');
+
+        File file = new File(directory, "game.jar");
+        write(file, garbage, TIME);
+        ApplicationCatalog catalog = new ApplicationCatalog(indexFile);
+        assertEquals(0, catalog.scan(directory).length);
+
+        write(file, valid, TIME);
+        assertEquals(0, catalog.scan(directory).length);
+        assertEquals(0, new ApplicationCatalog(indexFile).scan(directory).length);
+
+        write(file, valid, TIME + 1000);
+        assertEquals(Arrays.asList("Game A"), names(catalog.scan(directory)));
+    }
+
+    @Test
+    public void removedFilesAreDroppedFromIndex() throws Exception {
+        File first = writeJad("first.jad", "Game A", TIME);
+        writeJad("second.jad", "Game B", TIME);
+        ApplicationCatalog catalog = new ApplicationCatalog(indexFile);
+        catalog.scan(directory);
+
+        FileUtils.forceDelete(first);
+        assertEquals(Arrays.asList("Game B"), names(catalog.scan(directory)));
+        assertEquals(Arrays.asList("Game B"), names(new ApplicationCatalog(indexFile).getApplications()));
+    }
+
+    @Test
+    public void indexIsNotWrittenWhenNothingChanged() throws Exception {
+        writeJad("first.jad", "Game A", TIME);
+        ApplicationCatalog catalog = new ApplicationCatalog(indexFile);
+        catalog.scan(directory);
+        FileUtils.forceDelete(indexFile);
+
+        catalog.scan(directory);
+        assertFalse(indexFile.exists());
+    }
+
+    @Test
+    public void corruptedIndexIsRebuilt() throws Exception {
+        writeJad("first.jad", "Game A", TIME);
+        new ApplicationCatalog(indexFile).scan(directory);
+        writeJad("first.jad", "Game X", TIME);
+
+        // checksum does not match anymore, so every file is parsed again
+        RandomAccessFile file = new RandomAccessFile(indexFile, "rw");
+        try {
+            file.seek(file.length() - 6);
+            int value = file.read();
+            file.seek(file.length() - 6);
+            file.write(value ^ 0x01);
+        } finally {
+            file.close();
+        }
+
+        ApplicationCatalog catalog = new ApplicationCatalog(indexFile);
+        assertEquals(0, catalog.getApplications().length);
+        assertEquals(Arrays.asList("Game X"), names(catalog.scan(directory)));
+        assertEquals(Arrays.asList("Game X"), names(new ApplicationCatalog(indexFile).getApplications()));
+    }
+
+    @Test
+    public void applicationsAreReturnedInOrderOfFiles() throws Exception {
+        List<String> expected = new ArrayList<String>();
+        for(int i = 0; i < 200; i++) {
+            String name = String.format("Game %03d", i);
+            File subdirectory = new File(directory, String.format("group%d", i / 50));
+            FileUtils.forceMkdir(subdirectory);
+
+            if(i % 3 == 0) {
+                writeJar(subdirectory.getName() + "/" + String.format("%03d.jar", i), name, TIME);
+            } else {
+                writeJad(subdirectory.getName() + "/" + String.format("%03d.jad", i), name, TIME);
+            }
+
+            expected.add(name);
+        }
+
+        // files are parsed in batches by several threads
+        ApplicationCatalog catalog = new ApplicationCatalog(indexFile, 4);
+        assertEquals(expected, names(catalog.scan(directory)));
+        assertEquals(expected, names(new ApplicationCatalog(indexFile).getApplications()));
+    }
+
+    private File writeJad(String path, String name, long lastModified) throws Exception {
+        String descriptor = "MIDlet-Name: " + name + "\n" +
+                "MIDlet-Vendor: Vendor\n" +
+                "MIDlet-Version: 1.0\n" +
+                "MIDlet-1: " + name + ", /icon.png, game.Main\n" +
+                "MIDlet-Jar-URL: game.jar\n" +
+                "MIDlet-Jar-Size: 1000\n";
+
+        File file = new File(directory, path);
+        write(file, descriptor.getBytes("UTF-8"), lastModified);
+        return file;
+    }
+
+    private File writeJar(String path, String name, long lastModified) throws Exception {
+        File file = new File(directory, path);
+        write(file, createJar(name), lastModified);
+        return file;
+    }
+
+    private static byte[] createJar(String name) throws Exception {
+        Manifest manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.putValue("MIDlet-Name", name);
+        attributes.putValue("MIDlet-Vendor", "Vendor");
+        attributes.putValue("MIDlet-Version", "1.0");
+        attributes.putValue("MIDlet-1", name + ", /icon.png, game.Main");
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        JarOutputStream stream = new JarOutputStream(data, manifest);
+        stream.close();
+        return data.toByteArray();
+    }
+
+    private static void write(File file, byte[] data, long lastModified) throws Exception {
+        FileUtils.writeByteArrayToFile(file, data);
+        if(!file.setLastModified(lastModified)) {
+            throw new IllegalStateException("Cannot set modification time of " + file);
+        }
+    }
+
+    private static List<String> names(ApplicationInfo[] applications) {
+        List<String> names = new ArrayList<String>();
+        for(ApplicationInfo application : applications) {
+            names.add(application.getName());
+        }
+
+        return names;
+    }
+}
@@ -0,0 +1,188 @@
+package ru.threedisevenzeror.retrophone.info;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ */
+public class CompactAttributesTest {
+
+    private static final String[] NAMES = {
+            "Manifest-Version", "MIDlet-Name", "MIDlet-Vendor", "MIDlet-Version", "MIDlet-Description",
+            "MIDlet-Jar-URL", "MIDlet-Jar-Size", "MIDlet-Data-Size", "MIDlet-1", "MIDlet-2",
+            "MicroEdition-Profile", "MicroEdition-Configuration", "Nokia-MIDlet-Category", "X-Custom"
+    };
+
+    @Test
+    public void lookupMatchesManifest() throws Exception {
+        Random random = new Random(1);
+
+        for(int iteration = 0; iteration < 200; iteration++) {
+            Manifest manifest = new Manifest();
+            Attributes main = manifest.getMainAttributes();
+            main.putValue("Manifest-Version", "1.0");
+
+            for(String name : NAMES) {
+                if(random.nextInt(3) != 0) {
+                    main.putValue(changeCase(name, random), randomValue(random));
+                }
+            }
+
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            manifest.write(stream);
+            byte[] data = stream.toByteArray();
+            CompactAttributes attributes = CompactAttributes.of(DescriptorParser.parse(data, 0, data.length));
+
+            assertEquals(main.size(), attributes.size());
+            for(String name : NAMES) {
+                assertEquals(name, main.getValue(name), attributes.get(name));
+                assertEquals(name, main.getValue(name), attributes.get(changeCase(name, random)));
+                assertEquals(name, main.getValue(name), attributes.get(new String(name.toCharArray())));
+            }
+
+            assertNull(attributes.get("Missing"));
+        }
+    }
+
+    @Test
+    public void lookupMatchesLinearSearchOverArray() {
+        String[] source = {"MIDlet-Name", "Game", "midlet-vendor", "Vendor", "X-Custom", "", "X-Other", "other"};
+        CompactAttributes attributes = CompactAttributes.of(source);
+
+        assertEquals(source.length / 2, attributes.size());
+        assertArrayEquals(source, attributes.toArray());
+
+        for(String name : new String[] {"MIDlet-Name", "MIDLET-NAME", "MIDlet-Vendor", "X-Custom", "x-other", "None"}) {
+            assertEquals(name, linearSearch(source, name), attributes.get(name));
+        }
+    }
+
+    @Test
+    public void emptyAttributes() {
+        CompactAttributes attributes = CompactAttributes.of(new String[0]);
+        assertEquals(0, attributes.size());
+        assertEquals(0, attributes.toArray().length);
+        assertNull(attributes.get("MIDlet-Name"));
+    }
+
+    @Test
+    public void commonValuesAreShared() {
+        CompactAttributes first = CompactAttributes.of(new String[] {"MicroEdition-Profile", new String("MIDP-2.0")});
+        CompactAttributes second = CompactAttributes.of(new String[] {"MicroEdition-Profile", new String("MIDP-2.0")});
+
+        assertSame(first.get("MicroEdition-Profile"), second.get("MicroEdition-Profile"));
+        assertSame(first.toArray()[0], second.toArray()[0]);
+    }
+
+    @Test
+    public void retainedHeapIsSmallerThanManifest() throws Exception {
+        int count = 20000;
+        byte[][] descriptors = new byte[count][];
+        for(int i = 0; i < count; i++) {
+            descriptors[i] = createDescriptor(i);
+        }
+
+        Object[] retained = new Object[count];
+        long base = usedMemory();
+        for(int i = 0; i < count; i++) {
+            retained[i] = new Manifest(new ByteArrayInputStream(descriptors[i]));
+        }
+        long manifestSize = usedMemory() - base;
+
+        retained = new Object[count];
+        base = usedMemory();
+        for(int i = 0; i < count; i++) {
+            retained[i] = CompactAttributes.of(DescriptorParser.parse(descriptors[i], 0, descriptors[i].length));
+        }
+        long compactSize = usedMemory() - base;
+
+        assertEquals(count, retained.length);
+        assertTrue("Manifest retains " + manifestSize + " bytes, compact attributes retain " + compactSize,
+                compactSize * 2 < manifestSize);
+    }
+
+    /**
+     * Lookup that was used before attributes were compacted
+     */
+    private static String linearSearch(String[] attributes, String name) {
+        for(int i = 0; i < attributes.length; i += 2) {
+            if(attributes[i].equalsIgnoreCase(name)) {
+                return attributes[i + 1];
+            }
+        }
+
+        return null;
+    }
+
+    private static byte[] createDescriptor(int index) throws Exception {
+        String name = "Game " + index;
+        return ("Manifest-Version: 1.0\r\n" +
+                "MIDlet-Name: " + name + "\r\n" +
+                "MIDlet-Vendor: Vendor " + (index % 50) + "\r\n" +
+                "MIDlet-Version: 1.0." + (index % 10) + "\r\n" +
+                "MIDlet-1: " + name + ", /icon.png, game.Main\r\n" +
+                "MIDlet-Jar-URL: game" + index + ".jar\r\n" +
+                "MIDlet-Jar-Size: " + (100000 + index) + "\r\n" +
+                "MicroEdition-Configuration: CLDC-1.1\r\n" +
+                "MicroEdition-Profile: MIDP-2.0\r\n" +
+                "Created-By: 1.4.2 (Sun Microsystems Inc.)\r\n" +
+                "Nokia-MIDlet-Category: Game\r\n" +
+                "\r\n").getBytes("UTF-8");
+    }
+
+    /**
+     * @return heap in use after garbage is collected
+     */
+    private static long usedMemory() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+
+        for(int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(20);
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+
+        return used;
+    }
+
+    private static String changeCase(String name, Random random) {
+        char[] chars = name.toCharArray();
+        for(int i = 0; i < chars.length; i++) {
+            if(random.nextBoolean()) {
+                chars[i] = Character.isUpperCase(chars[i]) ? Character.toLowerCase(chars[i]) : Character.toUpperCase(chars[i]);
+            }
+        }
+
+        return new String(chars);
+    }
+
+    private static String randomValue(Random random) {
+        List<String> words = new ArrayList<String>();
+        int count = 1 + random.nextInt(random.nextInt(4) == 0 ? 40 : 3);
+        for(int i = 0; i < count; i++) {
+            words.add(Integer.toString(random.nextInt(100000), 36) + (random.nextInt(5) == 0 ? ":Ж" : ""));
+        }
+
+        StringBuilder value = new StringBuilder();
+        for(String word : words) {
+            value.append(value.length() == 0 ? "" : " ").append(word);
+        }
+
+        return value.toString();
+    }
+}
@@ -0,0 +1,91 @@
+package ru.threedisevenzeror.retrophone.info;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares {@link DescriptorParser} with {@link Manifest} on parsing of many descriptors,
+ * like catalog does on a large application library
+ *
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ */
+public class DescriptorParserBenchmark {
+
+    private static final int DESCRIPTOR_COUNT = 100000;
+    private static final int ROUNDS = 5;
+
+    @Test
+    public void parserIsFasterThanManifest() throws Exception {
+        byte[][] descriptors = createDescriptors(DESCRIPTOR_COUNT);
+        assertSameAttributes(descriptors);
+
+        long parserTime = Long.MAX_VALUE;
+        long manifestTime = Long.MAX_VALUE;
+        int checksum = 0;
+
+        for(int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for(byte[] descriptor : descriptors) {
+                checksum += DescriptorParser.parse(descriptor, 0, descriptor.length).length;
+            }
+            parserTime = Math.min(parserTime, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for(byte[] descriptor : descriptors) {
+                checksum += new Manifest(new ByteArrayInputStream(descriptor)).getMainAttributes().size();
+            }
+            manifestTime = Math.min(manifestTime, System.nanoTime() - start);
+        }
+
+        System.out.println(String.format("%d descriptors: DescriptorParser %d ms, Manifest %d ms (checksum %d)",
+                DESCRIPTOR_COUNT, parserTime / 1000000, manifestTime / 1000000, checksum));
+        assertTrue("DescriptorParser took " + parserTime + " ns, Manifest took " + manifestTime + " ns",
+                parserTime < manifestTime);
+    }
+
+    private static void assertSameAttributes(byte[][] descriptors) throws Exception {
+        for(int i = 0; i < descriptors.length; i += 997) {
+            byte[] descriptor = descriptors[i];
+            String[] parsed = DescriptorParser.parse(descriptor, 0, descriptor.length);
+            Attributes attributes = new Manifest(new ByteArrayInputStream(descriptor)).getMainAttributes();
+
+            assertEquals(attributes.size() * 2, parsed.length);
+            for(int j = 0; j < parsed.length; j += 2) {
+                assertEquals(attributes.getValue(parsed[j]), parsed[j + 1]);
+            }
+        }
+    }
+
+    private static byte[][] createDescriptors(int count) throws Exception {
+        String[] vendors = {"Gameloft", "Digital Chocolate", "EA Mobile", "Glu", "Fishlabs", "HandsOn"};
+        byte[][] descriptors = new byte[count][];
+
+        for(int i = 0; i < count; i++) {
+            String vendor = vendors[i % vendors.length];
+            String name = "Game " + i;
+            String descriptor = "Manifest-Version: 1.0\r\n" +
+                    "MIDlet-Name: " + name + "\r\n" +
+                    "MIDlet-Vendor: " + vendor + "\r\n" +
+                    "MIDlet-Version: 1." + (i % 10) + "." + (i % 7) + "\r\n" +
+                    "MIDlet-1: " + name + ", /icon.png, game" + i + ".Main\r\n" +
+                    "MIDlet-Description: A long description of game number " + i + " made by " + vendor + "\r\n" +
+                    " which continues on the next line\r\n" +
+                    "MIDlet-Jar-URL: http://example.com/games/" + i + ".jar\r\n" +
+                    "MIDlet-Jar-Size: " + (100000 + i) + "\r\n" +
+                    "MicroEdition-Configuration: CLDC-1." + (i % 2) + "\r\n" +
+                    "MicroEdition-Profile: MIDP-2.0\r\n" +
+                    "Created-By: 1.4.2 (Sun Microsystems Inc.)\r\n" +
+                    "Nokia-MIDlet-Category: Game\r\n" +
+                    "\r\n";
+            descriptors[i] = descriptor.getBytes("UTF-8");
+        }
+
+        return descriptors;
+    }
+}
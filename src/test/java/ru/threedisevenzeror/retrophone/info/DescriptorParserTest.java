@@ -0,0 +1,180 @@
+package ru.threedisevenzeror.retrophone.info;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ */
+public class DescriptorParserTest {
+
+    @Test
+    public void wellFormedDescriptorIsParsed() throws Exception {
+        assertParsed("MIDlet-Name: Game\r\nMIDlet-Version: 1.0.2\r\nMIDlet-1: Game, /icon.png, game.Main\r\n",
+                "MIDlet-Name", "Game", "MIDlet-Version", "1.0.2", "MIDlet-1", "Game, /icon.png, game.Main");
+    }
+
+    @Test
+    public void anyLineSeparatorsAreAccepted() throws Exception {
+        assertParsed("A: 1\nB: 2\rC: 3\r\nD: 4", "A", "1", "B", "2", "C", "3", "D", "4");
+    }
+
+    @Test
+    public void spacesAroundValueAreOptional() throws Exception {
+        assertParsed("A:1\nB:   2  \t\nC :3\nD:\n", "A", "1", "B", "2", "C", "3", "D", "");
+    }
+
+    @Test
+    public void valueCanContainColons() throws Exception {
+        assertParsed("MIDlet-Jar-URL: http://example.com:8080/game.jar\n",
+                "MIDlet-Jar-URL", "http://example.com:8080/game.jar");
+    }
+
+    @Test
+    public void blankLinesBetweenAttributesAreSkipped() throws Exception {
+        assertParsed("\n\nA: 1\n\n\r\nB: 2\n\n", "A", "1", "B", "2");
+    }
+
+    @Test
+    public void linesWithoutNameAreSkipped() throws Exception {
+        assertParsed("garbage line\nA: 1\n: no name\nB: 2\n", "A", "1", "B", "2");
+    }
+
+    @Test
+    public void continuationLinesAreJoined() throws Exception {
+        // only the first space or tab of continuation line is removed
+        assertParsed("MIDlet-Description: first\n  second\n\tthird\nB: 2\n",
+                "MIDlet-Description", "first secondthird", "B", "2");
+    }
+
+    @Test
+    public void continuationOfMultipleLinesIsJoinedToLongValue() throws Exception {
+        StringBuilder descriptor = new StringBuilder("A: ");
+        StringBuilder expected = new StringBuilder();
+        for(int i = 0; i < 100; i++) {
+            String piece = "piece" + i;
+            descriptor.append(i == 0 ? "" : "\n ").append(piece);
+            expected.append(piece);
+        }
+
+        assertParsed(descriptor.toString(), "A", expected.toString());
+    }
+
+    @Test
+    public void continuationAfterBlankLineIsIgnored() throws Exception {
+        assertParsed("A: 1\n\n continued\nB: 2\n", "A", "1", "B", "2");
+    }
+
+    @Test
+    public void leadingContinuationIsIgnored() throws Exception {
+        assertParsed(" orphan\nA: 1\n", "A", "1");
+    }
+
+    @Test
+    public void repeatedAttributeKeepsLastValue() throws Exception {
+        assertParsed("A: 1\nB: 2\na: 3\n", "A", "3", "B", "2");
+    }
+
+    @Test
+    public void byteOrderMarkIsSkipped() throws Exception {
+        byte[] data = concat(new byte[] {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF}, "A: 1\n".getBytes("UTF-8"));
+        assertArrayEquals(new String[] {"A", "1"}, DescriptorParser.parse(data, 0, data.length));
+    }
+
+    @Test
+    public void utf8ValuesAreDecoded() throws Exception {
+        assertParsed("MIDlet-Name: Игра ☺\n", "MIDlet-Name", "Игра ☺");
+    }
+
+    @Test
+    public void invalidUtf8IsDecodedAsFallbackCharset() throws Exception {
+        byte[] data = "MIDlet-Vendor: Café\n".getBytes("ISO-8859-1");
+        assertArrayEquals(new String[] {"MIDlet-Vendor", "Café"}, DescriptorParser.parse(data, 0, data.length));
+    }
+
+    @Test
+    public void characterWrappedInTheMiddleIsJoined() throws Exception {
+        byte[] data = concat(concat("A: x".getBytes("UTF-8"), new byte[] {(byte) 0xD0, '\r', '\n', ' ', (byte) 0x96}),
+                "\nB: Café\n".getBytes("UTF-8"));
+        assertArrayEquals(new String[] {"A", "xЖ", "B", "Café"}, DescriptorParser.parse(data, 0, data.length));
+    }
+
+    @Test
+    public void truncatedUtf8SequenceIsDecodedAsFallbackCharset() throws Exception {
+        byte[] data = concat("A: x".getBytes("UTF-8"), new byte[] {(byte) 0xD0});
+        assertArrayEquals(new String[] {"A", "xÐ"}, DescriptorParser.parse(data, 0, data.length));
+    }
+
+    @Test
+    public void entrySectionsOfManifestAreSkipped() throws Exception {
+        assertParsed("Manifest-Version: 1.0\nA: 1\n\nName: game/Main.class\nSHA1-Digest: abc\n",
+                "Manifest-Version", "1.0", "A", "1");
+    }
+
+    @Test
+    public void nameAttributeWithoutBlankLineIsMainAttribute() throws Exception {
+        assertParsed("A: 1\nName: value\n", "A", "1", "Name", "value");
+    }
+
+    @Test
+    public void emptyDescriptorHasNoAttributes() throws Exception {
+        assertParsed("");
+        assertParsed("\n\r\n\n");
+    }
+
+    @Test
+    public void knownNamesAreSharedConstantsInAnyCase() throws Exception {
+        String[] first = DescriptorParser.parse(bytes("midlet-name: A\nMIDLET-1: B\n"), 0, 27);
+        String[] second = DescriptorParser.parse(new ByteArrayInputStream(bytes("MIDlet-Name: C\nMIDlet-1: D\n")));
+
+        assertEquals("MIDlet-Name", first[0]);
+        assertSame(first[0], second[0]);
+        assertEquals("MIDlet-1", first[2]);
+        assertSame(first[2], second[2]);
+    }
+
+    @Test
+    public void partOfArrayIsParsed() throws Exception {
+        byte[] data = bytes("X: 0\nA: 1\nY: 2");
+        assertArrayEquals(new String[] {"A", "1"}, DescriptorParser.parse(data, 5, 5));
+        assertArrayEquals(new String[] {"A", "1"}, DescriptorParser.parse(ByteBuffer.wrap(data, 5, 5)));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data);
+        direct.position(5);
+        assertArrayEquals(new String[] {"A", "1", "Y", "2"}, DescriptorParser.parse(direct));
+        assertEquals(5, direct.position());
+    }
+
+    @Test
+    public void midletValueIsSplitIntoParts() {
+        assertArrayEquals(new String[] {"Game", "/icon.png", "game.Main"},
+                DescriptorParser.parseMidlet(" Game , /icon.png,game.Main "));
+        assertArrayEquals(new String[] {"Game", "", "game.Main"}, DescriptorParser.parseMidlet("Game,,game.Main"));
+        assertArrayEquals(new String[] {"Game", "", ""}, DescriptorParser.parseMidlet("Game"));
+        assertArrayEquals(new String[] {"Game", "icon", "a.B, c"}, DescriptorParser.parseMidlet("Game,icon,a.B, c"));
+    }
+
+    private static void assertParsed(String descriptor, String... expected) throws Exception {
+        byte[] data = bytes(descriptor);
+        assertArrayEquals(expected, DescriptorParser.parse(data, 0, data.length));
+        assertArrayEquals(expected, DescriptorParser.parse(new ByteArrayInputStream(data)));
+    }
+
+    private static byte[] bytes(String value) throws Exception {
+        return value.getBytes("UTF-8");
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] result = new byte[first.length + second.length];
+        System.arraycopy(first, 0, result, 0, first.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+}
@@ -0,0 +1,147 @@
+package ru.threedisevenzeror.retrophone.info;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Reads entries of many application infos which are referenced at once,
+ * and checks that shared {@link JarFilePool} keeps only a bounded number of jars open
+ *
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ */
+public class JarFilePoolBenchmark {
+
+    private static final int APPLICATION_COUNT = 10000;
+    private static final int THREAD_COUNT = 8;
+    private static final int READS_PER_THREAD = 50000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void openJarsAreBoundedByPoolCapacity() throws Exception {
+        final List<ApplicationInfo> infos = new ArrayList<ApplicationInfo>(APPLICATION_COUNT);
+        for(int i = 0; i < APPLICATION_COUNT; i++) {
+            infos.add(ApplicationInfo.fromJar(createJar(i)));
+        }
+
+        final JarFilePool pool = JarFilePool.getShared();
+        final int descriptorBase = countDescriptors();
+        final AtomicInteger maxOpenCount = new AtomicInteger();
+        final AtomicInteger maxDescriptors = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+        Thread[] threads = new Thread[THREAD_COUNT];
+        for(int t = 0; t < threads.length; t++) {
+            final int seed = t;
+            threads[t] = new Thread(new Runnable() {
+                public void run() {
+                    Random random = new Random(seed);
+                    try {
+                        for(int i = 0; i < READS_PER_THREAD; i++) {
+                            int index = random.nextInt(infos.size());
+                            InputStream stream = infos.get(index).getEntry("data.bin");
+                            try {
+                                if(stream.read() != (index & 0xFF)) {
+                                    throw new AssertionError("Wrong entry data of application " + index);
+                                }
+
+                                updateMax(maxOpenCount, pool.getOpenCount());
+                                if(i % 1000 == 0) {
+                                    updateMax(maxDescriptors, countDescriptors());
+                                }
+                            } finally {
+                                stream.close();
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            });
+        }
+
+        long start = System.nanoTime();
+        for(Thread thread : threads) {
+            thread.start();
+        }
+
+        for(Thread thread : threads) {
+            thread.join();
+        }
+        long time = System.nanoTime() - start;
+
+        if(failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+
+        assertEquals(APPLICATION_COUNT, infos.size());
+
+        System.out.println(String.format("%d reads of %d applications in %d threads: %d ms, " +
+                        "max open jars %d of capacity %d, max descriptors %d (base %d)",
+                THREAD_COUNT * READS_PER_THREAD, APPLICATION_COUNT, THREAD_COUNT, time / 1000000,
+                maxOpenCount.get(), pool.getCapacity(), maxDescriptors.get(), descriptorBase));
+
+        // each reading thread can keep one jar beyond capacity while its stream is open
+        assertTrue(maxOpenCount.get() <= pool.getCapacity() + THREAD_COUNT);
+        if(descriptorBase >= 0) {
+            assertTrue(maxDescriptors.get() <= descriptorBase + pool.getCapacity() + THREAD_COUNT);
+        }
+    }
+
+    private File createJar(int index) throws Exception {
+        Manifest manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.putValue("MIDlet-Name", "Game " + index);
+        attributes.putValue("MIDlet-Vendor", "Vendor");
+        attributes.putValue("MIDlet-Version", "1.0");
+        attributes.putValue("MIDlet-1", "Game, /icon.png, game.Main");
+
+        File file = new File(folder.getRoot(), "game" + index + ".jar");
+        JarOutputStream stream = new JarOutputStream(new FileOutputStream(file), manifest);
+        try {
+            stream.putNextEntry(new ZipEntry("data.bin"));
+            byte[] data = new byte[256];
+            data[0] = (byte) index;
+            stream.write(data);
+            stream.closeEntry();
+        } finally {
+            stream.close();
+        }
+
+        return file;
+    }
+
+    /**
+     * @return number of file descriptors open by this process, or -1 if it is unknown on this system
+     */
+    private static int countDescriptors() {
+        String[] descriptors = new File("/proc/self/fd").list();
+        return descriptors != null ? descriptors.length : -1;
+    }
+
+    private static void updateMax(AtomicInteger max, int value) {
+        int current;
+        do {
+            current = max.get();
+        } while(value > current && !max.compareAndSet(current, value));
+    }
+}
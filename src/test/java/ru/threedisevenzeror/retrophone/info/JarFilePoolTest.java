@@ -0,0 +1,146 @@
+package ru.threedisevenzeror.retrophone.info;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ */
+public class JarFilePoolTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void leastRecentlyUsedJarIsEvicted() throws Exception {
+        JarFilePool pool = new JarFilePool(2);
+        File first = createJar("first.jar", "entry", new byte[] {1});
+        File second = createJar("second.jar", "entry", new byte[] {2});
+        File third = createJar("third.jar", "entry", new byte[] {3});
+
+        JarFilePool.Handle firstHandle = pool.acquire(first);
+        pool.release(firstHandle);
+        pool.release(pool.acquire(second));
+        pool.release(pool.acquire(first));
+        pool.release(pool.acquire(third));
+
+        assertEquals(2, pool.getOpenCount());
+        assertTrue(firstHandle.getJar().hasEntry("entry"));
+        assertSame(firstHandle, pool.acquire(first));
+    }
+
+    @Test
+    public void jarInUseIsNotEvicted() throws Exception {
+        JarFilePool pool = new JarFilePool(1);
+        File first = createJar("first.jar", "entry", new byte[] {1});
+        File second = createJar("second.jar", "entry", new byte[] {2});
+
+        JarFilePool.Handle used = pool.acquire(first);
+        JarFilePool.Handle other = pool.acquire(second);
+        assertEquals(2, pool.getOpenCount());
+
+        pool.release(other);
+        assertEquals(1, pool.getOpenCount());
+        assertFalse(other.getJar().hasEntry("entry"));
+        assertTrue(used.getJar().hasEntry("entry"));
+
+        pool.release(used);
+        assertTrue(used.getJar().hasEntry("entry"));
+        assertEquals(1, pool.getOpenCount());
+    }
+
+    @Test
+    public void entryStreamKeepsJarInUse() throws Exception {
+        JarFilePool pool = new JarFilePool(1);
+        File first = createJar("first.jar", "entry", new byte[] {1, 2, 3});
+        File second = createJar("second.jar", "entry", new byte[] {4});
+
+        InputStream stream = pool.openEntry(first, "entry");
+        JarFilePool.Handle firstHandle = pool.acquire(first);
+        pool.release(firstHandle);
+        pool.release(pool.acquire(second));
+
+        assertEquals(1, pool.getOpenCount());
+        assertTrue(firstHandle.getJar().hasEntry("entry"));
+        assertArrayEquals(new byte[] {1, 2, 3}, IOUtils.toByteArray(stream));
+
+        stream.close();
+        stream.close();
+        pool.release(pool.acquire(second));
+
+        assertEquals(1, pool.getOpenCount());
+        assertFalse(firstHandle.getJar().hasEntry("entry"));
+    }
+
+    @Test
+    public void missingEntryDoesNotKeepJarInUse() throws Exception {
+        JarFilePool pool = new JarFilePool(1);
+        File first = createJar("first.jar", "entry", new byte[] {1});
+        File second = createJar("second.jar", "entry", new byte[] {2});
+
+        assertNull(pool.openEntry(first, "missing"));
+        JarFilePool.Handle firstHandle = pool.acquire(first);
+        pool.release(firstHandle);
+        pool.release(pool.acquire(second));
+
+        assertFalse(firstHandle.getJar().hasEntry("entry"));
+    }
+
+    @Test
+    public void changedJarIsReopened() throws Exception {
+        JarFilePool pool = new JarFilePool(4);
+        File file = createJar("first.jar", "entry", new byte[] {1});
+
+        JarFilePool.Handle old = pool.acquire(file);
+        // jar is replaced, not rewritten in place, since old one is still mapped
+        File updated = createJar("updated.jar", "entry", new byte[] {2, 3});
+        updated.setLastModified(file.lastModified() + 2000);
+        assertTrue(updated.renameTo(file));
+
+        InputStream stream = pool.openEntry(file, "entry");
+        try {
+            assertArrayEquals(new byte[] {2, 3}, IOUtils.toByteArray(stream));
+        } finally {
+            stream.close();
+        }
+
+        JarFilePool.Handle reopened = pool.acquire(file);
+        assertNotSame(old, reopened);
+        assertTrue(old.getJar().hasEntry("entry"));
+
+        pool.release(old);
+        assertFalse(old.getJar().hasEntry("entry"));
+        pool.release(reopened);
+        assertEquals(1, pool.getOpenCount());
+    }
+
+    private File createJar(String name, String entry, byte[] data) throws Exception {
+        File file = new File(folder.getRoot(), name);
+        JarOutputStream stream = new JarOutputStream(new FileOutputStream(file));
+        try {
+            stream.putNextEntry(new ZipEntry(entry));
+            stream.write(data);
+            stream.closeEntry();
+        } finally {
+            stream.close();
+        }
+
+        return file;
+    }
+}
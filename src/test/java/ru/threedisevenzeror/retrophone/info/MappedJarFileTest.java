@@ -0,0 +1,326 @@
+package ru.threedisevenzeror.retrophone.info;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ */
+public class MappedJarFileTest {
+
+    private static final int END_SIGNATURE = 0x06054B50;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void smallJarEntriesMatchZipFile() throws Exception {
+        // small jar is read into heap
+        assertEntriesMatchZipFile(createEntries(new Random(1), 20, 200));
+    }
+
+    @Test
+    public void largeJarEntriesMatchZipFile() throws Exception {
+        // large jar is mapped
+        assertEntriesMatchZipFile(createEntries(new Random(2), 200, 4000));
+    }
+
+    @Test
+    public void missingEntryIsNotFound() throws Exception {
+        MappedJarFile jar = MappedJarFile.open(write(createJar(createEntries(new Random(3), 5, 100), null)));
+
+        assertFalse(jar.hasEntry("missing"));
+        assertFalse(jar.hasEntry("entry0/"));
+        assertEquals(-1, jar.getSize("missing"));
+        assertNull(jar.getBuffer("missing"));
+        assertNull(jar.getInputStream("missing"));
+        assertNull(jar.getManifest());
+    }
+
+    @Test
+    public void archiveCommentIsSkipped() throws Exception {
+        Map<String, byte[]> entries = createEntries(new Random(4), 5, 100);
+        assertEntries(MappedJarFile.open(write(createJar(entries, "comment of archive"))), entries);
+    }
+
+    @Test
+    public void closedJarHasNoEntriesButKeepsOpenStreams() throws Exception {
+        Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+        entries.put("deflated", new byte[5000]);
+        MappedJarFile jar = MappedJarFile.open(write(createJar(entries, null)));
+
+        InputStream stream = jar.getInputStream("deflated");
+        jar.close();
+
+        assertFalse(jar.hasEntry("deflated"));
+        assertNull(jar.getInputStream("deflated"));
+        assertArrayEquals(new byte[5000], IOUtils.toByteArray(stream));
+
+        // pooled buffer is not readable after stream is closed
+        stream.close();
+        assertEquals(-1, stream.read());
+    }
+
+    @Test
+    public void fileThatIsNotZipIsRejected() throws Exception {
+        byte[] garbage = new byte[1000];
+        new Random(5).nextBytes(garbage);
+
+        assertOpenFails(new byte[0]);
+        assertOpenFails(garbage);
+        assertOpenFails(new byte[100000]);
+    }
+
+    @Test
+    public void truncatedJarIsRejected() throws Exception {
+        byte[] jar = createJar(createEntries(new Random(6), 10, 100), null);
+
+        // end record is lost, or it points to central directory past its end
+        assertOpenFails(Arrays.copyOf(jar, jar.length - 10));
+        byte[] shifted = jar.clone();
+        ByteBuffer buffer = wrap(shifted);
+        int end = findEnd(shifted);
+        buffer.putInt(end + 16, buffer.getInt(end + 16) + 1);
+        assertOpenFails(shifted);
+    }
+
+    @Test
+    public void corruptedCentralDirectoryIsRejected() throws Exception {
+        byte[] jar = createJar(createEntries(new Random(7), 10, 100), null);
+        ByteBuffer buffer = wrap(jar);
+        int directory = buffer.getInt(findEnd(jar) + 16);
+        buffer.putInt(directory, 0x12345678);
+
+        assertOpenFails(jar);
+    }
+
+    @Test
+    public void corruptedEntryIsRejectedWhenRead() throws Exception {
+        Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+        entries.put("deflated", new byte[3000]);
+        entries.put("stored", "stored data".getBytes("UTF-8"));
+        byte[] jar = createJar(entries, null);
+        ByteBuffer buffer = wrap(jar);
+        int directory = buffer.getInt(findEnd(jar) + 16);
+        int second = directory + 46 + (buffer.getShort(directory + 28) & 0xFFFF);
+
+        // deflated entry is shorter than central directory says, and local header of stored entry points to nowhere
+        buffer.putInt(directory + 24, 3001);
+        buffer.putInt(second + 42, jar.length - 10);
+        MappedJarFile file = MappedJarFile.open(write(jar));
+
+        assertTrue(file.hasEntry("stored"));
+        assertReadFails(file, "stored");
+        assertReadFails(file, "deflated");
+    }
+
+    @Test
+    public void unsupportedCompressionIsRejectedWhenRead() throws Exception {
+        Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+        entries.put("entry", new byte[3000]);
+        byte[] jar = createJar(entries, null);
+        ByteBuffer buffer = wrap(jar);
+        int directory = buffer.getInt(findEnd(jar) + 16);
+        buffer.putShort(directory + 10, (short) 12);
+
+        assertReadFails(MappedJarFile.open(write(jar)), "entry");
+    }
+
+    @Test
+    public void zip64EndRecordIsRejected() throws Exception {
+        byte[] jar = createJar(createEntries(new Random(8), 10, 100), null);
+        int end = findEnd(jar);
+
+        byte[] count = jar.clone();
+        wrap(count).putShort(end + 10, (short) 0xFFFF);
+        assertZip64Fails(count);
+
+        byte[] offset = jar.clone();
+        wrap(offset).putInt(end + 16, 0xFFFFFFFF);
+        assertZip64Fails(offset);
+    }
+
+    @Test
+    public void zip64ArchiveIsRejected() throws Exception {
+        // more entries than end record can count, so zip64 records are written
+        Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+        for(int i = 0; i < 0x10000; i++) {
+            entries.put("e" + i, new byte[0]);
+        }
+
+        assertZip64Fails(createJar(entries, null));
+    }
+
+    private void assertEntriesMatchZipFile(Map<String, byte[]> entries) throws Exception {
+        File file = write(createJar(entries, null));
+        MappedJarFile jar = MappedJarFile.open(file);
+        assertEntries(jar, entries);
+
+        ZipFile zip = new ZipFile(file);
+        try {
+            List<String> names = new ArrayList<String>();
+            for(ZipEntry entry : Collections.list(zip.entries())) {
+                names.add(entry.getName());
+                assertEquals(entry.getName(), entry.getSize(), jar.getSize(entry.getName()));
+            }
+
+            assertEquals(names, Arrays.asList(jar.getNames()));
+            assertEquals(zip.size(), jar.size());
+        } finally {
+            zip.close();
+        }
+    }
+
+    private static void assertEntries(MappedJarFile jar, Map<String, byte[]> entries) throws Exception {
+        assertEquals(entries.size(), jar.size());
+
+        for(Map.Entry<String, byte[]> entry : entries.entrySet()) {
+            String name = entry.getKey();
+            assertTrue(name, jar.hasEntry(name));
+            assertEquals(name, entry.getValue().length, jar.getSize(name));
+
+            ByteBuffer buffer = jar.getBuffer(name);
+            byte[] data = new byte[buffer.remaining()];
+            buffer.get(data);
+            assertArrayEquals(name, entry.getValue(), data);
+
+            InputStream stream = jar.getInputStream(name);
+            try {
+                assertArrayEquals(name, entry.getValue(), IOUtils.toByteArray(stream));
+            } finally {
+                stream.close();
+            }
+        }
+    }
+
+    /**
+     * Entries of random sizes up to maximal one, names include directories and non-ascii characters
+     */
+    private static Map<String, byte[]> createEntries(Random random, int count, int maxSize) {
+        Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+
+        for(int i = 0; i < count; i++) {
+            byte[] data = new byte[i == 0 ? 0 : random.nextInt(maxSize)];
+            for(int j = 0; j < data.length; j++) {
+                data[j] = (byte) (random.nextBoolean() ? random.nextInt() : j % 7);
+            }
+
+            String name = i % 5 == 0 ? "entry" + i + "/ресурс" + i + ".bin" : "dir/entry" + i;
+            entries.put(name, data);
+        }
+
+        return entries;
+    }
+
+    /**
+     * Zip archive of entries in their order, odd entries are stored and even ones are deflated
+     */
+    private static byte[] createJar(Map<String, byte[]> entries, String comment) throws IOException {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        ZipOutputStream stream = new ZipOutputStream(data);
+        if(comment != null) {
+            stream.setComment(comment);
+        }
+
+        int index = 0;
+        for(Map.Entry<String, byte[]> entry : entries.entrySet()) {
+            ZipEntry zipEntry = new ZipEntry(entry.getKey());
+
+            if(index++ % 2 == 1) {
+                CRC32 crc = new CRC32();
+                crc.update(entry.getValue());
+                zipEntry.setMethod(ZipEntry.STORED);
+                zipEntry.setSize(entry.getValue().length);
+                zipEntry.setCrc(crc.getValue());
+            }
+
+            stream.putNextEntry(zipEntry);
+            stream.write(entry.getValue());
+            stream.closeEntry();
+        }
+
+        stream.close();
+        return data.toByteArray();
+    }
+
+    private File write(byte[] data) throws IOException {
+        File file = folder.newFile();
+        FileUtils.writeByteArrayToFile(file, data);
+        return file;
+    }
+
+    private void assertOpenFails(byte[] data) throws IOException {
+        try {
+            MappedJarFile.open(write(data));
+            fail("Malformed jar is opened");
+        } catch (IOException expected) {
+            // jar is rejected
+        }
+    }
+
+    private void assertZip64Fails(byte[] data) throws IOException {
+        try {
+            MappedJarFile.open(write(data));
+            fail("Zip64 jar is opened");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().startsWith("Zip64"));
+        }
+    }
+
+    private static void assertReadFails(MappedJarFile jar, String name) {
+        try {
+            jar.getBuffer(name);
+            fail("Malformed entry " + name + " is read");
+        } catch (IOException expected) {
+            // entry is rejected
+        }
+
+        try {
+            jar.getInputStream(name).close();
+            fail("Malformed entry " + name + " is read");
+        } catch (IOException expected) {
+            // entry is rejected
+        }
+    }
+
+    private static ByteBuffer wrap(byte[] data) {
+        return ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Offset of end of central directory record in archive without comment
+     */
+    private static int findEnd(byte[] data) {
+        int end = data.length - 22;
+        assertEquals(END_SIGNATURE, wrap(data).getInt(end));
+        return end;
+    }
+}
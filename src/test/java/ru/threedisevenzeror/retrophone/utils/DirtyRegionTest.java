@@ -0,0 +1,80 @@
+package ru.threedisevenzeror.retrophone.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by ThreeDISevenZeroR on 18.10.2026.
+ */
+public class DirtyRegionTest {
+
+    @Test
+    public void boundsIncludeAllRectangles() {
+        DirtyRegion region = new DirtyRegion();
+        region.include(10, 10, 20, 20);
+        region.include(5, 15, 8, 40);
+        region.include(0, 0, 0, 100);
+
+        int[] bounds = new int[4];
+        assertTrue(region.takeBounds(bounds));
+        assertArrayEquals(new int[] {5, 10, 15, 30}, bounds);
+        assertTrue(region.isEmpty());
+        assertFalse(region.takeBounds(bounds));
+    }
+
+    @Test
+    public void copyIsKeptApartFromBounds() {
+        DirtyRegion region = new DirtyRegion();
+        region.include(0, 90, 100, 100);
+        region.includeCopy(0, 10, 0, 0, 100, 80);
+        region.include(0, 80, 100, 90);
+
+        int[] copy = new int[6];
+        int[] bounds = new int[4];
+        assertTrue(region.takeCopy(copy));
+        assertArrayEquals(new int[] {0, 10, 0, 0, 100, 80}, copy);
+        assertTrue(region.takeBounds(bounds));
+        assertArrayEquals(new int[] {0, 80, 100, 20}, bounds);
+        assertFalse(region.takeCopy(copy));
+    }
+
+    @Test
+    public void copyOfChangedAreaIsIncludedToBounds() {
+        DirtyRegion region = new DirtyRegion();
+        region.include(0, 20, 10, 30);
+        region.includeCopy(0, 10, 50, 50, 100, 100);
+
+        int[] bounds = new int[4];
+        assertFalse(region.takeCopy(new int[6]));
+        assertTrue(region.takeBounds(bounds));
+        assertArrayEquals(new int[] {0, 20, 100, 80}, bounds);
+    }
+
+    @Test
+    public void onlyOneCopyIsKeptApart() {
+        DirtyRegion region = new DirtyRegion();
+        region.includeCopy(0, 10, 0, 0, 100, 90);
+        region.includeCopy(0, 10, 0, 0, 100, 90);
+
+        int[] copy = new int[6];
+        int[] bounds = new int[4];
+        assertTrue(region.takeCopy(copy));
+        assertTrue(region.takeBounds(bounds));
+        assertArrayEquals(new int[] {0, 0, 100, 90}, bounds);
+    }
+
+    @Test
+    public void copyIsIncludedToBoundsIfItIsNotTaken() {
+        DirtyRegion region = new DirtyRegion();
+        region.includeCopy(0, 10, 0, 0, 100, 90);
+
+        int[] bounds = new int[4];
+        assertFalse(region.isEmpty());
+        assertTrue(region.takeBounds(bounds));
+        assertArrayEquals(new int[] {0, 0, 100, 90}, bounds);
+        assertTrue(region.isEmpty());
+    }
+}